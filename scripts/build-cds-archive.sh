@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+#
+# Genera un archivo AppCDS (Class Data Sharing) para el servidor MCP a partir de una sesión de entrenamiento.
+#
+# La sesión (scripts/cds-training-session.jsonl) ejecuta initialize, tools/list y llamadas a herramientas
+# representativas; al terminar, la JVM vuelca todas las clases cargadas en target/sentinel-mcp.jsa.
+# scripts/sentinel-mcp.sh usa el archivo automáticamente si existe.
+#
+# Uso (tras mvn package):
+#   scripts/build-cds-archive.sh
+#
+# El archivo es válido solo para la misma JDK y el mismo jar: regenerarlo tras cada build.
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="${JAR:-$ROOT_DIR/target/sentinel-backend-ai-1.0.0-SNAPSHOT-all.jar}"
+ARCHIVE="${CDS_ARCHIVE:-$ROOT_DIR/target/sentinel-mcp.jsa}"
+TRAINING="$ROOT_DIR/scripts/cds-training-session.jsonl"
+
+if [[ ! -f "$JAR" ]]; then
+    echo "No se encontró $JAR (ejecuta mvn package)" >&2
+    exit 1
+fi
+
+rm -f "$ARCHIVE"
+cd "$ROOT_DIR"
+java -XX:ArchiveClassesAtExit="$ARCHIVE" \
+     -cp "$JAR" com.sentinel.arch.mcp.server.SentinelMcpServer \
+     < "$TRAINING" > /dev/null 2>&1
+
+if [[ -f "$ARCHIVE" ]]; then
+    echo "Archivo CDS generado: $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
+else
+    echo "La JVM no generó el archivo CDS" >&2
+    exit 1
+fi
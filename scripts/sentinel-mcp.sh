@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+#
+# Lanzador del servidor MCP sobre STDIO para IDEs (Cursor, IntelliJ...).
+# Usa el archivo AppCDS de scripts/build-cds-archive.sh si existe, lo que evita cargar y verificar
+# de nuevo las clases de Jackson, Logback y del propio servidor en cada arranque.
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="${JAR:-$ROOT_DIR/target/sentinel-backend-ai-1.0.0-SNAPSHOT-all.jar}"
+ARCHIVE="${CDS_ARCHIVE:-$ROOT_DIR/target/sentinel-mcp.jsa}"
+
+JVM_OPTS=(-Xshare:auto)
+if [[ -f "$ARCHIVE" ]]; then
+    JVM_OPTS+=(-XX:SharedArchiveFile="$ARCHIVE")
+fi
+
+# shellcheck disable=SC2086
+exec java "${JVM_OPTS[@]}" ${SENTINEL_JAVA_OPTS:-} -cp "$JAR" com.sentinel.arch.mcp.server.SentinelMcpServer "$@"
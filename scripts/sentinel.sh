@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+#
+# Cliente ligero de la CLI: reenvía el comando a un daemon de Sentinel con la JVM ya caliente
+# (lo arranca en segundo plano la primera vez) y muestra su salida según llega. Pensado para hooks
+# de pre-commit y otras invocaciones repetidas; el daemon termina solo tras 30 min sin uso.
+#
+# Uso (tras mvn package):
+#   scripts/sentinel.sh audit -p . -b origin/main
+#   scripts/sentinel.sh daemon --status | --stop
+#
+# SENTINEL_NO_DAEMON=1 ejecuta el comando en este proceso. SENTINEL_JAVA_OPTS se aplica a la JVM
+# del daemon; las propiedades -Dsentinel.* van en SENTINEL_CLIENT_OPTS y el daemon las hereda
+# (un daemon arrancado con otras se reemplaza).
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="${JAR:-$ROOT_DIR/target/sentinel-backend-ai-1.0.0-SNAPSHOT-all.jar}"
+
+# La JVM del cliente solo copia bytes: no necesita JIT de nivel alto ni GC paralelo
+# shellcheck disable=SC2086
+exec java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xshare:auto ${SENTINEL_CLIENT_OPTS:-} \
+     -cp "$JAR" com.sentinel.arch.daemon.SentinelClient "$@"
@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+#
+# Benchmark de arranque del servidor MCP: JVM (jar sombreado) vs. imagen nativa.
+#
+# Para cada variante lanza el servidor N veces, envía una solicitud "initialize" por STDIO y mide:
+#   - tiempo hasta recibir la respuesta JSON-RPC de initialize (ms)
+#   - memoria residente máxima del proceso (VmHWM, MB)
+#
+# Uso:
+#   mvn -Pnative package            # genera el jar -all y target/sentinel-mcp
+#   scripts/startup-benchmark.sh [iteraciones]
+#
+# Variables opcionales: JAR, NATIVE_BIN, JAVA_OPTS_BENCH
+set -euo pipefail
+
+ITERATIONS="${1:-10}"
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="${JAR:-$ROOT_DIR/target/sentinel-backend-ai-1.0.0-SNAPSHOT-all.jar}"
+NATIVE_BIN="${NATIVE_BIN:-$ROOT_DIR/target/sentinel-mcp}"
+MAIN_CLASS="com.sentinel.arch.mcp.server.SentinelMcpServer"
+INIT_REQUEST='{"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2024-11-05","capabilities":{},"clientInfo":{"name":"startup-benchmark","version":"1.0"}}}'
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Ejecuta una vez el comando dado; imprime "<ms> <rss_mb>"
+measure_once() {
+    local start end pid line rss_kb
+    start=$(now_ms)
+    coproc SERVER { exec "$@" 2>/dev/null; }
+    pid=$SERVER_PID
+    echo "$INIT_REQUEST" >&"${SERVER[1]}"
+    # Ignora cualquier línea que no sea la respuesta JSON-RPC con id 1
+    while IFS= read -r line <&"${SERVER[0]}"; do
+        if [[ "$line" == \{* && "$line" == *'"id":1'* ]]; then
+            break
+        fi
+    done
+    end=$(now_ms)
+    rss_kb=$(awk '/VmHWM/ {print $2}' "/proc/$pid/status" 2>/dev/null || echo 0)
+    # Cierra STDIN (EOF) para que el servidor termine su bucle; fuerza la salida si no lo hace
+    exec {SERVER[1]}>&-
+    for _ in {1..50}; do
+        kill -0 "$pid" 2>/dev/null || break
+        sleep 0.1
+    done
+    kill -9 "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    echo "$(( end - start )) $(( rss_kb / 1024 ))"
+}
+
+# Ejecuta ITERATIONS veces y resume mediana/mín/máx de tiempo y mediana de RSS
+run_variant() {
+    local label="$1"; shift
+    local times=() rss=() result
+    for ((i = 0; i < ITERATIONS; i++)); do
+        result=$(measure_once "$@")
+        times+=("${result% *}")
+        rss+=("${result#* }")
+    done
+    local sorted_times sorted_rss
+    sorted_times=($(printf '%s\n' "${times[@]}" | sort -n))
+    sorted_rss=($(printf '%s\n' "${rss[@]}" | sort -n))
+    printf '%-8s %8s %8s %8s %10s\n' "$label" \
+        "${sorted_times[$(( ITERATIONS / 2 ))]}" "${sorted_times[0]}" "${sorted_times[$(( ITERATIONS - 1 ))]}" \
+        "${sorted_rss[$(( ITERATIONS / 2 ))]}"
+}
+
+printf '%-8s %8s %8s %8s %10s\n' "variant" "p50(ms)" "min(ms)" "max(ms)" "rss(MB)"
+
+if [[ -f "$JAR" ]]; then
+    # shellcheck disable=SC2086
+    run_variant "jvm" java ${JAVA_OPTS_BENCH:-} -cp "$JAR" "$MAIN_CLASS"
+else
+    echo "jvm: no se encontró $JAR (ejecuta mvn package)" >&2
+fi
+
+if [[ -x "$NATIVE_BIN" ]]; then
+    run_variant "native" "$NATIVE_BIN"
+else
+    echo "native: no se encontró $NATIVE_BIN (ejecuta mvn -Pnative package)" >&2
+fi
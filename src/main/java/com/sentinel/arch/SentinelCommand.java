@@ -2,6 +2,8 @@ package com.sentinel.arch;
 
 import com.sentinel.arch.cli.AnalyzeCommand;
 import com.sentinel.arch.cli.AuditCommand;
+import com.sentinel.arch.cli.DaemonCommand;
+import com.sentinel.arch.cli.RulesBenchCommand;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
@@ -12,7 +14,7 @@ import picocli.CommandLine.Command;
         name = "sentinel",
         description = "Agente Sentinel-Arch: análisis de microservicios Java con IA local (LangChain4j + Ollama + MCP)",
         mixinStandardHelpOptions = true,
-        subcommands = { AnalyzeCommand.class, AuditCommand.class }
+        subcommands = { AnalyzeCommand.class, AuditCommand.class, RulesBenchCommand.class, DaemonCommand.class }
 )
 public class SentinelCommand implements Runnable {
 
@@ -1,6 +1,5 @@
 package com.sentinel.arch;
 
-import com.sentinel.arch.cli.AnalyzeCommand;
 import picocli.CommandLine;
 
 /**
@@ -10,8 +9,14 @@ import picocli.CommandLine;
 public class SentinelMain {
 
     public static void main(String[] args) {
-        var exitCode = new CommandLine(new SentinelCommand())
+        System.exit(execute(args));
+    }
+
+    /**
+     * Ejecuta un subcomando sin terminar la JVM (lo usan también el daemon y su cliente)
+     */
+    public static int execute(String[] args) {
+        return new CommandLine(new SentinelCommand())
                 .execute(args);
-        System.exit(exitCode);
     }
 }
@@ -7,8 +7,10 @@ public interface SentinelAgent {
         Eres 'Sentinel-Arch', un arquitecto senior de Java. 
         Tu objetivo es analizar el código local usando las herramientas proporcionadas.
         1. Explora la estructura del proyecto.
-        2. Lee los archivos clave (pom.xml, controladores, servicios).
-        3. Genera un reporte en Markdown con: Resumen, Puntos de Mejora y un Diagrama Mermaid del flujo.
+        2. Usa search_code para localizar el código relevante (controladores, clientes HTTP, mensajería,
+           persistencia, configuración) en lugar de leer los archivos uno a uno.
+        3. Lee completos solo los archivos clave que necesites (pom.xml, los que señale la búsqueda).
+        4. Genera un reporte en Markdown con: Resumen, Puntos de Mejora y un Diagrama Mermaid del flujo.
         """)
     String analyze(String userPrompt);
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.sentinel.arch.cli;
 
 import com.sentinel.arch.agent.SentinelAgent;
+import com.sentinel.arch.daemon.Invocation;
+import com.sentinel.arch.mcp.Lazy;
 import com.sentinel.arch.mcp.ProjectMcpTools;
 import com.sentinel.arch.ollama.OllamaConfig;
 import dev.langchain4j.model.chat.ChatModel;
@@ -16,8 +18,12 @@ public class AnalyzeCommand implements Callable<Integer> {
     @Option(names = {"-p", "--path"}, description = "Ruta absoluta del proyecto Java", required = true)
     private String projectPath;
 
+    // Compartidas entre ejecuciones: en el daemon conservan el índice de código y las cachés de los delegados
+    private static final Lazy<ProjectMcpTools> TOOLS = Lazy.of(ProjectMcpTools::new);
+
     @Override
     public Integer call() {
+        projectPath = Invocation.resolve(projectPath).toString();
         System.out.println("🚀 Iniciando Sentinel-Arch sobre: " + projectPath);
 
         try {
@@ -28,7 +34,7 @@ public class AnalyzeCommand implements Callable<Integer> {
             // 2. Construir el Agente con capacidades MCP (Tools)
             SentinelAgent agent = AiServices.builder(SentinelAgent.class)
                     .chatModel(model)
-                    .tools(new ProjectMcpTools())
+                    .tools(TOOLS.get())
                     .build();
 
             System.out.println("🧠 El agente está analizando el contexto... (esto puede tardar unos segundos)");
@@ -1,15 +1,34 @@
 package com.sentinel.arch.cli;
 
+import com.sentinel.arch.daemon.Invocation;
+import com.sentinel.arch.mcp.Lazy;
 import com.sentinel.arch.mcp.ServiceInterconnectionDiscovery;
+import com.sentinel.arch.ollama.ModelRouter;
 import com.sentinel.arch.ollama.OllamaConfig;
+import com.sentinel.arch.ollama.PromptCompactor;
+import com.sentinel.arch.ollama.TokenEstimator;
+import com.sentinel.arch.report.AuditFindings;
+import com.sentinel.arch.report.SentinelReport;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Command(name = "audit", description = "Audits the service interconnections of a project and generates an audit report")
 public class AuditCommand implements Callable<Integer> {
@@ -17,52 +36,123 @@ public class AuditCommand implements Callable<Integer> {
     @Option(names = {"-p", "--path"}, description = "Ruta absoluta del proyecto Java a auditar", required = true)
     private String projectPath;
 
+    @Option(names = {"-b", "--base"}, description = "Revisión git base: audita solo las interconexiones cambiadas desde ella (modo PR)")
+    private String baseRevision;
+
+    @Option(names = {"-c", "--context"}, description = "Ventana de contexto del modelo en tokens (num_ctx de Ollama)",
+            defaultValue = "" + OllamaConfig.DEFAULT_CONTEXT_WINDOW)
+    private int contextWindow;
+
+    @Option(names = "--no-compact", description = "Envía el JSON del descubrimiento sin compactar")
+    private boolean noCompact;
+
+    @Option(names = {"-o", "--output-dir"}, description = "Directorio donde se escribe SENTINEL_REPORT_YYYYMMDD_NN.md",
+            defaultValue = ".")
+    private String outputDirectory;
+
+    @Option(names = "--bytecode", description = "Descubre también sobre las clases y jars compilados (target/classes, build/libs...); se ignora con --base")
+    private boolean bytecode;
+
+    // Tokens que se dejan libres en la ventana para la respuesta del modelo (los hallazgos en JSON)
+    private static final int RESPONSE_RESERVE_TOKENS = 1024;
+
+    // Peticiones de hallazgos: la primera y un reintento si no superan la validación
+    private static final int MAX_FINDINGS_ATTEMPTS = 2;
+
+    // Fragmentos de aristas omitidas que resume el modelo rápido, en paralelo
+    private static final int MAX_SUMMARY_CHUNKS = 4;
+
+    // Compartido entre ejecuciones: en el daemon conserva la caché de escaneos de la revisión base
+    private static final Lazy<ServiceInterconnectionDiscovery> DISCOVERY = Lazy.of(ServiceInterconnectionDiscovery::new);
+
     @Override
     public Integer call() {
+        // Rutas relativas al directorio de quien lanza el comando (también a través del daemon)
+        Path projectDir = Invocation.resolve(projectPath);
+        projectPath = projectDir.toString();
         System.out.println("🔍 Iniciando auditoría de interconexiones de servicios en: " + projectPath);
 
         try {
             // Validate project path exists
-            if (!Files.exists(Paths.get(projectPath))) {
+            if (!Files.exists(projectDir)) {
                 System.err.println("❌ Error: La ruta del proyecto no existe: " + projectPath);
                 return 1;
             }
 
-            // 1. Run the discover_service_interconnections logic
-            System.out.println("🔍 Descubriendo interconexiones de servicios...");
-            ServiceInterconnectionDiscovery discovery = new ServiceInterconnectionDiscovery();
-            String discoveryResult = discovery.discover_service_interconnections(projectPath);
+            // 1. Run the discover_service_interconnections logic (or only the git delta in PR mode)
+            ServiceInterconnectionDiscovery discovery = DISCOVERY.get();
+            String discoveryResult;
+            if (baseRevision != null) {
+                if (bytecode) {
+                    System.out.println("⚠️  --bytecode no aplica al modo PR: se comparan solo las fuentes cambiadas");
+                }
+                System.out.println("🔍 Descubriendo interconexiones cambiadas desde " + baseRevision + "...");
+                discoveryResult = discovery.discover_changed_interconnections(projectPath, baseRevision);
+            } else if (bytecode) {
+                System.out.println("🔍 Descubriendo interconexiones en fuentes y bytecode compilado...");
+                discoveryResult = discovery.discover_compiled_interconnections(projectPath);
+            } else {
+                System.out.println("🔍 Descubriendo interconexiones de servicios...");
+                discoveryResult = discovery.discover_service_interconnections(projectPath);
+            }
 
             System.out.println("✅ Descubrimiento completado. Enviando resultados a Ollama para generar el informe de auditoría...");
 
-            // 2. Connect to Ollama API and send the discovery result
-            OllamaConfig ollamaConfig = new OllamaConfig();
-            ChatModel model = ollamaConfig.createModel();
+            // 2. Connect to Ollama (one or more endpoints, see sentinel.ollama.*) and send the discovery result
+            OllamaConfig ollamaConfig = OllamaConfig.fromSystemProperties(contextWindow);
+            ModelRouter router = ollamaConfig.createRouter();
+            ChatModel model = router.model(ModelRouter.Tier.REPORT);
 
-            // 3. Create system prompt for audit report generation
+            // 3. The model only writes the findings (JSON constrained by a schema); the report is rendered locally (WF-03)
             String systemPrompt = """
-                Eres un experto en arquitectura de microservicios y seguridad. 
-                Tu tarea es generar un informe de auditoría detallado basado en el análisis de interconexiones de servicios.
-                
-                El informe debe incluir:
-                1. Una descripción general de la arquitectura de microservicios
-                2. Un análisis de las interconexiones encontradas (inbound y outbound)
-                3. Posibles riesgos de seguridad identificados
-                4. Recomendaciones para mejorar la seguridad y la arquitectura
-                5. Un resumen ejecutivo
-                
-                El formato del informe debe ser en Markdown con secciones claras y bien organizadas.
+                Eres un experto en arquitectura de microservicios y seguridad.
+                Analiza las interconexiones de servicios y responde solo con el JSON de hallazgos, en español:
+                - overview: tipo de arquitectura en una o dos frases.
+                - summary: de 3 a 7 viñetas de resumen ejecutivo (servicios clave, protocolos, principales hallazgos).
+                - risks: riesgos de seguridad o arquitectura; level HIGH, MEDIUM o LOW; target es la clase, paquete o servicio.
+                - recommendations: kind COMPLEXITY, COUPLING, SMELL o SECURITY; action es el cambio propuesto e impact su impacto esperado.
+                Sé breve: una frase por campo. No inventes servicios ni conexiones que no aparezcan en los datos.
                 """;
 
-            // 4. Send to Ollama and get the response
-            String userPrompt = systemPrompt + "\n\nPor favor, genera un informe de auditoría completo basado en esta información de interconexiones de servicios:\n\n" + discoveryResult;
-            String auditReport = model.chat(userPrompt);
+            // 4. Compact the discovery result to fit the model context, then send it to Ollama
+            String instructions = systemPrompt + "\nInterconexiones de servicios:\n\n";
+            String interconnections = discoveryResult;
+            if (!noCompact) {
+                int budget = contextWindow - RESPONSE_RESERVE_TOKENS - TokenEstimator.estimate(instructions);
+                String serviceName = projectDir.getFileName() != null ? projectDir.getFileName().toString() : "service";
+                PromptCompactor compactor = new PromptCompactor();
+                PromptCompactor.Result compacted = compactor.compact(discoveryResult, serviceName, Math.max(budget, 256));
+                String summaries = "";
+                if (compacted.omittedEdges() > 0 && router.hasDistinctFastModel()) {
+                    // Lo que no cabe lo resume el modelo rápido; se reserva sitio para sus resúmenes
+                    int summaryBudget = MAX_SUMMARY_CHUNKS * OllamaConfig.FAST_RESPONSE_TOKENS;
+                    compacted = compactor.compact(discoveryResult, serviceName, Math.max(budget - summaryBudget, 256));
+                    summaries = summarizeOmitted(router, compacted.omitted());
+                }
+                interconnections = compacted.text() + summaries;
+                System.out.printf("📉 Prompt compactado: ~%d → ~%d tokens (%d conexiones en %d aristas%s), contexto %d%n",
+                        compacted.originalTokens(), TokenEstimator.estimate(interconnections), compacted.connections(),
+                        compacted.edges(),
+                        compacted.omittedEdges() > 0 ? ", " + compacted.omittedEdges() + " omitidas por presupuesto" : "",
+                        contextWindow);
+            }
+            String userPrompt = instructions + interconnections;
+            long start = System.nanoTime();
+            AuditFindings findings = requestFindings(model, userPrompt, start);
+            if (ollamaConfig.getEndpoints().size() > 1) {
+                for (ModelRouter.EndpointStats stats : router.stats()) {
+                    System.out.printf("🔀 %s: %d peticiones, %d fallos%s%n", stats.baseUrl(), stats.requests(),
+                            stats.failures(), stats.coolingDown() ? " (en enfriamiento)" : "");
+                }
+            }
 
-            // 5. Save the generated audit report to AUDIT_REPORT.md
-            String reportFileName = "AUDIT_REPORT.md";
-            Files.write(Paths.get(reportFileName), auditReport.getBytes("UTF-8"));
+            // 5. Render the WF-03 report and save it as SENTINEL_REPORT_YYYYMMDD_NN.md
+            OffsetDateTime now = OffsetDateTime.now();
+            String auditReport = SentinelReport.render(projectDir, discoveryResult, findings, now);
+            Path reportFile = SentinelReport.createReportFile(Invocation.resolve(outputDirectory), now.toLocalDate());
+            Files.writeString(reportFile, auditReport);
 
-            System.out.println("📄 Informe de auditoría generado exitosamente en: " + reportFileName);
+            System.out.println("📄 Informe de auditoría generado exitosamente en: " + reportFile);
             System.out.println("\n--- RESUMEN DEL INFORME DE AUDITORÍA ---");
             System.out.println(auditReport.substring(0, Math.min(auditReport.length(), 500)) + "...");
             System.out.println("----------------------------------------");
@@ -74,4 +164,82 @@ public class AuditCommand implements Callable<Integer> {
             return 1;
         }
     }
+
+    /**
+     * Pide los hallazgos con la salida estructurada de Ollama y los valida. Si no cumplen el esquema
+     * (viñetas de menos, campos vacíos), se repite una vez indicando al modelo los problemas.
+     */
+    private AuditFindings requestFindings(ChatModel model, String userPrompt, long start) {
+        List<ChatMessage> messages = new ArrayList<>(List.of(UserMessage.from(userPrompt)));
+        for (int attempt = 1; ; attempt++) {
+            ChatResponse response = model.chat(ChatRequest.builder()
+                    .messages(messages)
+                    .responseFormat(AuditFindings.responseFormat())
+                    .maxOutputTokens(RESPONSE_RESERVE_TOKENS)
+                    .build());
+            if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                System.out.printf("⏱️  Ollama: %d tokens de prompt, %d generados, %.1f s%n",
+                        response.tokenUsage().inputTokenCount(), response.tokenUsage().outputTokenCount(),
+                        (System.nanoTime() - start) / 1e9);
+            }
+            String json = response.aiMessage().text();
+            try {
+                return AuditFindings.parse(json);
+            } catch (IllegalArgumentException e) {
+                if (attempt == MAX_FINDINGS_ATTEMPTS) {
+                    throw e;
+                }
+                System.out.println("⚠️  " + e.getMessage() + ". Reintentando...");
+                messages.add(AiMessage.from(json == null ? "" : json));
+                messages.add(UserMessage.from("Corrige el JSON: " + e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Resume con el modelo rápido, en paralelo y repartido entre endpoints, las aristas que no
+     * cupieron en el prompt. Un fragmento que falla se omite sin abortar la auditoría.
+     */
+    private String summarizeOmitted(ModelRouter router, List<String> omitted) throws InterruptedException {
+        int chunkBudget = Math.max(contextWindow - OllamaConfig.FAST_RESPONSE_TOKENS - 512, 256);
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        int chunkTokens = 0;
+        for (String line : omitted) {
+            int cost = TokenEstimator.estimate(line) + 1;
+            if (chunkTokens + cost > chunkBudget && chunk.length() > 0) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+                chunkTokens = 0;
+                if (chunks.size() == MAX_SUMMARY_CHUNKS) {
+                    break;
+                }
+            }
+            chunk.append(line).append('\n');
+            chunkTokens += cost;
+        }
+        if (chunk.length() > 0 && chunks.size() < MAX_SUMMARY_CHUNKS) {
+            chunks.add(chunk.toString());
+        }
+
+        System.out.printf("🧩 Resumiendo %d fragmentos de aristas omitidas con %s...%n", chunks.size(),
+                router.modelName(ModelRouter.Tier.FAST));
+        ChatModel fastModel = router.model(ModelRouter.Tier.FAST);
+        StringBuilder summaries = new StringBuilder("\nResumen de las aristas omitidas:\n");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = new ArrayList<>();
+            for (String edges : chunks) {
+                futures.add(executor.submit(() -> fastModel.chat(
+                        "Resume en 3 a 5 viñetas breves qué servicios, protocolos y riesgos muestran estas interconexiones:\n\n" + edges)));
+            }
+            for (Future<String> future : futures) {
+                try {
+                    summaries.append(future.get().strip()).append('\n');
+                } catch (ExecutionException e) {
+                    System.err.println("⚠️  No se pudo resumir un fragmento: " + e.getCause().getMessage());
+                }
+            }
+        }
+        return summaries.toString();
+    }
 }
\ No newline at end of file
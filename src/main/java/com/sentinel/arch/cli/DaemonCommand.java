@@ -0,0 +1,44 @@
+package com.sentinel.arch.cli;
+
+import com.sentinel.arch.daemon.SentinelClient;
+import com.sentinel.arch.daemon.SentinelDaemon;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+@Command(name = "daemon", description = "Mantiene una JVM caliente que ejecuta los comandos de sentinel para el cliente ligero (scripts/sentinel.sh)")
+public class DaemonCommand implements Callable<Integer> {
+
+    @Option(names = "--idle-timeout", description = "Minutos sin invocaciones tras los que el daemon termina", defaultValue = "30")
+    private long idleTimeoutMinutes;
+
+    @Option(names = "--status", description = "Muestra el estado del daemon en marcha")
+    private boolean status;
+
+    @Option(names = "--stop", description = "Detiene el daemon en marcha")
+    private boolean stop;
+
+    @Override
+    public Integer call() {
+        try {
+            if (status) {
+                return SentinelClient.status();
+            }
+            if (stop) {
+                return SentinelClient.stop();
+            }
+            SentinelDaemon daemon = new SentinelDaemon(Duration.ofMinutes(Math.max(1, idleTimeoutMinutes)));
+            if (!daemon.run()) {
+                // Otro cliente lo arrancó a la vez: ese daemon atiende las peticiones
+                System.out.println("🟢 Ya hay un daemon de Sentinel en marcha");
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println("❌ Error en el daemon de Sentinel: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sentinel.arch.cli;
+
+import com.sentinel.arch.daemon.Invocation;
+import com.sentinel.arch.mcp.ProjectWalker;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule.Scope;
+import com.sentinel.arch.mcp.fingerprint.RuleBenchmark;
+import com.sentinel.arch.mcp.fingerprint.RuleSet;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "rules-bench", description = "Mide el coste de las reglas de huellas de protocolo sobre un proyecto")
+public class RulesBenchCommand implements Callable<Integer> {
+
+    @Option(names = {"-p", "--path"}, description = "Ruta absoluta del proyecto Java", required = true)
+    private String projectPath;
+
+    @Option(names = {"-r", "--rounds"}, description = "Rondas medidas (tras una de calentamiento)", defaultValue = "5")
+    private int rounds;
+
+    @Override
+    public Integer call() {
+        Path rootPath = Invocation.resolve(projectPath);
+        if (!Files.isDirectory(rootPath)) {
+            System.err.println("❌ Error: La ruta del proyecto no existe: " + projectPath);
+            return 1;
+        }
+
+        try {
+            RuleSet rules = RuleSet.forProject(rootPath);
+            System.out.printf("⏱️  %d reglas (%d matchers de código, %d de configuración, %d literales de prefiltro)%n",
+                    rules.size(), rules.matcherCount(Scope.SOURCE), rules.matcherCount(Scope.CONFIG),
+                    rules.literals().size());
+
+            RuleBenchmark.Report report = RuleBenchmark.run(rules, rootPath, new ProjectWalker(), Math.max(1, rounds));
+            System.out.printf("   %d archivos de código, %d de configuración, %.1f MB, %d rondas%n",
+                    report.sourceFiles(), report.configFiles(), report.bytes() / 1e6, report.rounds());
+            System.out.printf("%n   Conjunto compilado: %.1f ms por ronda%n", report.engineNanos() / 1e6);
+            if (report.filesOverBudget() > 0) {
+                System.out.printf("   ⚠️  %d archivos superan el presupuesto de análisis y se omitirían (%s)%n",
+                        report.filesOverBudget(), RuleSet.STEP_BUDGET_PROPERTY);
+            }
+            System.out.println();
+
+            long totalRuleNanos = report.ruleCosts().stream().mapToLong(RuleBenchmark.RuleCost::nanos).sum();
+            System.out.printf("   %-28s %-7s %10s %7s %9s %9s %8s %10s%n",
+                    "regla", "ámbito", "ms/ronda", "%", "regex", "omitidos", "huellas", "excedidos");
+            for (RuleBenchmark.RuleCost cost : report.ruleCosts()) {
+                System.out.printf("   %-28s %-7s %10.2f %6.1f%% %9d %9d %8d %10d%n",
+                        cost.rule().id(), cost.rule().scope().name().toLowerCase(), cost.nanos() / 1e6,
+                        totalRuleNanos > 0 ? 100.0 * cost.nanos() / totalRuleNanos : 0.0,
+                        cost.filesMatched(), cost.filesSkipped(), cost.fingerprints(), cost.filesOverBudget());
+            }
+            System.out.printf("%n   Suma de reglas por separado: %.1f ms por ronda%n", totalRuleNanos / 1e6);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("❌ Error durante la medición: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.sentinel.arch.daemon;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Protocolo entre {@link SentinelClient} y {@link SentinelDaemon} sobre un socket Unix local.
+ *
+ * Petición: versión, tipo ({@link #RUN}, {@link #STATUS}, {@link #STOP}), sello de compilación,
+ * directorio de trabajo y argumentos del comando. Respuesta: tramas {@code [tipo][longitud][bytes]}
+ * de salida estándar ({@link #OUT}) y de error ({@link #ERR}) según se producen, y una trama final
+ * {@link #EXIT} con el código de salida. Todo lo que no es JDK queda fuera de esta clase y del
+ * cliente, que arranca sin cargar Picocli, Jackson ni LangChain4j.
+ */
+final class DaemonProtocol {
+
+    static final int VERSION = 1;
+
+    /** Peticiones */
+    static final byte RUN = 1;
+    static final byte STATUS = 2;
+    static final byte STOP = 3;
+
+    /** Tramas de respuesta */
+    static final byte OUT = 1;
+    static final byte ERR = 2;
+    static final byte EXIT = 3;
+
+    /** Código de salida con el que un daemon de otra compilación o configuración rechaza la petición */
+    static final int STALE_DAEMON = -100;
+
+    static final String DIRECTORY_PROPERTY = "sentinel.daemon.dir";
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private DaemonProtocol() {
+    }
+
+    record Request(byte kind, String stamp, Path workingDirectory, List<String> args) {
+    }
+
+    /**
+     * Directorio del socket, el bloqueo y el log del daemon: {@code $XDG_RUNTIME_DIR/sentinel} o, sin
+     * esa variable, {@code ~/.sentinel/daemon}. Quien conecta con el socket ejecuta comandos como el
+     * usuario, así que el directorio tiene que ser suyo y solo suyo: se crea con {@code rwx------} y
+     * uno ya existente con otro dueño u otros permisos (o un enlace simbólico) se rechaza.
+     *
+     * @throws IOException Si no se puede crear o no es privado del usuario
+     */
+    static Path directory() throws IOException {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        Path directory = (configured != null ? Paths.get(configured) : defaultDirectory()).toAbsolutePath();
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(directory.getParent());
+            try {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } catch (UnsupportedOperationException e) {
+                // Sistema de archivos sin permisos POSIX
+                Files.createDirectory(directory);
+            } catch (FileAlreadyExistsException e) {
+                // Lo creó a la vez otro proceso: se comprueba como cualquier otro existente
+            }
+        }
+        checkPrivate(directory);
+        return directory;
+    }
+
+    private static Path defaultDirectory() {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isBlank() && Files.isDirectory(Paths.get(runtime))) {
+            return Paths.get(runtime, "sentinel");
+        }
+        return Paths.get(System.getProperty("user.home"), ".sentinel", "daemon");
+    }
+
+    private static void checkPrivate(Path directory) throws IOException {
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException(directory + " is not a directory (or is a symbolic link)");
+        }
+        PosixFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.owner().equals(user)) {
+            throw new IOException(directory + " is owned by " + attributes.owner().getName() + ", not by " + user.getName());
+        }
+        if (!attributes.permissions().equals(OWNER_ONLY)) {
+            throw new IOException(directory + " has permissions " + PosixFilePermissions.toString(attributes.permissions())
+                    + ", expected rwx------ (chmod 700)");
+        }
+    }
+
+    static Path socketPath() throws IOException {
+        return directory().resolve("daemon.sock");
+    }
+
+    /**
+     * Sello de lo que ejecutaría el daemon: classpath con fechas de modificación y propiedades
+     * {@code sentinel.*}. Un cliente con otro sello no debe usar un daemon ya arrancado.
+     */
+    static String buildStamp() {
+        StringBuilder stamp = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            long modified;
+            try {
+                modified = Files.getLastModifiedTime(Paths.get(entry)).toMillis();
+            } catch (IOException | InvalidPathException e) {
+                modified = 0;
+            }
+            stamp.append(entry).append('@').append(modified).append(File.pathSeparatorChar);
+        }
+        new TreeMap<>(sentinelProperties()).forEach((key, value) -> stamp.append(';').append(key).append('=').append(value));
+        return stamp.toString();
+    }
+
+    /**
+     * Propiedades {@code sentinel.*} del proceso, que el cliente pasa al daemon que arranca
+     */
+    static TreeMap<String, String> sentinelProperties() {
+        TreeMap<String, String> properties = new TreeMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("sentinel.") && !name.equals(DIRECTORY_PROPERTY)) {
+                properties.put(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(VERSION);
+        out.writeByte(request.kind());
+        out.writeUTF(request.stamp());
+        out.writeUTF(request.workingDirectory().toString());
+        out.writeInt(request.args().size());
+        for (String arg : request.args()) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported daemon protocol version " + version);
+        }
+        byte kind = in.readByte();
+        String stamp = in.readUTF();
+        Path workingDirectory = Paths.get(in.readUTF());
+        int count = in.readInt();
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            args.add(in.readUTF());
+        }
+        return new Request(kind, stamp, workingDirectory, args);
+    }
+
+    /**
+     * Escribe las tramas de una respuesta; lo comparten los flujos de salida y error de la invocación
+     */
+    static final class FrameWriter {
+        private final DataOutputStream out;
+
+        FrameWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        synchronized void frame(byte type, byte[] bytes, int offset, int length) throws IOException {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.write(bytes, offset, length);
+            out.flush();
+        }
+
+        synchronized void exit(int code) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+        }
+
+        /**
+         * Flujo que acumula lo escrito y lo envía como trama del tipo indicado en cada flush
+         */
+        OutputStream stream(byte type) {
+            return new BufferedOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    frame(type, bytes, offset, length);
+                }
+            }, 8192);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sentinel.arch.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Contexto de la invocación de CLI en curso: directorio de trabajo del cliente y destino de la
+ * salida estándar.
+ *
+ * Sin daemon no hay invocación ligada y todo se comporta como siempre (directorio del proceso,
+ * {@code System.out}/{@code System.err}). En el daemon, varias invocaciones comparten la JVM: cada
+ * una se liga a su hilo (y a los hilos que éste cree) con {@link #bind}, y {@link #installRouting}
+ * sustituye {@code System.out}/{@code System.err} por flujos que escriben en la conexión del
+ * cliente de la invocación del hilo que imprime. Así los comandos, Logback y los
+ * {@code printStackTrace} no necesitan cambios.
+ */
+public final class Invocation {
+
+    /**
+     * Desliga la invocación del hilo al cerrarse
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final InheritableThreadLocal<Invocation> CURRENT = new InheritableThreadLocal<>();
+
+    private final Path workingDirectory;
+    private final OutputStream out;
+    private final OutputStream err;
+    // Los hilos de pools creados durante la invocación heredan el contexto; al terminar, escriben en el proceso
+    private volatile boolean finished;
+
+    private Invocation(Path workingDirectory, OutputStream out, OutputStream err) {
+        this.workingDirectory = workingDirectory;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return Directorio de trabajo de quien lanzó el comando (el del proceso si no hay daemon)
+     */
+    public static Path workingDirectory() {
+        Invocation invocation = active();
+        return invocation != null ? invocation.workingDirectory : Paths.get("").toAbsolutePath();
+    }
+
+    /**
+     * Resuelve una ruta indicada por el usuario contra su directorio de trabajo
+     */
+    public static Path resolve(String path) {
+        return workingDirectory().resolve(path).normalize();
+    }
+
+    /**
+     * Liga una invocación al hilo actual hasta cerrar el ámbito devuelto
+     */
+    static Scope bind(Path workingDirectory, OutputStream out, OutputStream err) {
+        Invocation invocation = new Invocation(workingDirectory, out, err);
+        CURRENT.set(invocation);
+        return () -> {
+            invocation.finished = true;
+            CURRENT.remove();
+        };
+    }
+
+    /**
+     * Sustituye {@code System.out} y {@code System.err} por flujos que siguen a la invocación del
+     * hilo que escribe; lo escrito fuera de una invocación va a los flujos originales
+     */
+    static void installRouting() {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(new PrintStream(new RoutingStream(originalOut, false), true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new RoutingStream(originalErr, true), true, StandardCharsets.UTF_8));
+    }
+
+    private static Invocation active() {
+        Invocation invocation = CURRENT.get();
+        return invocation != null && !invocation.finished ? invocation : null;
+    }
+
+    private static final class RoutingStream extends OutputStream {
+        private final OutputStream fallback;
+        private final boolean error;
+
+        RoutingStream(OutputStream fallback, boolean error) {
+            this.fallback = fallback;
+            this.error = error;
+        }
+
+        private OutputStream target() {
+            Invocation invocation = active();
+            if (invocation == null) {
+                return fallback;
+            }
+            return error ? invocation.err : invocation.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.sentinel.arch.daemon;
+
+import com.sentinel.arch.SentinelMain;
+import com.sentinel.arch.daemon.DaemonProtocol.Request;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cliente ligero de {@link SentinelDaemon}: reenvía los argumentos de {@code sentinel} al daemon
+ * por el socket Unix y copia su salida según llega. Si no hay daemon lo arranca en segundo plano y
+ * espera a que escuche; si no puede, o el daemon es de otra compilación o configuración, ejecuta
+ * el comando en su propio proceso como {@link SentinelMain}.
+ *
+ * Solo usa clases del JDK en el camino normal, así que arranca en lo que tarda la JVM.
+ * {@code SENTINEL_NO_DAEMON=1} desactiva el daemon; {@code SENTINEL_JAVA_OPTS} se pasa a la JVM
+ * del daemon que se arranca, igual que las propiedades {@code -Dsentinel.*} del cliente.
+ *
+ * Uso: {@code java -cp sentinel.jar com.sentinel.arch.daemon.SentinelClient audit -p .}
+ */
+public final class SentinelClient {
+
+    private static final long START_TIMEOUT_MILLIS = 15_000;
+    private static final long START_POLL_MILLIS = 50;
+
+    private SentinelClient() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("daemon")) {
+            SentinelMain.main(args);
+            return;
+        }
+        System.exit(run(args));
+    }
+
+    /**
+     * Ejecuta un comando en el daemon (arrancándolo si hace falta) o, si no es posible, aquí
+     *
+     * @return Código de salida del comando
+     */
+    public static int run(String[] args) {
+        if (System.getenv("SENTINEL_NO_DAEMON") != null) {
+            return runLocally(args);
+        }
+        String stamp = DaemonProtocol.buildStamp();
+        try {
+            SocketChannel channel = connect();
+            if (channel == null) {
+                channel = startAndConnect();
+            }
+            if (channel == null) {
+                System.err.println("⚠️  No se pudo arrancar el daemon de Sentinel; se ejecuta en este proceso");
+                return runLocally(args);
+            }
+            int exitCode;
+            try (SocketChannel connection = channel) {
+                exitCode = send(connection, DaemonProtocol.RUN, stamp, List.of(args));
+            }
+            if (exitCode == DaemonProtocol.STALE_DAEMON) {
+                System.err.println("♻️  El daemon en marcha es de otra compilación o configuración; se ejecuta en este proceso"
+                        + " y la próxima invocación arrancará uno nuevo");
+                return runLocally(args);
+            }
+            return exitCode;
+        } catch (EOFException e) {
+            System.err.println("❌ El daemon de Sentinel terminó durante la ejecución del comando");
+            return 1;
+        } catch (IOException e) {
+            System.err.println("⚠️  Daemon de Sentinel no disponible (" + e.getMessage() + "); se ejecuta en este proceso");
+            return runLocally(args);
+        }
+    }
+
+    /**
+     * Muestra el estado del daemon en marcha
+     */
+    public static int status() throws IOException {
+        return control(DaemonProtocol.STATUS);
+    }
+
+    /**
+     * Pide al daemon en marcha que termine
+     */
+    public static int stop() throws IOException {
+        int exitCode = control(DaemonProtocol.STOP);
+        if (exitCode == 0) {
+            System.out.println("🛑 Daemon de Sentinel detenido");
+        }
+        return exitCode;
+    }
+
+    private static int control(byte kind) throws IOException {
+        SocketChannel channel = connect();
+        if (channel == null) {
+            System.out.println("⚪ No hay daemon de Sentinel en marcha");
+            return 1;
+        }
+        try (channel) {
+            return send(channel, kind, DaemonProtocol.buildStamp(), List.of());
+        }
+    }
+
+    private static int runLocally(String[] args) {
+        return SentinelMain.execute(args);
+    }
+
+    private static SocketChannel connect() throws IOException {
+        Path socket = DaemonProtocol.socketPath();
+        if (!Files.exists(socket)) {
+            return null;
+        }
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            // Socket de un daemon que ya no existe
+            return null;
+        }
+    }
+
+    /**
+     * Arranca el daemon en segundo plano (salida en {@code daemon.log}) y espera a que acepte conexiones
+     */
+    private static SocketChannel startAndConnect() throws IOException {
+        Path directory = DaemonProtocol.directory();
+        List<String> command = new ArrayList<>();
+        // Sesión propia: un Ctrl+C en el terminal del primer cliente no debe matar al daemon
+        if (Files.isExecutable(Paths.get("/usr/bin/setsid"))) {
+            command.add("/usr/bin/setsid");
+        }
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        String javaOptions = System.getenv("SENTINEL_JAVA_OPTS");
+        if (javaOptions != null && !javaOptions.isBlank()) {
+            command.addAll(List.of(javaOptions.strip().split("\\s+")));
+        }
+        DaemonProtocol.sentinelProperties().forEach((name, value) -> command.add("-D" + name + "=" + value));
+        String configuredDirectory = System.getProperty(DaemonProtocol.DIRECTORY_PROPERTY);
+        if (configuredDirectory != null) {
+            command.add("-D" + DaemonProtocol.DIRECTORY_PROPERTY + "=" + configuredDirectory);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SentinelMain.class.getName());
+        command.add("daemon");
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("daemon.log").toFile()))
+                .start();
+        process.getOutputStream().close();
+
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            SocketChannel channel = connect();
+            if (channel != null) {
+                return channel;
+            }
+            if (!process.isAlive() && process.exitValue() != 0) {
+                return null;
+            }
+            try {
+                Thread.sleep(START_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Envía la petición y copia las tramas de salida hasta la de fin
+     *
+     * @return Código de salida recibido
+     */
+    private static int send(SocketChannel channel, byte kind, String stamp, List<String> args) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        DaemonProtocol.writeRequest(out, new Request(kind, stamp, Paths.get("").toAbsolutePath(), args));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        while (true) {
+            byte type = in.readByte();
+            int value = in.readInt();
+            if (type == DaemonProtocol.EXIT) {
+                return value;
+            }
+            byte[] bytes = in.readNBytes(value);
+            PrintStream target = type == DaemonProtocol.ERR ? System.err : System.out;
+            target.write(bytes, 0, bytes.length);
+            target.flush();
+        }
+    }
+}
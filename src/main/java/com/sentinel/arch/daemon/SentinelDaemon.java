@@ -0,0 +1,211 @@
+package com.sentinel.arch.daemon;
+
+import com.sentinel.arch.SentinelCommand;
+import com.sentinel.arch.SentinelMain;
+import com.sentinel.arch.daemon.DaemonProtocol.FrameWriter;
+import com.sentinel.arch.daemon.DaemonProtocol.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Proceso residente que ejecuta los subcomandos de {@link SentinelCommand} para
+ * {@link SentinelClient}, de modo que las invocaciones repetidas (hooks de pre-commit) reutilizan
+ * una JVM caliente: clases cargadas, código compilado por el JIT, reglas compiladas, configuración
+ * Spring parseada, cachés de git y clientes de Ollama.
+ *
+ * Escucha en un socket Unix del directorio de {@link DaemonProtocol#directory()}, protegido por un
+ * bloqueo de archivo para que solo haya un daemon por usuario. Cada conexión se atiende en su propio
+ * hilo; la salida del comando se envía al cliente según se escribe. Si el cliente se desconecta
+ * (Ctrl+C), el comando se interrumpe. Tras el tiempo de inactividad configurado sin invocaciones en
+ * curso, el daemon termina solo.
+ */
+public class SentinelDaemon {
+
+    private static final Logger log = LoggerFactory.getLogger(SentinelDaemon.class);
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private final Duration idleTimeout;
+    private final String stamp = DaemonProtocol.buildStamp();
+    private final long startedAt = System.nanoTime();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong invocationThreads = new AtomicLong();
+    private volatile long lastActivity = System.nanoTime();
+    private volatile boolean draining;
+    private volatile ServerSocketChannel server;
+
+    public SentinelDaemon(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Atiende peticiones hasta que se pide parar o se agota el tiempo de inactividad
+     *
+     * @return false si ya había otro daemon en marcha
+     */
+    public boolean run() throws IOException {
+        Path directory = DaemonProtocol.directory();
+        Path socket = DaemonProtocol.socketPath();
+        try (FileChannel lockFile = FileChannel.open(directory.resolve("daemon.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockFile.tryLock()) {
+            if (lock == null) {
+                return false;
+            }
+            // Con el bloqueo en mano, un socket existente es de un daemon que no terminó limpiamente
+            Files.deleteIfExists(socket);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Invocation.installRouting();
+            log.info("Daemon de Sentinel escuchando en {} (PID {}, se cierra tras {} min sin uso)",
+                    socket, ProcessHandle.current().pid(), idleTimeout.toMinutes());
+
+            Thread.ofPlatform().daemon().name("sentinel-daemon-idle").start(this::watchIdle);
+            try {
+                while (true) {
+                    SocketChannel channel = server.accept();
+                    // Hilos de plataforma: los comandos son de CPU y no deben acaparar los portadores de hilos virtuales
+                    Thread.ofPlatform().name("sentinel-daemon-client-", invocationThreads.incrementAndGet())
+                            .start(() -> handle(channel));
+                }
+            } catch (ClosedChannelException e) {
+                // stop(): fin normal
+            } finally {
+                Files.deleteIfExists(socket);
+            }
+            log.info("Daemon de Sentinel detenido tras {} invocaciones", served.get());
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    public void stop() {
+        try {
+            ServerSocketChannel current = server;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error cerrando el socket del daemon: {}", e.getMessage());
+        }
+    }
+
+    private void watchIdle() {
+        long checkMillis = Math.max(1_000, Math.min(idleTimeout.toMillis() / 10, 30_000));
+        while (server.isOpen()) {
+            try {
+                Thread.sleep(checkMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (active.get() > 0) {
+                continue;
+            }
+            if (draining) {
+                log.info("Daemon de otra compilación o configuración: se detiene para que arranque uno nuevo");
+                stop();
+            } else if (System.nanoTime() - lastActivity >= idleTimeout.toNanos()) {
+                log.info("Sin invocaciones durante {} min: se detiene el daemon", idleTimeout.toMinutes());
+                stop();
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            FrameWriter frames = new FrameWriter(Channels.newOutputStream(channel));
+            Request request = DaemonProtocol.readRequest(in);
+            switch (request.kind()) {
+                case DaemonProtocol.STATUS -> {
+                    byte[] status = status().getBytes(StandardCharsets.UTF_8);
+                    frames.frame(DaemonProtocol.OUT, status, 0, status.length);
+                    frames.exit(0);
+                }
+                case DaemonProtocol.STOP -> {
+                    frames.exit(0);
+                    stop();
+                }
+                case DaemonProtocol.RUN -> run(request, in, frames);
+                default -> throw new IOException("Unknown daemon request " + request.kind());
+            }
+        } catch (IOException e) {
+            log.debug("Conexión de cliente terminada: {}", e.getMessage());
+        }
+    }
+
+    private void run(Request request, DataInputStream in, FrameWriter frames) throws IOException {
+        if (draining || !stamp.equals(request.stamp())) {
+            // El cliente ejecuta el comando él mismo; este daemon se retira en cuanto quede libre
+            draining = true;
+            frames.exit(DaemonProtocol.STALE_DAEMON);
+            if (active.get() == 0) {
+                stop();
+            }
+            return;
+        }
+        if (!request.args().isEmpty() && request.args().get(0).equals("daemon")) {
+            byte[] message = "❌ El subcomando daemon no se ejecuta dentro del daemon\n".getBytes(StandardCharsets.UTF_8);
+            frames.frame(DaemonProtocol.ERR, message, 0, message.length);
+            frames.exit(2);
+            return;
+        }
+
+        active.incrementAndGet();
+        served.incrementAndGet();
+        Thread worker = Thread.currentThread();
+        AtomicBoolean finished = new AtomicBoolean();
+        // El cliente no envía nada más: fin de flujo significa que se desconectó (Ctrl+C)
+        Thread.ofPlatform().daemon().name(worker.getName() + "-watch").start(() -> {
+            try {
+                if (in.read() < 0 && !finished.get()) {
+                    log.info("Cliente desconectado: se interrumpe {}", request.args());
+                    worker.interrupt();
+                }
+            } catch (IOException e) {
+                // Conexión cerrada al terminar
+            }
+        });
+
+        int exitCode;
+        OutputStream out = frames.stream(DaemonProtocol.OUT);
+        OutputStream err = frames.stream(DaemonProtocol.ERR);
+        try (Invocation.Scope scope = Invocation.bind(request.workingDirectory(), out, err)) {
+            exitCode = SentinelMain.execute(request.args().toArray(String[]::new));
+            System.out.flush();
+            System.err.flush();
+        } finally {
+            finished.set(true);
+            Thread.interrupted();
+            active.decrementAndGet();
+            lastActivity = System.nanoTime();
+        }
+        out.flush();
+        err.flush();
+        frames.exit(exitCode);
+    }
+
+    private String status() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        return String.format("🟢 Daemon de Sentinel activo (PID %d): %d invocaciones, %d en curso, %d min en marcha, "
+                        + "%d MB de heap en uso, se cierra tras %d min sin uso%n",
+                ProcessHandle.current().pid(), served.get(), active.get(),
+                Duration.ofNanos(System.nanoTime() - startedAt).toMinutes(), usedMb, idleTimeout.toMinutes());
+    }
+}
@@ -0,0 +1,135 @@
+package com.sentinel.arch.mcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Git Change Set
+ *
+ * Lists the files changed between a base revision and the working tree of a project
+ * by running the local {@code git} binary, and reads file contents at the base revision.
+ * All paths are relative to the analyzed project directory (not the repository top level),
+ * so a project nested inside a monorepo only sees its own changes.
+ */
+public class GitChangeSet {
+
+    private static final long GIT_TIMEOUT_SECONDS = 60;
+
+    private final Path projectRoot;
+    private final String baseRevision;
+    private final String baseCommit;
+
+    private GitChangeSet(Path projectRoot, String baseRevision, String baseCommit) {
+        this.projectRoot = projectRoot;
+        this.baseRevision = baseRevision;
+        this.baseCommit = baseCommit;
+    }
+
+    /**
+     * Resolves the base revision of the project to an immutable commit id.
+     *
+     * @param projectRoot The project directory (anywhere inside a git working tree)
+     * @param baseRevision Any revision understood by git (branch, tag, SHA, HEAD~3...)
+     * @return The change set anchored at the resolved commit
+     * @throws IOException If git is not available, the path is not a repository or the revision is unknown
+     */
+    public static GitChangeSet open(Path projectRoot, String baseRevision) throws IOException {
+        if (baseRevision == null || baseRevision.isBlank() || baseRevision.startsWith("-")) {
+            throw new IOException("Invalid base revision: " + baseRevision);
+        }
+        String commit;
+        try {
+            commit = runGit(projectRoot, "rev-parse", "--verify", "--quiet", baseRevision + "^{commit}").trim();
+        } catch (GitCommandException e) {
+            throw new IOException("Unknown base revision or not a git repository: " + baseRevision, e);
+        }
+        return new GitChangeSet(projectRoot, baseRevision, commit);
+    }
+
+    /**
+     * Lists the paths changed since the base commit, including uncommitted and untracked files.
+     * Renames are reported as a deletion plus an addition so both sides get rescanned.
+     */
+    public SortedSet<String> changedPaths() throws IOException {
+        SortedSet<String> paths = new TreeSet<>();
+        paths.addAll(lines(runGit(projectRoot, "diff", "--name-only", "--no-renames", "--relative", baseCommit, "--")));
+        paths.addAll(lines(runGit(projectRoot, "ls-files", "--others", "--exclude-standard")));
+        return paths;
+    }
+
+    /**
+     * Reads a file as it was at the base commit.
+     *
+     * @param relativePath Path relative to the project directory
+     * @return The content, or empty if the file did not exist at the base commit
+     */
+    public Optional<String> readAtBase(String relativePath) throws IOException {
+        try {
+            return Optional.of(runGit(projectRoot, "show", baseCommit + ":./" + relativePath));
+        } catch (GitCommandException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String getBaseRevision() {
+        return baseRevision;
+    }
+
+    public String getBaseCommit() {
+        return baseCommit;
+    }
+
+    private static List<String> lines(String output) {
+        List<String> result = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            if (!line.isBlank()) {
+                result.add(line.trim());
+            }
+        }
+        return result;
+    }
+
+    private static String runGit(Path workDir, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("-C");
+        command.add(workDir.toString());
+        command.add("-c");
+        command.add("core.quotepath=off");
+        command.addAll(Arrays.asList(args));
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (InputStream in = process.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            if (!process.waitFor(GIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("git " + args[0] + " timed out");
+            }
+            if (process.exitValue() != 0) {
+                throw new GitCommandException("git " + args[0] + " failed with exit code " + process.exitValue());
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git " + args[0], e);
+        }
+    }
+
+    /**
+     * Non-zero exit of a git command
+     */
+    private static class GitCommandException extends IOException {
+        GitCommandException(String message) {
+            super(message);
+        }
+    }
+}
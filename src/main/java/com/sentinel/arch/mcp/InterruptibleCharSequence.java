@@ -0,0 +1,98 @@
+package com.sentinel.arch.mcp;
+
+/**
+ * Interruptible Char Sequence
+ *
+ * Wraps file content handed to {@link java.util.regex.Matcher} so a long regex scan notices when
+ * its thread is interrupted (a cancelled or timed-out MCP tool call). Every few thousand
+ * {@code charAt} calls the interrupt flag is checked and, if set, the scan aborts with
+ * {@link ScanInterruptedException}. The flag itself is left set so callers can stop their loops
+ * and mark their results as truncated.
+ *
+ * A sequence can also carry a budget of {@code charAt} calls, the work the regex engine may do on
+ * it: once spent, the scan aborts with {@link ScanBudgetExceededException}. Character reads are a
+ * deterministic measure of matching cost (backtracking included), unlike wall-clock time, so the
+ * same file is skipped or not whatever the load of the machine.
+ */
+public final class InterruptibleCharSequence implements CharSequence {
+
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final CharSequence delegate;
+    private final long budget;
+    private int accessesUntilCheck = CHECK_INTERVAL;
+    private long checksLeft;
+
+    private InterruptibleCharSequence(CharSequence delegate, long budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+        this.checksLeft = budget / CHECK_INTERVAL;
+    }
+
+    public static CharSequence wrap(CharSequence content) {
+        return content instanceof InterruptibleCharSequence ? content : new InterruptibleCharSequence(content, Long.MAX_VALUE);
+    }
+
+    /**
+     * Wraps content with a budget of {@code charAt} calls (checked every {@value #CHECK_INTERVAL} calls)
+     */
+    public static CharSequence wrap(CharSequence content, long budget) {
+        return new InterruptibleCharSequence(content, budget);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (--accessesUntilCheck == 0) {
+            accessesUntilCheck = CHECK_INTERVAL;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new ScanInterruptedException();
+            }
+            if (--checksLeft < 0) {
+                throw new ScanBudgetExceededException(budget);
+            }
+        }
+        return delegate.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return delegate.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        // Solo se usa para extraer los grupos capturados: no consume el presupuesto del archivo
+        return new InterruptibleCharSequence(delegate.subSequence(start, end), Long.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * Thrown from inside a regex scan when the scanning thread has been interrupted
+     */
+    public static class ScanInterruptedException extends RuntimeException {
+        public ScanInterruptedException() {
+            super("Scan interrupted", null, false, false);
+        }
+    }
+
+    /**
+     * Thrown from inside a regex scan when it has read more characters than its budget allows
+     * (a pathological input for the patterns, e.g. long unbalanced parentheses)
+     */
+    public static class ScanBudgetExceededException extends RuntimeException {
+        private final long budget;
+
+        public ScanBudgetExceededException(long budget) {
+            super("Scan budget of " + budget + " character reads exceeded", null, false, false);
+            this.budget = budget;
+        }
+
+        public long budget() {
+            return budget;
+        }
+    }
+}
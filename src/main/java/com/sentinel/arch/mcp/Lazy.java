@@ -0,0 +1,37 @@
+package com.sentinel.arch.mcp;
+
+import java.util.function.Supplier;
+
+/**
+ * Valor inicializado en el primer acceso (thread-safe).
+ *
+ * Permite que las herramientas pesadas (descubrimiento, analizadores, generadores de reportes)
+ * no se construyan ni carguen sus clases hasta que un cliente las invoca por primera vez.
+ */
+public final class Lazy<T> {
+
+    private final Supplier<? extends T> factory;
+    private volatile T value;
+
+    private Lazy(Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> Lazy<T> of(Supplier<? extends T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = factory.get();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -1,15 +1,34 @@
 package com.sentinel.arch.mcp;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sentinel.arch.daemon.Invocation;
+import com.sentinel.arch.mcp.cache.ProjectStamp;
+import com.sentinel.arch.mcp.cache.ResultCache;
+import com.sentinel.arch.mcp.cache.SingleFlight;
+import com.sentinel.arch.mcp.index.CodeSearch;
+import com.sentinel.arch.ollama.OllamaConfig;
 import dev.langchain4j.agent.tool.Tool;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ProjectMcpTools {
 
+    // Walker compartido por todas las herramientas: mismas exclusiones WF-01 e ignore files
+    private final ProjectWalker walker = new ProjectWalker();
+
+    // Resultados reutilizados entre llamadas (y entre proyectos) mientras no cambien sus archivos,
+    // con un presupuesto de memoria acotado (-Dsentinel.cache.max-mb)
+    private final ResultCache cache = ResultCache.fromSystemProperties();
+
+    // Llamadas idénticas simultáneas comparten una ejecución (la usa el servidor MCP al despachar)
+    private final SingleFlight flights = new SingleFlight();
+
     @Tool("Lista los archivos y carpetas de un directorio para entender la estructura del microservicio")
     public String readProjectStructure(String path) throws IOException {
-        return Files.walk(Paths.get(path), 1)
+        Path directory = Paths.get(path);
+        return Stream.concat(Stream.of(directory), walker.listDirectory(directory).stream())
                 .map(p -> p.getFileName().toString())
                 .collect(Collectors.joining("\n"));
     }
@@ -20,13 +39,20 @@ public class ProjectMcpTools {
         if (!path.endsWith(".java") && !path.endsWith(".xml") && !path.endsWith(".md")) {
             return "Error: Solo se permite la lectura de archivos de código o configuración.";
         }
-        return Files.readString(Paths.get(path));
+        Path file;
+        try {
+            file = Paths.get(path).toRealPath();
+        } catch (IOException e) {
+            return Files.readString(Paths.get(path));
+        }
+        return cache.get(new ResultCache.Key("readJavaFile", file, ""), () -> ProjectStamp.files(file),
+                () -> Files.readString(file));
     }
 
     @Tool("Escribe un reporte de arquitectura en un archivo dentro del proyecto")
     public String write_architecture_report(String fileName, String content) throws IOException {
         // Validación de seguridad para asegurar que el archivo se crea dentro del directorio del proyecto
-        Path basePath = Paths.get("").toAbsolutePath().normalize();
+        Path basePath = Invocation.workingDirectory().normalize();
         Path targetPath = basePath.resolve(fileName).normalize();
 
         // Verificar que el path resultante esté dentro del directorio base
@@ -46,40 +72,109 @@ public class ProjectMcpTools {
     }
 
     // Delegate the new discovery tool to the ServiceInterconnectionDiscovery class
-    private final ServiceInterconnectionDiscovery discovery = new ServiceInterconnectionDiscovery();
+    // (delegates are created on first use so tools/list and cheap tools don't pay for them)
+    private final Lazy<ServiceInterconnectionDiscovery> discovery = Lazy.of(() -> new ServiceInterconnectionDiscovery(walker));
 
     @Tool("Discovers service interconnections by analyzing source code for protocol fingerprints and mapping inbound/outbound connections")
     public String discover_service_interconnections(String projectPath) throws IOException {
-        return discovery.discover_service_interconnections(projectPath);
+        return cachedForProject("discover_service_interconnections", projectPath, "",
+                () -> discovery.get().discover_service_interconnections(projectPath));
+    }
+
+    @Tool("Discovers service interconnections from the compiled classes and jars of a project (bytecode annotations and client call sites), including generated and dependency code")
+    public String discover_compiled_interconnections(String projectPath) throws IOException {
+        return cachedForProject("discover_compiled_interconnections", projectPath, "", true,
+                () -> discovery.get().discover_compiled_interconnections(projectPath));
+    }
+
+    @Tool("Discovers the service interconnections added or removed since a base git revision, scanning only the changed files")
+    public String discover_changed_interconnections(String projectPath, String baseRevision) throws IOException {
+        return discovery.get().discover_changed_interconnections(projectPath, baseRevision);
+    }
+
+    // Delegate the semantic code search (embedding index under .sentinel/index, updated incrementally)
+    private final Lazy<CodeSearch> codeSearch = Lazy.of(() -> {
+        OllamaConfig config = OllamaConfig.fromSystemProperties(OllamaConfig.DEFAULT_CONTEXT_WINDOW);
+        return new CodeSearch(walker, config.createEmbeddingModel(), config.getEmbeddingModelName());
+    });
+
+    @Tool("Busca en el código del proyecto los fragmentos más relacionados con una pregunta o descripción (búsqueda semántica); devuelve archivo, líneas y texto de cada fragmento")
+    public String search_code(String projectPath, String query) throws IOException {
+        return codeSearch.get().search_code(projectPath, query, CodeSearch.DEFAULT_TOP_K);
     }
 
     // Delegate the Maven project structure analyzer tool
-    private final MavenProjectStructureAnalyzer structureAnalyzer = new MavenProjectStructureAnalyzer();
+    private final Lazy<MavenProjectStructureAnalyzer> structureAnalyzer = Lazy.of(() -> new MavenProjectStructureAnalyzer());
 
     @Tool("Analyzes Maven project structure to identify modules, their dependencies, and proprietary frameworks")
     public String get_project_structure(String projectPath) throws IOException {
-        return structureAnalyzer.get_project_structure(projectPath);
+        return cachedForProject("get_project_structure", projectPath, "",
+                () -> structureAnalyzer.get().get_project_structure(projectPath));
     }
 
     @Tool("Analyzes Maven project structure to identify modules, their dependencies, and proprietary frameworks with custom organization pattern")
     public String get_project_structure(String projectPath, String orgPattern) throws IOException {
-        return structureAnalyzer.get_project_structure(projectPath, orgPattern);
+        return cachedForProject("get_project_structure", projectPath, orgPattern,
+                () -> structureAnalyzer.get().get_project_structure(projectPath, orgPattern));
     }
 
     // Delegate the architectural signatures extractor tool
-    private final ArchitecturalSignaturesExtractor signaturesExtractor = new ArchitecturalSignaturesExtractor();
+    private final Lazy<ArchitecturalSignaturesExtractor> signaturesExtractor = Lazy.of(() -> new ArchitecturalSignaturesExtractor());
 
     @Tool("Extracts architectural signatures from Java files including annotations, class names, and outbound calls")
     public String extract_architectural_signatures(String projectPath) throws IOException {
-        return signaturesExtractor.extract_architectural_signatures(projectPath);
+        return cachedForProject("extract_architectural_signatures", projectPath, "",
+                () -> signaturesExtractor.get().extract_architectural_signatures(projectPath));
     }
 
     // Delegate the master architecture report generator tool
-    private final MasterArchitectureReportGenerator reportGenerator = new MasterArchitectureReportGenerator();
+    private final Lazy<MasterArchitectureReportGenerator> reportGenerator = Lazy.of(() -> new MasterArchitectureReportGenerator());
 
     @Tool("Generates a master architecture report by cross-referencing STRUCTURE.json and SIGNATURES.json")
     public String generate_master_arch_report(String structureJsonPath, String signaturesJsonPath) throws IOException {
-        return reportGenerator.generate_master_arch_report(structureJsonPath, signaturesJsonPath);
+        return reportGenerator.get().generate_master_arch_report(structureJsonPath, signaturesJsonPath);
+    }
+
+    @Tool("Muestra las estadísticas de la caché de resultados del servidor: aciertos, fallos, desalojos e invalidaciones por herramienta")
+    public String cache_stats() {
+        ObjectNode stats = cache.stats();
+        stats.set("coalescing", flights.stats());
+        return stats.toPrettyString();
+    }
+
+    /**
+     * Coalescencia de llamadas idénticas en curso, compartida por todas las sesiones del servidor
+     */
+    public SingleFlight flights() {
+        return flights;
+    }
+
+    /**
+     * Resultado de una herramienta sobre un proyecto completo, desde la caché si ningún archivo del
+     * proyecto cambió desde que se calculó. Una ruta inexistente o una llamada con resultados parciales
+     * en streaming no pasan por la caché.
+     */
+    private String cachedForProject(String tool, String projectPath, String arguments, ResultCache.Loader loader)
+            throws IOException {
+        return cachedForProject(tool, projectPath, arguments, false, loader);
+    }
+
+    /**
+     * @param compiled El resultado depende también de las clases y jars compilados (excluidos del recorrido)
+     */
+    private String cachedForProject(String tool, String projectPath, String arguments, boolean compiled,
+                                    ResultCache.Loader loader) throws IOException {
+        Path root;
+        try {
+            root = Paths.get(projectPath).toRealPath();
+        } catch (IOException e) {
+            return loader.load();
+        }
+        if (!Files.isDirectory(root) || ToolProgress.current().isStreaming()) {
+            return loader.load();
+        }
+        ResultCache.Stamp stamp = compiled ? () -> ProjectStamp.compiled(walker, root) : () -> ProjectStamp.tree(walker, root);
+        return cache.get(new ResultCache.Key(tool, root, arguments), stamp, loader);
     }
 
     /**
@@ -0,0 +1,454 @@
+package com.sentinel.arch.mcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Project Walker
+ *
+ * Shared file-tree walker for every tool that scans a project. Applies the WF-01-PROJECT-DISCOVERY
+ * exclusion rules plus the patterns found in {@code .gitignore} and {@code .sentinelignore} files,
+ * pruning excluded directories in {@code preVisitDirectory} so their contents are never visited.
+ *
+ * Symbolic links are followed, but each directory is entered at most once per walk (tracked by
+ * file key), which protects against symlink cycles and against scanning the same tree twice
+ * through different links.
+ *
+ * A walk stops early when its thread is interrupted (a cancelled or timed-out tool call); the files
+ * visited so far have already been passed to the consumer and the interrupt flag is left set.
+ */
+public class ProjectWalker {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectWalker.class);
+
+    /** Directories excluded by WF-01 (build output, VCS and IDE metadata) plus dependency caches and Sentinel metadata */
+    public static final Set<String> DEFAULT_EXCLUDED_DIRECTORIES =
+            Set.of("target", "build", "out", ".git", ".idea", ".gradle", ".svn", ".hg", ".sentinel", "node_modules");
+
+    /** Binary artifacts excluded by WF-01 */
+    public static final Set<String> DEFAULT_EXCLUDED_EXTENSIONS = Set.of(".class", ".jar", ".war", ".ear");
+
+    public static final List<String> DEFAULT_IGNORE_FILES = List.of(".gitignore", ".sentinelignore");
+
+    private final Set<String> excludedDirectories;
+    private final Set<String> excludedExtensions;
+    private final List<String> ignoreFileNames;
+
+    public ProjectWalker() {
+        this(DEFAULT_EXCLUDED_DIRECTORIES, DEFAULT_EXCLUDED_EXTENSIONS, DEFAULT_IGNORE_FILES);
+    }
+
+    public ProjectWalker(Set<String> excludedDirectories, Set<String> excludedExtensions, List<String> ignoreFileNames) {
+        this.excludedDirectories = Set.copyOf(excludedDirectories);
+        this.excludedExtensions = Set.copyOf(excludedExtensions);
+        this.ignoreFileNames = List.copyOf(ignoreFileNames);
+    }
+
+    /**
+     * Walks the tree under {@code root} and passes every non-excluded regular file to the consumer.
+     *
+     * @param root Directory to walk
+     * @param fileConsumer Receives each included file
+     * @throws IOException If the root itself cannot be read
+     */
+    public void walk(Path root, Consumer<Path> fileConsumer) throws IOException {
+        walk(root, (path, attributes) -> fileConsumer.accept(path));
+    }
+
+    /**
+     * Same as {@link #walk(Path, Consumer)}, also passing the attributes read by the walk
+     * (size, modification time) so callers do not stat every file again.
+     */
+    public void walk(Path root, BiConsumer<Path, BasicFileAttributes> fileConsumer) throws IOException {
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new PruningVisitor(root, fileConsumer));
+    }
+
+    /**
+     * Collects the included files under {@code root} whose extension is in {@code extensions}.
+     */
+    public List<Path> collectFiles(Path root, Set<String> extensions) throws IOException {
+        List<Path> files = new ArrayList<>();
+        walk(root, path -> {
+            if (extensions.contains(extensionOf(path.getFileName().toString()))) {
+                files.add(path);
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Lists the direct children of a directory that are not excluded, sorted by name.
+     */
+    public List<Path> listDirectory(Path directory) throws IOException {
+        IgnoreRules rules = IgnoreRules.load(directory, ignoreFileNames);
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                boolean isDirectory = Files.isDirectory(child);
+                String name = child.getFileName().toString();
+                if (isExcludedName(name, isDirectory) || Boolean.TRUE.equals(rules.match(name, isDirectory))) {
+                    continue;
+                }
+                children.add(child);
+            }
+        }
+        children.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return children;
+    }
+
+    /**
+     * Returns a check for paths relative to {@code root} (for example the ones reported by git) that
+     * excludes exactly what a walk of {@code root} would skip: default exclusions, and the ignore
+     * files of every directory on the way down. Each directory's ignore files are read once, on
+     * first use, and kept for the life of the check; use one per batch of paths.
+     */
+    public Exclusions exclusions(Path root) {
+        return new Exclusions(root);
+    }
+
+    /**
+     * Exclusion check for paths relative to one root, see {@link #exclusions(Path)}
+     */
+    public final class Exclusions {
+        private final Path root;
+        private final Map<Path, IgnoreRules> rulesByDirectory = new HashMap<>();
+
+        private Exclusions(Path root) {
+            this.root = root;
+        }
+
+        public boolean isExcluded(String relativePath) {
+            String[] segments = relativePath.replace(File.separatorChar, '/').split("/");
+            List<RulesFrame> outermostFirst = new ArrayList<>(segments.length);
+            Path directory = root;
+            for (int i = 0; i < segments.length; i++) {
+                outermostFirst.add(new RulesFrame(directory,
+                        rulesByDirectory.computeIfAbsent(directory, dir -> IgnoreRules.load(dir, ignoreFileNames))));
+                Path path = directory.resolve(segments[i]);
+                boolean isDirectory = i < segments.length - 1;
+                // Same order as the walk: a directory it would prune hides everything below it
+                if (isExcludedName(segments[i], isDirectory) || isIgnored(outermostFirst, path, isDirectory)) {
+                    return true;
+                }
+                directory = path;
+            }
+            return false;
+        }
+    }
+
+    private boolean isExcludedName(String name, boolean isDirectory) {
+        if (isDirectory) {
+            return excludedDirectories.contains(name);
+        }
+        return excludedExtensions.contains(extensionOf(name));
+    }
+
+    private static String extensionOf(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex > 0 ? fileName.substring(dotIndex).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String toSlashPath(Path path) {
+        return path.toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Visitor that prunes excluded subtrees and keeps a stack of the ignore rules in scope
+     */
+    private class PruningVisitor extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final BiConsumer<Path, BasicFileAttributes> fileConsumer;
+        private final Set<Object> visitedDirectoryKeys = new HashSet<>();
+        private final Deque<RulesFrame> frames = new ArrayDeque<>();
+
+        PruningVisitor(Path root, BiConsumer<Path, BasicFileAttributes> fileConsumer) {
+            this.root = root;
+            this.fileConsumer = fileConsumer;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (Thread.currentThread().isInterrupted()) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (!dir.equals(root)) {
+                String name = dir.getFileName().toString();
+                if (isExcludedName(name, true) || isIgnored(frames::descendingIterator, dir, true)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+            }
+
+            Object fileKey = attrs.fileKey();
+            if (fileKey != null && !visitedDirectoryKeys.add(fileKey)) {
+                log.debug("Directorio ya visitado (enlace simbólico), se omite: {}", dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            frames.push(new RulesFrame(dir, IgnoreRules.load(dir, ignoreFileNames)));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (Thread.currentThread().isInterrupted()) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (attrs.isRegularFile()
+                    && !isExcludedName(file.getFileName().toString(), false)
+                    && !isIgnored(frames::descendingIterator, file, false)) {
+                fileConsumer.accept(file, attrs);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            if (exc instanceof FileSystemLoopException) {
+                log.debug("Ciclo de enlaces simbólicos detectado, se omite: {}", file);
+            } else {
+                log.warn("No se pudo acceder a {}: {}", file, exc.getMessage());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            frames.pop();
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * Evaluates the rules from the outermost directory to the innermost; the last match wins
+     */
+    private static boolean isIgnored(Iterable<RulesFrame> outermostFirst, Path path, boolean isDirectory) {
+        boolean ignored = false;
+        for (RulesFrame frame : outermostFirst) {
+            if (frame.rules.isEmpty()) {
+                continue;
+            }
+            Boolean match = frame.rules.match(toSlashPath(frame.directory.relativize(path)), isDirectory);
+            if (match != null) {
+                ignored = match;
+            }
+        }
+        return ignored;
+    }
+
+    private record RulesFrame(Path directory, IgnoreRules rules) {
+    }
+
+    /**
+     * Patterns from the ignore files of one directory, in gitignore syntax
+     * ({@code *}, {@code **}, {@code ?}, character classes, {@code !} negation,
+     * leading {@code /} anchoring and trailing {@code /} for directories only).
+     */
+    static final class IgnoreRules {
+        private static final IgnoreRules EMPTY = new IgnoreRules(List.of());
+
+        private final List<Rule> rules;
+
+        private IgnoreRules(List<Rule> rules) {
+            this.rules = rules;
+        }
+
+        static IgnoreRules load(Path directory, List<String> ignoreFileNames) {
+            List<Rule> rules = new ArrayList<>();
+            for (String ignoreFileName : ignoreFileNames) {
+                Path ignoreFile = directory.resolve(ignoreFileName);
+                if (!Files.isRegularFile(ignoreFile)) {
+                    continue;
+                }
+                try {
+                    for (String line : Files.readAllLines(ignoreFile)) {
+                        Rule rule;
+                        try {
+                            rule = Rule.parse(line);
+                        } catch (PatternSyntaxException e) {
+                            log.warn("Patrón no válido en {}, se omite: {} ({})", ignoreFile, line, e.getDescription());
+                            continue;
+                        }
+                        if (rule != null) {
+                            rules.add(rule);
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("No se pudo leer {}: {}", ignoreFile, e.getMessage());
+                }
+            }
+            return rules.isEmpty() ? EMPTY : new IgnoreRules(rules);
+        }
+
+        boolean isEmpty() {
+            return rules.isEmpty();
+        }
+
+        /**
+         * @return {@code true} if ignored, {@code false} if re-included by a negated rule,
+         *         {@code null} if no rule matches
+         */
+        Boolean match(String relativePath, boolean isDirectory) {
+            Boolean result = null;
+            for (Rule rule : rules) {
+                if (rule.directoryOnly && !isDirectory) {
+                    continue;
+                }
+                if (rule.pattern.matcher(relativePath).matches()) {
+                    result = !rule.negated;
+                }
+            }
+            return result;
+        }
+    }
+
+    private record Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+
+        /** POSIX character classes allowed in gitignore bracket expressions, as Java properties */
+        private static final Map<String, String> POSIX_CLASSES = Map.ofEntries(
+                Map.entry("alnum", "Alnum"), Map.entry("alpha", "Alpha"), Map.entry("blank", "Blank"),
+                Map.entry("cntrl", "Cntrl"), Map.entry("digit", "Digit"), Map.entry("graph", "Graph"),
+                Map.entry("lower", "Lower"), Map.entry("print", "Print"), Map.entry("punct", "Punct"),
+                Map.entry("space", "Space"), Map.entry("upper", "Upper"), Map.entry("xdigit", "XDigit"));
+
+        static Rule parse(String line) {
+            String text = line.stripTrailing();
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            boolean negated = false;
+            if (text.startsWith("!")) {
+                negated = true;
+                text = text.substring(1);
+            } else if (text.startsWith("\\!") || text.startsWith("\\#")) {
+                text = text.substring(1);
+            }
+            boolean directoryOnly = text.endsWith("/");
+            if (directoryOnly) {
+                text = text.substring(0, text.length() - 1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            // A slash anywhere but at the end anchors the pattern to the ignore file's directory
+            boolean anchored = text.contains("/");
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            String regex = (anchored ? "" : "(?:.*/)?") + globToRegex(text);
+            return new Rule(Pattern.compile(regex), negated, directoryOnly);
+        }
+
+        private static String globToRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            while (i < glob.length()) {
+                char c = glob.charAt(i);
+                if (c == '*') {
+                    boolean doubleStar = i + 1 < glob.length() && glob.charAt(i + 1) == '*';
+                    if (doubleStar && i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                        regex.append("(?:.*/)?");
+                        i += 3;
+                    } else if (doubleStar) {
+                        regex.append(".*");
+                        i += 2;
+                    } else {
+                        regex.append("[^/]*");
+                        i++;
+                    }
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                    i++;
+                } else if (c == '[') {
+                    int end = appendBracket(glob, i, regex);
+                    if (end < 0) {
+                        // Unterminated: a literal bracket
+                        regex.append("\\[");
+                        i++;
+                    } else {
+                        i = end;
+                    }
+                } else if (c == '\\' && i + 1 < glob.length()) {
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                    i++;
+                }
+            }
+            return regex.toString();
+        }
+
+        /**
+         * Translates the bracket expression starting at {@code open} into a Java character class.
+         * Every member is written as a code point escape, so {@code [}, {@code &} and {@code \\}
+         * keep no special meaning; {@code [:alpha:]}-style classes become {@code \\p{Alpha}}; a
+         * {@code ]} right after the opening bracket (or its negation) is a member, and a range whose
+         * end precedes its start is taken as three literal characters. Like a wildcard, the set never
+         * matches {@code /}.
+         *
+         * @return The index after the closing bracket, or -1 if the expression is unterminated
+         */
+        private static int appendBracket(String glob, int open, StringBuilder regex) {
+            int i = open + 1;
+            boolean negated = i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^');
+            if (negated) {
+                i++;
+            }
+            StringBuilder members = new StringBuilder();
+            boolean first = true;
+            while (i < glob.length() && (first || glob.charAt(i) != ']')) {
+                first = false;
+                if (glob.startsWith("[:", i)) {
+                    int close = glob.indexOf(":]", i + 2);
+                    String property = close < 0 ? null : POSIX_CLASSES.get(glob.substring(i + 2, close));
+                    if (property != null) {
+                        members.append("\\p{").append(property).append('}');
+                        i = close + 2;
+                        continue;
+                    }
+                }
+                int low = glob.charAt(i) == '\\' && i + 1 < glob.length() ? glob.charAt(++i) : glob.charAt(i);
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i) == '-' && glob.charAt(i + 1) != ']') {
+                    int highAt = glob.charAt(i + 1) == '\\' && i + 2 < glob.length() ? i + 2 : i + 1;
+                    int high = glob.charAt(highAt);
+                    if (low <= high) {
+                        appendMember(members, low).append('-');
+                        appendMember(members, high);
+                    } else {
+                        appendMember(members, low);
+                        appendMember(members, '-');
+                        appendMember(members, high);
+                    }
+                    i = highAt + 1;
+                } else {
+                    appendMember(members, low);
+                }
+            }
+            if (i >= glob.length()) {
+                return -1;
+            }
+            if (negated) {
+                regex.append("[^/").append(members).append(']');
+            } else {
+                regex.append("(?:(?!/)[").append(members).append("])");
+            }
+            return i + 1;
+        }
+
+        private static StringBuilder appendMember(StringBuilder members, int c) {
+            return members.append("\\x{").append(Integer.toHexString(c)).append('}');
+        }
+    }
+}
@@ -1,43 +1,83 @@
 package com.sentinel.arch.mcp;
 
+import com.sentinel.arch.mcp.InterruptibleCharSequence.ScanBudgetExceededException;
+import com.sentinel.arch.mcp.bytecode.BytecodeScanner;
+import com.sentinel.arch.mcp.bytecode.ClassFileReader;
+import com.sentinel.arch.mcp.config.ConfigModel;
+import com.sentinel.arch.mcp.config.ModuleConfig;
+import com.sentinel.arch.mcp.fingerprint.Fingerprint;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule.Scope;
+import com.sentinel.arch.mcp.fingerprint.RuleSet;
 import dev.langchain4j.agent.tool.Tool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.*;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 /**
  * Service Interconnection Discovery Tool
  * 
  * Discovers service interconnections by analyzing source code for protocol fingerprints
- * and mapping inbound/outbound connections.
+ * and mapping inbound/outbound connections. The fingerprints are declarative rules (built-in
+ * plus the project's {@code .sentinel/rules}), see {@link RuleSet}.
+ * 
+ * Spring configuration files ({@code application*}, {@code bootstrap*}) are not scanned as text:
+ * they are parsed into a per-module property map ({@link ConfigModel}) with placeholders and
+ * profiles resolved. Each property value is matched on its own, so outbound URLs are reported
+ * with the key that defines them, and placeholders in source fingerprints (e.g.
+ * {@code @FeignClient(url = "${billing.url}")}) are resolved against the module of the file.
+ * 
+ * Files on which the rules exhaust the scan step budget of {@link RuleSet} (minified or generated
+ * code the patterns would backtrack on) are logged, skipped and listed in {@code skipped_files}.
+ * 
+ * The compiled variant also reads the class directories and jars of the project: their classes
+ * are rendered back as source by {@link ClassFileReader} and matched with the same rules.
  */
 public class ServiceInterconnectionDiscovery {
 
+    private static final Logger log = LoggerFactory.getLogger(ServiceInterconnectionDiscovery.class);
+
     private static final Set<String> JAVA_FILE_EXTENSIONS = Set.of(".java", ".kt", ".scala");
     private static final Set<String> CONFIG_FILE_EXTENSIONS = Set.of(".yml", ".yaml", ".properties", ".xml");
     
-    // Inbound protocol patterns
-    private static final Pattern REST_CONTROLLER_PATTERN = Pattern.compile("@RestController|@Controller");
-    private static final Pattern REQUEST_MAPPING_PATTERN = Pattern.compile("@RequestMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@GetMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@PostMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@PutMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@DeleteMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@PatchMapping\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']|@RequestMapping\\s*\\([\"']([^\"']*)[\"']|@GetMapping\\s*\\([\"']([^\"']*)[\"']|@PostMapping\\s*\\([\"']([^\"']*)[\"']|@PutMapping\\s*\\([\"']([^\"']*)[\"']|@DeleteMapping\\s*\\([\"']([^\"']*)[\"']");
-    private static final Pattern GRPC_SERVICE_PATTERN = Pattern.compile("@GrpcService|extends\\s+\\w+ImplBase|extends\\s+Abstract\\w+Impl");
-    private static final Pattern KAFKA_LISTENER_PATTERN = Pattern.compile("@KafkaListener\\s*\\([^)]*topics\\s*=\\s*[\"']([^\"']*)[\"']");
-    private static final Pattern RABBIT_LISTENER_PATTERN = Pattern.compile("@RabbitListener\\s*\\([^)]*queues\\s*=\\s*[\"']([^\"']*)[\"']");
-    private static final Pattern JMS_LISTENER_PATTERN = Pattern.compile("@JmsListener\\s*\\([^)]*destination\\s*=\\s*[\"']([^\"']*)[\"']");
-    private static final Pattern STREAM_LISTENER_PATTERN = Pattern.compile("@StreamListener\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']");
-    
-    // Outbound protocol patterns
-    private static final Pattern FEIGN_CLIENT_PATTERN = Pattern.compile("@FeignClient\\s*\\([^)]*name\\s*=\\s*[\"']([^\"']*)[\"']|@FeignClient\\s*\\([^)]*value\\s*=\\s*[\"']([^\"']*)[\"']");
-    private static final Pattern WEB_CLIENT_PATTERN = Pattern.compile("WebClient\\.create\\s*\\([\"']([^\"']*)[\"']|WebClient\\.builder\\(\\)");
-    private static final Pattern REST_TEMPLATE_PATTERN = Pattern.compile("restTemplate\\.getForObject\\s*\\([\"']([^\"']*)[^)]+|restTemplate\\.exchange\\s*\\([\"']([^\"']*)[^)]+");
-    private static final Pattern KAFKA_TEMPLATE_SEND_PATTERN = Pattern.compile("kafkaTemplate\\.send\\s*\\([^\"']*\"([^\"]+)\"|KafkaTemplate\\.send\\s*\\([^\"']*\"([^\"]+)\"");
-    private static final Pattern STREAM_BRIDGE_SEND_PATTERN = Pattern.compile("streamBridge\\.send\\s*\\([^\"']*\"([^\"]+)\"|StreamBridge\\.send\\s*\\([^\"']*\"([^\"]+)\"");
-    private static final Pattern RABBIT_TEMPLATE_PATTERN = Pattern.compile("rabbitTemplate\\.convertAndSend\\s*\\([^\"']*\"([^\"]+)\"|RabbitTemplate\\.convertAndSend\\s*\\([^\"']*\"([^\"]+)\"");
-    
-    // Configuration patterns
-    private static final Pattern APPLICATION_YML_SERVICE_URLS = Pattern.compile("(?:http://|https://)[^\\s\"'/]+[^\\s\"'/?#]+");
+    // Spring Cloud Stream bindings: the binding name tells the direction (functional "-in-0"/"-out-0"
+    // or legacy "input"/"output" channels); other names are left out
+    private static final Pattern STREAM_BINDING_DESTINATION =
+            Pattern.compile("spring\\.cloud\\.stream\\.bindings\\.([^.]+)\\.destination");
+    private static final Pattern INBOUND_BINDING = Pattern.compile(".*(-in-\\d+|[iI]nput)");
+    private static final Pattern OUTBOUND_BINDING = Pattern.compile(".*(-out-\\d+|[oO]utput)");
+    
+    // Per-file scan results at a base commit, keyed by "<rules>:<commit>:<relative path>".
+    // Commits are immutable and the rule set signature changes with the rules, so entries never
+    // go stale; the bound only caps memory.
+    private static final int BASELINE_CACHE_MAX_ENTRIES = 20_000;
+    private final Map<String, FileConnections> baselineCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FileConnections> eldest) {
+                    return size() > BASELINE_CACHE_MAX_ENTRIES;
+                }
+            });
+    
+    private final ProjectWalker walker;
+    
+    public ServiceInterconnectionDiscovery() {
+        this(new ProjectWalker());
+    }
+    
+    public ServiceInterconnectionDiscovery(ProjectWalker walker) {
+        this.walker = walker;
+    }
     
     /**
      * Discovers service interconnections by analyzing source code for protocol fingerprints
@@ -49,266 +89,682 @@ public class ServiceInterconnectionDiscovery {
      */
     @Tool("Discovers service interconnections by analyzing source code for protocol fingerprints and mapping inbound/outbound connections")
     public String discover_service_interconnections(String projectPath) throws IOException {
+        return discover(projectPath, false);
+    }
+    
+    /**
+     * Same discovery over the compiled output of the project: class directories, built jars and
+     * their nested libraries (see {@link BytecodeScanner}). Classes are rendered as canonical source
+     * ({@link ClassFileReader}) and matched with the same rules, so generated, shaded or
+     * dependency-provided code is covered. Sources of modules that have a class directory are not
+     * scanned again; other sources and the configuration files are.
+     * 
+     * @param projectPath The path to the project to analyze (built, or with jars to scan)
+     * @return A structured summary of service interconnections in JSON-like format
+     * @throws IOException If there's an error reading files
+     */
+    @Tool("Discovers service interconnections from the compiled classes and jars of a project (bytecode annotations and client call sites), including generated and dependency code")
+    public String discover_compiled_interconnections(String projectPath) throws IOException {
+        return discover(projectPath, true);
+    }
+    
+    private String discover(String projectPath, boolean compiled) throws IOException {
+        Path rootPath = Paths.get(projectPath);
+        
+        if (!Files.exists(rootPath)) {
+            log.warn("Project path does not exist: {}", projectPath);
+            return "{\"error\": \"Project path does not exist: " + projectPath + "\"}";
+        }
+        
+        ToolProgress progress = ToolProgress.current();
+        progress.report(0, null, "Listing project files");
+        
+        // Collect source and configuration files in a single pruned walk
+        List<Path> sourceFiles = new ArrayList<>();
+        List<Path> springConfigFiles = new ArrayList<>();
+        List<Path> configFiles = new ArrayList<>();
+        Set<Path> moduleRoots = new HashSet<>();
+        walker.walk(rootPath, path -> {
+            String fileName = path.getFileName().toString();
+            String extension = getFileExtension(fileName);
+            if (JAVA_FILE_EXTENSIONS.contains(extension)) {
+                sourceFiles.add(path);
+            } else if (ConfigModel.isSpringConfigFile(fileName)) {
+                springConfigFiles.add(path);
+            } else if (CONFIG_FILE_EXTENSIONS.contains(extension)) {
+                configFiles.add(path);
+            }
+            if (ConfigModel.isBuildFile(fileName)) {
+                moduleRoots.add(path.getParent());
+            }
+        });
+        
+        // Parse the Spring configuration once (cached per module) so source fingerprints can be resolved
+        ConfigModel config = ConfigModel.load(rootPath, springConfigFiles);
+        configFiles.addAll(config.unparsedFiles());
+        
+        RuleSet rules = RuleSet.forProject(rootPath);
+        try (PartialResults partialResults = new PartialResults(progress)) {
+            return discover(rootPath, compiled, sourceFiles, springConfigFiles, configFiles, moduleRoots, config,
+                    rules, progress, partialResults);
+        } catch (UncheckedIOException e) {
+            // Spilled results that could not be written or read back
+            throw e.getCause();
+        }
+    }
+    
+    private String discover(Path rootPath, boolean compiled, List<Path> sourceFiles, List<Path> springConfigFiles,
+                            List<Path> configFiles, Set<Path> moduleRoots, ConfigModel config, RuleSet rules,
+                            ToolProgress progress, PartialResults partialResults) throws IOException {
+        FileConnections compiledFound = new FileConnections();
+        BytecodeScanner.Stats compiledStats = null;
+        if (compiled) {
+            // The classes of a built module stand for its main sources (tests are not compiled there)
+            BytecodeScanner.Inputs inputs = BytecodeScanner.locate(rootPath, moduleRoots);
+            for (Path module : inputs.compiledModules()) {
+                Path mainSources = module.resolve("src").resolve("main");
+                sourceFiles.removeIf(path -> path.startsWith(mainSources));
+            }
+            progress.report(0, null, "Reading compiled classes");
+            compiledStats = scanCompiled(rules, config, inputs, compiledFound, partialResults);
+        }
+        
+        // Discover inbound (entry points) and outbound (external dependencies) services
+        int parsedConfigFiles = springConfigFiles.size() - config.unparsedFiles().size();
+        FileConnections found = scanProject(rules, config, parsedConfigFiles,
+                sourceFiles, configFiles, progress, partialResults);
+        compiledFound.addAll(found);
+        found = compiledFound;
+        
+        if (progress.isStreaming()) {
+            // Everything was already sent in chunks; the final result only closes the stream
+            return generateStreamSummary(partialResults, found.skippedFiles, compiledStats, isInterrupted());
+        }
+        
+        // Generate structured JSON-like summary (partial if the scan was interrupted)
+        return generateInterconnectionSummary(partialResults, found.skippedFiles, compiledStats, isInterrupted());
+    }
+    
+    /**
+     * Discovers only the interconnections touched by the changes since a base git revision.
+     * 
+     * Changed files are listed with git and scanned twice: as they are in the working tree and
+     * as they were at the base commit (cached per commit and path). The result is the delta of
+     * inbound and outbound connections, so the cost scales with the size of the diff instead of
+     * the size of the repository.
+     * 
+     * @param projectPath The path to the project to analyze (inside a git working tree)
+     * @param baseRevision The git revision to compare against (branch, tag or commit)
+     * @return A structured summary of added and removed interconnections in JSON-like format
+     * @throws IOException If there's an error reading files
+     */
+    @Tool("Discovers the service interconnections added or removed since a base git revision, scanning only the changed files")
+    public String discover_changed_interconnections(String projectPath, String baseRevision) throws IOException {
         Path rootPath = Paths.get(projectPath);
         
         if (!Files.exists(rootPath)) {
-            System.err.println("Error: Project path does not exist: " + projectPath);
+            log.warn("Project path does not exist: {}", projectPath);
             return "{\"error\": \"Project path does not exist: " + projectPath + "\"}";
         }
         
-        // Discover inbound services (entry points)
-        List<InboundService> inboundServices = discoverInboundServices(rootPath);
+        GitChangeSet changeSet;
+        SortedSet<String> changedPaths;
+        try {
+            changeSet = GitChangeSet.open(rootPath, baseRevision);
+            changedPaths = changeSet.changedPaths();
+        } catch (IOException e) {
+            log.warn("Unable to compute git changes: {}", e.getMessage());
+            return "{\"error\": \"Unable to compute git changes: " + e.getMessage() + "\"}";
+        }
+        
+        RuleSet rules = RuleSet.forProject(rootPath);
+        ProjectWalker.Exclusions exclusions = walker.exclusions(rootPath);
+        FileConnections before = new FileConnections();
+        FileConnections after = new FileConnections();
+        List<String> skippedFiles = new ArrayList<>();
+        int scannedFiles = 0;
+        ToolProgress progress = ToolProgress.current();
+        long done = 0;
+        
+        for (String relativePath : changedPaths) {
+            if (isInterrupted()) {
+                break;
+            }
+            progress.report(done++, (long) changedPaths.size(), "Comparing " + relativePath);
+            if (!isScannable(exclusions, relativePath)) {
+                continue;
+            }
+            
+            try {
+                FileConnections baseline = scanBaseline(rules, changeSet, relativePath);
+                FileConnections current = new FileConnections();
+                Path currentPath = rootPath.resolve(relativePath);
+                if (Files.isRegularFile(currentPath)) {
+                    current = scanFile(rules, Files.readString(currentPath), relativePath);
+                }
+                if (isInterrupted()) {
+                    break;
+                }
+                // Both sides of a file are added together so an interruption never leaves half a delta
+                before.addAll(baseline);
+                after.addAll(current);
+                scannedFiles++;
+            } catch (ScanBudgetExceededException e) {
+                // Neither side is counted, so a file that only one version can scan never shows as a change
+                log.warn("Skipping file over the scan budget ({} character reads): {}", e.budget(), relativePath);
+                skippedFiles.add(relativePath);
+            } catch (IOException e) {
+                if (isInterrupted()) {
+                    break;
+                }
+                // As with the budget, a side that cannot be read must not count as empty: that would
+                // report every connection of the other side as added or removed
+                log.warn("Skipping file that could not be read on both sides: {}, Error: {}", relativePath, e.getMessage());
+                skippedFiles.add(relativePath);
+            } catch (InterruptibleCharSequence.ScanInterruptedException e) {
+                break;
+            }
+        }
+        
+        progress.report(changedPaths.size(), (long) changedPaths.size(), "Compared " + scannedFiles + " files");
+        return generateDeltaSummary(changeSet, changedPaths.size(), scannedFiles, skippedFiles, before, after);
+    }
+    
+    /**
+     * Scans the source files for inbound and outbound fingerprints, then the Spring property maps
+     * and the other configuration files for service URLs, reporting progress per file and handing
+     * found connections to the partial result stream as it goes
+     */
+    private FileConnections scanProject(RuleSet rules, ConfigModel config, int springConfigFiles,
+                                        List<Path> sourceFiles, List<Path> configFiles,
+                                        ToolProgress progress, PartialResults partialResults) {
+        FileConnections found = new FileConnections();
+        long total = sourceFiles.size() + springConfigFiles + configFiles.size();
+        long done = 0;
+        
+        for (Path path : sourceFiles) {
+            if (isInterrupted()) {
+                break;
+            }
+            try {
+                scanContent(rules, Files.readString(path), path.getFileName().toString(), config.moduleFor(path), found);
+            } catch (IOException e) {
+                log.warn("Error reading file: {}, Error: {}", path, e.getMessage());
+            } catch (ScanBudgetExceededException e) {
+                skipOverBudget(path.toString(), e, found);
+            } catch (InterruptibleCharSequence.ScanInterruptedException e) {
+                break;
+            }
+            done++;
+            progress.report(done, total, "Scanned " + done + " of " + total + " files");
+            partialResults.offer(found, false);
+        }
+        
+        // Search for service URLs in the resolved Spring properties, module by module
+        for (ModuleConfig module : config.modules().values()) {
+            if (isInterrupted()) {
+                break;
+            }
+            try {
+                scanModuleConfig(rules, module, found);
+            } catch (InterruptibleCharSequence.ScanInterruptedException e) {
+                break;
+            }
+        }
+        done += springConfigFiles;
+        progress.report(done, total, "Scanned " + done + " of " + total + " files");
+        partialResults.offer(found, false);
         
-        // Discover outbound services (external dependencies)
-        List<OutboundService> outboundServices = discoverOutboundServices(rootPath);
+        // Search for service URLs in other configuration files, streamed so generated multi-MB files
+        // never need to be held in memory
+        for (Path path : configFiles) {
+            if (isInterrupted()) {
+                break;
+            }
+            String fileName = path.getFileName().toString();
+            try (Reader reader = Files.newBufferedReader(path)) {
+                rules.scanStream(reader, Scope.CONFIG, fingerprint -> addFingerprint(fingerprint, fileName, null, found));
+            } catch (IOException e) {
+                log.warn("Error reading config file: {}, Error: {}", path, e.getMessage());
+            } catch (ScanBudgetExceededException e) {
+                // What the previous chunks found is kept
+                skipOverBudget(path.toString(), e, found);
+            } catch (InterruptibleCharSequence.ScanInterruptedException e) {
+                break;
+            }
+            done++;
+            progress.report(done, total, "Scanned " + done + " of " + total + " files");
+            partialResults.offer(found, false);
+        }
         
-        // Generate structured JSON-like summary
-        return generateInterconnectionSummary(inboundServices, outboundServices);
+        partialResults.offer(found, true);
+        return found;
     }
     
     /**
-     * Discovers inbound services (entry points to the application)
+     * Scans the classes rendered from the compiled inputs, resolving placeholders against the module
+     * of the class directory or jar they come from
      */
-    private List<InboundService> discoverInboundServices(Path rootPath) throws IOException {
-        List<InboundService> inboundServices = new ArrayList<>();
-        
-        try (Stream<Path> paths = Files.walk(rootPath, FileVisitOption.FOLLOW_LINKS)) {
-            paths.filter(path -> JAVA_FILE_EXTENSIONS.contains(getFileExtension(path.toString())))
-                 .filter(path -> !path.toString().contains("/target/") && !path.toString().contains("/build/"))
-                 .forEach(path -> {
-                     try {
-                         String content = Files.readString(path);
-                         String fileName = path.getFileName().toString();
-                         
-                         // Check for REST controllers
-                         if (REST_CONTROLLER_PATTERN.matcher(content).find()) {
-                             List<String> mappings = extractRequestMappingValues(content);
-                             for (String mapping : mappings) {
-                                 inboundServices.add(new InboundService("REST", mapping, fileName));
-                             }
-                         }
-                         
-                         // Check for gRPC services
-                         Matcher grpcMatcher = GRPC_SERVICE_PATTERN.matcher(content);
-                         while (grpcMatcher.find()) {
-                             inboundServices.add(new InboundService("gRPC", "Service Methods", fileName));
-                         }
-                         
-                         // Check for Kafka listeners
-                         Matcher kafkaMatcher = KAFKA_LISTENER_PATTERN.matcher(content);
-                         while (kafkaMatcher.find()) {
-                             String topic = kafkaMatcher.group(1);
-                             inboundServices.add(new InboundService("Messaging-Kafka", topic, fileName));
-                         }
-                         
-                         // Check for Rabbit listeners
-                         Matcher rabbitMatcher = RABBIT_LISTENER_PATTERN.matcher(content);
-                         while (rabbitMatcher.find()) {
-                             String queue = rabbitMatcher.group(1);
-                             inboundServices.add(new InboundService("Messaging-RabbitMQ", queue, fileName));
-                         }
-                         
-                         // Check for JMS listeners
-                         Matcher jmsMatcher = JMS_LISTENER_PATTERN.matcher(content);
-                         while (jmsMatcher.find()) {
-                             String destination = jmsMatcher.group(1);
-                             inboundServices.add(new InboundService("Messaging-JMS", destination, fileName));
-                         }
-                         
-                         // Check for Stream listeners
-                         Matcher streamMatcher = STREAM_LISTENER_PATTERN.matcher(content);
-                         while (streamMatcher.find()) {
-                             String binding = streamMatcher.group(1);
-                             inboundServices.add(new InboundService("Messaging-Stream", binding, fileName));
-                         }
-                     } catch (IOException e) {
-                         System.err.println("Error reading file: " + path + ", Error: " + e.getMessage());
-                     }
-                 });
-        }
-        
-        return inboundServices;
+    private BytecodeScanner.Stats scanCompiled(RuleSet rules, ConfigModel config, BytecodeScanner.Inputs inputs,
+                                               FileConnections found, PartialResults partialResults) throws IOException {
+        BytecodeScanner.Stats stats = BytecodeScanner.scan(inputs, compiledClass -> {
+            if (isInterrupted()) {
+                return;
+            }
+            try {
+                scanContent(rules, compiledClass.text(), compiledClass.sourceFile(),
+                        config.moduleFor(compiledClass.location()), found);
+            } catch (ScanBudgetExceededException e) {
+                skipOverBudget(compiledClass.sourceFile(), e, found);
+            } catch (InterruptibleCharSequence.ScanInterruptedException e) {
+                // The interrupt flag is still set: the scanner stops after this unit
+            }
+            partialResults.offer(found, false);
+        });
+        return stats;
     }
     
     /**
-     * Discovers outbound services (external dependencies)
+     * Scans the content of a source file, resolving placeholders in the found values against its module
      */
-    private List<OutboundService> discoverOutboundServices(Path rootPath) throws IOException {
-        List<OutboundService> outboundServices = new ArrayList<>();
-        
-        // Search for outbound calls in Java files
-        try (Stream<Path> paths = Files.walk(rootPath, FileVisitOption.FOLLOW_LINKS)) {
-            paths.filter(path -> JAVA_FILE_EXTENSIONS.contains(getFileExtension(path.toString())))
-                 .filter(path -> !path.toString().contains("/target/") && !path.toString().contains("/build/"))
-                 .forEach(path -> {
-                     try {
-                         String content = Files.readString(path);
-                         String fileName = path.getFileName().toString();
-                         
-                         // Extract Feign clients
-                         Matcher feignMatcher = FEIGN_CLIENT_PATTERN.matcher(content);
-                         while (feignMatcher.find()) {
-                             String serviceName = feignMatcher.group(1) != null ? feignMatcher.group(1) : feignMatcher.group(2);
-                             outboundServices.add(new OutboundService(serviceName, "REST", "FeignClient", fileName));
-                         }
-                         
-                         // Extract WebClient usage
-                         Matcher webClientMatcher = WEB_CLIENT_PATTERN.matcher(content);
-                         while (webClientMatcher.find()) {
-                             String url = webClientMatcher.group(1);
-                             if (url != null) {
-                                 outboundServices.add(new OutboundService(url, "REST", "WebClient", fileName));
-                             } else {
-                                 outboundServices.add(new OutboundService("External Services", "REST", "WebClient", fileName));
-                             }
-                         }
-                         
-                         // Extract RestTemplate usage
-                         Matcher restTemplateMatcher = REST_TEMPLATE_PATTERN.matcher(content);
-                         while (restTemplateMatcher.find()) {
-                             String url = restTemplateMatcher.group(1) != null ? restTemplateMatcher.group(1) : restTemplateMatcher.group(2);
-                             if (url != null) {
-                                 outboundServices.add(new OutboundService(url, "REST", "RestTemplate", fileName));
-                             } else {
-                                 outboundServices.add(new OutboundService("External Services", "REST", "RestTemplate", fileName));
-                             }
-                         }
-                         
-                         // Extract Kafka template usage
-                         Matcher kafkaSendMatcher = KAFKA_TEMPLATE_SEND_PATTERN.matcher(content);
-                         while (kafkaSendMatcher.find()) {
-                             String topic = kafkaSendMatcher.group(1) != null ? kafkaSendMatcher.group(1) : kafkaSendMatcher.group(2);
-                             outboundServices.add(new OutboundService(topic, "Messaging-Kafka", "KafkaTemplate", fileName));
-                         }
-                         
-                         // Extract Stream bridge usage
-                         Matcher streamBridgeMatcher = STREAM_BRIDGE_SEND_PATTERN.matcher(content);
-                         while (streamBridgeMatcher.find()) {
-                             String destination = streamBridgeMatcher.group(1) != null ? streamBridgeMatcher.group(1) : streamBridgeMatcher.group(2);
-                             outboundServices.add(new OutboundService(destination, "Messaging-Stream", "StreamBridge", fileName));
-                         }
-                         
-                         // Extract Rabbit template usage
-                         Matcher rabbitMatcher = RABBIT_TEMPLATE_PATTERN.matcher(content);
-                         while (rabbitMatcher.find()) {
-                             String queue = rabbitMatcher.group(1) != null ? rabbitMatcher.group(1) : rabbitMatcher.group(2);
-                             outboundServices.add(new OutboundService(queue, "Messaging-RabbitMQ", "RabbitTemplate", fileName));
-                         }
-                     } catch (IOException e) {
-                         System.err.println("Error reading file: " + path + ", Error: " + e.getMessage());
-                     }
-                 });
-        }
-        
-        // Search for service URLs in configuration files
-        try (Stream<Path> paths = Files.walk(rootPath, FileVisitOption.FOLLOW_LINKS)) {
-            paths.filter(path -> CONFIG_FILE_EXTENSIONS.contains(getFileExtension(path.toString())))
-                 .filter(path -> !path.toString().contains("/target/") && !path.toString().contains("/build/"))
-                 .forEach(path -> {
-                     try {
-                         String content = Files.readString(path);
-                         String fileName = path.getFileName().toString();
-                         
-                         // Look for URLs in configuration files
-                         Matcher urlMatcher = APPLICATION_YML_SERVICE_URLS.matcher(content);
-                         while (urlMatcher.find()) {
-                             String url = urlMatcher.group(0);
-                             outboundServices.add(new OutboundService(url, "Configuration", "Service URL", fileName));
-                         }
-                     } catch (IOException e) {
-                         System.err.println("Error reading config file: " + path + ", Error: " + e.getMessage());
-                     }
-                 });
-        }
-        
-        return outboundServices;
+    private void scanContent(RuleSet rules, String content, String fileName, ModuleConfig module, FileConnections found) {
+        for (Fingerprint fingerprint : rules.scan(content, Scope.SOURCE)) {
+            String value = fingerprint.value();
+            String configKey = ModuleConfig.placeholderKey(value);
+            addFingerprint(fingerprint.rule(), module != null ? module.resolve(value) : value, fileName, configKey, found);
+        }
+    }
+    
+    /**
+     * Matches each resolved property of a module on its own, so every outbound connection carries
+     * the key (and the file) that defines it. Stream binding destinations map to their direction.
+     */
+    private void scanModuleConfig(RuleSet rules, ModuleConfig module, FileConnections found) {
+        for (String key : module.keys()) {
+            String value = module.get(key);
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            String fileName = Paths.get(module.originOf(key)).getFileName().toString();
+            
+            Matcher binding = STREAM_BINDING_DESTINATION.matcher(key);
+            if (binding.matches()) {
+                if (INBOUND_BINDING.matcher(binding.group(1)).matches()) {
+                    found.inbound.add(new InboundService("Messaging-Stream", value, fileName));
+                } else if (OUTBOUND_BINDING.matcher(binding.group(1)).matches()) {
+                    found.outbound.add(new OutboundService(value, "Messaging-Stream", "StreamBinding", fileName, key));
+                }
+                continue;
+            }
+            List<Fingerprint> fingerprints;
+            try {
+                fingerprints = rules.scan(value, Scope.CONFIG);
+            } catch (ScanBudgetExceededException e) {
+                skipOverBudget(module.originOf(key) + " (" + key + ")", e, found);
+                continue;
+            }
+            for (Fingerprint fingerprint : fingerprints) {
+                addFingerprint(fingerprint.rule(), fingerprint.value(), fileName, key, found);
+            }
+        }
+    }
+    
+    private void skipOverBudget(String file, ScanBudgetExceededException e, FileConnections found) {
+        log.warn("Skipping file over the scan budget ({} character reads): {}", e.budget(), file);
+        found.skippedFiles.add(file);
+    }
+    
+    private void addFingerprint(Fingerprint fingerprint, String fileName, String configKey, FileConnections found) {
+        addFingerprint(fingerprint.rule(), fingerprint.value(), fileName, configKey, found);
+    }
+    
+    private void addFingerprint(FingerprintRule rule, String value, String fileName, String configKey,
+                                FileConnections found) {
+        if (rule.direction() == FingerprintRule.Direction.INBOUND) {
+            found.inbound.add(new InboundService(rule.protocol(), value, fileName));
+        } else {
+            found.outbound.add(new OutboundService(value, rule.protocol(), rule.type(), fileName, configKey));
+        }
     }
     
     /**
-     * Extracts request mapping values from content
+     * Scans a single file, dispatching on its extension. Only one version of the file is at hand,
+     * so a Spring configuration file is resolved on its own and source placeholders are kept as
+     * written (with their key).
      */
-    private List<String> extractRequestMappingValues(String content) {
-        List<String> mappings = new ArrayList<>();
-        Matcher matcher = REQUEST_MAPPING_PATTERN.matcher(content);
-        
-        while (matcher.find()) {
-            // Check each capturing group to find which one matched
-            for (int i = 1; i <= matcher.groupCount(); i++) {
-                String group = matcher.group(i);
-                if (group != null) {
-                    mappings.add(group);
-                    break; // Only add the first non-null group
+    private FileConnections scanFile(RuleSet rules, String content, String relativePath) {
+        FileConnections connections = new FileConnections();
+        String extension = getFileExtension(relativePath);
+        String fileName = Paths.get(relativePath).getFileName().toString();
+        if (JAVA_FILE_EXTENSIONS.contains(extension)) {
+            scanContent(rules, content, fileName, null, connections);
+        } else if (ConfigModel.isSpringConfigFile(fileName)) {
+            try {
+                scanModuleConfig(rules, ConfigModel.parseFile(new StringReader(content), relativePath), connections);
+            } catch (IOException e) {
+                // Not valid YAML/properties: fall back to a plain text scan
+                for (Fingerprint fingerprint : rules.scan(content, Scope.CONFIG)) {
+                    addFingerprint(fingerprint, fileName, null, connections);
                 }
             }
+        } else if (CONFIG_FILE_EXTENSIONS.contains(extension)) {
+            for (Fingerprint fingerprint : rules.scan(content, Scope.CONFIG)) {
+                addFingerprint(fingerprint, fileName, null, connections);
+            }
+        }
+        return connections;
+    }
+    
+    /**
+     * Returns the scan of a file at the base commit, reading it through git only on cache misses
+     *
+     * @throws IOException If git fails to read the base version (a file missing at the base commit
+     *         is not an error: it scans as empty)
+     */
+    private FileConnections scanBaseline(RuleSet rules, GitChangeSet changeSet, String relativePath)
+            throws IOException {
+        String cacheKey = rules.signature() + ":" + changeSet.getBaseCommit() + ":" + relativePath;
+        FileConnections cached = baselineCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
         }
         
-        if (mappings.isEmpty()) {
-            mappings.add("Generic REST endpoints");
+        FileConnections connections = new FileConnections();
+        // A failed read or an interrupted scan throws before reaching the cache, so partial results are never cached
+        Optional<String> content = changeSet.readAtBase(relativePath);
+        if (content.isPresent()) {
+            connections = scanFile(rules, content.get(), relativePath);
+        }
+        if (isInterrupted()) {
+            return connections;
+        }
+        baselineCache.put(cacheKey, connections);
+        return connections;
+    }
+    
+    /**
+     * Whether a changed path has an extension handled by the scanners and is not excluded by the walker rules
+     */
+    private boolean isScannable(ProjectWalker.Exclusions exclusions, String relativePath) {
+        String extension = getFileExtension(relativePath);
+        if (!JAVA_FILE_EXTENSIONS.contains(extension) && !CONFIG_FILE_EXTENSIONS.contains(extension)) {
+            return false;
+        }
+        return !exclusions.isExcluded(relativePath);
+    }
+    
+    /**
+     * Generates a structured JSON-like summary of service interconnections, reading the accumulated
+     * connections back in order (each distinct one once) while it writes.
+     *
+     * When the connections were spilled to disk the connection mapping is left out: it repeats every
+     * connection and would double a result that is already too large for the memory budget. The
+     * summary is written to a temporary file and read back as the result, so the heap holds one
+     * entry per distinct connection (plus the file's bytes while they are decoded) and never the
+     * records and the result at once.
+     */
+    private String generateInterconnectionSummary(PartialResults accumulated,
+                                                 List<String> skippedFiles,
+                                                 BytecodeScanner.Stats compiledStats,
+                                                 boolean truncated) throws IOException {
+        if (!accumulated.spilled()) {
+            StringWriter sb = new StringWriter();
+            StringWriter mapping = new StringWriter();
+            writeInterconnectionSummary(sb, mapping, accumulated, skippedFiles, compiledStats, truncated);
+            return sb.append(mapping.getBuffer()).toString();
         }
         
-        return mappings;
+        Path summary = Files.createTempFile("sentinel-discovery-", ".json");
+        try {
+            try (Writer sb = Files.newBufferedWriter(summary)) {
+                writeInterconnectionSummary(sb, Writer.nullWriter(), accumulated, skippedFiles, compiledStats, truncated);
+                sb.append("    \"connection_mapping_omitted\": true\n");
+                sb.append("  }\n");
+                sb.append("}\n");
+            }
+            return Files.readString(summary);
+        } finally {
+            Files.deleteIfExists(summary);
+        }
     }
     
     /**
-     * Generates a structured JSON-like summary of service interconnections
+     * Writes the summary up to the connection mapping, which repeats every connection: it is written
+     * to {@code mapping} in the same pass, for the caller to append
      */
-    private String generateInterconnectionSummary(List<InboundService> inboundServices, 
-                                                 List<OutboundService> outboundServices) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\n");
-        sb.append("  \"discovery_summary\": {\n");
-        sb.append("    \"inbound_services\": [\n");
+    private void writeInterconnectionSummary(Writer sb, Writer mapping, PartialResults accumulated,
+                                             List<String> skippedFiles, BytecodeScanner.Stats compiledStats,
+                                             boolean truncated) throws IOException {
+        StringBuilder header = new StringBuilder();
+        header.append("{\n");
+        header.append("  \"discovery_summary\": {\n");
+        if (truncated) {
+            header.append("    \"truncated\": true,\n");
+        }
+        appendSkippedFiles(header, skippedFiles);
+        appendCompiledStats(header, compiledStats);
+        sb.append(header);
         
-        for (int i = 0; i < inboundServices.size(); i++) {
-            InboundService service = inboundServices.get(i);
+        mapping.append("    \"connection_mapping\": {\n");
+        mapping.append("      \"inbound\": [\n");
+        boolean[] first = {true};
+        sb.append("    \"inbound_services\": [\n");
+        accumulated.inbound.forEachSorted(record -> write(() -> {
+            InboundService service = InboundService.fromRecord(record);
+            if (!first[0]) {
+                sb.append(",\n");
+                mapping.append(",\n");
+            }
+            first[0] = false;
             sb.append("      {\n");
             sb.append("        \"protocol\": \"").append(service.protocol).append("\",\n");
             sb.append("        \"endpoint\": \"").append(service.endpoint).append("\",\n");
             sb.append("        \"source_file\": \"").append(service.sourceFile).append("\"\n");
             sb.append("      }");
-            if (i < inboundServices.size() - 1) sb.append(",");
+            mapping.append("        \"Inbound: ").append(service.protocol).append(" -> ").append(service.endpoint).append("\"");
+        }));
+        if (!first[0]) {
             sb.append("\n");
+            mapping.append("\n");
         }
         sb.append("    ],\n");
+        mapping.append("      ],\n");
         
+        mapping.append("      \"outbound\": [\n");
+        first[0] = true;
         sb.append("    \"outbound_services\": [\n");
-        for (int i = 0; i < outboundServices.size(); i++) {
-            OutboundService service = outboundServices.get(i);
+        accumulated.outbound.forEachSorted(record -> write(() -> {
+            OutboundService service = OutboundService.fromRecord(record);
+            if (!first[0]) {
+                sb.append(",\n");
+                mapping.append(",\n");
+            }
+            first[0] = false;
             sb.append("      {\n");
             sb.append("        \"target_service\": \"").append(service.targetService).append("\",\n");
             sb.append("        \"protocol\": \"").append(service.protocol).append("\",\n");
             sb.append("        \"type\": \"").append(service.type).append("\",\n");
+            if (service.configKey != null) {
+                sb.append("        \"config_key\": \"").append(service.configKey).append("\",\n");
+            }
             sb.append("        \"source_file\": \"").append(service.sourceFile).append("\"\n");
             sb.append("      }");
-            if (i < outboundServices.size() - 1) sb.append(",");
+            mapping.append("        \"Outbound: ").append(service.targetService).append(" via ").append(service.protocol).append("\"");
+        }));
+        if (!first[0]) {
             sb.append("\n");
+            mapping.append("\n");
         }
         sb.append("    ],\n");
-        
-        sb.append("    \"connection_mapping\": {\n");
-        sb.append("      \"inbound\": [\n");
-        for (int i = 0; i < inboundServices.size(); i++) {
-            InboundService service = inboundServices.get(i);
-            sb.append("        \"Inbound: ").append(service.protocol).append(" -> ").append(service.endpoint).append("\"");
-            if (i < inboundServices.size() - 1) sb.append(",");
-            sb.append("\n");
+        mapping.append("      ]\n");
+        mapping.append("    }\n");
+        mapping.append("  }\n");
+        mapping.append("}\n");
+    }
+    
+    @FunctionalInterface
+    private interface Output {
+        void write() throws IOException;
+    }
+    
+    private static void write(Output output) {
+        try {
+            output.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        sb.append("      ],\n");
-        sb.append("      \"outbound\": [\n");
-        for (int i = 0; i < outboundServices.size(); i++) {
-            OutboundService service = outboundServices.get(i);
-            sb.append("        \"Outbound: ").append(service.targetService).append(" via ").append(service.protocol).append("\"");
-            if (i < outboundServices.size() - 1) sb.append(",");
-            sb.append("\n");
+    }
+    
+    /**
+     * Generates a structured JSON-like summary of the connections added and removed by a change set
+     */
+    private String generateDeltaSummary(GitChangeSet changeSet, int changedFiles, int scannedFiles,
+                                        List<String> skippedFiles, FileConnections before, FileConnections after) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"interconnection_delta\": {\n");
+        sb.append("    \"base_revision\": \"").append(changeSet.getBaseRevision()).append("\",\n");
+        sb.append("    \"base_commit\": \"").append(changeSet.getBaseCommit()).append("\",\n");
+        sb.append("    \"changed_files\": ").append(changedFiles).append(",\n");
+        sb.append("    \"scanned_files\": ").append(scannedFiles).append(",\n");
+        if (isInterrupted()) {
+            sb.append("    \"truncated\": true,\n");
         }
-        sb.append("      ]\n");
-        sb.append("    }\n");
+        appendSkippedFiles(sb, skippedFiles);
+        appendInboundArray(sb, "inbound_added", subtract(after.inbound, before.inbound));
+        sb.append(",\n");
+        appendInboundArray(sb, "inbound_removed", subtract(before.inbound, after.inbound));
+        sb.append(",\n");
+        appendOutboundArray(sb, "outbound_added", subtract(after.outbound, before.outbound));
+        sb.append(",\n");
+        appendOutboundArray(sb, "outbound_removed", subtract(before.outbound, after.outbound));
+        sb.append("\n");
         sb.append("  }\n");
         sb.append("}\n");
         
         return sb.toString();
     }
     
+    /**
+     * Generates the final result of a streamed discovery: the connections themselves were sent as chunks
+     */
+    private String generateStreamSummary(PartialResults partialResults, List<String> skippedFiles,
+                                         BytecodeScanner.Stats compiledStats, boolean truncated) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"discovery_summary\": {\n");
+        sb.append("    \"streamed\": true,\n");
+        if (truncated) {
+            sb.append("    \"truncated\": true,\n");
+        }
+        appendSkippedFiles(sb, skippedFiles);
+        appendCompiledStats(sb, compiledStats);
+        sb.append("    \"chunks\": ").append(partialResults.chunks).append(",\n");
+        sb.append("    \"inbound_services\": ").append(partialResults.inboundCount).append(",\n");
+        sb.append("    \"outbound_services\": ").append(partialResults.outboundCount).append("\n");
+        sb.append("  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+    
+    /**
+     * Generates one chunk of a streamed discovery
+     */
+    private String generateChunk(int chunk, FileConnections connections) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"partial_interconnections\": {\n");
+        sb.append("    \"chunk\": ").append(chunk).append(",\n");
+        appendInboundArray(sb, "inbound_services", connections.inbound);
+        sb.append(",\n");
+        appendOutboundArray(sb, "outbound_services", connections.outbound);
+        sb.append("\n");
+        sb.append("  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+    
+    /**
+     * Files left out because they exhausted the scan budget (nothing is written if there are none)
+     */
+    private void appendSkippedFiles(StringBuilder sb, List<String> skippedFiles) {
+        if (skippedFiles.isEmpty()) {
+            return;
+        }
+        sb.append("    \"skipped_files\": [");
+        for (int i = 0; i < skippedFiles.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("\"").append(skippedFiles.get(i).replace("\\", "/")).append("\"");
+        }
+        sb.append("],\n");
+    }
+    
+    /**
+     * What a compiled discovery read (nothing is written for a source discovery)
+     */
+    private void appendCompiledStats(StringBuilder sb, BytecodeScanner.Stats stats) {
+        if (stats == null) {
+            return;
+        }
+        sb.append("    \"compiled_classes\": ").append(stats.classes()).append(",\n");
+        sb.append("    \"compiled_jars\": ").append(stats.jars()).append(",\n");
+        if (!stats.unreadable().isEmpty()) {
+            sb.append("    \"unreadable_compiled_files\": ").append(stats.unreadable().size()).append(",\n");
+        }
+    }
+    
+    private void appendInboundArray(StringBuilder sb, String name, List<InboundService> services) {
+        sb.append("    \"").append(name).append("\": [\n");
+        for (int i = 0; i < services.size(); i++) {
+            InboundService service = services.get(i);
+            sb.append("      {\n");
+            sb.append("        \"protocol\": \"").append(service.protocol).append("\",\n");
+            sb.append("        \"endpoint\": \"").append(service.endpoint).append("\",\n");
+            sb.append("        \"source_file\": \"").append(service.sourceFile).append("\"\n");
+            sb.append("      }");
+            if (i < services.size() - 1) sb.append(",");
+            sb.append("\n");
+        }
+        sb.append("    ]");
+    }
+    
+    private void appendOutboundArray(StringBuilder sb, String name, List<OutboundService> services) {
+        sb.append("    \"").append(name).append("\": [\n");
+        for (int i = 0; i < services.size(); i++) {
+            OutboundService service = services.get(i);
+            sb.append("      {\n");
+            sb.append("        \"target_service\": \"").append(service.targetService).append("\",\n");
+            sb.append("        \"protocol\": \"").append(service.protocol).append("\",\n");
+            sb.append("        \"type\": \"").append(service.type).append("\",\n");
+            if (service.configKey != null) {
+                sb.append("        \"config_key\": \"").append(service.configKey).append("\",\n");
+            }
+            sb.append("        \"source_file\": \"").append(service.sourceFile).append("\"\n");
+            sb.append("      }");
+            if (i < services.size() - 1) sb.append(",");
+            sb.append("\n");
+        }
+        sb.append("    ]");
+    }
+    
+    /**
+     * Multiset difference: each element of {@code toRemove} cancels at most one equal element of {@code from}
+     */
+    private static <T> List<T> subtract(List<T> from, List<T> toRemove) {
+        List<T> result = new ArrayList<>(from);
+        for (T item : toRemove) {
+            result.remove(item);
+        }
+        return result;
+    }
+    
+    /**
+     * Whether the current scan was cancelled or ran out of time (the interrupt flag is left set for the caller)
+     */
+    private static boolean isInterrupted() {
+        return Thread.currentThread().isInterrupted();
+    }
+    
     /**
      * Helper method to extract file extension
      */
@@ -317,6 +773,33 @@ public class ServiceInterconnectionDiscovery {
         return dotIndex > 0 ? pathStr.substring(dotIndex) : "";
     }
     
+    // Separador de campos y marca de campo nulo en los registros acumulados (no aparecen en el código analizado)
+    private static final char RECORD_SEPARATOR = '\u0000';
+    private static final String NULL_FIELD = "\u0001";
+    
+    private static String joinRecord(String... fields) {
+        StringBuilder record = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                record.append(RECORD_SEPARATOR);
+            }
+            record.append(fields[i] != null ? fields[i] : NULL_FIELD);
+        }
+        return record.toString();
+    }
+    
+    private static String[] splitRecord(String record, int count) {
+        String[] fields = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = i < count - 1 ? record.indexOf(RECORD_SEPARATOR, start) : record.length();
+            String field = record.substring(start, end);
+            fields[i] = field.equals(NULL_FIELD) ? null : field;
+            start = end + 1;
+        }
+        return fields;
+    }
+    
     /**
      * Inner class to represent an inbound service
      */
@@ -330,6 +813,32 @@ public class ServiceInterconnectionDiscovery {
             this.endpoint = endpoint;
             this.sourceFile = sourceFile;
         }
+        
+        /**
+         * Sortable form for {@link SpillingSorter}: fields in output order, NUL-separated
+         */
+        String toRecord() {
+            return joinRecord(protocol, endpoint, sourceFile);
+        }
+        
+        static InboundService fromRecord(String record) {
+            String[] fields = splitRecord(record, 3);
+            return new InboundService(fields[0], fields[1], fields[2]);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof InboundService other)) return false;
+            return Objects.equals(protocol, other.protocol)
+                    && Objects.equals(endpoint, other.endpoint)
+                    && Objects.equals(sourceFile, other.sourceFile);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(protocol, endpoint, sourceFile);
+        }
     }
     
     /**
@@ -340,12 +849,135 @@ public class ServiceInterconnectionDiscovery {
         final String protocol;
         final String type;
         final String sourceFile;
+        final String configKey;   // property that defines the target, if any
         
-        OutboundService(String targetService, String protocol, String type, String sourceFile) {
+        OutboundService(String targetService, String protocol, String type, String sourceFile, String configKey) {
             this.targetService = targetService;
             this.protocol = protocol;
             this.type = type;
             this.sourceFile = sourceFile;
+            this.configKey = configKey;
+        }
+        
+        String toRecord() {
+            return joinRecord(targetService, protocol, type, sourceFile, configKey);
+        }
+        
+        static OutboundService fromRecord(String record) {
+            String[] fields = splitRecord(record, 5);
+            return new OutboundService(fields[0], fields[1], fields[2], fields[3], fields[4]);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof OutboundService other)) return false;
+            return Objects.equals(targetService, other.targetService)
+                    && Objects.equals(protocol, other.protocol)
+                    && Objects.equals(type, other.type)
+                    && Objects.equals(sourceFile, other.sourceFile)
+                    && Objects.equals(configKey, other.configKey);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(targetService, protocol, type, sourceFile, configKey);
+        }
+    }
+    
+    /**
+     * Takes the connections found so far out of the scan buffer, so a discovery never holds them all
+     * as objects. A streaming client receives them in chunks: the first one as soon as anything is
+     * found, then whenever enough connections or time have accumulated. Otherwise they are added to
+     * {@link SpillingSorter}s, which keep them in memory up to a budget and spill sorted runs to disk
+     * beyond it; the final summary reads them back deduplicated.
+     */
+    private class PartialResults implements Closeable {
+        private static final int CHUNK_SIZE = 200;
+        private static final long CHUNK_INTERVAL_NANOS = 250_000_000L;
+        
+        private final ToolProgress progress;
+        private final SpillingSorter inbound;
+        private final SpillingSorter outbound;
+        private long lastEmitNanos = System.nanoTime();
+        private int chunks;
+        private int inboundCount;
+        private int outboundCount;
+        
+        PartialResults(ToolProgress progress) {
+            this.progress = progress;
+            this.inbound = progress.isStreaming() ? null : SpillingSorter.fromSystemProperties();
+            this.outbound = progress.isStreaming() ? null : SpillingSorter.fromSystemProperties();
+        }
+        
+        void offer(FileConnections found, boolean last) {
+            if (!progress.isStreaming()) {
+                accumulate(found);
+                return;
+            }
+            int buffered = found.inbound.size() + found.outbound.size();
+            if (buffered == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (!last && chunks > 0 && buffered < CHUNK_SIZE && now - lastEmitNanos < CHUNK_INTERVAL_NANOS) {
+                return;
+            }
+            chunks++;
+            inboundCount += found.inbound.size();
+            outboundCount += found.outbound.size();
+            progress.emit(generateChunk(chunks, found));
+            found.inbound.clear();
+            found.outbound.clear();
+            lastEmitNanos = now;
+        }
+        
+        private void accumulate(FileConnections found) {
+            try {
+                for (InboundService service : found.inbound) {
+                    inbound.add(service.toRecord());
+                }
+                for (OutboundService service : found.outbound) {
+                    outbound.add(service.toRecord());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            found.inbound.clear();
+            found.outbound.clear();
+        }
+        
+        /**
+         * @return Whether the accumulated connections outgrew the memory budget
+         */
+        boolean spilled() {
+            return inbound != null && (inbound.spilledRecords() > 0 || outbound.spilledRecords() > 0);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (inbound != null) {
+                try {
+                    inbound.close();
+                } finally {
+                    outbound.close();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Inbound and outbound connections found in one file (or a group of files)
+     */
+    private static class FileConnections {
+        final List<InboundService> inbound = new ArrayList<>();
+        final List<OutboundService> outbound = new ArrayList<>();
+        final List<String> skippedFiles = new ArrayList<>();
+        
+        void addAll(FileConnections other) {
+            inbound.addAll(other.inbound);
+            outbound.addAll(other.outbound);
+            skippedFiles.addAll(other.skippedFiles);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+package com.sentinel.arch.mcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Spilling Sorter
+ *
+ * Collects records (strings) for a result that may not fit in the heap. Records are kept in memory
+ * up to a budget, {@value #MEMORY_MB_PROPERTY} megabytes; when it is exceeded they are sorted,
+ * deduplicated and written as a compressed run to a temporary directory. {@link #forEachSorted}
+ * merges the runs with what is still in memory and passes each distinct record once, in order, so
+ * the caller can write its output while reading. Memory stays bounded by the budget plus one read
+ * buffer per run.
+ *
+ * The temporary files are deleted on {@link #close()}.
+ */
+public class SpillingSorter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillingSorter.class);
+
+    public static final String MEMORY_MB_PROPERTY = "sentinel.spill.memory-mb";
+
+    // Cabeceras del String y de su array, y la referencia de la lista
+    private static final long RECORD_OVERHEAD_BYTES = 56;
+    // Runs leídos a la vez en una mezcla; si hay más, se mezclan antes en runs intermedios
+    private static final int MAX_MERGE_FAN_IN = 64;
+    private static final int RUN_BUFFER_BYTES = 16 * 1024;
+
+    private final long budgetBytes;
+    private final List<String> records = new ArrayList<>();
+    private final Deque<Path> runs = new ArrayDeque<>();
+    private long bufferedBytes;
+    private long spilledRecords;
+    private Path directory;
+
+    public SpillingSorter(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Sorter with the budget of {@value #MEMORY_MB_PROPERTY}, by default 1/32 of the maximum heap (at least 4 MB)
+     */
+    public static SpillingSorter fromSystemProperties() {
+        long defaultMb = Math.max(4, Runtime.getRuntime().maxMemory() / 32 / (1024 * 1024));
+        return new SpillingSorter(Long.getLong(MEMORY_MB_PROPERTY, defaultMb) * 1024 * 1024);
+    }
+
+    public void add(String record) throws IOException {
+        records.add(record);
+        bufferedBytes += RECORD_OVERHEAD_BYTES + 2L * record.length();
+        if (bufferedBytes > budgetBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * @return Whether no record was added
+     */
+    public boolean isEmpty() {
+        return records.isEmpty() && runs.isEmpty();
+    }
+
+    /**
+     * Passes every distinct record, in natural order, to the consumer. Can be called more than once.
+     */
+    public void forEachSorted(Consumer<String> consumer) throws IOException {
+        sortAndDeduplicate(records);
+        if (runs.isEmpty()) {
+            records.forEach(consumer);
+            return;
+        }
+        while (runs.size() > MAX_MERGE_FAN_IN) {
+            List<Path> group = new ArrayList<>();
+            for (int i = 0; i < MAX_MERGE_FAN_IN; i++) {
+                group.add(runs.removeFirst());
+            }
+            Path merged = newRun();
+            try (RunWriter out = new RunWriter(merged)) {
+                merge(group, List.of(), out::write);
+            }
+            for (Path run : group) {
+                Files.deleteIfExists(run);
+            }
+            runs.addLast(merged);
+        }
+        merge(new ArrayList<>(runs), records, consumer);
+    }
+
+    /**
+     * Records written to disk so far (before deduplication across runs)
+     */
+    public long spilledRecords() {
+        return spilledRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.clear();
+        bufferedBytes = 0;
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        if (directory != null) {
+            Files.deleteIfExists(directory);
+            directory = null;
+        }
+    }
+
+    private void spill() throws IOException {
+        sortAndDeduplicate(records);
+        Path run = newRun();
+        try (RunWriter out = new RunWriter(run)) {
+            for (String record : records) {
+                out.write(record);
+            }
+        }
+        spilledRecords += records.size();
+        log.debug("Resultados volcados a disco: {} registros en {} ({} runs)", records.size(), run, runs.size() + 1);
+        runs.addLast(run);
+        records.clear();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * K-way merge of sorted runs and a sorted in-memory list, skipping repeated records
+     */
+    private static void merge(List<Path> runFiles, List<String> inMemory, Consumer<String> consumer) throws IOException {
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<RunReader> heads = new PriorityQueue<>(Comparator.comparing((RunReader r) -> r.head));
+            for (Path run : runFiles) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+            Iterator<String> memory = inMemory.iterator();
+            String memoryHead = memory.hasNext() ? memory.next() : null;
+            String last = null;
+            while (!heads.isEmpty() || memoryHead != null) {
+                String next;
+                if (memoryHead != null && (heads.isEmpty() || memoryHead.compareTo(heads.peek().head) <= 0)) {
+                    next = memoryHead;
+                    memoryHead = memory.hasNext() ? memory.next() : null;
+                } else {
+                    RunReader reader = heads.poll();
+                    next = reader.head;
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                }
+                if (!next.equals(last)) {
+                    consumer.accept(next);
+                    last = next;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void sortAndDeduplicate(List<String> list) {
+        list.sort(null);
+        int distinct = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (distinct == 0 || !list.get(i).equals(list.get(distinct - 1))) {
+                list.set(distinct++, list.get(i));
+            }
+        }
+        list.subList(distinct, list.size()).clear();
+    }
+
+    private Path newRun() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("sentinel-spill-");
+        }
+        return Files.createTempFile(directory, "run-", ".bin");
+    }
+
+    /**
+     * Compressed run: each record as its length and its UTF-8 bytes
+     */
+    private static final class RunWriter implements Closeable {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final DataOutputStream out;
+
+        RunWriter(Path run) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(Files.newOutputStream(run), deflater, RUN_BUFFER_BYTES), RUN_BUFFER_BYTES));
+        }
+
+        void write(String record) {
+            try {
+                byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Sequential reader of a run, positioned on its current record
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final Inflater inflater = new Inflater();
+        String head;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new InflaterInputStream(Files.newInputStream(run), inflater, RUN_BUFFER_BYTES), RUN_BUFFER_BYTES));
+        }
+
+        boolean advance() {
+            try {
+                int length = in.readInt();
+                head = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                return true;
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+            inflater.end();
+        }
+    }
+}
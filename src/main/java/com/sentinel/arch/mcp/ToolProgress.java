@@ -0,0 +1,115 @@
+package com.sentinel.arch.mcp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tool Progress
+ *
+ * Progress channel of the tool call running on the current thread. The MCP server binds one
+ * around each {@code tools/call} that carries a progress token; tools invoked any other way
+ * (for example by the LangChain4j agent) see a no-op instance, so they can report unconditionally.
+ *
+ * Progress reports are rate limited here so long scans can call {@link #report} per file.
+ * When the client asked for streamed results, tools also hand over chunks of partial results
+ * with {@link #emit} instead of accumulating everything for the final response.
+ */
+public final class ToolProgress {
+
+    /**
+     * Receives the progress of one tool call (implemented by the transport)
+     */
+    public interface Listener {
+        void progress(long done, Long total, String message);
+
+        void partialResult(String chunkJson);
+    }
+
+    private static final ToolProgress NONE = new ToolProgress(null, false);
+    private static final ThreadLocal<ToolProgress> CURRENT = new ThreadLocal<>();
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Listener listener;
+    private final boolean streaming;
+    private long lastReportNanos;
+    private long lastDone = -1;
+
+    private ToolProgress(Listener listener, boolean streaming) {
+        this.listener = listener;
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return The progress channel of the current tool call, or a no-op one if none is bound
+     */
+    public static ToolProgress current() {
+        ToolProgress progress = CURRENT.get();
+        return progress != null ? progress : NONE;
+    }
+
+    /**
+     * Binds a progress channel to the current thread until the returned scope is closed.
+     *
+     * @param listener Receives the progress notifications
+     * @param streaming Whether the client asked for partial results as they are found
+     */
+    public static Scope bind(Listener listener, boolean streaming) {
+        ToolProgress previous = CURRENT.get();
+        CURRENT.set(new ToolProgress(listener, streaming));
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * Whether partial results should be emitted as they are found rather than buffered
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Reports progress, at most every 100 ms except for the first and the final report.
+     *
+     * @param done Work units completed so far (must not decrease)
+     * @param total Estimated total, or {@code null} if unknown yet
+     * @param message Human readable status
+     */
+    public void report(long done, Long total, String message) {
+        if (listener == null || done <= lastDone) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean finished = total != null && done >= total;
+        if (lastDone >= 0 && !finished && now - lastReportNanos < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        lastDone = done;
+        lastReportNanos = now;
+        listener.progress(done, total, message);
+    }
+
+    /**
+     * Sends a chunk of partial results (a JSON object) to the client. Ignored unless streaming.
+     */
+    public void emit(String chunkJson) {
+        if (listener != null && streaming) {
+            listener.partialResult(chunkJson);
+        }
+    }
+
+    /**
+     * Scope of a bound progress channel
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,396 @@
+package com.sentinel.arch.mcp.bytecode;
+
+import com.sentinel.arch.mcp.bytecode.ClassFileReader.ClassSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bytecode Scanner
+ *
+ * Finds the compiled output of a project and renders its classes with {@link ClassFileReader}, so
+ * the fingerprint rules also see code whose sources are generated, shaded or not in the tree:
+ *
+ * <ul>
+ *   <li>class directories of each module ({@code target/classes}, {@code build/classes/java|kotlin/main});</li>
+ *   <li>jars built by each module ({@code target/*.jar}, {@code build/libs/*.jar}) and the ones copied
+ *       next to them ({@code target/dependency}, {@code lib}, {@code libs}), including the libraries
+ *       nested in Spring Boot and WAR archives ({@code BOOT-INF/lib}, {@code WEB-INF/lib});</li>
+ *   <li>extra jars or class directories listed in {@value #CLASSPATH_PROPERTY}.</li>
+ * </ul>
+ *
+ * When a module has a class directory, its own jars repeat those classes: only their nested
+ * libraries are read. Third-party libraries (Spring, Jackson, Netty...) are skipped by jar name
+ * prefix, see {@value #SKIP_JARS_PROPERTY}.
+ *
+ * Work is split into units (a chunk of class files, a jar, a nested jar) read on a fixed pool of
+ * platform threads, since parsing is CPU bound; entries are streamed from the archives and never
+ * extracted. At most two units per thread are submitted ahead of the one being consumed, so only
+ * their rendered classes are held at once. Results reach the consumer on the calling thread, in a
+ * stable order. Interrupting the calling thread cancels the pending units and leaves the interrupt
+ * flag set.
+ */
+public final class BytecodeScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(BytecodeScanner.class);
+
+    /** Extra jars or class directories to scan, separated by the path separator */
+    public static final String CLASSPATH_PROPERTY = "sentinel.bytecode.classpath";
+
+    /** Comma-separated jar name prefixes to skip (replaces {@link #DEFAULT_SKIPPED_JARS}) */
+    public static final String SKIP_JARS_PROPERTY = "sentinel.bytecode.skip-jars";
+
+    /** Frameworks and libraries whose classes are not services of the project */
+    public static final List<String> DEFAULT_SKIPPED_JARS = List.of(
+            "spring-", "jackson-", "micrometer-", "netty-", "reactor-", "tomcat-", "jakarta.", "javax.",
+            "hibernate-", "log4j-", "logback-", "slf4j-", "kotlin-", "kotlinx-", "grpc-", "protobuf-",
+            "guava-", "commons-", "byte-buddy-", "snakeyaml-", "kafka-clients-", "kafka_", "feign-",
+            "junit-", "mockito-", "assertj-", "aspectj", "HdrHistogram-", "LatencyUtils-", "jul-to-slf4j-",
+            "amqp-client-", "lombok-", "mapstruct-", "swagger-", "springdoc-", "jboss-", "reactive-streams-",
+            "opentelemetry-", "caffeine-", "httpclient", "httpcore", "okhttp-", "okio-", "postgresql-",
+            "mysql-", "h2-", "jna-", "bcprov-");
+
+    private static final int CLASSES_PER_UNIT = 256;
+    /** Units submitted per pool thread ahead of the one being consumed */
+    private static final int UNITS_IN_FLIGHT_PER_THREAD = 2;
+
+    // Clases más grandes que esto son tablas generadas, no servicios
+    private static final long MAX_CLASS_BYTES = 4 * 1024 * 1024;
+
+    private static final List<String> CLASS_DIRECTORIES = List.of("target/classes", "build/classes/java/main", "build/classes/kotlin/main");
+    private static final List<String> ARTIFACT_DIRECTORIES = List.of("target", "build/libs");
+    private static final List<String> LIBRARY_DIRECTORIES = List.of("target/dependency", "lib", "libs");
+    private static final List<String> NESTED_LIBRARIES = List.of("BOOT-INF/lib/", "WEB-INF/lib/");
+    private static final Set<String> ARCHIVE_EXTENSIONS = Set.of(".jar", ".war");
+
+    private BytecodeScanner() {
+    }
+
+    /**
+     * Compiled inputs of a project
+     *
+     * @param classDirectories Class directories, each scanned recursively
+     * @param jars Archives to scan; for {@code nestedOnly} ones only the nested libraries are read
+     * @param compiledModules Module roots with a class directory (their sources are covered by it)
+     */
+    public record Inputs(List<Path> classDirectories, List<Jar> jars, Set<Path> compiledModules) {
+
+        public boolean isEmpty() {
+            return classDirectories.isEmpty() && jars.isEmpty();
+        }
+    }
+
+    /**
+     * @param nestedOnly The classes of the archive are already in a class directory
+     */
+    public record Jar(Path path, boolean nestedOnly) {
+    }
+
+    /**
+     * A rendered class
+     *
+     * @param location File the class came from (class file or outermost archive), for module lookup
+     * @param sourceFile Name reported for its connections: the source file name, prefixed with the
+     *                   archive and package for classes read from a jar
+     * @param text Canonical source for the rules, see {@link ClassFileReader}
+     */
+    public record CompiledClass(Path location, String sourceFile, String text) {
+    }
+
+    /**
+     * @param classes Class files read
+     * @param jars Archives read (nested ones included)
+     * @param unreadable Files or entries that could not be read or parsed
+     */
+    public record Stats(int classes, int jars, List<String> unreadable) {
+    }
+
+    /**
+     * Lists the compiled inputs of the given modules and of {@value #CLASSPATH_PROPERTY}
+     *
+     * @param projectRoot Root of the project (always considered a module)
+     * @param moduleRoots Directories with a build file
+     */
+    public static Inputs locate(Path projectRoot, Collection<Path> moduleRoots) throws IOException {
+        List<String> skipped = skippedJarPrefixes();
+        Set<Path> modules = new TreeSet<>(moduleRoots);
+        modules.add(projectRoot);
+
+        List<Path> classDirectories = new ArrayList<>();
+        List<Jar> jars = new ArrayList<>();
+        Set<Path> compiledModules = new LinkedHashSet<>();
+        for (Path module : modules) {
+            boolean compiled = false;
+            for (String directory : CLASS_DIRECTORIES) {
+                Path classes = module.resolve(directory);
+                if (Files.isDirectory(classes)) {
+                    classDirectories.add(classes);
+                    compiled = true;
+                }
+            }
+            if (compiled) {
+                compiledModules.add(module);
+            }
+            for (String directory : ARTIFACT_DIRECTORIES) {
+                for (Path archive : archivesIn(module.resolve(directory))) {
+                    if (!isSkipped(archive, skipped)) {
+                        jars.add(new Jar(archive, compiled));
+                    }
+                }
+            }
+            for (String directory : LIBRARY_DIRECTORIES) {
+                for (Path archive : archivesIn(module.resolve(directory))) {
+                    if (!isSkipped(archive, skipped)) {
+                        jars.add(new Jar(archive, false));
+                    }
+                }
+            }
+        }
+
+        String classpath = System.getProperty(CLASSPATH_PROPERTY, "");
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            Path path = Path.of(entry.trim()).toAbsolutePath().normalize();
+            if (Files.isDirectory(path)) {
+                classDirectories.add(path);
+            } else if (Files.isRegularFile(path)) {
+                jars.add(new Jar(path, false));
+            } else {
+                log.warn("Entrada de {} no encontrada: {}", CLASSPATH_PROPERTY, entry);
+            }
+        }
+        return new Inputs(classDirectories, jars, compiledModules);
+    }
+
+    /**
+     * Reads every input and passes the classes that may match a fingerprint to the consumer
+     *
+     * @return What was read; partial if the calling thread was interrupted
+     */
+    public static Stats scan(Inputs inputs, Consumer<CompiledClass> consumer) throws IOException {
+        List<Unit> units = new ArrayList<>();
+        for (Path directory : inputs.classDirectories()) {
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(directory)) {
+                classFiles = files.filter(p -> p.getFileName().toString().endsWith(".class") && Files.isRegularFile(p))
+                        .sorted()
+                        .toList();
+            }
+            for (int i = 0; i < classFiles.size(); i += CLASSES_PER_UNIT) {
+                List<Path> chunk = classFiles.subList(i, Math.min(classFiles.size(), i + CLASSES_PER_UNIT));
+                units.add(() -> readClassFiles(chunk));
+            }
+        }
+        List<String> skipped = skippedJarPrefixes();
+        for (Jar jar : inputs.jars()) {
+            units.add(() -> readJar(jar, skipped));
+        }
+
+        int threads = Math.max(1, Math.min(units.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().daemon().name("sentinel-bytecode-", 0).factory());
+        int classes = 0;
+        int jars = 0;
+        List<String> unreadable = new ArrayList<>();
+        try {
+            // Rendered text lives from a unit's read until it is consumed: a window bounds it
+            int window = threads * UNITS_IN_FLIGHT_PER_THREAD;
+            Iterator<Unit> pending = units.iterator();
+            Deque<Future<UnitResult>> inFlight = new ArrayDeque<>(window);
+            while (true) {
+                while (inFlight.size() < window && pending.hasNext()) {
+                    Unit unit = pending.next();
+                    inFlight.add(executor.submit(unit::read));
+                }
+                Future<UnitResult> future = inFlight.poll();
+                if (future == null) {
+                    break;
+                }
+                UnitResult result;
+                try {
+                    result = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("Error leyendo bytecode: {}", e.getCause().toString());
+                    continue;
+                }
+                classes += result.classes;
+                jars += result.jars;
+                unreadable.addAll(result.unreadable);
+                result.rendered.forEach(consumer);
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            }
+        } finally {
+            // Cancela lo pendiente si se interrumpió; si no, el pool ya está ocioso
+            executor.shutdownNow();
+        }
+        return new Stats(classes, jars, unreadable);
+    }
+
+    private static UnitResult readClassFiles(List<Path> classFiles) {
+        UnitResult result = new UnitResult();
+        for (Path classFile : classFiles) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            result.classes++;
+            try {
+                if (Files.size(classFile) > MAX_CLASS_BYTES) {
+                    continue;
+                }
+                ClassSummary summary = ClassFileReader.read(Files.readAllBytes(classFile));
+                if (summary != null) {
+                    result.rendered.add(new CompiledClass(classFile, summary.sourceFile(), summary.text()));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Clase ilegible: {} ({})", classFile, e.getMessage());
+                result.unreadable.add(classFile.toString());
+            }
+        }
+        return result;
+    }
+
+    private static UnitResult readJar(Jar jar, List<String> skipped) {
+        UnitResult result = new UnitResult();
+        String jarName = jar.path().getFileName().toString();
+        try (ZipFile zip = new ZipFile(jar.path().toFile())) {
+            result.jars++;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements() && !Thread.currentThread().isInterrupted()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (isNestedLibrary(name)) {
+                    String nestedName = name.substring(name.lastIndexOf('/') + 1);
+                    if (!isSkipped(nestedName, skipped)) {
+                        try (InputStream nested = zip.getInputStream(entry)) {
+                            readNestedJar(jar.path(), jarName + "!/" + name, nested, result);
+                        }
+                    }
+                } else if (!jar.nestedOnly()) {
+                    readEntry(jar.path(), jarName, entry, zip.getInputStream(entry), result);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Archivo ilegible: {} ({})", jar.path(), e.getMessage());
+            result.unreadable.add(jar.path().toString());
+        }
+        return result;
+    }
+
+    /**
+     * Nested archives are streamed from the outer one: stored entries cannot be opened as a {@link ZipFile}
+     */
+    private static void readNestedJar(Path location, String jarName, InputStream in, UnitResult result) throws IOException {
+        result.jars++;
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null && !Thread.currentThread().isInterrupted()) {
+            readEntry(location, jarName, entry, zip, result);
+        }
+    }
+
+    private static void readEntry(Path location, String jarName, ZipEntry entry, InputStream in, UnitResult result) throws IOException {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")
+                || name.endsWith("module-info.class") || name.endsWith("package-info.class")) {
+            return;
+        }
+        result.classes++;
+        if (entry.getSize() > MAX_CLASS_BYTES) {
+            return;
+        }
+        try {
+            ClassSummary summary = ClassFileReader.read(in.readNBytes((int) Math.min(MAX_CLASS_BYTES, Integer.MAX_VALUE)));
+            if (summary != null) {
+                int slash = summary.className().lastIndexOf('/');
+                String pkg = slash < 0 ? "" : summary.className().substring(0, slash + 1);
+                result.rendered.add(new CompiledClass(location, jarName + "!/" + pkg + summary.sourceFile(), summary.text()));
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Clase ilegible: {}!/{} ({})", jarName, name, e.getMessage());
+            result.unreadable.add(jarName + "!/" + name);
+        }
+    }
+
+    private static boolean isNestedLibrary(String entryName) {
+        for (String prefix : NESTED_LIBRARIES) {
+            if (entryName.startsWith(prefix) && entryName.endsWith(".jar")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> archivesIn(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                if (dot > 0 && ARCHIVE_EXTENSIONS.contains(name.substring(dot)) && Files.isRegularFile(path)) {
+                    archives.add(path);
+                }
+            }
+        }
+        archives.sort(null);
+        return archives;
+    }
+
+    private static boolean isSkipped(Path archive, List<String> prefixes) {
+        return isSkipped(archive.getFileName().toString(), prefixes);
+    }
+
+    private static boolean isSkipped(String archiveName, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (archiveName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> skippedJarPrefixes() {
+        String property = System.getProperty(SKIP_JARS_PROPERTY);
+        if (property == null) {
+            return DEFAULT_SKIPPED_JARS;
+        }
+        return Arrays.stream(property.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    @FunctionalInterface
+    private interface Unit {
+        UnitResult read() throws IOException;
+    }
+
+    private static final class UnitResult {
+        int classes;
+        int jars;
+        final List<CompiledClass> rendered = new ArrayList<>();
+        final List<String> unreadable = new ArrayList<>();
+    }
+}
@@ -0,0 +1,662 @@
+package com.sentinel.arch.mcp.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class File Reader
+ *
+ * Minimal reader of compiled classes for the fingerprint rules. It decodes the constant pool, the
+ * runtime-visible annotations of the class, its fields, methods and parameters, and the call sites
+ * of the client types the rules look for (RestTemplate, WebClient, KafkaTemplate, StreamBridge,
+ * RabbitTemplate, ManagedChannelBuilder). It does not build a model of the class: what it finds is
+ * rendered back as canonical Java source, one declaration or call per line, e.g.
+ *
+ * <pre>
+ * &#64;FeignClient(name = "billing", url = "${billing.url}")
+ * class BillingClient extends Object {
+ * &#64;GetMapping("/invoices/{id}", value = "/invoices/{id}")
+ * restTemplate.getForObject("http://inventory/stock/")
+ * }
+ * </pre>
+ *
+ * so the same {@code RuleSet} (built-in and project rules, skip lists, placeholders) scans it.
+ * Compiled annotations carry every value of an array, so {@code topics = {"a", "b"}} becomes one
+ * annotation per value, and the single {@code value} (or the {@code path} of a mapping) is also
+ * written as the positional argument. For calls, the first string constant loaded for the call is
+ * taken as its first argument; string concatenations keep their leading literal, as the source
+ * rules do.
+ *
+ * Classes without annotations, without those call sites and without a gRPC base class are
+ * rejected right after the constant pool.
+ */
+public final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    // Receptor con el que se escribe la llamada, por tipo (nombre interno sin paquete)
+    private static final Map<String, String> CALL_RECEIVERS = Map.ofEntries(
+            Map.entry("RestTemplate", "restTemplate"),
+            Map.entry("RestOperations", "restTemplate"),
+            Map.entry("WebClient", "WebClient"),
+            Map.entry("WebClient$Builder", "webClientBuilder"),
+            Map.entry("RestClient", "RestClient"),
+            Map.entry("RestClient$Builder", "restClientBuilder"),
+            Map.entry("KafkaTemplate", "kafkaTemplate"),
+            Map.entry("KafkaOperations", "kafkaTemplate"),
+            Map.entry("StreamBridge", "streamBridge"),
+            Map.entry("RabbitTemplate", "rabbitTemplate"),
+            Map.entry("RabbitOperations", "rabbitTemplate"),
+            Map.entry("AmqpTemplate", "rabbitTemplate"),
+            Map.entry("ManagedChannelBuilder", "ManagedChannelBuilder"));
+
+    private static final int MAX_PENDING_STRINGS = 16;
+
+    // Etiquetas del pool de constantes
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int METHOD_HANDLE = 15;
+    private static final int INVOKE_DYNAMIC = 18;
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * A class rendered as source for the fingerprint rules
+     *
+     * @param className Binary name with slashes ({@code com/acme/BillingClient})
+     * @param sourceFile Name of the source file recorded by the compiler, else the class file name
+     * @param text Canonical source of what the rules can match
+     */
+    public record ClassSummary(String className, String sourceFile, String text) {
+    }
+
+    /**
+     * @return The rendered class, or {@code null} if nothing in it can match a fingerprint
+     * @throws IllegalArgumentException If the bytes are not a valid class file
+     */
+    public static ClassSummary read(byte[] bytes) {
+        try {
+            return new Parser(bytes).parse();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    /**
+     * One pass over a class file; fields are the cursor and the decoded constant pool
+     */
+    private static final class Parser {
+        private final byte[] bytes;
+        private int position;
+        private int[] offsets;
+        private byte[] tags;
+        private String[] strings;
+
+        private final StringBuilder annotations = new StringBuilder();
+        private final StringBuilder calls = new StringBuilder();
+        private final List<int[]> codeRanges = new ArrayList<>();
+        private int[] bootstrapOffsets = new int[0];
+        private String sourceFile;
+
+        Parser(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        ClassSummary parse() {
+            if (u4() != MAGIC) {
+                throw new IllegalArgumentException("Not a class file");
+            }
+            position += 4; // versión
+            readConstantPool();
+
+            position += 2; // flags
+            String className = className(u2());
+            int superIndex = u2();
+            String superName = superIndex == 0 ? "Object" : simpleName(className(superIndex));
+            boolean grpcBase = superName.endsWith("ImplBase") || superName.startsWith("Abstract") && superName.endsWith("Impl");
+            boolean hasAnnotations = hasUtf8("RuntimeVisibleAnnotations") || hasUtf8("RuntimeVisibleParameterAnnotations");
+            boolean hasCalls = referencesCallReceiver();
+            if (!hasAnnotations && !hasCalls && !grpcBase) {
+                return null;
+            }
+
+            int interfaces = u2();
+            position += 2 * interfaces;
+            StringBuilder classAnnotations = new StringBuilder();
+            readMembers(false);
+            readMembers(true);
+            readAttributes(classAnnotations, null);
+            if (hasCalls) {
+                for (int[] range : codeRanges) {
+                    readCode(range[0], range[1]);
+                }
+            }
+            if (classAnnotations.isEmpty() && annotations.isEmpty() && calls.isEmpty() && !grpcBase) {
+                return null;
+            }
+
+            String simple = simpleName(className);
+            StringBuilder text = new StringBuilder(classAnnotations)
+                    .append("class ").append(simple).append(" extends ").append(superName).append(" {\n")
+                    .append(annotations)
+                    .append(calls)
+                    .append("}\n");
+            String source = sourceFile != null ? sourceFile : className.substring(className.lastIndexOf('/') + 1) + ".class";
+            return new ClassSummary(className, source, text.toString());
+        }
+
+        // ------------------------------------------------------------------ pool de constantes
+
+        private void readConstantPool() {
+            int count = u2();
+            offsets = new int[count];
+            tags = new byte[count];
+            strings = new String[count];
+            for (int i = 1; i < count; i++) {
+                int tag = u1();
+                tags[i] = (byte) tag;
+                offsets[i] = position;
+                switch (tag) {
+                    case UTF8 -> position += 2 + u2At(position);
+                    case INTEGER, FLOAT, 9, 10, 11, 12, 17, INVOKE_DYNAMIC -> position += 4;
+                    case LONG, DOUBLE -> {
+                        position += 8;
+                        i++; // ocupan dos entradas
+                    }
+                    case CLASS, STRING, 16, 19, 20 -> position += 2;
+                    case METHOD_HANDLE -> position += 3;
+                    default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        private String utf8(int index) {
+            String value = strings[index];
+            if (value == null) {
+                if (tags[index] != UTF8) {
+                    throw new IllegalArgumentException("Constant " + index + " is not UTF-8");
+                }
+                value = decodeModifiedUtf8(offsets[index] + 2, u2At(offsets[index]));
+                strings[index] = value;
+            }
+            return value;
+        }
+
+        /**
+         * Class, String, MethodType, Module and Package entries point to a UTF-8 entry
+         */
+        private String className(int index) {
+            return utf8(u2At(offsets[index]));
+        }
+
+        private boolean hasUtf8(String value) {
+            byte[] expected = value.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+            for (int i = 1; i < tags.length; i++) {
+                if (tags[i] == UTF8 && u2At(offsets[i]) == expected.length
+                        && java.util.Arrays.equals(bytes, offsets[i] + 2, offsets[i] + 2 + expected.length, expected, 0, expected.length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean referencesCallReceiver() {
+            for (int i = 1; i < tags.length; i++) {
+                if (tags[i] == CLASS && CALL_RECEIVERS.containsKey(simpleName(className(i)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String decodeModifiedUtf8(int start, int length) {
+            char[] chars = new char[length];
+            int count = 0;
+            int end = start + length;
+            for (int i = start; i < end; ) {
+                int b = bytes[i] & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                    i++;
+                } else if ((b & 0xE0) == 0xC0) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (bytes[i + 1] & 0x3F));
+                    i += 2;
+                } else {
+                    chars[count++] = (char) (((b & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F));
+                    i += 3;
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        // ------------------------------------------------------------------ miembros y atributos
+
+        private void readMembers(boolean methods) {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                position += 6; // flags, nombre, descriptor
+                readAttributes(annotations, methods ? codeRanges : null);
+            }
+        }
+
+        private void readAttributes(StringBuilder target, List<int[]> code) {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                String name = utf8(u2());
+                int length = u4();
+                int end = position + length;
+                switch (name) {
+                    case "RuntimeVisibleAnnotations" -> readAnnotations(target);
+                    case "RuntimeVisibleParameterAnnotations" -> {
+                        int parameters = u1();
+                        for (int p = 0; p < parameters; p++) {
+                            readAnnotations(target);
+                        }
+                    }
+                    case "Code" -> {
+                        if (code != null) {
+                            code.add(new int[]{position + 8, u4At(position + 4)});
+                        }
+                    }
+                    case "SourceFile" -> {
+                        if (code == null && target != annotations) {
+                            sourceFile = utf8(u2());
+                        }
+                    }
+                    case "BootstrapMethods" -> {
+                        if (target != annotations) {
+                            bootstrapOffsets = new int[u2()];
+                            for (int b = 0; b < bootstrapOffsets.length; b++) {
+                                bootstrapOffsets[b] = position;
+                                position += 2;
+                                int arguments = u2();
+                                position += 2 * arguments;
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                position = end;
+            }
+        }
+
+        private void readAnnotations(StringBuilder target) {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                Annotation annotation = readAnnotation();
+                if (annotation != null) {
+                    annotation.render(target);
+                }
+            }
+        }
+
+        /**
+         * @return The annotation, or {@code null} for compiler metadata that no rule matches
+         */
+        private Annotation readAnnotation() {
+            String descriptor = utf8(u2());
+            int pairs = u2();
+            List<String> names = new ArrayList<>(pairs);
+            List<List<String>> values = new ArrayList<>(pairs);
+            List<Boolean> strings = new ArrayList<>(pairs);
+            for (int i = 0; i < pairs; i++) {
+                names.add(utf8(u2()));
+                List<String> rendered = new ArrayList<>(1);
+                boolean[] allStrings = {true};
+                readElementValue(rendered, allStrings);
+                values.add(rendered);
+                strings.add(allStrings[0]);
+            }
+            if (descriptor.startsWith("Lkotlin/")) {
+                return null;
+            }
+            return new Annotation(simpleName(descriptor.substring(1, descriptor.length() - 1)), names, values, strings);
+        }
+
+        /**
+         * Renders an element value; arrays add one entry per element
+         */
+        private void readElementValue(List<String> rendered, boolean[] allStrings) {
+            int tag = u1();
+            switch (tag) {
+                case 's' -> rendered.add(quote(utf8(u2())));
+                case 'B', 'C', 'I', 'S', 'Z' -> {
+                    allStrings[0] = false;
+                    int value = u4At(offsets[u2()]);
+                    rendered.add(tag == 'Z' ? String.valueOf(value != 0) : tag == 'C' ? "'" + (char) value + "'" : String.valueOf(value));
+                }
+                case 'J', 'F', 'D' -> {
+                    allStrings[0] = false;
+                    position += 2;
+                    rendered.add("0");
+                }
+                case 'e' -> {
+                    allStrings[0] = false;
+                    String type = utf8(u2());
+                    rendered.add(simpleName(type.substring(1, type.length() - 1)) + "." + utf8(u2()));
+                }
+                case 'c' -> {
+                    allStrings[0] = false;
+                    String type = utf8(u2());
+                    rendered.add((type.startsWith("L") ? simpleName(type.substring(1, type.length() - 1)) : type) + ".class");
+                }
+                case '@' -> {
+                    allStrings[0] = false;
+                    Annotation nested = readAnnotation();
+                    rendered.add(nested != null ? nested.inline() : "null");
+                }
+                case '[' -> {
+                    int count = u2();
+                    for (int i = 0; i < count; i++) {
+                        readElementValue(rendered, allStrings);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown element value tag " + (char) tag);
+            }
+        }
+
+        // ------------------------------------------------------------------ código
+
+        /**
+         * Walks the instructions of a method, tracking the string constants loaded since the last
+         * statement boundary, and renders the calls on the client types with their first one
+         */
+        private void readCode(int start, int length) {
+            List<String> pending = new ArrayList<>();
+            int end = start + length;
+            int pc = start;
+            while (pc < end) {
+                int opcode = bytes[pc] & 0xFF;
+                switch (opcode) {
+                    case 0x12 -> pushString(pending, bytes[pc + 1] & 0xFF);                    // ldc
+                    case 0x13 -> pushString(pending, u2At(pc + 1));                           // ldc_w
+                    case 0xb6, 0xb7, 0xb8, 0xb9 -> invoke(pending, u2At(pc + 1), opcode == 0xb8);
+                    case 0xba -> invokeDynamic(pending, u2At(pc + 1));
+                    default -> {
+                        if (isStatementBoundary(opcode)) {
+                            pending.clear();
+                        }
+                    }
+                }
+                pc += instructionLength(opcode, pc, start);
+            }
+        }
+
+        private void pushString(List<String> pending, int index) {
+            if (tags[index] == STRING && pending.size() < MAX_PENDING_STRINGS) {
+                pending.add(className(index));
+            }
+        }
+
+        private void invoke(List<String> pending, int index, boolean isStatic) {
+            int reference = offsets[index];
+            String owner = className(u2At(reference));
+            int nameAndType = offsets[u2At(reference + 2)];
+            String name = utf8(u2At(nameAndType));
+            String descriptor = utf8(u2At(nameAndType + 2));
+
+            String receiver = CALL_RECEIVERS.get(simpleName(owner));
+            if (receiver != null && !name.startsWith("<")) {
+                // Una llamada que recibe texto sin constante conocida no se escribe: las reglas de
+                // mensajería buscarían su primer argumento en las líneas siguientes
+                int parameters = stringParameters(descriptor);
+                if (parameters == 0) {
+                    calls.append(isStatic ? simpleName(owner) : receiver).append('.').append(name).append("()\n");
+                } else if (!pending.isEmpty()) {
+                    calls.append(isStatic ? simpleName(owner) : receiver).append('.').append(name)
+                            .append('(').append(quote(pending.get(0))).append(")\n");
+                }
+                pending.clear();
+                return;
+            }
+            if (owner.equals("java/lang/StringBuilder") || owner.equals("java/lang/StringBuffer")) {
+                // La concatenación conserva su primer literal, que acaba siendo el argumento
+                return;
+            }
+            consume(pending, stringParameters(descriptor));
+            if (descriptor.endsWith(")V")) {
+                pending.clear();
+            }
+        }
+
+        /**
+         * String concatenation compiled to {@code makeConcatWithConstants}: its recipe starts with the
+         * leading literal of the expression
+         */
+        private void invokeDynamic(List<String> pending, int index) {
+            int entry = offsets[index];
+            String descriptor = utf8(u2At(offsets[u2At(entry + 2)] + 2));
+            consume(pending, stringParameters(descriptor));
+            int bootstrap = u2At(entry);
+            if (bootstrap >= bootstrapOffsets.length) {
+                return;
+            }
+            int method = bootstrapOffsets[bootstrap];
+            int handle = offsets[u2At(method)];
+            int target = offsets[u2At(handle + 1)];
+            String bootstrapName = utf8(u2At(offsets[u2At(target + 2)]));
+            if (!bootstrapName.equals("makeConcatWithConstants") || u2At(method + 2) == 0) {
+                return;
+            }
+            int recipeIndex = u2At(method + 4);
+            if (tags[recipeIndex] == STRING) {
+                String recipe = className(recipeIndex);
+                int argument = recipe.indexOf('\u0001');
+                String literal = argument < 0 ? recipe : recipe.substring(0, argument);
+                if (!literal.isEmpty() && pending.size() < MAX_PENDING_STRINGS) {
+                    pending.add(literal);
+                }
+            }
+        }
+
+        private static void consume(List<String> pending, int count) {
+            for (int i = 0; i < count && !pending.isEmpty(); i++) {
+                pending.remove(pending.size() - 1);
+            }
+        }
+
+        /**
+         * Parameters that can receive a string constant (String, CharSequence or Object)
+         */
+        private static int stringParameters(String descriptor) {
+            int count = 0;
+            int close = descriptor.indexOf(')');
+            for (int i = 1; i < close; i++) {
+                char c = descriptor.charAt(i);
+                if (c == 'L') {
+                    int semicolon = descriptor.indexOf(';', i);
+                    String type = descriptor.substring(i + 1, semicolon);
+                    if (type.equals("java/lang/String") || type.equals("java/lang/CharSequence") || type.equals("java/lang/Object")) {
+                        count++;
+                    }
+                    i = semicolon;
+                } else if (c == '[') {
+                    while (descriptor.charAt(i + 1) == '[') {
+                        i++;
+                    }
+                    if (descriptor.charAt(i + 1) == 'L') {
+                        i = descriptor.indexOf(';', i);
+                    } else {
+                        i++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Stores, discarded values, returns, throws and jumps end the expression being built
+         */
+        private static boolean isStatementBoundary(int opcode) {
+            return opcode >= 0x36 && opcode <= 0x4e       // xstore
+                    || opcode == 0x57 || opcode == 0x58     // pop, pop2
+                    || opcode >= 0x99 && opcode <= 0xb1     // saltos, switch, return
+                    || opcode == 0xb3 || opcode == 0xb5     // putstatic, putfield
+                    || opcode == 0xbf                       // athrow
+                    || opcode >= 0xc6 && opcode <= 0xc9;    // ifnull, ifnonnull, goto_w, jsr_w
+        }
+
+        private int instructionLength(int opcode, int pc, int codeStart) {
+            switch (opcode) {
+                case 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc:
+                    return 2;
+                case 0x11, 0x13, 0x14, 0x84, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xbb, 0xbd, 0xc0, 0xc1:
+                    return 3;
+                case 0xc5:
+                    return 4;
+                case 0xb9, 0xba, 0xc8, 0xc9:
+                    return 5;
+                case 0xc4: // wide
+                    return (bytes[pc + 1] & 0xFF) == 0x84 ? 6 : 4;
+                case 0xaa: { // tableswitch
+                    int base = pc + 1 + padding(pc, codeStart);
+                    int low = u4At(base + 4);
+                    int high = u4At(base + 8);
+                    return base - pc + 12 + 4 * (high - low + 1);
+                }
+                case 0xab: { // lookupswitch
+                    int base = pc + 1 + padding(pc, codeStart);
+                    return base - pc + 8 + 8 * u4At(base + 4);
+                }
+                default:
+                    if (opcode >= 0x99 && opcode <= 0xa8 || opcode == 0xc6 || opcode == 0xc7) {
+                        return 3;
+                    }
+                    return 1;
+            }
+        }
+
+        private static int padding(int pc, int codeStart) {
+            return (4 - ((pc - codeStart + 1) % 4)) % 4;
+        }
+
+        // ------------------------------------------------------------------ lectura
+
+        private int u1() {
+            return bytes[position++] & 0xFF;
+        }
+
+        private int u2() {
+            int value = u2At(position);
+            position += 2;
+            return value;
+        }
+
+        private int u4() {
+            int value = u4At(position);
+            position += 4;
+            return value;
+        }
+
+        private int u2At(int offset) {
+            return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+        }
+
+        private int u4At(int offset) {
+            return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                    | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+        }
+    }
+
+    /**
+     * A decoded annotation: element names with their rendered values
+     */
+    private record Annotation(String name, List<String> elements, List<List<String>> values, List<Boolean> strings) {
+
+        /**
+         * Writes one line per value of its string arrays (other elements are repeated on each line)
+         */
+        void render(StringBuilder target) {
+            int copies = 1;
+            for (int i = 0; i < values.size(); i++) {
+                if (strings.get(i)) {
+                    copies = Math.max(copies, values.get(i).size());
+                }
+            }
+            for (int copy = 0; copy < copies; copy++) {
+                target.append(line(copy)).append('\n');
+            }
+        }
+
+        String inline() {
+            return line(0);
+        }
+
+        private String line(int copy) {
+            StringBuilder line = new StringBuilder("@").append(name);
+            if (elements.isEmpty()) {
+                return line.toString();
+            }
+            line.append('(');
+            String positional = valueAt(elements.indexOf("value"), copy);
+            if (positional == null && name.endsWith("Mapping")) {
+                positional = valueAt(elements.indexOf("path"), copy);
+            }
+            boolean first = true;
+            if (positional != null) {
+                line.append(positional);
+                first = false;
+            }
+            for (int i = 0; i < elements.size(); i++) {
+                if (values.get(i).isEmpty()) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(", ");
+                }
+                first = false;
+                line.append(elements.get(i)).append(" = ");
+                if (strings.get(i)) {
+                    line.append(values.get(i).get(Math.min(copy, values.get(i).size() - 1)));
+                } else if (values.get(i).size() == 1) {
+                    line.append(values.get(i).get(0));
+                } else {
+                    line.append('{').append(String.join(", ", values.get(i))).append('}');
+                }
+            }
+            return line.append(')').toString();
+        }
+
+        private String valueAt(int element, int copy) {
+            if (element < 0 || !strings.get(element) || values.get(element).isEmpty()) {
+                return null;
+            }
+            List<String> value = values.get(element);
+            return value.get(Math.min(copy, value.size() - 1));
+        }
+    }
+
+    /**
+     * {@code com/acme/Outer$Inner} → {@code Inner}; {@code WebClient$Builder} is kept whole for the receivers
+     */
+    private static String simpleName(String internalName) {
+        String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        if (CALL_RECEIVERS.containsKey(name)) {
+            return name;
+        }
+        return name.substring(name.lastIndexOf('$') + 1);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                default -> quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
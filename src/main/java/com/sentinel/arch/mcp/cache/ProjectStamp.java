@@ -0,0 +1,124 @@
+package com.sentinel.arch.mcp.cache;
+
+import com.sentinel.arch.mcp.ProjectWalker;
+import com.sentinel.arch.mcp.bytecode.BytecodeScanner;
+import com.sentinel.arch.mcp.config.ConfigModel;
+import com.sentinel.arch.mcp.config.ModuleConfig;
+import com.sentinel.arch.mcp.fingerprint.RuleSet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Project Stamp
+ *
+ * Cheap fingerprints of the inputs of a tool, used by {@link ResultCache} to decide whether a cached
+ * result is still valid. A stamp only reads file metadata (path, size, modification time), never
+ * contents: a stat per file instead of reading and scanning every file.
+ */
+public final class ProjectStamp {
+
+    private ProjectStamp() {
+    }
+
+    /**
+     * Stamp of a whole project: every file the shared walker visits (so the same WF-01 exclusions and
+     * ignore files as the tools), the fingerprint rules under {@value RuleSet#RULES_DIRECTORY} and the
+     * active Spring profiles. Adding, removing, renaming or modifying any of them changes the stamp.
+     */
+    public static String tree(ProjectWalker walker, Path root) throws IOException {
+        MessageDigest digest = sha256();
+        walker.walk(root, (path, attributes) -> update(digest, root.relativize(path).toString(), attributes));
+        updateRulesAndProfiles(digest, root);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Stamp of a project and its compiled output: the {@link #tree} inputs plus every file of the
+     * class directories and every jar found by {@link BytecodeScanner#locate} (which the walker
+     * excludes), and the properties that select them. A rebuild changes the stamp.
+     */
+    public static String compiled(ProjectWalker walker, Path root) throws IOException {
+        MessageDigest digest = sha256();
+        List<Path> moduleRoots = new ArrayList<>();
+        walker.walk(root, (path, attributes) -> {
+            update(digest, root.relativize(path).toString(), attributes);
+            if (ConfigModel.isBuildFile(path.getFileName().toString())) {
+                moduleRoots.add(path.getParent());
+            }
+        });
+        updateRulesAndProfiles(digest, root);
+
+        BytecodeScanner.Inputs inputs = BytecodeScanner.locate(root, moduleRoots);
+        for (Path directory : inputs.classDirectories()) {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    update(digest, file.toString(), attributes);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        for (BytecodeScanner.Jar jar : inputs.jars()) {
+            update(digest, jar.path().toString(), Files.readAttributes(jar.path(), BasicFileAttributes.class));
+        }
+        digest.update(String.valueOf(System.getProperty(BytecodeScanner.CLASSPATH_PROPERTY)).getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(System.getProperty(BytecodeScanner.SKIP_JARS_PROPERTY)).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void updateRulesAndProfiles(MessageDigest digest, Path root) throws IOException {
+        Path rulesDirectory = root.resolve(RuleSet.RULES_DIRECTORY);
+        if (Files.isDirectory(rulesDirectory)) {
+            try (DirectoryStream<Path> rules = Files.newDirectoryStream(rulesDirectory)) {
+                for (Path rule : rules) {
+                    update(digest, RuleSet.RULES_DIRECTORY + "/" + rule.getFileName(),
+                            Files.readAttributes(rule, BasicFileAttributes.class));
+                }
+            }
+        }
+        digest.update(String.valueOf(System.getProperty(ModuleConfig.PROFILES_PROPERTY)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stamp of individual files (size and modification time of each)
+     */
+    public static String files(Path... files) throws IOException {
+        StringBuilder stamp = new StringBuilder();
+        for (Path file : files) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            stamp.append(attributes.size()).append(':').append(attributes.lastModifiedTime().toMillis()).append(';');
+        }
+        return stamp.toString();
+    }
+
+    private static void update(MessageDigest digest, String relativePath, BasicFileAttributes attributes) {
+        digest.update(relativePath.getBytes(StandardCharsets.UTF_8));
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        for (int shift = 0; shift < 64; shift += 8) {
+            digest.update((byte) (size >>> shift));
+            digest.update((byte) (modified >>> shift));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
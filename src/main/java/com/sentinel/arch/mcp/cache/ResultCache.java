@@ -0,0 +1,200 @@
+package com.sentinel.arch.mcp.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result Cache
+ *
+ * Shared cache of tool results for every project a long-lived server (STDIO, HTTP or the CLI daemon)
+ * is asked about. Entries are keyed by tool, canonical project root and the remaining arguments, and
+ * carry the {@link ProjectStamp} of the inputs they were computed from: a hit is only served if the
+ * stamp taken now is the same, otherwise the entry is dropped and the tool runs again.
+ *
+ * The cache is bounded by an estimate of the heap its entries retain (the result strings plus keys
+ * and stamps), {@value #MAX_MB_PROPERTY} megabytes, by default an eighth of the maximum heap. When a
+ * new result does not fit, the least recently used entries are evicted; a single result larger than a
+ * quarter of the budget is returned but not kept, since it would flush most of the cache. Results of
+ * cancelled or timed-out calls (partial) are never stored.
+ */
+public class ResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    public static final String MAX_MB_PROPERTY = "sentinel.cache.max-mb";
+
+    private static final int MAX_ENTRY_FRACTION = 4;
+    // Cabeceras de objetos, nodo del mapa y registro de la entrada
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Computes the stamp of the current inputs of a tool
+     */
+    @FunctionalInterface
+    public interface Stamp {
+        String compute() throws IOException;
+    }
+
+    /**
+     * Runs the tool on a miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    /**
+     * @param tool Tool name
+     * @param root Canonical path of the project (or file) the tool reads
+     * @param arguments Remaining arguments that change the result
+     */
+    public record Key(String tool, Path root, String arguments) {
+    }
+
+    private record Entry(String stamp, String value, long weight, long loadNanos) {
+    }
+
+    private final long budgetBytes;
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, ToolCounters> counters = new ConcurrentHashMap<>();
+    private long weightBytes;
+    private long evictions;
+    private long invalidations;
+    private long rejected;
+    private long savedNanos;
+
+    public ResultCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Cache sized by {@value #MAX_MB_PROPERTY} (0 disables it), or an eighth of the maximum heap
+     */
+    public static ResultCache fromSystemProperties() {
+        long defaultMb = Runtime.getRuntime().maxMemory() / 8 / (1024 * 1024);
+        return new ResultCache(Long.getLong(MAX_MB_PROPERTY, defaultMb) * 1024 * 1024);
+    }
+
+    /**
+     * Returns the cached result for the key if its inputs have not changed, otherwise runs the loader
+     * and caches what it returns
+     */
+    public String get(Key key, Stamp stamp, Loader loader) throws IOException {
+        ToolCounters toolCounters = counters.computeIfAbsent(key.tool(), tool -> new ToolCounters());
+        if (budgetBytes <= 0) {
+            toolCounters.misses.increment();
+            return loader.load();
+        }
+
+        String current = stamp.compute();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.stamp().equals(current)) {
+                    toolCounters.hits.increment();
+                    savedNanos += entry.loadNanos();
+                    return entry.value();
+                }
+                entries.remove(key);
+                weightBytes -= entry.weight();
+                invalidations++;
+                log.debug("Resultado en caché obsoleto (archivos cambiados): {} {}", key.tool(), key.root());
+            }
+        }
+
+        toolCounters.misses.increment();
+        long start = System.nanoTime();
+        String value = loader.load();
+        long loadNanos = System.nanoTime() - start;
+        // Llamada cancelada o con plazo vencido: el resultado puede ser parcial
+        if (value != null && !Thread.currentThread().isInterrupted()) {
+            put(key, new Entry(current, value, weigh(key, current, value), loadNanos));
+        }
+        return value;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.weight() > budgetBytes / MAX_ENTRY_FRACTION) {
+            rejected++;
+            log.debug("Resultado de {} demasiado grande para la caché ({} KB): {}", key.tool(), entry.weight() / 1024, key.root());
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weightBytes -= previous.weight();
+        }
+        weightBytes += entry.weight();
+
+        Iterator<Map.Entry<Key, Entry>> leastRecent = entries.entrySet().iterator();
+        while (weightBytes > budgetBytes && leastRecent.hasNext()) {
+            Map.Entry<Key, Entry> victim = leastRecent.next();
+            if (victim.getKey().equals(key)) {
+                continue;
+            }
+            weightBytes -= victim.getValue().weight();
+            leastRecent.remove();
+            evictions++;
+            log.debug("Caché llena: se desaloja {} {}", victim.getKey().tool(), victim.getKey().root());
+        }
+    }
+
+    /**
+     * Heap retained by an entry: strings are counted at two bytes per char (upper bound of their
+     * UTF-16 / Latin-1 representation)
+     */
+    private static long weigh(Key key, String stamp, String value) {
+        long chars = (long) value.length() + stamp.length() + key.tool().length() + key.arguments().length()
+                + key.root().toString().length();
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    /**
+     * Hit, miss and eviction counters, overall and per tool, as JSON
+     */
+    public String statsJson() {
+        return stats().toPrettyString();
+    }
+
+    /**
+     * Same counters as {@link #statsJson()}, for callers that add their own
+     */
+    public synchronized ObjectNode stats() {
+        long hits = counters.values().stream().mapToLong(c -> c.hits.sum()).sum();
+        long misses = counters.values().stream().mapToLong(c -> c.misses.sum()).sum();
+        ObjectNode stats = MAPPER.createObjectNode();
+        stats.put("entries", entries.size());
+        stats.put("weight_bytes", weightBytes);
+        stats.put("budget_bytes", budgetBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hit_rate", hits + misses == 0 ? 0.0 : Math.round(1000.0 * hits / (hits + misses)) / 1000.0);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        stats.put("rejected_too_large", rejected);
+        stats.put("saved_ms", TimeUnit.NANOSECONDS.toMillis(savedNanos));
+        ObjectNode tools = stats.putObject("tools");
+        new TreeMap<>(counters).forEach((tool, toolCounters) -> tools.putObject(tool)
+                .put("hits", toolCounters.hits.sum())
+                .put("misses", toolCounters.misses.sum()));
+        return stats;
+    }
+
+    private static final class ToolCounters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+}
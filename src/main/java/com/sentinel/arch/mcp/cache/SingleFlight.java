@@ -0,0 +1,137 @@
+package com.sentinel.arch.mcp.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single Flight
+ *
+ * Coalesces identical concurrent tool calls: while a call with the same tool and arguments is
+ * running, later ones wait for it and return its result (or throw its error) instead of doing the
+ * same work again. A burst of N identical calls costs one execution; {@link ResultCache} then serves
+ * the calls that arrive after it finished.
+ *
+ * The call that runs (the leader) does so on its own thread, with its own cancellation and deadline.
+ * If it is interrupted its result may be partial, so the waiting calls do not take it: one of them
+ * runs the tool again. A waiting call that is itself cancelled or times out stops waiting with
+ * {@link InterruptedException}, and the leader is not affected.
+ */
+public class SingleFlight {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The work of a call
+     */
+    @FunctionalInterface
+    public interface Call {
+        Object run() throws Exception;
+    }
+
+    /**
+     * @param tool Tool name
+     * @param arguments Argument values in declaration order
+     */
+    public record Key(String tool, List<?> arguments) {
+    }
+
+    /**
+     * @param complete The leader finished without being interrupted: its value or error can be shared
+     */
+    private record Outcome(Object value, Exception error, boolean complete, long runNanos) {
+    }
+
+    private final Map<Key, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ToolCounters> counters = new ConcurrentHashMap<>();
+    private final LongAdder savedNanos = new LongAdder();
+
+    /**
+     * Runs the call, or waits for the identical one in flight and returns its outcome
+     *
+     * @throws InterruptedException If this call was interrupted while waiting for another
+     */
+    public Object run(Key key, Call call) throws Exception {
+        ToolCounters toolCounters = counters.computeIfAbsent(key.tool(), tool -> new ToolCounters());
+        while (true) {
+            CompletableFuture<Outcome> flight = new CompletableFuture<>();
+            CompletableFuture<Outcome> running = inFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                toolCounters.executions.increment();
+                return lead(key, call, flight);
+            }
+
+            Outcome outcome;
+            try {
+                outcome = running.get();
+            } catch (ExecutionException e) {
+                // lead() siempre completa con un Outcome
+                throw new IllegalStateException(e.getCause());
+            }
+            if (!outcome.complete()) {
+                toolCounters.retries.increment();
+                log.debug("La llamada compartida de {} se interrumpió; se vuelve a ejecutar", key.tool());
+                continue;
+            }
+            toolCounters.coalesced.increment();
+            savedNanos.add(outcome.runNanos());
+            if (outcome.error() != null) {
+                throw outcome.error();
+            }
+            return outcome.value();
+        }
+    }
+
+    private Object lead(Key key, Call call, CompletableFuture<Outcome> flight) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Object value = call.run();
+            flight.complete(new Outcome(value, null, !Thread.currentThread().isInterrupted(), System.nanoTime() - start));
+            return value;
+        } catch (Exception e) {
+            flight.complete(new Outcome(null, e, !Thread.currentThread().isInterrupted(), System.nanoTime() - start));
+            throw e;
+        } catch (Error e) {
+            flight.complete(new Outcome(null, null, false, 0));
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Executions, coalesced calls and re-runs after an interrupted leader, overall and per tool
+     */
+    public ObjectNode stats() {
+        ObjectNode stats = MAPPER.createObjectNode();
+        long executions = counters.values().stream().mapToLong(c -> c.executions.sum()).sum();
+        long coalesced = counters.values().stream().mapToLong(c -> c.coalesced.sum()).sum();
+        stats.put("in_flight", inFlight.size());
+        stats.put("executions", executions);
+        stats.put("coalesced", coalesced);
+        stats.put("retries", counters.values().stream().mapToLong(c -> c.retries.sum()).sum());
+        stats.put("saved_ms", TimeUnit.NANOSECONDS.toMillis(savedNanos.sum()));
+        ObjectNode tools = stats.putObject("tools");
+        new TreeMap<>(counters).forEach((tool, toolCounters) -> tools.putObject(tool)
+                .put("executions", toolCounters.executions.sum())
+                .put("coalesced", toolCounters.coalesced.sum()));
+        return stats;
+    }
+
+    private static final class ToolCounters {
+        final LongAdder executions = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder retries = new LongAdder();
+    }
+}
@@ -0,0 +1,178 @@
+package com.sentinel.arch.mcp.config;
+
+import com.sentinel.arch.mcp.config.SpringConfigParser.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Config Model
+ *
+ * The Spring configuration of a project, one {@link ModuleConfig} per build module (the nearest
+ * directory with a {@code pom.xml} or {@code build.gradle[.kts]}, or the project root). Each
+ * configuration file is parsed once per scan with a streaming parser; merged modules are cached
+ * per module directory and reused while none of their files change (size and modification time)
+ * and the {@value ModuleConfig#PROFILES_PROPERTY} override stays the same.
+ */
+public final class ConfigModel {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfigModel.class);
+
+    private static final Pattern SPRING_CONFIG_FILE =
+            Pattern.compile("(application|bootstrap)(-[\\w.-]+)?\\.(ya?ml|properties)");
+    private static final List<String> BUILD_FILES = List.of("pom.xml", "build.gradle", "build.gradle.kts");
+    private static final Map<Path, CachedModule> MODULES = new ConcurrentHashMap<>();
+
+    private static final ModuleConfig EMPTY = ModuleConfig.merge("", Map.of());
+
+    private final Path projectRoot;
+    private final Map<Path, ModuleConfig> modules;
+    private final List<Path> unparsedFiles = new ArrayList<>();
+    private final Map<Path, Path> moduleRoots = new ConcurrentHashMap<>();
+
+    private ConfigModel(Path projectRoot, Map<Path, ModuleConfig> modules) {
+        this.projectRoot = projectRoot;
+        this.modules = modules;
+    }
+
+    /**
+     * @return Whether a file name is a Spring Boot configuration file handled by this model
+     */
+    public static boolean isSpringConfigFile(String fileName) {
+        return SPRING_CONFIG_FILE.matcher(fileName).matches();
+    }
+
+    /**
+     * @return Whether a file name is a build file, which marks the root of a module
+     */
+    public static boolean isBuildFile(String fileName) {
+        return BUILD_FILES.contains(fileName);
+    }
+
+    /**
+     * Loads the configuration of a project from its Spring configuration files
+     *
+     * @param projectRoot Project root (bounds the module lookup)
+     * @param configFiles Files accepted by {@link #isSpringConfigFile}, as found by the walk
+     */
+    public static ConfigModel load(Path projectRoot, List<Path> configFiles) {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        ConfigModel model = new ConfigModel(root, new LinkedHashMap<>());
+
+        Map<Path, List<Path>> filesByModule = new LinkedHashMap<>();
+        for (Path file : configFiles) {
+            Path absolute = file.toAbsolutePath().normalize();
+            filesByModule.computeIfAbsent(model.moduleRootOf(absolute), k -> new ArrayList<>()).add(absolute);
+        }
+
+        String profiles = String.valueOf(System.getProperty(ModuleConfig.PROFILES_PROPERTY));
+        for (Map.Entry<Path, List<Path>> module : filesByModule.entrySet()) {
+            List<Path> files = module.getValue();
+            files.sort(Comparator.naturalOrder());
+            String stamp = profiles + "|" + stampOf(files);
+            CachedModule cached = MODULES.get(module.getKey());
+            if (cached == null || !cached.stamp.equals(stamp)) {
+                List<Path> unparsed = new ArrayList<>();
+                cached = new CachedModule(stamp, parseModule(root, module.getKey(), files, unparsed), List.copyOf(unparsed));
+                MODULES.put(module.getKey(), cached);
+            }
+            model.modules.put(module.getKey(), cached.config);
+            model.unparsedFiles.addAll(cached.unparsedFiles);
+        }
+        return model;
+    }
+
+    /**
+     * Parses a single configuration file on its own (no other file of the module is merged).
+     * Used where only one file version is at hand, e.g. a file at a given commit.
+     */
+    public static ModuleConfig parseFile(Reader reader, String relativePath) throws IOException {
+        String fileName = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        return ModuleConfig.merge(relativePath, Map.of(relativePath, SpringConfigParser.parse(reader, fileName)));
+    }
+
+    /**
+     * @return The modules that have configuration, by module directory
+     */
+    public Map<Path, ModuleConfig> modules() {
+        return Collections.unmodifiableMap(modules);
+    }
+
+    /**
+     * @return Files that could not be parsed (invalid YAML); callers can still scan them as text
+     */
+    public List<Path> unparsedFiles() {
+        return Collections.unmodifiableList(unparsedFiles);
+    }
+
+    /**
+     * @return The configuration of the module a file belongs to (empty if it has none)
+     */
+    public ModuleConfig moduleFor(Path file) {
+        return modules.getOrDefault(moduleRootOf(file.toAbsolutePath().normalize()), EMPTY);
+    }
+
+    private Path moduleRootOf(Path file) {
+        Path directory = file.getParent();
+        if (directory == null || !directory.startsWith(projectRoot)) {
+            return projectRoot;
+        }
+        return moduleRoots.computeIfAbsent(directory, this::findModuleRoot);
+    }
+
+    private Path findModuleRoot(Path directory) {
+        for (Path current = directory; current != null && current.startsWith(projectRoot); current = current.getParent()) {
+            if (current.equals(projectRoot)) {
+                return projectRoot;
+            }
+            for (String buildFile : BUILD_FILES) {
+                if (Files.isRegularFile(current.resolve(buildFile))) {
+                    return current;
+                }
+            }
+        }
+        return projectRoot;
+    }
+
+    private static ModuleConfig parseModule(Path projectRoot, Path moduleRoot, List<Path> files, List<Path> unparsed) {
+        Map<String, List<Document>> documents = new LinkedHashMap<>();
+        for (Path file : files) {
+            String relativePath = projectRoot.relativize(file).toString();
+            try {
+                documents.put(relativePath, SpringConfigParser.parse(file));
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudo interpretar la configuración {}: {}", relativePath,
+                        String.valueOf(e.getMessage()).lines().findFirst().orElse(""));
+                unparsed.add(file);
+            }
+        }
+        ModuleConfig config = ModuleConfig.merge(projectRoot.relativize(moduleRoot).toString(), documents);
+        log.debug("Configuración del módulo '{}': {} propiedades de {} archivos, perfiles {}",
+                config.moduleName(), config.keys().size(), documents.size(), config.activeProfiles());
+        return config;
+    }
+
+    private static String stampOf(List<Path> files) {
+        StringBuilder stamp = new StringBuilder();
+        for (Path file : files) {
+            stamp.append(file).append(':');
+            try {
+                stamp.append(Files.size(file)).append(':').append(Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                stamp.append('?');
+            }
+            stamp.append(';');
+        }
+        return stamp.toString();
+    }
+
+    private record CachedModule(String stamp, ModuleConfig config, List<Path> unparsedFiles) {
+    }
+}
@@ -0,0 +1,288 @@
+package com.sentinel.arch.mcp.config;
+
+import com.sentinel.arch.mcp.config.SpringConfigParser.Document;
+
+import java.util.*;
+
+/**
+ * Module Config
+ *
+ * The merged Spring property map of one module, as the application would see it with its active
+ * profiles: {@code bootstrap*} first, then {@code application.yml} and {@code .properties} (later
+ * wins), then the documents and {@code application-{profile}} files of each active profile in
+ * activation order. Placeholders ({@code ${key}} and {@code ${key:default}}) are resolved against
+ * the map itself; the process environment is deliberately not consulted so results do not depend
+ * on the machine running the scan.
+ */
+public final class ModuleConfig {
+
+    /**
+     * System property overriding the profiles declared in {@code spring.profiles.active}
+     */
+    public static final String PROFILES_PROPERTY = "sentinel.profiles";
+
+    private static final int MAX_RESOLUTION_DEPTH = 16;
+
+    private final String moduleName;
+    private final List<String> activeProfiles;
+    private final Map<String, String> properties;
+    private final Map<String, String> origins;
+    private final Map<String, String> resolved = new HashMap<>();
+
+    private ModuleConfig(String moduleName, List<String> activeProfiles,
+                         Map<String, String> properties, Map<String, String> origins) {
+        this.moduleName = moduleName;
+        this.activeProfiles = activeProfiles;
+        this.properties = properties;
+        this.origins = origins;
+    }
+
+    /**
+     * Merges the parsed documents of a module
+     *
+     * @param moduleName Module path relative to the project root ("" for the root)
+     * @param documents Documents of every configuration file of the module, with their relative path
+     */
+    static ModuleConfig merge(String moduleName, Map<String, List<Document>> documents) {
+        List<Map.Entry<String, List<Document>>> files = new ArrayList<>(documents.entrySet());
+        files.sort(Comparator.comparingInt((Map.Entry<String, List<Document>> e) -> filePrecedence(e.getValue()))
+                .thenComparing(Map.Entry::getKey));
+
+        // Documentos base (sin perfil): definen los perfiles activos si no se fuerzan por propiedad
+        Map<String, String> properties = new LinkedHashMap<>();
+        Map<String, String> origins = new HashMap<>();
+        for (Map.Entry<String, List<Document>> file : files) {
+            for (Document document : file.getValue()) {
+                if (document.fileProfile() == null && document.profileCondition() == null) {
+                    putAll(properties, origins, document, file.getKey());
+                }
+            }
+        }
+
+        List<String> activeProfiles = activeProfiles(properties);
+        for (String profile : activeProfiles) {
+            for (Map.Entry<String, List<Document>> file : files) {
+                for (Document document : file.getValue()) {
+                    if (appliesTo(document, profile, activeProfiles)) {
+                        putAll(properties, origins, document, file.getKey());
+                    }
+                }
+            }
+        }
+        return new ModuleConfig(moduleName, List.copyOf(activeProfiles), properties, origins);
+    }
+
+    public String moduleName() {
+        return moduleName;
+    }
+
+    public List<String> activeProfiles() {
+        return activeProfiles;
+    }
+
+    /**
+     * @return Property keys in first-definition order
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(properties.keySet());
+    }
+
+    public boolean isEmpty() {
+        return properties.isEmpty();
+    }
+
+    /**
+     * @return The resolved value of a property, or null if it is not defined
+     */
+    public String get(String key) {
+        if (!properties.containsKey(key)) {
+            return null;
+        }
+        synchronized (resolved) {
+            String value = resolved.get(key);
+            if (value == null) {
+                value = resolve(properties.get(key), 0, new HashSet<>(Set.of(key)));
+                resolved.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * @return The relative path of the file that gave the property its effective value
+     */
+    public String originOf(String key) {
+        return origins.get(key);
+    }
+
+    /**
+     * Resolves the placeholders of an arbitrary text (e.g. an annotation attribute) against this
+     * module. Unresolvable placeholders without default are left as they are.
+     */
+    public String resolve(String text) {
+        if (text == null || !text.contains("${")) {
+            return text;
+        }
+        synchronized (resolved) {
+            return resolve(text, 0, new HashSet<>());
+        }
+    }
+
+    /**
+     * @return The key of the first placeholder of a text ({@code ${billing.url:http://x}} gives
+     * {@code billing.url}), or null if it has none
+     */
+    public static String placeholderKey(String text) {
+        int start = text == null ? -1 : text.indexOf("${");
+        if (start < 0) {
+            return null;
+        }
+        int end = closingBrace(text, start + 2);
+        if (end < 0) {
+            return null;
+        }
+        String body = text.substring(start + 2, end);
+        int colon = separator(body);
+        return (colon < 0 ? body : body.substring(0, colon)).strip();
+    }
+
+    private String resolve(String text, int depth, Set<String> visiting) {
+        if (text == null || depth > MAX_RESOLUTION_DEPTH || !text.contains("${")) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        int position = 0;
+        int start;
+        while ((start = text.indexOf("${", position)) >= 0) {
+            int end = closingBrace(text, start + 2);
+            if (end < 0) {
+                break;
+            }
+            result.append(text, position, start);
+            String body = text.substring(start + 2, end);
+            int colon = separator(body);
+            String key = (colon < 0 ? body : body.substring(0, colon)).strip();
+            String fallback = colon < 0 ? null : body.substring(colon + 1);
+
+            String value = null;
+            if (properties.containsKey(key) && visiting.add(key)) {
+                value = resolve(properties.get(key), depth + 1, visiting);
+                visiting.remove(key);
+            } else if (fallback != null) {
+                value = resolve(fallback, depth + 1, visiting);
+            }
+            // Sin valor ni default (o en ciclo): se deja el placeholder literal
+            result.append(value != null ? value : text.substring(start, end + 1));
+            position = end + 1;
+        }
+        result.append(text, position, text.length());
+        return result.toString();
+    }
+
+    /**
+     * @return Index of the brace closing a placeholder opened before {@code from}, honouring nesting
+     */
+    private static int closingBrace(String text, int from) {
+        int nesting = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' && i > 0 && text.charAt(i - 1) == '$') {
+                nesting++;
+            } else if (c == '}') {
+                if (nesting == 0) {
+                    return i;
+                }
+                nesting--;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Index of the key/default separator of a placeholder body, outside nested placeholders
+     */
+    private static int separator(String body) {
+        int nesting = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '{' && i > 0 && body.charAt(i - 1) == '$') {
+                nesting++;
+            } else if (c == '}') {
+                nesting--;
+            } else if (c == ':' && nesting == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void putAll(Map<String, String> properties, Map<String, String> origins,
+                               Document document, String file) {
+        for (Map.Entry<String, String> entry : document.properties().entrySet()) {
+            properties.put(entry.getKey(), entry.getValue());
+            origins.put(entry.getKey(), file);
+        }
+    }
+
+    private static List<String> activeProfiles(Map<String, String> baseProperties) {
+        String declared = System.getProperty(PROFILES_PROPERTY);
+        if (declared == null) {
+            declared = baseProperties.get("spring.profiles.active");
+        }
+        LinkedHashSet<String> profiles = new LinkedHashSet<>(splitProfiles(declared));
+        profiles.addAll(splitProfiles(baseProperties.get("spring.profiles.include")));
+        if (profiles.isEmpty()) {
+            profiles.add("default");
+        }
+        return new ArrayList<>(profiles);
+    }
+
+    private static List<String> splitProfiles(String value) {
+        if (value == null || value.isBlank() || value.contains("${")) {
+            return List.of();
+        }
+        List<String> profiles = new ArrayList<>();
+        for (String profile : value.split(",")) {
+            if (!profile.isBlank()) {
+                profiles.add(profile.strip());
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * A document applies to a profile when its file is that profile's file, or when it is
+     * conditioned on that profile. Conditions use Spring's simple syntax: a name, a comma list
+     * (any of) or a negated name; negations are evaluated against all active profiles and applied
+     * with the first one.
+     */
+    private static boolean appliesTo(Document document, String profile, List<String> activeProfiles) {
+        if (document.fileProfile() != null && !document.fileProfile().equals(profile)) {
+            return false;
+        }
+        String condition = document.profileCondition();
+        if (condition == null) {
+            return document.fileProfile() != null;
+        }
+        for (String option : condition.split(",")) {
+            String name = option.strip();
+            if (name.startsWith("!")) {
+                if (!activeProfiles.contains(name.substring(1).strip()) && profile.equals(activeProfiles.get(0))) {
+                    return true;
+                }
+            } else if (name.equals(profile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * bootstrap antes que application; dentro de cada uno, YAML antes que properties
+     */
+    private static int filePrecedence(List<Document> documents) {
+        String name = documents.isEmpty() ? "" : documents.get(0).fileName();
+        int precedence = name.startsWith("bootstrap") ? 0 : 2;
+        return name.endsWith(".properties") ? precedence + 1 : precedence;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sentinel.arch.mcp.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Parses Spring Boot configuration files ({@code application*.yml|yaml|properties}) into flat
+ * property documents, the way Spring sees them: nested YAML keys are joined with dots, list
+ * elements get {@code [index]}, and multi-document files ({@code ---} in YAML, {@code #---} in
+ * properties) produce one document each, with the profile condition it declares.
+ *
+ * YAML is read with the Jackson streaming parser, so no tree of the file is built.
+ */
+final class SpringConfigParser {
+
+    private static final YAMLFactory YAML_FACTORY = new YAMLFactory();
+
+    /**
+     * One document of a configuration file
+     *
+     * @param fileName Name of the file it comes from
+     * @param fileProfile Profile in the file name ({@code application-dev.yml} gives {@code dev}), or null
+     * @param profileCondition Value of {@code spring.config.activate.on-profile} (or legacy
+     *                         {@code spring.profiles}), or null if the document always applies
+     * @param properties Flattened properties in file order, values not yet resolved
+     */
+    record Document(String fileName, String fileProfile, String profileCondition, Map<String, String> properties) {
+    }
+
+    private SpringConfigParser() {
+    }
+
+    static List<Document> parse(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return parse(reader, file.getFileName().toString());
+        }
+    }
+
+    static List<Document> parse(Reader reader, String fileName) throws IOException {
+        List<Map<String, String>> documents = fileName.endsWith(".properties")
+                ? parseProperties(reader)
+                : parseYaml(reader);
+        String fileProfile = profileOf(fileName);
+        List<Document> result = new ArrayList<>();
+        for (Map<String, String> properties : documents) {
+            String condition = properties.getOrDefault("spring.config.activate.on-profile", properties.get("spring.profiles"));
+            result.add(new Document(fileName, fileProfile, condition, properties));
+        }
+        return result;
+    }
+
+    /**
+     * @return The profile of a profile-specific file name, or null for the base file
+     */
+    static String profileOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        int dash = baseName.indexOf('-');
+        return dash > 0 && dash < baseName.length() - 1 ? baseName.substring(dash + 1) : null;
+    }
+
+    private static List<Map<String, String>> parseYaml(Reader reader) throws IOException {
+        List<Map<String, String>> documents = new ArrayList<>();
+        try (JsonParser parser = YAML_FACTORY.createParser(reader)) {
+            JsonToken token;
+            // Cada valor raíz es un documento del archivo
+            while ((token = parser.nextToken()) != null) {
+                Map<String, String> properties = new LinkedHashMap<>();
+                flatten(parser, token, "", properties);
+                if (!properties.isEmpty()) {
+                    documents.add(properties);
+                }
+            }
+        }
+        return documents;
+    }
+
+    private static void flatten(JsonParser parser, JsonToken token, String prefix, Map<String, String> properties)
+            throws IOException {
+        switch (token) {
+            case START_OBJECT -> {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    flatten(parser, parser.nextToken(), prefix.isEmpty() ? name : prefix + "." + name, properties);
+                }
+            }
+            case START_ARRAY -> {
+                int index = 0;
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    flatten(parser, element, prefix + "[" + index++ + "]", properties);
+                }
+            }
+            case VALUE_NULL -> {
+                if (!prefix.isEmpty()) {
+                    properties.put(prefix, "");
+                }
+            }
+            default -> {
+                if (!prefix.isEmpty()) {
+                    properties.put(prefix, parser.getText());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a properties file line by line, splitting documents on {@code #---} / {@code !---}
+     */
+    private static List<Map<String, String>> parseProperties(Reader reader) throws IOException {
+        List<Map<String, String>> documents = new ArrayList<>();
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        StringBuilder document = new StringBuilder();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String trimmed = line.strip();
+            if (trimmed.equals("#---") || trimmed.equals("!---")) {
+                addPropertiesDocument(document, documents);
+                document.setLength(0);
+            } else {
+                document.append(line).append('\n');
+            }
+        }
+        addPropertiesDocument(document, documents);
+        return documents;
+    }
+
+    private static void addPropertiesDocument(StringBuilder document, List<Map<String, String>> documents)
+            throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        // Properties resuelve escapes y continuaciones de línea; el orden se conserva aparte
+        Properties parsed = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                properties.put(String.valueOf(key), String.valueOf(value));
+                return super.put(key, value);
+            }
+        };
+        parsed.load(new StringReader(document.toString()));
+        if (!properties.isEmpty()) {
+            documents.add(properties);
+        }
+    }
+}
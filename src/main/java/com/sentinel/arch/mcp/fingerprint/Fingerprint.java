@@ -0,0 +1,11 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+/**
+ * One protocol fingerprint found in a file: the rule that matched and the extracted value
+ * (endpoint, topic, queue, target service or URL)
+ *
+ * @param rule The matching rule (gives direction, protocol and type)
+ * @param value The captured value, the rule default or its whenAbsent value
+ */
+public record Fingerprint(FingerprintRule rule, String value) {
+}
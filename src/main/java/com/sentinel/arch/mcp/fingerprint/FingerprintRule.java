@@ -0,0 +1,165 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Fingerprint Rule
+ *
+ * Declarative description of one protocol fingerprint, as written in the built-in rule file or in
+ * {@code .sentinel/rules/*.yml|yaml|json}:
+ *
+ * <pre>
+ * rules:
+ *   - id: sqs-listener
+ *     scope: source            # source (Java/Kotlin/Scala) or config (yml/properties/xml)
+ *     direction: inbound       # inbound or outbound
+ *     protocol: Messaging-SQS
+ *     type: SqsListener        # label of outbound connections (defaults to the protocol)
+ *     pattern: '@SqsListener\s*\(\s*"([^"]+)"'
+ *     capture: [1]             # groups tried in order, by number or name (default: all, in order)
+ *     default: SQS Queue       # value when no listed group matched
+ *     requires: '@Component'   # file-level precondition
+ *     whenAbsent: ...          # value reported once if the precondition holds but nothing matched
+ *     literals: ['@SqsListener'] # prefilter; derived from the pattern when omitted
+ *     exclude: ['^internal-']  # values matching any of these regexes are dropped (skip list)
+ * </pre>
+ *
+ * A rule with the id of a built-in rule replaces it; {@code enabled: false} removes it.
+ */
+public record FingerprintRule(
+        String id,
+        Scope scope,
+        Direction direction,
+        String protocol,
+        String type,
+        String pattern,
+        List<String> capture,
+        String defaultValue,
+        String requires,
+        String whenAbsent,
+        List<String> literals,
+        List<String> exclude,
+        boolean enabled,
+        String source) {
+
+    public enum Scope { SOURCE, CONFIG }
+
+    public enum Direction { INBOUND, OUTBOUND }
+
+    /**
+     * Builds a rule from its YAML/JSON definition.
+     *
+     * @param node The rule object
+     * @param source Where the rule was defined (used in error messages and by the benchmark)
+     * @throws IllegalArgumentException If the definition is incomplete or its patterns do not compile
+     */
+    static FingerprintRule fromNode(JsonNode node, String source) {
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Rule definition must be an object in " + source);
+        }
+        String id = text(node, "id");
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Rule without id in " + source);
+        }
+        boolean enabled = node.path("enabled").asBoolean(true);
+        if (!enabled) {
+            // Solo sirve para desactivar una regla existente: el resto de campos es opcional
+            return new FingerprintRule(id, Scope.SOURCE, Direction.INBOUND, null, null, null,
+                    List.of(), null, null, null, null, List.of(), false, source);
+        }
+
+        Scope scope = parseEnum(Scope.class, node, "scope", Scope.SOURCE, id);
+        Direction direction = parseEnum(Direction.class, node, "direction", null, id);
+        if (direction == null) {
+            throw new IllegalArgumentException("Rule " + id + " has no direction (inbound or outbound)");
+        }
+        String protocol = text(node, "protocol");
+        if (protocol == null) {
+            throw new IllegalArgumentException("Rule " + id + " has no protocol");
+        }
+        String pattern = text(node, "pattern");
+        Pattern compiled = compile(pattern, "pattern", id);
+        String requires = text(node, "requires");
+        if (requires != null) {
+            compile(requires, "requires", id);
+        }
+        String whenAbsent = text(node, "whenAbsent");
+        if (whenAbsent != null && requires == null) {
+            throw new IllegalArgumentException("Rule " + id + " declares whenAbsent without requires");
+        }
+
+        List<String> capture = strings(node.get("capture"));
+        validateCaptures(capture, compiled, id);
+
+        List<String> exclude = strings(node.get("exclude"));
+        for (String excluded : exclude) {
+            compile(excluded, "exclude", id);
+        }
+
+        String type = text(node, "type");
+        List<String> literals = node.has("literals") ? strings(node.get("literals")) : null;
+        return new FingerprintRule(id, scope, direction, protocol, type != null ? type : protocol, pattern,
+                capture, text(node, "default"), requires, whenAbsent, literals, exclude, true, source);
+    }
+
+    private static void validateCaptures(List<String> capture, Pattern pattern, String id) {
+        int groupCount = pattern.matcher("").groupCount();
+        for (String group : capture) {
+            String trimmed = group.trim();
+            boolean numeric = !trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit);
+            if (numeric ? Integer.parseInt(trimmed) > groupCount : !pattern.namedGroups().containsKey(trimmed)) {
+                throw new IllegalArgumentException("Rule " + id + " captures unknown group " + group);
+            }
+        }
+    }
+
+    private static Pattern compile(String regex, String field, String id) {
+        if (regex == null || regex.isEmpty()) {
+            throw new IllegalArgumentException("Rule " + id + " has no " + field);
+        }
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Rule " + id + " has an invalid " + field + ": " + e.getDescription(), e);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, JsonNode node, String field, E fallback, String id) {
+        String value = text(node, field);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Rule " + id + " has an invalid " + field + ": " + value);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+
+    /**
+     * Accepts a single scalar or a list of scalars
+     */
+    private static List<String> strings(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(item -> values.add(item.asText()));
+        } else {
+            values.add(node.asText());
+        }
+        return List.copyOf(values);
+    }
+}
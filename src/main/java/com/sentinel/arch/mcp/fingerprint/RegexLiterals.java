@@ -0,0 +1,193 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Derives the literal prefilter of a regular expression: for each top-level alternative, the
+ * longest run of literal characters every match of that alternative must contain. A file that
+ * contains none of them cannot match, so the regex is not run at all.
+ *
+ * The analysis is deliberately conservative: groups, character classes and escapes such as
+ * {@code \s} end a run, quantified characters are dropped, and patterns with inline flags
+ * (which may make matching case-insensitive) get no prefilter.
+ */
+final class RegexLiterals {
+
+    /** Shorter literals filter too little to be worth a pass over the file */
+    static final int MIN_LITERAL_LENGTH = 3;
+
+    private RegexLiterals() {
+    }
+
+    /**
+     * @return One literal per top-level alternative, or {@code null} if some alternative has no
+     *         usable literal (the pattern must then always run)
+     */
+    static List<String> requiredLiterals(String regex) {
+        if (regex.contains("(?") && hasInlineFlags(regex)) {
+            return null;
+        }
+        List<String> literals = new ArrayList<>();
+        for (String alternative : splitTopLevel(regex)) {
+            String literal = longestLiteralRun(alternative);
+            if (literal.length() < MIN_LITERAL_LENGTH) {
+                return null;
+            }
+            if (!literals.contains(literal)) {
+                literals.add(literal);
+            }
+        }
+        return literals;
+    }
+
+    /**
+     * Whether the pattern uses back-references or named groups, which cannot be merged with other
+     * patterns into a single alternation (group numbers and names would clash)
+     */
+    static boolean isSelfContained(String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            char c = regex.charAt(i);
+            char next = regex.charAt(i + 1);
+            if (c == '\\') {
+                if (Character.isDigit(next) && next != '0' || next == 'k') {
+                    return false;
+                }
+                i++;
+            } else if (c == '(' && next == '?' && i + 2 < regex.length() && regex.charAt(i + 2) == '<'
+                    && i + 3 < regex.length() && regex.charAt(i + 3) != '=' && regex.charAt(i + 3) != '!') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasInlineFlags(String regex) {
+        for (int i = regex.indexOf("(?"); i >= 0; i = regex.indexOf("(?", i + 2)) {
+            if (i > 0 && regex.charAt(i - 1) == '\\') {
+                continue;
+            }
+            if (i + 2 < regex.length() && Character.isLetter(regex.charAt(i + 2))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> splitTopLevel(String regex) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(regex.substring(start, i));
+                start = i + 1;
+            }
+        }
+        alternatives.add(regex.substring(start));
+        return alternatives;
+    }
+
+    private static String longestLiteralRun(String alternative) {
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < alternative.length()) {
+            char c = alternative.charAt(i);
+            if (c == '\\' && i + 1 < alternative.length()) {
+                char escaped = alternative.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    // \s, \w, \d, \b, \Q... no son literales simples
+                    best = longer(best, run);
+                    run.setLength(0);
+                } else {
+                    run.append(escaped);
+                }
+                i += 2;
+            } else if (c == '*' || c == '?' || c == '{') {
+                // El carácter anterior es opcional o repetido: no forma parte del literal
+                if (!run.isEmpty()) {
+                    run.setLength(run.length() - 1);
+                }
+                best = longer(best, run);
+                run.setLength(0);
+                i = c == '{' ? Math.max(alternative.indexOf('}', i), i) + 1 : i + 1;
+            } else if (c == '+') {
+                best = longer(best, run);
+                run.setLength(0);
+                i++;
+            } else if (c == '[') {
+                best = longer(best, run);
+                run.setLength(0);
+                i = skipClass(alternative, i) + 1;
+            } else if (c == '(') {
+                best = longer(best, run);
+                run.setLength(0);
+                i = skipGroup(alternative, i) + 1;
+            } else if (c == '.' || c == '^' || c == '$' || c == ')' || c == '|') {
+                best = longer(best, run);
+                run.setLength(0);
+                i++;
+            } else {
+                run.append(c);
+                i++;
+            }
+        }
+        return longer(best, run);
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        return run.length() > best.length() ? run.toString() : best;
+    }
+
+    /**
+     * @return The index of the {@code ]} closing the character class opened at {@code open}
+     */
+    private static int skipClass(String regex, int open) {
+        int i = open + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') i++;
+        if (i < regex.length() && regex.charAt(i) == ']') i++;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipClass(regex, i) + 1;
+            } else if (c == ']') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return regex.length() - 1;
+    }
+
+    /**
+     * @return The index of the {@code )} closing the group opened at {@code open}
+     */
+    private static int skipGroup(String regex, int open) {
+        int depth = 0;
+        for (int i = open; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return regex.length() - 1;
+    }
+}
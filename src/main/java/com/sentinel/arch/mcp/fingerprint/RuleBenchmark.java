@@ -0,0 +1,151 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+import com.sentinel.arch.mcp.InterruptibleCharSequence.ScanBudgetExceededException;
+import com.sentinel.arch.mcp.ProjectWalker;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule.Scope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Rule Benchmark
+ *
+ * Measures the fingerprint rules of a project against its own files: the cost of the compiled
+ * rule set as the discovery runs it (shared prefilters, merged matchers) and, to find expensive
+ * rules, the cost of each rule run on its own. File contents are read once up front so only
+ * matching time is measured. Files that exhaust the step budget of the scan (see {@link RuleSet})
+ * are counted apart: the discovery would skip them.
+ */
+public final class RuleBenchmark {
+
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of(".java", ".kt", ".scala");
+    private static final Set<String> CONFIG_EXTENSIONS = Set.of(".yml", ".yaml", ".properties", ".xml");
+
+    /**
+     * Cost of one rule, averaged per round
+     *
+     * @param nanos Time spent by the rule over all files of its scope
+     * @param filesMatched Files that passed the prefilter (the regex ran on them)
+     * @param filesSkipped Files rejected by the prefilter
+     * @param fingerprints Fingerprints found per round
+     * @param filesOverBudget Files on which the rule alone exhausted the step budget
+     */
+    public record RuleCost(FingerprintRule rule, long nanos, int filesMatched, int filesSkipped, int fingerprints,
+                           int filesOverBudget) {
+    }
+
+    /**
+     * @param engineNanos Time of the compiled rule set over all files, averaged per round
+     * @param filesOverBudget Files on which the compiled rule set exhausted the step budget
+     */
+    public record Report(int sourceFiles, int configFiles, long bytes, int rounds,
+                         long engineNanos, int filesOverBudget, List<RuleCost> ruleCosts) {
+    }
+
+    private RuleBenchmark() {
+    }
+
+    public static Report run(RuleSet rules, Path projectRoot, ProjectWalker walker, int rounds) throws IOException {
+        List<String> sources = new ArrayList<>();
+        List<String> configs = new ArrayList<>();
+        long[] bytes = new long[1];
+        walker.walk(projectRoot, path -> {
+            String name = path.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String extension = dot > 0 ? name.substring(dot).toLowerCase(Locale.ROOT) : "";
+            List<String> target = SOURCE_EXTENSIONS.contains(extension) ? sources
+                    : CONFIG_EXTENSIONS.contains(extension) ? configs : null;
+            if (target == null) {
+                return;
+            }
+            try {
+                String content = Files.readString(path);
+                bytes[0] += content.length();
+                target.add(content);
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + path + ", Error: " + e.getMessage());
+            }
+        });
+
+        // Una ronda de calentamiento para que el JIT compile los matchers
+        int filesOverBudget = measureEngine(rules, sources, configs).filesOverBudget();
+        measureRules(rules, sources, configs);
+
+        long engineNanos = 0;
+        long[] ruleNanos = new long[rules.size()];
+        RuleCost[] lastCosts = null;
+        for (int round = 0; round < rounds; round++) {
+            engineNanos += measureEngine(rules, sources, configs).nanos();
+            lastCosts = measureRules(rules, sources, configs);
+            for (int i = 0; i < lastCosts.length; i++) {
+                ruleNanos[i] += lastCosts[i].nanos();
+            }
+        }
+
+        List<RuleCost> costs = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            RuleCost cost = lastCosts[i];
+            costs.add(new RuleCost(cost.rule(), ruleNanos[i] / rounds, cost.filesMatched(), cost.filesSkipped(),
+                    cost.fingerprints(), cost.filesOverBudget()));
+        }
+        costs.sort(Comparator.comparingLong(RuleCost::nanos).reversed());
+        return new Report(sources.size(), configs.size(), bytes[0], rounds, engineNanos / rounds, filesOverBudget, costs);
+    }
+
+    private record EngineRound(long nanos, int filesOverBudget) {
+    }
+
+    private static EngineRound measureEngine(RuleSet rules, List<String> sources, List<String> configs) {
+        int overBudget = 0;
+        long start = System.nanoTime();
+        for (String content : sources) {
+            overBudget += scanCountingBudget(rules, content, Scope.SOURCE);
+        }
+        for (String content : configs) {
+            overBudget += scanCountingBudget(rules, content, Scope.CONFIG);
+        }
+        return new EngineRound(System.nanoTime() - start, overBudget);
+    }
+
+    private static int scanCountingBudget(RuleSet rules, String content, Scope scope) {
+        try {
+            rules.scan(content, scope);
+            return 0;
+        } catch (ScanBudgetExceededException e) {
+            return 1;
+        }
+    }
+
+    private static RuleCost[] measureRules(RuleSet rules, List<String> sources, List<String> configs) {
+        List<FingerprintRule> definitions = rules.rules();
+        RuleCost[] costs = new RuleCost[definitions.size()];
+        for (int i = 0; i < definitions.size(); i++) {
+            FingerprintRule rule = definitions.get(i);
+            List<String> files = rule.scope() == Scope.SOURCE ? sources : configs;
+            int matched = 0;
+            int skipped = 0;
+            int fingerprints = 0;
+            int overBudget = 0;
+            long start = System.nanoTime();
+            for (String content : files) {
+                int found;
+                try {
+                    found = rules.scanSingleRule(i, content);
+                } catch (ScanBudgetExceededException e) {
+                    overBudget++;
+                    continue;
+                }
+                if (found < 0) {
+                    skipped++;
+                } else {
+                    matched++;
+                    fingerprints += found;
+                }
+            }
+            costs[i] = new RuleCost(rule, System.nanoTime() - start, matched, skipped, fingerprints, overBudget);
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,654 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.sentinel.arch.mcp.InterruptibleCharSequence;
+import com.sentinel.arch.mcp.Lazy;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rule Set
+ *
+ * Fingerprint rules compiled into a matcher set. Compilation:
+ * - derives a literal prefilter per rule (or takes the declared one); each distinct literal is
+ *   searched at most once per file and shared by every rule that needs it, so rules whose
+ *   literals are absent cost a single {@code indexOf};
+ * - merges the rules of a scope that share the same prefilter into one alternation
+ *   {@code (?:rule1)|(?:rule2)|...} that locates, in a single pass, every position where some rule
+ *   of the group can match. Each rule is then run with its own pattern at those positions, so the
+ *   results are the same as scanning with each rule alone: two rules matching at the same position
+ *   both report, and a rule whose precondition or exclude list rejects a match does not hide the
+ *   others. Rules using back-references or named groups are compiled on their own.
+ *
+ * Results of a file are returned grouped by rule, in declaration order, and in match order within
+ * each rule. Values matching a rule's {@code exclude} list are dropped. A compiled rule set is
+ * immutable and thread-safe.
+ *
+ * Large files can be scanned with {@link #scanStream} in fixed-size chunks that overlap by
+ * {@value #STREAM_OVERLAP_CHARS} characters, so memory stays flat whatever the file size.
+ *
+ * Each scan has a budget of character reads by the regex engine, proportional to the length of the
+ * text ({@value #STEP_BUDGET_PROPERTY} reads per character, with a floor for small files). The
+ * built-in rules need a few dozen reads per character even on minified or generated code; a file
+ * that exhausts the budget (typically a project rule that backtracks on it) aborts with
+ * {@link InterruptibleCharSequence.ScanBudgetExceededException}, so the worst-case cost of a file
+ * is bounded by its size whatever the rules.
+ */
+public final class RuleSet {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleSet.class);
+
+    /** Project rule directory, relative to the project root */
+    public static final String RULES_DIRECTORY = ".sentinel/rules";
+
+    /** Characters scanned per chunk by {@link #scanStream} */
+    static final int STREAM_CHUNK_CHARS = 64 * 1024;
+
+    /**
+     * Characters shared by consecutive chunks: a match starting in a chunk is seen whole if it is
+     * at most this long (longer ones are cut at the chunk end)
+     */
+    static final int STREAM_OVERLAP_CHARS = 4 * 1024;
+
+    /** Character reads allowed per character of scanned text */
+    public static final String STEP_BUDGET_PROPERTY = "sentinel.scan.steps-per-char";
+
+    static final long DEFAULT_STEPS_PER_CHAR = 256;
+
+    /** Budget of any text shorter than this floor divided by the steps per character */
+    static final long MIN_STEP_BUDGET = 1 << 20;
+
+    private static final long STEPS_PER_CHAR = Math.max(1, Long.getLong(STEP_BUDGET_PROPERTY, DEFAULT_STEPS_PER_CHAR));
+
+    private static final String DEFAULT_RULES_RESOURCE = "/fingerprints/default-rules.yml";
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static final Lazy<RuleSet> DEFAULTS = Lazy.of(() -> compile(loadDefaultRules()));
+    private static final Map<Path, CachedRuleSet> PROJECT_RULE_SETS = new ConcurrentHashMap<>();
+
+    private final List<CompiledRule> rules;
+    private final Map<Scope, List<RuleGroup>> groups = new EnumMap<>(Scope.class);
+    private final Map<Scope, List<CompiledRule>> whenAbsentRules = new EnumMap<>(Scope.class);
+    private final List<String> literals;
+    private final String signature;
+
+    private RuleSet(List<FingerprintRule> definitions) {
+        Map<String, Integer> literalIds = new LinkedHashMap<>();
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (FingerprintRule rule : definitions) {
+            compiled.add(new CompiledRule(compiled.size(), rule, literalIds));
+        }
+        this.rules = List.copyOf(compiled);
+        this.literals = List.copyOf(literalIds.keySet());
+        this.signature = Integer.toHexString(definitions.hashCode()) + "-" + definitions.size();
+
+        for (Scope scope : Scope.values()) {
+            // Agrupa por prefiltro, conservando el orden de la primera regla de cada grupo
+            Map<String, List<CompiledRule>> byPrefilter = new LinkedHashMap<>();
+            List<RuleGroup> scopeGroups = new ArrayList<>();
+            for (CompiledRule rule : rules) {
+                if (rule.definition.scope() != scope) {
+                    continue;
+                }
+                if (rule.mergeable) {
+                    byPrefilter.computeIfAbsent(Arrays.toString(rule.literalIds), k -> new ArrayList<>()).add(rule);
+                } else {
+                    scopeGroups.add(RuleGroup.standalone(rule));
+                }
+                if (rule.definition.whenAbsent() != null) {
+                    whenAbsentRules.computeIfAbsent(scope, k -> new ArrayList<>()).add(rule);
+                }
+            }
+            byPrefilter.values().forEach(members -> scopeGroups.add(RuleGroup.merged(members)));
+            scopeGroups.sort(Comparator.comparingInt(group -> group.members.get(0).index));
+            groups.put(scope, List.copyOf(scopeGroups));
+        }
+    }
+
+    /**
+     * Compiles a list of rule definitions (disabled entries are ignored)
+     */
+    public static RuleSet compile(List<FingerprintRule> definitions) {
+        return new RuleSet(definitions.stream().filter(FingerprintRule::enabled).toList());
+    }
+
+    /**
+     * The built-in rules, compiled once per process
+     */
+    public static RuleSet defaults() {
+        return DEFAULTS.get();
+    }
+
+    /**
+     * The built-in rules combined with the project rules under {@value #RULES_DIRECTORY}.
+     * The compiled set is cached per project and rebuilt when a rule file changes.
+     */
+    public static RuleSet forProject(Path projectRoot) {
+        Path rulesDirectory = projectRoot.resolve(RULES_DIRECTORY);
+        if (!Files.isDirectory(rulesDirectory)) {
+            return defaults();
+        }
+        List<Path> ruleFiles = listRuleFiles(rulesDirectory);
+        if (ruleFiles.isEmpty()) {
+            return defaults();
+        }
+        String stamp = stampOf(ruleFiles);
+        Path key = projectRoot.toAbsolutePath().normalize();
+        CachedRuleSet cached = PROJECT_RULE_SETS.get(key);
+        if (cached != null && cached.stamp.equals(stamp)) {
+            return cached.ruleSet;
+        }
+
+        List<FingerprintRule> projectRules = new ArrayList<>();
+        for (Path ruleFile : ruleFiles) {
+            projectRules.addAll(loadRuleFile(ruleFile));
+        }
+        RuleSet ruleSet = compile(override(loadDefaultRules(), projectRules));
+        log.info("Reglas de huellas para {}: {} ({} de {})", projectRoot, ruleSet.size(), projectRules.size(), rulesDirectory);
+        PROJECT_RULE_SETS.put(key, new CachedRuleSet(stamp, ruleSet));
+        return ruleSet;
+    }
+
+    /**
+     * Scans the content of one file with the rules of the given scope.
+     *
+     * @throws InterruptibleCharSequence.ScanInterruptedException If the thread is interrupted mid-scan
+     * @throws InterruptibleCharSequence.ScanBudgetExceededException If the file exhausts its step budget
+     */
+    public List<Fingerprint> scan(String text, Scope scope) {
+        return scan(text, scope, text.length(), true);
+    }
+
+    /**
+     * Scans a file chunk by chunk, passing each distinct fingerprint (rule and value) once.
+     * Only one chunk plus the overlap window is held in memory. Preconditions are evaluated per
+     * chunk and {@code whenAbsent} values are not reported, since no chunk sees the whole file.
+     * Each chunk gets the step budget of its own length.
+     *
+     * @throws IOException If reading fails
+     * @throws InterruptibleCharSequence.ScanInterruptedException If the thread is interrupted mid-scan
+     * @throws InterruptibleCharSequence.ScanBudgetExceededException If a chunk exhausts its step budget
+     */
+    public void scanStream(Reader reader, Scope scope, Consumer<Fingerprint> consumer) throws IOException {
+        char[] buffer = new char[STREAM_CHUNK_CHARS + STREAM_OVERLAP_CHARS];
+        Set<String> seen = new HashSet<>();
+        int length = 0;
+        boolean eof = false;
+        while (!eof) {
+            while (length < buffer.length) {
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    eof = true;
+                    break;
+                }
+                length += read;
+            }
+            if (length == 0) {
+                break;
+            }
+
+            // Las coincidencias que empiezan en la ventana final se buscan en el siguiente bloque
+            int owned = eof ? length : length - STREAM_OVERLAP_CHARS;
+            for (Fingerprint fingerprint : scan(new String(buffer, 0, length), scope, owned, false)) {
+                if (seen.add(fingerprint.rule().id() + '\n' + fingerprint.value())) {
+                    consumer.accept(fingerprint);
+                }
+            }
+            System.arraycopy(buffer, owned, buffer, 0, length - owned);
+            length -= owned;
+        }
+    }
+
+    /**
+     * @param limit Matches starting at or after this index are ignored
+     * @param wholeFile Whether {@code text} is the whole file (enables {@code whenAbsent})
+     */
+    private List<Fingerprint> scan(String text, Scope scope, int limit, boolean wholeFile) {
+        FileState state = new FileState(text);
+        List<List<Fingerprint>> perRule = new ArrayList<>(Collections.nCopies(rules.size(), null));
+        int found = 0;
+
+        for (RuleGroup group : groups.get(scope)) {
+            if (!state.anyPresent(group.literalIds) || !state.anyRequirementHolds(group)) {
+                continue;
+            }
+            if (group.members.size() > 1) {
+                found += scanMerged(group, state, limit, perRule);
+                continue;
+            }
+            CompiledRule rule = group.members.get(0);
+            Matcher matcher = rule.standalonePattern.matcher(state.content);
+            while (matcher.find() && matcher.start() < limit) {
+                String value = rule.extract(matcher);
+                if (!rule.isExcluded(value)) {
+                    add(perRule, rule, value);
+                    found++;
+                }
+            }
+        }
+
+        List<CompiledRule> absentCandidates = wholeFile ? whenAbsentRules.getOrDefault(scope, List.of()) : List.of();
+        for (CompiledRule rule : absentCandidates) {
+            if (perRule.get(rule.index) == null && state.requirementHolds(rule)) {
+                add(perRule, rule, rule.definition.whenAbsent());
+                found++;
+            }
+        }
+
+        if (found == 0) {
+            return List.of();
+        }
+        List<Fingerprint> fingerprints = new ArrayList<>(found);
+        for (List<Fingerprint> ruleFingerprints : perRule) {
+            if (ruleFingerprints != null) {
+                fingerprints.addAll(ruleFingerprints);
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Scans with a merged group. The alternation only finds candidate positions: it matches at a
+     * position exactly when some member does, so searching again from each hit plus one visits every
+     * position where a member can start. Each member keeps its own cursor and is tried there with
+     * its own pattern, as {@link Matcher#find()} would do if the member were scanned alone.
+     */
+    private static int scanMerged(RuleGroup group, FileState state, int limit, List<List<Fingerprint>> perRule) {
+        int size = group.members.size();
+        Matcher[] matchers = new Matcher[size];
+        int[] next = new int[size];
+        for (int i = 0; i < size; i++) {
+            CompiledRule rule = group.members.get(i);
+            if (state.requirementHolds(rule)) {
+                // Límites transparentes y sin anclaje: lookbehind y ^ ven el texto como en find()
+                matchers[i] = rule.standalonePattern.matcher(state.content)
+                        .useTransparentBounds(true)
+                        .useAnchoringBounds(false);
+            }
+        }
+
+        int found = 0;
+        int length = state.content.length();
+        Matcher candidates = group.pattern.matcher(state.content);
+        int from = 0;
+        while (from <= length && candidates.find(from) && candidates.start() < limit) {
+            int start = candidates.start();
+            for (int i = 0; i < size; i++) {
+                Matcher matcher = matchers[i];
+                if (matcher == null || start < next[i]) {
+                    continue;
+                }
+                matcher.region(start, length);
+                if (!matcher.lookingAt()) {
+                    continue;
+                }
+                // Tras una coincidencia vacía find() sigue en la posición siguiente
+                next[i] = matcher.end() > start ? matcher.end() : start + 1;
+                CompiledRule rule = group.members.get(i);
+                String value = rule.extract(matcher);
+                if (!rule.isExcluded(value)) {
+                    add(perRule, rule, value);
+                    found++;
+                }
+            }
+            from = start + 1;
+        }
+        return found;
+    }
+
+    /**
+     * Runs a single rule on its own (prefilter, precondition and pattern), as if it were the only
+     * rule of the set. Used by the rule benchmark to attribute cost per rule.
+     *
+     * @return The number of fingerprints found, or -1 if the file was rejected by the prefilter
+     */
+    int scanSingleRule(int ruleIndex, String text) {
+        CompiledRule rule = rules.get(ruleIndex);
+        FileState state = new FileState(text);
+        if (!state.anyPresent(rule.literalIds)) {
+            return -1;
+        }
+        if (!state.requirementHolds(rule)) {
+            return 0;
+        }
+        int found = 0;
+        Matcher matcher = rule.standalonePattern.matcher(state.content);
+        while (matcher.find()) {
+            if (!rule.isExcluded(rule.extract(matcher))) {
+                found++;
+            }
+        }
+        return found == 0 && rule.definition.whenAbsent() != null ? 1 : found;
+    }
+
+    public List<FingerprintRule> rules() {
+        return rules.stream().map(rule -> rule.definition).toList();
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Number of compiled matchers for a scope (merged groups plus standalone rules)
+     */
+    public int matcherCount(Scope scope) {
+        return groups.get(scope).size();
+    }
+
+    /**
+     * Distinct prefilter literals shared by the rules
+     */
+    public List<String> literals() {
+        return literals;
+    }
+
+    /**
+     * Identifies the rule definitions; results computed with equal signatures are interchangeable
+     */
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * Character reads the regex engine may spend on a text of the given length
+     */
+    static long stepBudget(int length) {
+        return Math.max(MIN_STEP_BUDGET, STEPS_PER_CHAR * length);
+    }
+
+    private static void add(List<List<Fingerprint>> perRule, CompiledRule rule, String value) {
+        List<Fingerprint> ruleFingerprints = perRule.get(rule.index);
+        if (ruleFingerprints == null) {
+            ruleFingerprints = new ArrayList<>();
+            perRule.set(rule.index, ruleFingerprints);
+        }
+        ruleFingerprints.add(new Fingerprint(rule.definition, value));
+    }
+
+    // ------------------------------------------------------------------ carga de reglas
+
+    private static List<FingerprintRule> loadDefaultRules() {
+        try (InputStream in = RuleSet.class.getResourceAsStream(DEFAULT_RULES_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing built-in rules: " + DEFAULT_RULES_RESOURCE);
+            }
+            // Las reglas incluidas deben ser válidas: cualquier error es un fallo de build
+            List<FingerprintRule> rules = new ArrayList<>();
+            for (JsonNode node : ruleNodes(YAML_MAPPER.readTree(in))) {
+                rules.add(FingerprintRule.fromNode(node, "built-in"));
+            }
+            return rules;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read built-in rules", e);
+        }
+    }
+
+    /**
+     * Reads a project rule file; invalid rules are reported and skipped
+     */
+    static List<FingerprintRule> loadRuleFile(Path ruleFile) {
+        String fileName = ruleFile.getFileName().toString();
+        ObjectMapper mapper = fileName.endsWith(".json") ? JSON_MAPPER : YAML_MAPPER;
+        JsonNode root;
+        try {
+            root = mapper.readTree(ruleFile.toFile());
+        } catch (IOException e) {
+            log.warn("No se pudo leer el archivo de reglas {}: {}", ruleFile, e.getMessage());
+            return List.of();
+        }
+        List<FingerprintRule> rules = new ArrayList<>();
+        for (JsonNode node : ruleNodes(root)) {
+            try {
+                rules.add(FingerprintRule.fromNode(node, fileName));
+            } catch (IllegalArgumentException e) {
+                log.warn("Regla ignorada en {}: {}", ruleFile, e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * A rule file is either a list of rules or an object with a {@code rules} list
+     */
+    private static List<JsonNode> ruleNodes(JsonNode root) {
+        JsonNode list = root != null && root.isObject() ? root.get("rules") : root;
+        List<JsonNode> nodes = new ArrayList<>();
+        if (list != null && list.isArray()) {
+            list.forEach(nodes::add);
+        }
+        return nodes;
+    }
+
+    /**
+     * Applies project rules over the built-in ones: same id replaces (or disables) in place,
+     * new ids are appended
+     */
+    private static List<FingerprintRule> override(List<FingerprintRule> base, List<FingerprintRule> overrides) {
+        Map<String, FingerprintRule> merged = new LinkedHashMap<>();
+        base.forEach(rule -> merged.put(rule.id(), rule));
+        overrides.forEach(rule -> merged.put(rule.id(), rule));
+        return new ArrayList<>(merged.values());
+    }
+
+    private static List<Path> listRuleFiles(Path rulesDirectory) {
+        try (Stream<Path> files = Files.list(rulesDirectory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.endsWith(".yml") || name.endsWith(".yaml") || name.endsWith(".json");
+                    })
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            log.warn("No se pudo listar {}: {}", rulesDirectory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String stampOf(List<Path> ruleFiles) {
+        StringBuilder stamp = new StringBuilder();
+        for (Path ruleFile : ruleFiles) {
+            stamp.append(ruleFile.getFileName()).append(':');
+            try {
+                stamp.append(Files.size(ruleFile)).append(':').append(Files.getLastModifiedTime(ruleFile).toMillis());
+            } catch (IOException e) {
+                stamp.append('?');
+            }
+            stamp.append(';');
+        }
+        return stamp.toString();
+    }
+
+    private record CachedRuleSet(String stamp, RuleSet ruleSet) {
+    }
+
+    // ------------------------------------------------------------------ estructuras compiladas
+
+    /**
+     * A rule with its prefilter, precondition and capture resolution
+     */
+    private static final class CompiledRule {
+        final int index;
+        final FingerprintRule definition;
+        final int[] literalIds;          // cualquiera debe aparecer; vacío = sin prefiltro
+        final Pattern standalonePattern;
+        final int groupCount;
+        final boolean mergeable;
+        final Pattern requiresPattern;
+        final int[] requiresLiteralIds;
+        final Object[] captures;         // Integer (número de grupo) o String (nombre)
+        final Pattern excludePattern;
+
+        CompiledRule(int index, FingerprintRule definition, Map<String, Integer> literalIds) {
+            this.index = index;
+            this.definition = definition;
+            this.standalonePattern = Pattern.compile(definition.pattern());
+            this.groupCount = standalonePattern.matcher("").groupCount();
+            this.mergeable = RegexLiterals.isSelfContained(definition.pattern());
+            this.literalIds = idsOf(definition.literals() != null
+                    ? definition.literals()
+                    : RegexLiterals.requiredLiterals(definition.pattern()), literalIds);
+            if (definition.requires() != null) {
+                this.requiresPattern = Pattern.compile(definition.requires());
+                this.requiresLiteralIds = idsOf(RegexLiterals.requiredLiterals(definition.requires()), literalIds);
+            } else {
+                this.requiresPattern = null;
+                this.requiresLiteralIds = new int[0];
+            }
+            this.captures = resolveCaptures(definition, groupCount);
+            this.excludePattern = definition.exclude().isEmpty() ? null : Pattern.compile(
+                    definition.exclude().stream().map(regex -> "(?:" + regex + ")").collect(Collectors.joining("|")));
+        }
+
+        boolean isExcluded(String value) {
+            return excludePattern != null && value != null && excludePattern.matcher(value).find();
+        }
+
+        /**
+         * Value of a match: the first listed group that participated, else the rule default,
+         * else the whole match
+         */
+        String extract(Matcher matcher) {
+            for (Object capture : captures) {
+                String value = capture instanceof Integer group
+                        ? matcher.group(group)
+                        : matcher.group((String) capture);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return definition.defaultValue() != null ? definition.defaultValue() : matcher.group();
+        }
+
+        private static Object[] resolveCaptures(FingerprintRule definition, int groupCount) {
+            if (definition.capture().isEmpty()) {
+                Object[] all = new Object[groupCount];
+                for (int i = 0; i < groupCount; i++) {
+                    all[i] = i + 1;
+                }
+                return all;
+            }
+            Object[] captures = new Object[definition.capture().size()];
+            for (int i = 0; i < captures.length; i++) {
+                String capture = definition.capture().get(i).trim();
+                // Los grupos ya se validaron al leer la regla
+                if (capture.chars().allMatch(Character::isDigit)) {
+                    captures[i] = Integer.parseInt(capture);
+                } else {
+                    captures[i] = capture;
+                }
+            }
+            return captures;
+        }
+
+        private static int[] idsOf(List<String> literals, Map<String, Integer> literalIds) {
+            if (literals == null || literals.isEmpty()) {
+                return new int[0];
+            }
+            return literals.stream()
+                    .mapToInt(literal -> literalIds.computeIfAbsent(literal, k -> literalIds.size()))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    /**
+     * One compiled matcher: a single rule, or several rules sharing a prefilter whose alternation
+     * locates the positions where any of them can match
+     */
+    private static final class RuleGroup {
+        final Pattern pattern;
+        final int[] literalIds;
+        final List<CompiledRule> members;
+
+        private RuleGroup(Pattern pattern, int[] literalIds, List<CompiledRule> members) {
+            this.pattern = pattern;
+            this.literalIds = literalIds;
+            this.members = members;
+        }
+
+        static RuleGroup standalone(CompiledRule rule) {
+            return new RuleGroup(rule.standalonePattern, rule.literalIds, List.of(rule));
+        }
+
+        static RuleGroup merged(List<CompiledRule> members) {
+            if (members.size() == 1) {
+                return standalone(members.get(0));
+            }
+            String regex = members.stream()
+                    .map(member -> "(?:" + member.definition.pattern() + ")")
+                    .collect(Collectors.joining("|"));
+            return new RuleGroup(Pattern.compile(regex), members.get(0).literalIds, List.copyOf(members));
+        }
+    }
+
+    /**
+     * Per-file cache of literal presence and precondition results
+     */
+    private final class FileState {
+        final String text;
+        final CharSequence content;
+        final byte[] literalState = new byte[literals.size()];  // 0 = sin evaluar, 1 = presente, 2 = ausente
+        final byte[] requirementState = new byte[rules.size()];
+
+        FileState(String text) {
+            this.text = text;
+            this.content = InterruptibleCharSequence.wrap(text, stepBudget(text.length()));
+        }
+
+        boolean anyPresent(int[] literalIds) {
+            if (literalIds.length == 0) {
+                return true;
+            }
+            for (int id : literalIds) {
+                if (literalState[id] == 0) {
+                    literalState[id] = (byte) (text.contains(literals.get(id)) ? 1 : 2);
+                }
+                if (literalState[id] == 1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean anyRequirementHolds(RuleGroup group) {
+            for (CompiledRule rule : group.members) {
+                if (requirementHolds(rule)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean requirementHolds(CompiledRule rule) {
+            if (rule.requiresPattern == null) {
+                return true;
+            }
+            if (requirementState[rule.index] == 0) {
+                boolean holds = anyPresent(rule.requiresLiteralIds) && rule.requiresPattern.matcher(content).find();
+                requirementState[rule.index] = (byte) (holds ? 1 : 2);
+            }
+            return requirementState[rule.index] == 1;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.sentinel.arch.mcp.index;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Code Index
+ *
+ * On-disk vector store of one project: for every indexed file its size, modification time and
+ * SHA-256, and one normalized embedding per chunk (line range). Chunk text is not stored; snippets
+ * are read back from the source file, which is unchanged as long as its hash matches.
+ *
+ * The index is a single binary file written to a temporary file and moved into place, so an
+ * interrupted save never leaves a corrupt index behind. An index built with another embedding
+ * model or format version is discarded on load.
+ */
+final class CodeIndex {
+
+    private static final int MAGIC = 0x53454E58; // "SENX"
+    private static final int VERSION = 1;
+
+    record Chunk(int startLine, int endLine, float[] vector) {
+    }
+
+    record FileEntry(long size, long modified, String sha256, List<Chunk> chunks) {
+    }
+
+    record Match(String file, int startLine, int endLine, float score) {
+    }
+
+    private final String model;
+    private final Map<String, FileEntry> files;
+    private int dimension;
+
+    CodeIndex(String model) {
+        this(model, 0, new HashMap<>());
+    }
+
+    private CodeIndex(String model, int dimension, Map<String, FileEntry> files) {
+        this.model = model;
+        this.dimension = dimension;
+        this.files = files;
+    }
+
+    /**
+     * Loads the index at {@code file}, or returns an empty one if it is missing, unreadable or
+     * was built with another model
+     */
+    static CodeIndex load(Path file, String model) {
+        if (!Files.isRegularFile(file)) {
+            return new CodeIndex(model);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(model)) {
+                return new CodeIndex(model);
+            }
+            int dimension = in.readInt();
+            int fileCount = in.readInt();
+            Map<String, FileEntry> files = new HashMap<>(fileCount * 2);
+            for (int f = 0; f < fileCount; f++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String sha256 = in.readUTF();
+                int chunkCount = in.readInt();
+                List<Chunk> chunks = new ArrayList<>(chunkCount);
+                for (int c = 0; c < chunkCount; c++) {
+                    int startLine = in.readInt();
+                    int endLine = in.readInt();
+                    float[] vector = new float[dimension];
+                    for (int d = 0; d < dimension; d++) {
+                        vector[d] = in.readFloat();
+                    }
+                    chunks.add(new Chunk(startLine, endLine, vector));
+                }
+                files.put(path, new FileEntry(size, modified, sha256, chunks));
+            }
+            return new CodeIndex(model, dimension, files);
+        } catch (IOException e) {
+            // Índice incompleto o de otra versión: se reconstruye desde cero
+            return new CodeIndex(model);
+        }
+    }
+
+    void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(model);
+            out.writeInt(dimension);
+            out.writeInt(files.size());
+            for (Map.Entry<String, FileEntry> entry : files.entrySet()) {
+                FileEntry value = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(value.size());
+                out.writeLong(value.modified());
+                out.writeUTF(value.sha256());
+                out.writeInt(value.chunks().size());
+                for (Chunk chunk : value.chunks()) {
+                    out.writeInt(chunk.startLine());
+                    out.writeInt(chunk.endLine());
+                    for (float component : chunk.vector()) {
+                        out.writeFloat(component);
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    FileEntry get(String path) {
+        return files.get(path);
+    }
+
+    /**
+     * Stores the entry of a file; all vectors of an index must have the same dimension
+     */
+    void put(String path, FileEntry entry) {
+        for (Chunk chunk : entry.chunks()) {
+            if (dimension == 0) {
+                dimension = chunk.vector().length;
+            } else if (chunk.vector().length != dimension) {
+                throw new IllegalStateException("Embedding dimension changed from " + dimension
+                        + " to " + chunk.vector().length);
+            }
+        }
+        files.put(path, entry);
+    }
+
+    /**
+     * Drops the files not in {@code present}
+     *
+     * @return Number of files removed
+     */
+    int retainAll(Set<String> present) {
+        int before = files.size();
+        files.keySet().retainAll(present);
+        return before - files.size();
+    }
+
+    int fileCount() {
+        return files.size();
+    }
+
+    int chunkCount() {
+        return files.values().stream().mapToInt(entry -> entry.chunks().size()).sum();
+    }
+
+    /**
+     * Top-k chunks by cosine similarity (vectors are stored normalized, so a dot product)
+     */
+    List<Match> search(float[] query, int k) {
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingDouble(Match::score));
+        if (query.length != dimension) {
+            return List.of();
+        }
+        for (Map.Entry<String, FileEntry> entry : files.entrySet()) {
+            for (Chunk chunk : entry.getValue().chunks()) {
+                float score = dot(query, chunk.vector());
+                if (best.size() < k) {
+                    best.add(new Match(entry.getKey(), chunk.startLine(), chunk.endLine(), score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Match(entry.getKey(), chunk.startLine(), chunk.endLine(), score));
+                }
+            }
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(Comparator.comparingDouble(Match::score).reversed());
+        return matches;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
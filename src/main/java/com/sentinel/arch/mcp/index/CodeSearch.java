@@ -0,0 +1,343 @@
+package com.sentinel.arch.mcp.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sentinel.arch.mcp.ProjectWalker;
+import com.sentinel.arch.mcp.ToolProgress;
+import com.sentinel.arch.mcp.index.CodeIndex.Chunk;
+import com.sentinel.arch.mcp.index.CodeIndex.FileEntry;
+import com.sentinel.arch.mcp.index.CodeIndex.Match;
+import com.sentinel.arch.mcp.index.SourceChunker.Range;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Code Search
+ *
+ * Semantic retrieval over the source files of a project, so the agent can ask for "where are the
+ * Kafka consumers configured" instead of reading files one by one. Files are split into line
+ * chunks ({@link SourceChunker}), embedded with the configured embedding model and stored in an
+ * on-disk index under {@code .sentinel/index/} ({@link CodeIndex}).
+ *
+ * Every search first brings the index up to date incrementally: files whose size and modification
+ * time are unchanged are skipped, files whose content hash is unchanged only get their stamp
+ * refreshed, and only new or modified files are re-embedded, in batches of
+ * {@value #EMBEDDING_BATCH_SIZE} chunks per request. Deleted files are dropped. If the tool call
+ * is cancelled while indexing, the chunks embedded so far are saved and the search runs on them.
+ */
+public class CodeSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeSearch.class);
+
+    /** Source and configuration files worth retrieving */
+    public static final Set<String> INDEXED_EXTENSIONS = Set.of(".java", ".kt", ".groovy", ".xml", ".yml", ".yaml",
+            ".properties", ".gradle", ".kts", ".sql", ".proto", ".graphql", ".md");
+
+    public static final String INDEX_FILE = ".sentinel/index/code-embeddings.bin";
+    public static final int DEFAULT_TOP_K = 8;
+
+    static final int EMBEDDING_BATCH_SIZE = 32;
+    // Archivos mayores suelen ser código generado o datos; no aportan a la búsqueda
+    private static final long MAX_FILE_BYTES = 512 * 1024;
+    private static final int MAX_SNIPPET_CHARS = 1_200;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ProjectWalker walker;
+    private final EmbeddingModel embeddingModel;
+    private final String modelName;
+    private final SourceChunker chunker = new SourceChunker(40, 1_500, 5);
+    private final Map<Path, CodeIndex> indexes = new ConcurrentHashMap<>();
+    // Un lock por proyecto, no synchronized: el refresco espera a Ollama y fijaría el hilo portador del hilo virtual
+    private final Map<Path, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * @param walker Shared walker (WF-01 exclusions and ignore files)
+     * @param embeddingModel Model used for chunks and queries
+     * @param modelName Name of the model, stored in the index so a different model rebuilds it
+     */
+    public CodeSearch(ProjectWalker walker, EmbeddingModel embeddingModel, String modelName) {
+        this.walker = walker;
+        this.embeddingModel = embeddingModel;
+        this.modelName = modelName;
+    }
+
+    /**
+     * Statistics of one index refresh
+     */
+    public record RefreshStats(int files, int chunks, int embeddedFiles, int embeddedChunks, int removedFiles,
+                               boolean interrupted) {
+    }
+
+    /**
+     * Returns the chunks of the project most similar to a natural-language query
+     *
+     * @param projectPath Project root
+     * @param query What to look for (a question or a description of the code)
+     * @param topK Number of snippets to return
+     * @return JSON with the snippets (file, line range, score, text) and the index statistics
+     */
+    public String search_code(String projectPath, String query, int topK) throws IOException {
+        Path root = Paths.get(projectPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return "{\"error\": \"Project path does not exist: " + projectPath + "\"}";
+        }
+        CodeIndex index = indexes.computeIfAbsent(root, r -> CodeIndex.load(r.resolve(INDEX_FILE), modelName));
+        List<Match> matches;
+        RefreshStats stats;
+        ReentrantLock lock = lock(root);
+        lock.lock();
+        try {
+            stats = refresh(root, index);
+            float[] vector = CodeIndex.normalize(embeddingModel.embed(query).content().vector());
+            matches = index.search(vector, Math.max(1, topK));
+        } finally {
+            lock.unlock();
+        }
+
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("query", query);
+        result.put("indexed_files", stats.files());
+        result.put("indexed_chunks", stats.chunks());
+        result.put("reindexed_files", stats.embeddedFiles());
+        if (stats.interrupted()) {
+            result.put("truncated", true);
+        }
+        ArrayNode results = result.putArray("results");
+        for (Match match : matches) {
+            ObjectNode node = results.addObject();
+            node.put("file", match.file());
+            node.put("start_line", match.startLine());
+            node.put("end_line", match.endLine());
+            node.put("score", Math.round(match.score() * 1000) / 1000.0);
+            node.put("snippet", snippet(root.resolve(match.file()), match));
+        }
+        return MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+    }
+
+    /**
+     * Brings the on-disk index of a project up to date with its files
+     */
+    public RefreshStats refresh(Path projectRoot) throws IOException {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        CodeIndex index = indexes.computeIfAbsent(root, r -> CodeIndex.load(r.resolve(INDEX_FILE), modelName));
+        ReentrantLock lock = lock(root);
+        lock.lock();
+        try {
+            return refresh(root, index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(Path root) {
+        return locks.computeIfAbsent(root, r -> new ReentrantLock());
+    }
+
+    private RefreshStats refresh(Path root, CodeIndex index) throws IOException {
+        ToolProgress progress = ToolProgress.current();
+        progress.report(0, null, "Listing files to index");
+        List<Path> files = walker.collectFiles(root, INDEXED_EXTENSIONS);
+
+        Set<String> present = new HashSet<>();
+        Batch batch = new Batch(index);
+        boolean walked = false;
+        int removed = 0;
+        int done = 0;
+        try {
+            for (Path file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                progress.report(done++, (long) files.size(), "Indexing " + file.getFileName());
+                String relative = root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributes.size() > MAX_FILE_BYTES) {
+                    continue;
+                }
+                present.add(relative);
+                long modified = attributes.lastModifiedTime().toMillis();
+                FileEntry existing = index.get(relative);
+                if (existing != null && existing.size() == attributes.size() && existing.modified() == modified) {
+                    continue;
+                }
+
+                byte[] content;
+                try {
+                    content = Files.readAllBytes(file);
+                } catch (IOException e) {
+                    log.warn("No se pudo leer {} para el índice: {}", file, e.getMessage());
+                    continue;
+                }
+                String sha256 = sha256(content);
+                if (existing != null && existing.sha256().equals(sha256)) {
+                    // Mismo contenido (checkout, touch): solo se actualiza la marca
+                    index.put(relative, new FileEntry(content.length, modified, sha256, existing.chunks()));
+                    batch.dirty = true;
+                    continue;
+                }
+                batch.add(relative, content.length, modified, sha256, new String(content, StandardCharsets.UTF_8));
+            }
+            batch.flush();
+            walked = !Thread.currentThread().isInterrupted();
+            if (walked) {
+                removed = index.retainAll(present);
+            }
+        } finally {
+            // Lo ya embebido se conserva aunque el modelo falle o la llamada se cancele a medias
+            if (batch.dirty || removed > 0) {
+                index.save(root.resolve(INDEX_FILE));
+            }
+        }
+        if (batch.embeddedFiles > 0 || removed > 0) {
+            log.info("Índice de código de {} actualizado: {} archivos re-indexados ({} fragmentos), {} eliminados",
+                    root, batch.embeddedFiles, batch.embeddedChunks, removed);
+        }
+        return new RefreshStats(index.fileCount(), index.chunkCount(), batch.embeddedFiles, batch.embeddedChunks,
+                removed, !walked);
+    }
+
+    /**
+     * Chunks waiting to be embedded; a file enters the index once all its chunks have a vector
+     */
+    private final class Batch {
+        private final CodeIndex index;
+        private final List<PendingFile> files = new ArrayList<>();
+        // Fragmentos del próximo lote: texto, archivo y posición del fragmento en el archivo
+        private final List<TextSegment> segments = new ArrayList<>();
+        private final List<PendingFile> owners = new ArrayList<>();
+        private final List<Integer> slots = new ArrayList<>();
+        int embeddedFiles;
+        int embeddedChunks;
+        boolean dirty;
+
+        Batch(CodeIndex index) {
+            this.index = index;
+        }
+
+        void add(String path, long size, long modified, String sha256, String text) {
+            List<String> lines = text.lines().toList();
+            List<Range> ranges = chunker.chunk(lines);
+            PendingFile pending = new PendingFile(path, size, modified, sha256, ranges);
+            files.add(pending);
+            for (int i = 0; i < ranges.size(); i++) {
+                Range range = ranges.get(i);
+                // La ruta forma parte del texto: el nombre de la clase o del archivo suele ser la mejor pista
+                String chunk = path + "\n" + String.join("\n", lines.subList(range.startLine() - 1, range.endLine()));
+                segments.add(TextSegment.from(chunk));
+                owners.add(pending);
+                slots.add(i);
+                if (segments.size() >= EMBEDDING_BATCH_SIZE) {
+                    embed();
+                }
+            }
+            complete();
+        }
+
+        void flush() {
+            if (!segments.isEmpty()) {
+                embed();
+            }
+            complete();
+        }
+
+        private void embed() {
+            List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+            for (int i = 0; i < embeddings.size(); i++) {
+                owners.get(i).vectors[slots.get(i)] = CodeIndex.normalize(embeddings.get(i).vector());
+            }
+            embeddedChunks += embeddings.size();
+            segments.clear();
+            owners.clear();
+            slots.clear();
+            complete();
+        }
+
+        /**
+         * Moves the fully embedded files into the index
+         */
+        private void complete() {
+            Iterator<PendingFile> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                PendingFile pending = iterator.next();
+                if (!pending.isComplete()) {
+                    break;
+                }
+                List<Chunk> chunks = new ArrayList<>(pending.ranges.size());
+                for (int i = 0; i < pending.ranges.size(); i++) {
+                    Range range = pending.ranges.get(i);
+                    chunks.add(new Chunk(range.startLine(), range.endLine(), pending.vectors[i]));
+                }
+                index.put(pending.path, new FileEntry(pending.size, pending.modified, pending.sha256, chunks));
+                embeddedFiles++;
+                dirty = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class PendingFile {
+        final String path;
+        final long size;
+        final long modified;
+        final String sha256;
+        final List<Range> ranges;
+        final float[][] vectors;
+
+        PendingFile(String path, long size, long modified, String sha256, List<Range> ranges) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+            this.ranges = ranges;
+            this.vectors = new float[ranges.size()][];
+        }
+
+        boolean isComplete() {
+            for (float[] vector : vectors) {
+                if (vector == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static String snippet(Path file, Match match) {
+        try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            String text = String.join("\n", lines.skip(match.startLine() - 1L)
+                    .limit(match.endLine() - match.startLine() + 1L).toList());
+            return text.length() > MAX_SNIPPET_CHARS ? text.substring(0, MAX_SNIPPET_CHARS) + "\n..." : text;
+        } catch (IOException | UncheckedIOException e) {
+            return "";
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
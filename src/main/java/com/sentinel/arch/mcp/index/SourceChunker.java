@@ -0,0 +1,65 @@
+package com.sentinel.arch.mcp.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source Chunker
+ *
+ * Splits a source file into overlapping line ranges small enough for an embedding model. A chunk
+ * ends at the last blank line or closing brace of its window when there is one, so methods and
+ * configuration blocks are rarely cut in half; otherwise it ends at the window limit.
+ */
+final class SourceChunker {
+
+    /** Line range of one chunk, 1-based and inclusive */
+    record Range(int startLine, int endLine) {
+    }
+
+    private final int maxLines;
+    private final int maxChars;
+    private final int overlapLines;
+
+    SourceChunker(int maxLines, int maxChars, int overlapLines) {
+        this.maxLines = maxLines;
+        this.maxChars = maxChars;
+        this.overlapLines = overlapLines;
+    }
+
+    List<Range> chunk(List<String> lines) {
+        List<Range> ranges = new ArrayList<>();
+        int start = 0;
+        while (start < lines.size()) {
+            // Ventana limitada por líneas y caracteres (al menos una línea por fragmento)
+            int end = start;
+            int chars = 0;
+            while (end < lines.size() && end - start < maxLines
+                    && (end == start || chars + lines.get(end).length() + 1 <= maxChars)) {
+                chars += lines.get(end).length() + 1;
+                end++;
+            }
+            if (end < lines.size()) {
+                end = naturalBoundary(lines, start, end);
+            }
+            ranges.add(new Range(start + 1, end));
+            if (end >= lines.size()) {
+                break;
+            }
+            start = Math.max(end - overlapLines, start + 1);
+        }
+        return ranges;
+    }
+
+    /**
+     * Last blank line or closing brace in the second half of the window, or the window end
+     */
+    private static int naturalBoundary(List<String> lines, int start, int end) {
+        for (int i = end - 1; i > start + (end - start) / 2; i--) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.equals("}") || line.equals("};")) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+}
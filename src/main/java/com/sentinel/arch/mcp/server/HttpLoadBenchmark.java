@@ -0,0 +1,229 @@
+package com.sentinel.arch.mcp.server;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga local del transporte HTTP del servidor MCP ({@link HttpTransport}).
+ *
+ * Abre N sesiones concurrentes (cada una en su hilo virtual, como N IDEs conectados a la misma
+ * instancia): {@code initialize}, {@code notifications/initialized} y después M llamadas
+ * {@code tools/call} a la herramienta de lectura de archivos sobre un archivo temporal, mezcladas con
+ * {@code tools/list}. Mide la latencia de cada llamada y muestra percentiles y rechazos (429/503).
+ * Se ejecuta primero con una sola sesión como referencia.
+ *
+ * Sin URL arranca el servidor en el propio proceso, en un puerto libre.
+ *
+ * Uso: java -cp sentinel-backend-ai-all.jar com.sentinel.arch.mcp.server.HttpLoadBenchmark
+ *      [sesiones] [llamadas por sesión] [payloadKB] [url]
+ */
+public class HttpLoadBenchmark {
+
+    private static final String READ_FILE_TOOL = "Lee el contenido de un archivo Java específico para analizar su arquitectura";
+    private static final int LIST_EVERY = 10;
+    // Capturado antes de cargar SentinelMcpServer, que redirige System.out a STDERR
+    private static final PrintStream out = System.out;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client;
+    private final URI endpoint;
+    private final Path payload;
+
+    private HttpLoadBenchmark(HttpClient client, URI endpoint, Path payload) {
+        this.client = client;
+        this.endpoint = endpoint;
+        this.payload = payload;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int callsPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int payloadKb = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        // El logging de cada llamada distorsionaría la medida
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sentinel.arch")).setLevel(Level.WARN);
+
+        Path payload = Files.createTempFile("sentinel-http-bench", ".md");
+        SentinelMcpServer server = null;
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Files.writeString(payload, "x".repeat(payloadKb * 1024));
+            URI endpoint;
+            if (args.length > 3) {
+                endpoint = URI.create(args[3]);
+            } else {
+                server = new SentinelMcpServer();
+                server.registerToolsFromProjectMcpTools();
+                HttpTransport transport = server.openHttp(new InetSocketAddress("127.0.0.1", 0));
+                endpoint = URI.create("http://127.0.0.1:" + transport.port() + HttpTransport.ENDPOINT);
+            }
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            HttpLoadBenchmark benchmark = new HttpLoadBenchmark(client, endpoint, payload);
+
+            out.printf("endpoint=%s llamadas/sesión=%d payload=%dKB%n", endpoint, callsPerSession, payloadKb);
+            // Calentamiento (JIT, conexiones), sin informe
+            benchmark.run(Math.min(sessions, 8), callsPerSession);
+            report(1, benchmark.run(1, callsPerSession));
+            report(sessions, benchmark.run(sessions, callsPerSession));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+            Files.deleteIfExists(payload);
+        }
+    }
+
+    private Result run(int sessions, int callsPerSession) throws InterruptedException {
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(sessions);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(sessions);
+
+        for (int s = 0; s < sessions; s++) {
+            Thread.ofVirtual().name("bench-session-", s).start(() -> {
+                long[] sessionLatencies = new long[callsPerSession];
+                int count = 0;
+                String sessionId = null;
+                try {
+                    try {
+                        sessionId = initialize();
+                    } finally {
+                        ready.countDown();
+                    }
+                    go.await();
+                    for (int i = 1; i <= callsPerSession; i++) {
+                        long start = System.nanoTime();
+                        int status = post(sessionId, i % LIST_EVERY == 0 ? toolsList(i) : readFile(i));
+                        long elapsed = System.nanoTime() - start;
+                        if (status == 200) {
+                            sessionLatencies[count++] = elapsed;
+                        } else if (status == 429 || status == 503) {
+                            rejected.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    latencies.add(Arrays.copyOf(sessionLatencies, count));
+                    if (sessionId != null) {
+                        close(sessionId);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(elapsed, all, rejected.get(), failed.get());
+    }
+
+    private String initialize() throws IOException, InterruptedException {
+        ObjectNode request = request(0, "initialize");
+        request.putObject("params").put("protocolVersion", "2024-11-05")
+                .putObject("clientInfo").put("name", "http-load-benchmark").put("version", "1.0");
+        HttpResponse<byte[]> response = client.send(builder(null, request).build(), HttpResponse.BodyHandlers.ofByteArray());
+        String sessionId = response.headers().firstValue(HttpTransport.SESSION_HEADER)
+                .orElseThrow(() -> new IOException("initialize sin " + HttpTransport.SESSION_HEADER + ": HTTP " + response.statusCode()));
+        ObjectNode initialized = mapper.createObjectNode();
+        initialized.put("jsonrpc", "2.0");
+        initialized.put("method", "notifications/initialized");
+        post(sessionId, initialized);
+        return sessionId;
+    }
+
+    private int post(String sessionId, ObjectNode request) throws IOException, InterruptedException {
+        return client.send(builder(sessionId, request).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void close(String sessionId) {
+        try {
+            client.send(HttpRequest.newBuilder(endpoint).header(HttpTransport.SESSION_HEADER, sessionId).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            // El servidor ya no está: nada que cerrar
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest.Builder builder(String sessionId, ObjectNode request) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(request)));
+        if (sessionId != null) {
+            builder.header(HttpTransport.SESSION_HEADER, sessionId);
+        }
+        return builder;
+    }
+
+    private ObjectNode readFile(int id) {
+        ObjectNode request = request(id, "tools/call");
+        ObjectNode params = request.putObject("params");
+        params.put("name", READ_FILE_TOOL);
+        params.putObject("arguments").put("path", payload.toString());
+        return request;
+    }
+
+    private ObjectNode toolsList(int id) {
+        return request(id, "tools/list");
+    }
+
+    private ObjectNode request(int id, String method) {
+        ObjectNode request = mapper.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("id", id);
+        request.put("method", method);
+        return request;
+    }
+
+    private static void report(int sessions, Result result) {
+        long[] latencies = result.latencies;
+        double seconds = result.nanos / 1e9;
+        out.printf("sesiones=%-4d %6d ok %5d rechazadas %4d errores %9.0f llamadas/s   p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms  máx %7.2f ms%n",
+                sessions, latencies.length, result.rejected, result.failed, latencies.length / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private record Result(long nanos, long[] latencies, long rejected, long failed) {
+    }
+}
@@ -0,0 +1,416 @@
+package com.sentinel.arch.mcp.server;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Transporte HTTP de MCP ("Streamable HTTP", revisión 2025-03-26 del protocolo) para que una sola
+ * instancia de larga duración, con las cachés ya calientes (reglas compiladas, escaneos, índice de
+ * código), atienda a muchos clientes a la vez en lugar de un proceso STDIO por IDE.
+ *
+ * - Un único endpoint {@value #ENDPOINT}: POST con un mensaje JSON-RPC (individual o lote); DELETE
+ *   cierra la sesión. No se ofrece el flujo SSE de GET (405), el servidor no inicia mensajes.
+ * - {@code initialize} crea una sesión y la devuelve en la cabecera {@value #SESSION_HEADER}, que el
+ *   cliente envía en el resto de peticiones (400 si falta, 404 si no existe o caducó).
+ * - La respuesta es {@code application/json}; si el cliente acepta {@code text/event-stream} y la
+ *   llamada lleva {@code _meta.progressToken}, se responde con SSE: las notificaciones de progreso y
+ *   resultados parciales según se producen y la respuesta al final. Si el cliente cierra ese flujo,
+ *   la herramienta se cancela.
+ *
+ * Cada petición se atiende en su propio hilo virtual. Límites (propiedades {@code sentinel.mcp.http.*}):
+ * - {@code max-sessions} (256): sesiones simultáneas; más allá, {@code initialize} recibe 503.
+ * - {@code session-concurrency} (8): peticiones en curso por sesión; la que lo supera recibe 429.
+ * - {@code max-concurrent-calls} (2 × núcleos, mínimo 4): {@code tools/call} ejecutándose en todo el
+ *   servidor. Las demás esperan turno en orden de llegada hasta {@code queue-timeout} segundos (30) y
+ *   después reciben 503 con {@code Retry-After}: la cola no crece sin límite.
+ * - Cada entrada de un lote cuenta como una petición y cada {@code tools/call} del lote ocupa un
+ *   turno; un lote mayor que {@code session-concurrency} o que {@code max-concurrent-calls} recibe 429.
+ * - {@code session-idle-timeout} (30 min): las sesiones sin peticiones se descartan.
+ *
+ * Por defecto solo escucha en la interfaz local y rechaza cabeceras {@code Origin} que no sean locales
+ * (protección frente a DNS rebinding); {@code allowed-origins} admite otras, separadas por comas.
+ */
+public class HttpTransport implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpTransport.class);
+
+    static final String ENDPOINT = "/mcp";
+    static final String SESSION_HEADER = "Mcp-Session-Id";
+
+    static final String MAX_SESSIONS_PROPERTY = "sentinel.mcp.http.max-sessions";
+    static final String SESSION_CONCURRENCY_PROPERTY = "sentinel.mcp.http.session-concurrency";
+    static final String MAX_CONCURRENT_CALLS_PROPERTY = "sentinel.mcp.http.max-concurrent-calls";
+    static final String QUEUE_TIMEOUT_PROPERTY = "sentinel.mcp.http.queue-timeout";
+    static final String SESSION_IDLE_TIMEOUT_PROPERTY = "sentinel.mcp.http.session-idle-timeout";
+    static final String ALLOWED_ORIGINS_PROPERTY = "sentinel.mcp.http.allowed-origins";
+    // Lo lee el HttpServer del JDK una sola vez, al crear el primer servidor del proceso
+    static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final byte[] SSE_EVENT_PREFIX = "event: message\ndata: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SSE_EVENT_SUFFIX = "\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final Consumer<JsonNode> DISCARD = message -> { };
+
+    static {
+        // Cabeceras y cuerpo salen en escrituras distintas: con Nagle y el ACK retardado del cliente
+        // cada respuesta esperaba ~40 ms
+        System.getProperties().putIfAbsent(NODELAY_PROPERTY, "true");
+    }
+
+    private final SentinelMcpServer server;
+    private final ObjectMapper mapper;
+    private final HttpServer http;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("mcp-http-", 0).factory());
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-http-sessions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, McpSession> sessions = new ConcurrentHashMap<>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final int maxSessions = Integer.getInteger(MAX_SESSIONS_PROPERTY, 256);
+    private final int sessionConcurrency = Integer.getInteger(SESSION_CONCURRENCY_PROPERTY, 8);
+    private final int maxConcurrentCalls = Integer.getInteger(MAX_CONCURRENT_CALLS_PROPERTY,
+            Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+    private final Semaphore toolCalls = new Semaphore(maxConcurrentCalls, true);
+    private final long queueTimeoutSeconds = Long.getLong(QUEUE_TIMEOUT_PROPERTY, 30);
+    private final long sessionIdleTimeoutMinutes = Long.getLong(SESSION_IDLE_TIMEOUT_PROPERTY, 30);
+    private final Set<String> allowedOrigins = parseOrigins(System.getProperty(ALLOWED_ORIGINS_PROPERTY, ""));
+
+    HttpTransport(SentinelMcpServer server, ObjectMapper mapper, InetSocketAddress address) throws IOException {
+        this.server = server;
+        this.mapper = mapper;
+        this.http = HttpServer.create(address, 0);
+        this.http.createContext(ENDPOINT, this::handle);
+        this.http.setExecutor(executor);
+    }
+
+    void start() {
+        http.start();
+        long sweepMinutes = Math.max(1, sessionIdleTimeoutMinutes / 10);
+        sweeper.scheduleWithFixedDelay(this::expireIdleSessions, sweepMinutes, sweepMinutes, TimeUnit.MINUTES);
+        log.info("Transporte HTTP MCP en http://{}:{}{} (sesiones máx. {}, {} por sesión, {} herramientas a la vez)",
+                http.getAddress().getHostString(), port(), ENDPOINT, maxSessions, sessionConcurrency,
+                maxConcurrentCalls);
+    }
+
+    int port() {
+        return http.getAddress().getPort();
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Bloquea hasta que se cierra el transporte
+     */
+    void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    @Override
+    public void close() {
+        http.stop(1);
+        sessions.values().forEach(server::cancelAll);
+        sessions.clear();
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+        closed.countDown();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            if (!ENDPOINT.equals(exchange.getRequestURI().getPath())) {
+                sendEmpty(exchange, 404);
+                return;
+            }
+            if (!originAllowed(exchange.getRequestHeaders().getFirst("Origin"))) {
+                log.warn("Petición HTTP rechazada por su origen: {}", exchange.getRequestHeaders().getFirst("Origin"));
+                sendEmpty(exchange, 403);
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+                case "POST" -> handlePost(exchange);
+                case "DELETE" -> handleDelete(exchange);
+                default -> {
+                    exchange.getResponseHeaders().set("Allow", "POST, DELETE");
+                    sendEmpty(exchange, 405);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Conexión HTTP terminada: {}", e.getMessage());
+        }
+    }
+
+    private void handlePost(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_MESSAGE_SIZE + 1);
+        if (body.length > MAX_MESSAGE_SIZE) {
+            sendEmpty(exchange, 413);
+            return;
+        }
+        RpcMessage message;
+        try (JsonParser parser = mapper.createParser(body)) {
+            message = RpcMessage.parse(parser, mapper);
+        } catch (RpcRequest.InvalidRequestException e) {
+            log.warn("Mensaje RPC inválido: {}", e.getMessage());
+            sendJson(exchange, 400, server.createErrorResponse(e.getId(), e.getCode(), e.getMessage()));
+            return;
+        }
+        RpcRequest first = message.requests().get(0);
+
+        McpSession session;
+        if (!message.batch() && "initialize".equals(first.method())) {
+            session = openSession(exchange, first);
+            if (session == null) {
+                return;
+            }
+        } else {
+            String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (sessionId == null) {
+                sendError(exchange, 400, first.id(), -32600, "Bad Request: missing " + SESSION_HEADER + " header");
+                return;
+            }
+            session = sessions.get(sessionId);
+            if (session == null) {
+                sendError(exchange, 404, first.id(), -32001, "Session not found: " + sessionId);
+                return;
+            }
+        }
+        session.touch();
+
+        // Solo notificaciones (initialized, cancelled): se procesan aquí mismo y no hay respuesta
+        if (message.requests().stream().allMatch(RpcRequest::isNotification)) {
+            for (RpcRequest request : message.requests()) {
+                server.dispatch(session, request, DISCARD);
+            }
+            sendEmpty(exchange, 202);
+            return;
+        }
+
+        // Cada entrada de un lote corre en su propio hilo: cuenta como una petición y, si es
+        // tools/call, ocupa su propio turno de herramienta
+        int requests = message.requests().size();
+        int toolCallCount = (int) message.requests().stream()
+                .filter(request -> "tools/call".equals(request.method())).count();
+        if (requests > sessionConcurrency || toolCallCount > maxConcurrentCalls) {
+            log.warn("Lote rechazado en la sesión {}: {} peticiones, {} herramientas", session, requests, toolCallCount);
+            sendError(exchange, 429, first.id(), -32002, "Batch too large: at most " + sessionConcurrency
+                    + " requests and " + maxConcurrentCalls + " tool calls per batch");
+            return;
+        }
+        if (!session.concurrency().tryAcquire(requests)) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 429, first.id(), -32002,
+                    "Too many concurrent requests in session (max " + sessionConcurrency + ")");
+            return;
+        }
+        try {
+            if (toolCallCount > 0 && !acquireToolSlots(toolCallCount)) {
+                log.warn("Cola de herramientas llena durante {}s: se rechaza una petición de la sesión {}",
+                        queueTimeoutSeconds, session);
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                sendError(exchange, 503, first.id(), -32002, "Server busy, retry later");
+                return;
+            }
+            try {
+                respond(exchange, session, message);
+            } finally {
+                toolCalls.release(toolCallCount);
+            }
+        } finally {
+            session.concurrency().release(requests);
+        }
+    }
+
+    private McpSession openSession(HttpExchange exchange, RpcRequest initialize) throws IOException {
+        McpSession session = new McpSession(UUID.randomUUID().toString(), sessionConcurrency);
+        // Comprobar y registrar a la vez: dos initialize simultáneos no pueden pasar del límite
+        // (las bajas no toman el cerrojo, solo reducen el tamaño)
+        boolean opened;
+        synchronized (sessions) {
+            opened = sessions.size() < maxSessions;
+            if (opened) {
+                sessions.put(session.id(), session);
+            }
+        }
+        if (!opened) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 503, initialize.id(), -32002, "Too many sessions (max " + maxSessions + ")");
+            return null;
+        }
+        exchange.getResponseHeaders().set(SESSION_HEADER, session.id());
+        log.info("Sesión MCP abierta: {} ({} activas)", session.id(), sessions.size());
+        return session;
+    }
+
+    private void handleDelete(HttpExchange exchange) throws IOException {
+        String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        McpSession session = sessionId != null ? sessions.remove(sessionId) : null;
+        if (session == null) {
+            sendEmpty(exchange, 404);
+            return;
+        }
+        server.cancelAll(session);
+        log.info("Sesión MCP cerrada por el cliente: {} ({} activas)", session, sessions.size());
+        sendEmpty(exchange, 204);
+    }
+
+    /**
+     * Ejecuta el mensaje y envía la respuesta como JSON o, si el cliente sigue el progreso, como SSE
+     */
+    private void respond(HttpExchange exchange, McpSession session, RpcMessage message) throws IOException {
+        if (message.batch()) {
+            ArrayNode responses = server.handleBatch(session, message.requests(), DISCARD);
+            if (responses.isEmpty()) {
+                sendEmpty(exchange, 202);
+            } else {
+                sendJson(exchange, 200, responses);
+            }
+            return;
+        }
+
+        RpcRequest request = message.requests().get(0);
+        if (acceptsEventStream(exchange) && hasProgressToken(request)) {
+            EventStream events = new EventStream(exchange);
+            Consumer<JsonNode> notifications = notification -> {
+                if (!events.send(notification)) {
+                    server.cancel(session, request.id(), "(flujo SSE cerrado por el cliente)");
+                }
+            };
+            JsonNode response = server.dispatch(session, request, notifications);
+            if (response != null) {
+                events.send(response);
+            }
+            return;
+        }
+
+        JsonNode response = server.dispatch(session, request, DISCARD);
+        if (response == null) {
+            sendEmpty(exchange, 202);
+        } else {
+            sendJson(exchange, 200, response);
+        }
+    }
+
+    private boolean acquireToolSlots(int permits) {
+        try {
+            return toolCalls.tryAcquire(permits, queueTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void expireIdleSessions() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(sessionIdleTimeoutMinutes);
+        sessions.values().removeIf(session -> {
+            boolean expired = session.idleNanos() >= idleNanos
+                    && session.concurrency().availablePermits() == sessionConcurrency;
+            if (expired) {
+                log.info("Sesión MCP caducada tras {} min sin peticiones: {}", sessionIdleTimeoutMinutes, session);
+            }
+            return expired;
+        });
+    }
+
+    private boolean originAllowed(String origin) {
+        if (origin == null || allowedOrigins.contains(origin)) {
+            return true;
+        }
+        try {
+            String host = URI.create(origin).getHost();
+            return host != null && (host.equals("localhost") || host.equals("127.0.0.1") || host.equals("[::1]"));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static Set<String> parseOrigins(String value) {
+        Set<String> origins = new HashSet<>();
+        for (String origin : value.split(",")) {
+            if (!origin.isBlank()) {
+                origins.add(origin.strip());
+            }
+        }
+        return origins;
+    }
+
+    private static boolean acceptsEventStream(HttpExchange exchange) {
+        List<String> accept = exchange.getRequestHeaders().get("Accept");
+        return accept != null && accept.stream().anyMatch(value -> value.contains("text/event-stream"));
+    }
+
+    private static boolean hasProgressToken(RpcRequest request) {
+        return request.params() != null && request.params().path("_meta").has("progressToken");
+    }
+
+    private void sendError(HttpExchange exchange, int status, JsonNode id, int code, String message) throws IOException {
+        sendJson(exchange, status, server.createErrorResponse(id, code, message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    /**
+     * Respuesta SSE de una llamada: un evento {@code message} por mensaje JSON-RPC
+     */
+    private final class EventStream {
+        private final OutputStream out;
+        private boolean broken;
+
+        EventStream(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            this.out = exchange.getResponseBody();
+        }
+
+        /**
+         * @return {@code false} si el cliente ya cerró el flujo
+         */
+        synchronized boolean send(JsonNode message) {
+            if (broken) {
+                return false;
+            }
+            try {
+                // El mapper no indenta: el JSON cabe en una única línea data:
+                out.write(SSE_EVENT_PREFIX);
+                out.write(mapper.writeValueAsBytes(message));
+                out.write(SSE_EVENT_SUFFIX);
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                broken = true;
+                return false;
+            }
+        }
+    }
+}
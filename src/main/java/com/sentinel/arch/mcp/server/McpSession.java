@@ -0,0 +1,63 @@
+package com.sentinel.arch.mcp.server;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sesión de un cliente MCP.
+ *
+ * Con STDIO hay una única sesión por proceso; con {@link HttpTransport} cada cliente obtiene la suya
+ * en {@code initialize} (cabecera {@code Mcp-Session-Id}). Los ids JSON-RPC solo son únicos dentro de
+ * una sesión, así que las llamadas en curso y sus cancelaciones se indexan por sesión e id.
+ */
+final class McpSession {
+
+    static final McpSession STDIO = new McpSession("stdio", Integer.MAX_VALUE);
+
+    private final String id;
+    // Solicitudes de la sesión atendiéndose a la vez (las que esperan turno cuentan como en curso)
+    private final Semaphore concurrency;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long lastSeen = System.nanoTime();
+    private volatile String clientName;
+
+    McpSession(String id, int maxConcurrentRequests) {
+        this.id = id;
+        this.concurrency = new Semaphore(maxConcurrentRequests);
+    }
+
+    String id() {
+        return id;
+    }
+
+    Semaphore concurrency() {
+        return concurrency;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    void touch() {
+        lastSeen = System.nanoTime();
+    }
+
+    /**
+     * Nanosegundos desde la última solicitud recibida
+     */
+    long idleNanos() {
+        return System.nanoTime() - lastSeen;
+    }
+
+    String clientName() {
+        return clientName;
+    }
+
+    void clientName(String clientName) {
+        this.clientName = clientName;
+    }
+
+    @Override
+    public String toString() {
+        return clientName != null ? id + " (" + clientName + ")" : id;
+    }
+}
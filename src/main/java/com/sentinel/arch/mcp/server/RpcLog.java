@@ -0,0 +1,148 @@
+package com.sentinel.arch.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro estructurado de las peticiones JSON-RPC atendidas.
+ *
+ * Cada petición produce un evento con pares clave-valor ({@code session}, {@code rpc_method},
+ * {@code rpc_id}, {@code tool}, {@code duration_ms}, {@code outcome}) que el {@code JsonEncoder} de Logback escribe
+ * como campos: INFO para {@code tools/call} y DEBUG para el resto del protocolo.
+ *
+ * Los cuerpos (params y respuesta) se registran en DEBUG solo para una de cada
+ * {@value #SAMPLE_RATE_PROPERTY} peticiones (50 por defecto, 0 los desactiva) y recortados a
+ * {@value #MAX_PAYLOAD_PROPERTY} caracteres (2048 por defecto). Se pasan como valores diferidos: el
+ * appender asíncrono los serializa en su propio hilo y la serialización se corta al llegar al
+ * límite, así que un resultado de varios MB no se recorre entero ni retrasa la respuesta.
+ */
+final class RpcLog {
+
+    static final String LOGGER_NAME = "com.sentinel.arch.mcp.rpc";
+    static final String SAMPLE_RATE_PROPERTY = "sentinel.log.rpc-sample-rate";
+    static final String MAX_PAYLOAD_PROPERTY = "sentinel.log.max-payload";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final ObjectMapper mapper;
+    private final int sampleRate;
+    private final int maxPayloadChars;
+    private final AtomicLong sequence = new AtomicLong();
+
+    RpcLog(ObjectMapper mapper) {
+        this(mapper, Integer.getInteger(SAMPLE_RATE_PROPERTY, 50), Integer.getInteger(MAX_PAYLOAD_PROPERTY, 2048));
+    }
+
+    RpcLog(ObjectMapper mapper, int sampleRate, int maxPayloadChars) {
+        this.mapper = mapper;
+        this.sampleRate = sampleRate;
+        this.maxPayloadChars = maxPayloadChars;
+    }
+
+    /**
+     * Registra una petición terminada
+     *
+     * @param response Respuesta enviada, o {@code null} si no la hubo (notificación, llamada cancelada)
+     * @param startNanos {@link System#nanoTime()} al empezar a atenderla
+     */
+    void completed(McpSession session, RpcRequest request, JsonNode response, long startNanos) {
+        boolean toolCall = "tools/call".equals(request.method());
+        if (!(toolCall ? log.isInfoEnabled() : log.isDebugEnabled())) {
+            return;
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        String id = request.id() != null ? request.id().toString() : null;
+        LoggingEventBuilder event = (toolCall ? log.atInfo() : log.atDebug())
+                .addKeyValue("session", session.id())
+                .addKeyValue("rpc_method", request.method())
+                .addKeyValue("rpc_id", id)
+                .addKeyValue("duration_ms", durationMillis)
+                .addKeyValue("outcome", outcome(request, response));
+        if (toolCall && request.params() != null) {
+            event = event.addKeyValue("tool", request.params().path("name").asText());
+        }
+        event.log("{} {} en {} ms", request.method(), id != null ? id : "(notificación)", durationMillis);
+
+        if (sampleRate > 0 && log.isDebugEnabled() && sequence.getAndIncrement() % sampleRate == 0) {
+            log.atDebug()
+                    .addKeyValue("session", session.id())
+                    .addKeyValue("rpc_method", request.method())
+                    .addKeyValue("rpc_id", id)
+                    .addKeyValue("params", truncated(request.params()))
+                    .addKeyValue("response", truncated(response))
+                    .log("Cuerpo RPC (muestra 1/{})", sampleRate);
+        }
+    }
+
+    private static String outcome(RpcRequest request, JsonNode response) {
+        if (response == null) {
+            return request.isNotification() ? "notification" : "dropped";
+        }
+        JsonNode error = response.get("error");
+        return error != null ? "error " + error.path("code").asInt() : "ok";
+    }
+
+    /**
+     * Valor cuyo {@code toString} serializa el nodo hasta el límite de caracteres
+     */
+    Object truncated(JsonNode node) {
+        return new Object() {
+            @Override
+            public String toString() {
+                if (node == null) {
+                    return "null";
+                }
+                BoundedWriter writer = new BoundedWriter(maxPayloadChars);
+                try {
+                    mapper.writeValue(writer, node);
+                } catch (IOException e) {
+                    // Límite alcanzado (o fallo de serialización): se devuelve lo escrito
+                }
+                return writer.text();
+            }
+        };
+    }
+
+    /**
+     * Acumula hasta un número de caracteres y aborta la serialización al superarlo
+     */
+    private static final class BoundedWriter extends Writer {
+        private final StringBuilder text = new StringBuilder();
+        private final int limit;
+        private long total;
+
+        BoundedWriter(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            total += length;
+            int room = limit - text.length();
+            text.append(buffer, offset, Math.min(room, length));
+            if (length > room) {
+                throw new IOException("payload truncated");
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        String text() {
+            return total > limit ? text + "... (truncado)" : text.toString();
+        }
+    }
+}
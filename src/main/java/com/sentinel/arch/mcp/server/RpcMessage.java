@@ -0,0 +1,64 @@
+package com.sentinel.arch.mcp.server;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mensaje JSON-RPC 2.0 recibido por el transporte: una solicitud individual o un lote (batch).
+ *
+ * Los elementos de un lote que no son objetos se representan como una solicitud vacía, que el
+ * servidor rechaza con -32600 (Invalid Request) igual que cualquier otra solicitud mal formada.
+ *
+ * @param requests Solicitudes en el orden recibido
+ * @param batch {@code true} si el mensaje era un array; su respuesta también debe serlo
+ */
+public record RpcMessage(List<RpcRequest> requests, boolean batch) {
+
+    public static RpcMessage single(RpcRequest request) {
+        return new RpcMessage(List.of(request), false);
+    }
+
+    /**
+     * Lee un mensaje completo desde un parser posicionado antes de su primer token.
+     *
+     * @throws RpcRequest.InvalidRequestException si no es JSON válido (-32700), no es objeto ni array,
+     *         o es un lote vacío (-32600)
+     */
+    public static RpcMessage parse(JsonParser parser, ObjectMapper mapper) throws RpcRequest.InvalidRequestException {
+        try {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                return single(RpcRequest.parseObject(parser, mapper));
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new RpcRequest.InvalidRequestException(-32600, "Invalid Request: expected a JSON object or array", null);
+            }
+
+            List<RpcRequest> requests = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_OBJECT) {
+                    requests.add(RpcRequest.parseObject(parser, mapper));
+                } else {
+                    parser.skipChildren();
+                    requests.add(new RpcRequest(null, null, null, null));
+                }
+            }
+            if (requests.isEmpty()) {
+                throw new RpcRequest.InvalidRequestException(-32600, "Invalid Request: empty batch", null);
+            }
+            return new RpcMessage(requests, true);
+        } catch (RpcRequest.InvalidRequestException e) {
+            throw e;
+        } catch (IOException e) {
+            String detail = e instanceof JsonProcessingException jpe ? jpe.getOriginalMessage() : e.getMessage();
+            throw new RpcRequest.InvalidRequestException(-32700, "Parse error: " + detail, null);
+        }
+    }
+}
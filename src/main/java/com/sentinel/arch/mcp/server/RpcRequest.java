@@ -0,0 +1,95 @@
+package com.sentinel.arch.mcp.server;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Solicitud JSON-RPC 2.0 tipada.
+ *
+ * Se construye con el parser de streaming de Jackson directamente sobre los bytes del mensaje
+ * (ver {@link RpcMessage}):
+ * solo {@code id} y {@code params} se materializan como árbol (son de forma libre), el resto de
+ * campos se leen como valores escalares y los campos desconocidos se saltan sin construir nodos.
+ *
+ * @param jsonrpc Versión del protocolo declarada por el cliente (debe ser "2.0")
+ * @param id Identificador de la solicitud; {@code null} si el campo no está presente (notificación)
+ * @param method Método invocado
+ * @param params Parámetros; {@code null} si no se enviaron
+ */
+public record RpcRequest(String jsonrpc, JsonNode id, String method, JsonNode params) {
+
+    /**
+     * Lee una solicitud desde un parser posicionado sobre el {@code START_OBJECT} que la abre.
+     * Al terminar, el parser queda sobre el {@code END_OBJECT} correspondiente.
+     *
+     * @throws IOException si el contenido no es JSON válido
+     */
+    static RpcRequest parseObject(JsonParser parser, ObjectMapper mapper) throws IOException {
+        String jsonrpc = null;
+        JsonNode id = null;
+        String method = null;
+        JsonNode params = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "jsonrpc" -> jsonrpc = value.isScalarValue() ? parser.getValueAsString() : skip(parser);
+                case "id" -> id = mapper.readTree(parser);
+                case "method" -> method = value.isScalarValue() ? parser.getValueAsString() : skip(parser);
+                case "params" -> params = mapper.readTree(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new RpcRequest(jsonrpc, id, method, params);
+    }
+
+    /**
+     * Adapta una solicitud ya parseada como árbol
+     */
+    public static RpcRequest fromTree(JsonNode node) {
+        return new RpcRequest(
+                node.hasNonNull("jsonrpc") ? node.get("jsonrpc").asText() : null,
+                node.get("id"),
+                node.hasNonNull("method") ? node.get("method").asText() : null,
+                node.get("params"));
+    }
+
+    /**
+     * Una notificación es una solicitud válida sin {@code id}: no debe recibir respuesta,
+     * ni siquiera de error
+     */
+    public boolean isNotification() {
+        return id == null && "2.0".equals(jsonrpc) && method != null;
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Mensaje que no puede interpretarse como solicitud JSON-RPC
+     */
+    public static class InvalidRequestException extends Exception {
+        private final int code;
+        private final JsonNode id;
+
+        public InvalidRequestException(int code, String message, JsonNode id) {
+            super(message);
+            this.code = code;
+            this.id = id;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public JsonNode getId() {
+            return id;
+        }
+    }
+}
@@ -2,16 +2,22 @@ package com.sentinel.arch.mcp.server;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sentinel.arch.mcp.Lazy;
 import com.sentinel.arch.mcp.ProjectMcpTools;
+import com.sentinel.arch.mcp.ToolProgress;
+import com.sentinel.arch.mcp.cache.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.net.InetSocketAddress;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * SentinelMcpServer
@@ -21,9 +27,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * WF-04-MCP-PROTOCOL-SECURITY para seguridad y manejo de errores JSON-RPC.
  *
  * Características:
- * - Servidor basado en STDIO (entrada/salida estándar)
+ * - Servidor basado en STDIO (entrada/salida estándar) o, con --http, en HTTP multicliente ({@link HttpTransport})
  * - Registro dinámico de herramientas desde ProjectMcpTools
- * - Logging via SLF4J/Logback (consola estándar protegida para protocolo MCP)
+ * - Logging via SLF4J/Logback a archivo JSON asíncrono (STDOUT queda reservado al protocolo MCP)
  * - Manejo de errores JSON-RPC con códigos estándar
  * - Validación de seguridad según WF-04
  *
@@ -35,15 +41,55 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SentinelMcpServer {
 
+    private static final String LOGBACK_CONFIGURATION_PROPERTY = "logback.configurationFile";
+
+    static {
+        // STDOUT es el canal del protocolo (el transporte escribe en FileDescriptor.out): cualquier
+        // println suelto, incluidos los mensajes de estado de Logback, va a STDERR. Las trazas van al
+        // archivo JSON asíncrono de logback-mcp.xml salvo que se indique otra configuración
+        System.setOut(System.err);
+        if (System.getProperty(LOGBACK_CONFIGURATION_PROPERTY) == null) {
+            System.setProperty(LOGBACK_CONFIGURATION_PROPERTY, "logback-mcp.xml");
+        }
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(SentinelMcpServer.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    private ProjectMcpTools projectTools;
+    private final RpcLog rpcLog = new RpcLog(objectMapper);
+
+    // Se instancia en el primer tools/call: initialize y tools/list solo necesitan metadatos de reflexión
+    private final Lazy<ProjectMcpTools> projectTools = Lazy.of(() -> new ProjectMcpTools());
     private Map<String, ToolDefinition> toolRegistry;
-    private BufferedReader reader;
-    private PrintWriter writer;
+    private StdioTransport transport;
+    private volatile HttpTransport httpTransport;
     private volatile boolean running = true;
 
+    // Ejecuta tools/call y lotes fuera del hilo lector, para poder seguir recibiendo cancelaciones
+    // (uno por sesión de serve(), ya que al cerrar la entrada se espera a que termine)
+    private volatile ExecutorService workerExecutor;
+
+    // Vence los plazos de las herramientas interrumpiendo su hilo
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Llamadas a herramientas en curso, por sesión e id JSON-RPC (destino de notifications/cancelled)
+    private final Map<CallKey, InFlightCall> inFlightCalls = new ConcurrentHashMap<>();
+
+    // Plazo por defecto de una herramienta; configurable con -Dsentinel.mcp.tool-timeout=<segundos>
+    // y por herramienta con -Dsentinel.mcp.tool-timeout.<método>=<segundos>
+    private static final long DEFAULT_TOOL_TIMEOUT_SECONDS = 300;
+    private static final String TOOL_TIMEOUT_PROPERTY = "sentinel.mcp.tool-timeout";
+
+    // Espera máxima a las llamadas en curso cuando se cierra la entrada
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    private static final long DRAIN_GRACE_SECONDS = 5;
+
+    private static final int DEFAULT_HTTP_PORT = 7337;
+
     /**
      * Define una herramienta MCP con su metadata y handler
      */
@@ -65,9 +111,8 @@ public class SentinelMcpServer {
      * Constructor del servidor MCP
      */
     public SentinelMcpServer() {
-        this.projectTools = new ProjectMcpTools();
         this.toolRegistry = new ConcurrentHashMap<>();
-        logger.info("SentinelMcpServer inicializado con ProjectMcpTools");
+        logger.info("SentinelMcpServer inicializado (ProjectMcpTools se carga bajo demanda)");
     }
 
     /**
@@ -84,104 +129,429 @@ public class SentinelMcpServer {
         // Registrar herramientas desde ProjectMcpTools
         registerToolsFromProjectMcpTools();
 
-        // Configurar STDIO
-        this.reader = new BufferedReader(new InputStreamReader(System.in));
-        this.writer = new PrintWriter(System.out, true);  // true = auto-flush
-
         logger.info("Servidor MCP configurado. Iniciando escucha en STDIO...");
         logger.info("Herramientas registradas: {}", toolRegistry.keySet());
 
-        // Iniciar servidor en modo bloqueante (escucha STDIO hasta shutdown)
-        startListeningLoop();
+        // Iniciar servidor en modo bloqueante (escucha STDIO hasta shutdown).
+        // Se usan los descriptores directamente: sin charset de plataforma ni PrintStream sincronizado.
+        serve(new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out));
 
         logger.info("Servidor MCP finalizado");
     }
 
+    /**
+     * Inicializa el servidor MCP sobre HTTP ({@link HttpTransport}) y atiende a los clientes
+     * hasta {@link #stop()}
+     *
+     * @param address Interfaz y puerto de escucha
+     */
+    public void startHttp(InetSocketAddress address) throws Exception {
+        logger.info("Iniciando SentinelMcpServer (HTTP)");
+        registerToolsFromProjectMcpTools();
+        logger.info("Herramientas registradas: {}", toolRegistry.keySet());
+
+        openHttp(address).awaitClose();
+
+        logger.info("Servidor MCP finalizado");
+    }
+
+    /**
+     * Abre el transporte HTTP sin bloquear. Las herramientas deben estar registradas.
+     */
+    HttpTransport openHttp(InetSocketAddress address) throws IOException {
+        HttpTransport transport = new HttpTransport(this, objectMapper, address);
+        transport.start();
+        this.httpTransport = transport;
+        return transport;
+    }
+
+    /**
+     * Atiende mensajes JSON-RPC desde {@code in} y escribe las respuestas en {@code out}
+     * hasta fin de entrada o {@link #stop()}. Las herramientas deben estar registradas.
+     */
+    void serve(InputStream in, OutputStream out) {
+        this.transport = new StdioTransport(in, out, objectMapper);
+        this.workerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mcp-worker-", 0).factory());
+        this.running = true;
+        startListeningLoop();
+    }
+
     /**
      * Loop principal de escucha en STDIO
-     * Lee mensajes JSON-RPC línea por línea y responde
+     * Lee mensajes JSON-RPC (uno por línea, individuales o en lote) y responde; las respuestas
+     * se vacían en bloque cuando no quedan mensajes pendientes o antes de ejecutar herramientas
      */
     private void startListeningLoop() {
         try {
-            String line;
-            while (running && (line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
+            while (running) {
+                RpcMessage message;
+                try {
+                    message = transport.readMessage();
+                } catch (RpcRequest.InvalidRequestException e) {
+                    logger.warn("Mensaje RPC inválido: {}", e.getMessage());
+                    transport.send(createErrorResponse(e.getId(), e.getCode(), e.getMessage()));
+                    transport.flushIfIdle();
                     continue;
                 }
+                if (message == null) {
+                    break;
+                }
 
-                try {
-                    // Parsear mensaje JSON-RPC
-                    JsonNode request = objectMapper.readTree(line);
-                    logger.debug("Mensaje RPC recibido: {}", request);
-
-                    // Procesar solicitud
-                    JsonNode response = handleRpcRequest(request);
-
-                    // Enviar respuesta
-                    String responseText = objectMapper.writeValueAsString(response);
-                    writer.println(responseText);
-                    logger.debug("Respuesta RPC enviada: {}", response);
-
-                } catch (Exception e) {
-                    logger.error("Error procesando mensaje RPC: {}", line, e);
-                    // Enviar error JSON-RPC
-                    JsonNode errorResponse = createErrorResponse(null, -32603, "Internal error: " + e.getMessage());
-                    writer.println(objectMapper.writeValueAsString(errorResponse));
+                if (message.batch()) {
+                    // Un lote compuesto solo por notificaciones no recibe respuesta
+                    workerExecutor.execute(() -> {
+                        ArrayNode responses = handleBatch(McpSession.STDIO, message.requests(), this::sendAsync);
+                        if (!responses.isEmpty()) {
+                            sendAsync(responses);
+                        }
+                    });
+                } else if ("tools/call".equals(message.requests().get(0).method())) {
+                    // Las herramientas pueden tardar: se ejecutan aparte y responden al terminar
+                    RpcRequest request = message.requests().get(0);
+                    workerExecutor.execute(() -> {
+                        JsonNode response = dispatch(McpSession.STDIO, request, this::sendAsync);
+                        if (response != null) {
+                            sendAsync(response);
+                        }
+                    });
+                } else {
+                    JsonNode response = dispatch(McpSession.STDIO, message.requests().get(0), this::sendAsync);
+                    if (response != null) {
+                        transport.send(response);
+                    }
                 }
+                transport.flushIfIdle();
             }
+            awaitInFlightWork();
+            transport.flush();
         } catch (IOException e) {
-            logger.error("Error leyendo desde STDIO", e);
+            logger.error("Error en el transporte STDIO", e);
         } finally {
             running = false;
         }
     }
 
+    /**
+     * Envía una respuesta producida por un hilo de trabajo y la vacía de inmediato
+     */
+    private void sendAsync(JsonNode response) {
+        try {
+            transport.send(response);
+            transport.flush();
+        } catch (IOException e) {
+            logger.error("Error enviando respuesta RPC", e);
+        }
+    }
+
+    /**
+     * Al cerrarse la entrada, deja terminar (con un límite) las llamadas que siguen en curso
+     */
+    private void awaitInFlightWork() {
+        workerExecutor.shutdown();
+        try {
+            if (!workerExecutor.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Llamadas aún en curso tras {}s; se interrumpen", DRAIN_TIMEOUT_SECONDS);
+                workerExecutor.shutdownNow();
+                // Margen para que las herramientas interrumpidas envíen su resultado parcial
+                workerExecutor.awaitTermination(DRAIN_GRACE_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Procesa una solicitud y devuelve su respuesta, o {@code null} si es una notificación
+     * o una llamada cancelada por el cliente
+     *
+     * @param notifications Destino de las notificaciones que emita la llamada (progreso, resultados parciales)
+     */
+    JsonNode dispatch(McpSession session, RpcRequest request, Consumer<JsonNode> notifications) {
+        long startNanos = System.nanoTime();
+        JsonNode response;
+        try {
+            response = handleRpcRequest(session, request, notifications);
+        } catch (Exception e) {
+            logger.error("Error procesando mensaje RPC: method={} id={}", request.method(), request.id(), e);
+            response = createErrorResponse(request.id(), -32603, "Internal error: " + e.getMessage());
+        }
+        if (request.isNotification()) {
+            response = null;
+        }
+        rpcLog.completed(session, request, response, startNanos);
+        return response;
+    }
+
+    /**
+     * Ejecuta las solicitudes de un lote en paralelo y reúne sus respuestas en un único array
+     * (en el orden del lote; las notificaciones no aportan respuesta)
+     */
+    ArrayNode handleBatch(McpSession session, List<RpcRequest> requests, Consumer<JsonNode> notifications) {
+        List<Future<JsonNode>> futures = new ArrayList<>(requests.size());
+        // Ejecutor propio del lote: el de la sesión puede estar ya cerrado a nuevas tareas tras el EOF
+        try (ExecutorService batchExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("mcp-batch-", 0).factory())) {
+            for (RpcRequest request : requests) {
+                futures.add(batchExecutor.submit(() -> dispatch(session, request, notifications)));
+            }
+        }
+
+        ArrayNode responses = objectMapper.createArrayNode();
+        for (int i = 0; i < futures.size(); i++) {
+            RpcRequest request = requests.get(i);
+            JsonNode response;
+            try {
+                response = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response = createErrorResponse(request.id(), -32603, "Internal error: interrupted");
+            } catch (ExecutionException e) {
+                response = createErrorResponse(request.id(), -32603, "Internal error: " + e.getCause().getMessage());
+            }
+            if (response != null) {
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
     /**
      * Maneja una solicitud JSON-RPC 2.0
-     * Soporta: initialize, tools/list, tools/call, shutdown
+     * Soporta: initialize, tools/list, tools/call, shutdown, ping y notificaciones
+     * (notifications/initialized, notifications/cancelled); para notificaciones devuelve {@code null}
      */
-    private JsonNode handleRpcRequest(JsonNode request) {
+    JsonNode handleRpcRequest(RpcRequest request) {
+        return handleRpcRequest(McpSession.STDIO, request, this::sendAsync);
+    }
+
+    private JsonNode handleRpcRequest(McpSession session, RpcRequest request, Consumer<JsonNode> notifications) {
         try {
             // Validar estructura JSON-RPC básica
-            if (!request.has("jsonrpc") || !request.get("jsonrpc").asText().equals("2.0")) {
+            if (!"2.0".equals(request.jsonrpc())) {
                 return createErrorResponse(null, -32600, "Invalid Request: missing jsonrpc");
             }
 
-            if (!request.has("method")) {
-                return createErrorResponse(request.get("id"), -32600, "Invalid Request: missing method");
+            if (request.method() == null) {
+                return createErrorResponse(request.id(), -32600, "Invalid Request: missing method");
             }
 
-            String method = request.get("method").asText();
-            JsonNode id = request.get("id");
+            String method = request.method();
+            JsonNode id = request.id();
 
             // Enrutar según método
             switch (method) {
                 case "initialize":
-                    return handleInitialize(id);
+                    return handleInitialize(session, id, request.params());
 
                 case "tools/list":
                     return handleToolsList(id);
 
                 case "tools/call":
-                    return handleToolCall(id, request);
+                    return handleToolCall(session, id, request.params(), notifications);
 
                 case "shutdown":
                     return handleShutdown(id);
 
+                case "ping":
+                    return createSuccessResponse(id, objectMapper.createObjectNode());
+
+                case "notifications/initialized":
+                    logger.info("Cliente MCP inicializado: sesión {}", session);
+                    return null;
+
+                case "notifications/cancelled":
+                    handleCancelled(session, request.params());
+                    return null;
+
                 default:
+                    if (method.startsWith("notifications/")) {
+                        logger.debug("Notificación ignorada: {}", method);
+                        return null;
+                    }
                     return createErrorResponse(id, -32601, "Method not found: " + method);
             }
 
         } catch (Exception e) {
             logger.error("Error manejando solicitud RPC", e);
-            return createErrorResponse(request.get("id"), -32603, "Internal error");
+            return createErrorResponse(request.id(), -32603, "Internal error");
+        }
+    }
+
+    /**
+     * Maneja notifications/cancelled: el cliente ya no espera la respuesta de una solicitud.
+     * Si es una herramienta en curso se interrumpe su hilo y su respuesta se descarta.
+     */
+    private void handleCancelled(McpSession session, JsonNode params) {
+        JsonNode requestId = params != null ? params.get("requestId") : null;
+        String reason = params != null && params.hasNonNull("reason") ? params.get("reason").asText() : "";
+        cancel(session, requestId, reason);
+    }
+
+    /**
+     * Interrumpe una llamada en curso de la sesión y descarta su respuesta
+     */
+    void cancel(McpSession session, JsonNode requestId, String reason) {
+        InFlightCall call = requestId != null ? inFlightCalls.get(new CallKey(session, requestId)) : null;
+        if (call == null) {
+            logger.debug("Cancelación de una solicitud no activa: {}", requestId);
+            return;
+        }
+        logger.info("Cancelando la solicitud {} ({}) {}", requestId, call.toolName, reason);
+        call.cancel();
+    }
+
+    /**
+     * Cancela todas las llamadas en curso de una sesión (cerrada o caducada)
+     */
+    void cancelAll(McpSession session) {
+        inFlightCalls.forEach((key, call) -> {
+            if (key.session() == session) {
+                call.cancel();
+            }
+        });
+    }
+
+    private record CallKey(McpSession session, JsonNode id) {
+    }
+
+    /**
+     * Llamada a herramienta en curso: hilo que la ejecuta y motivo de interrupción, si lo hay
+     */
+    private static class InFlightCall {
+        final String toolName;
+        final Thread thread;
+        final Consumer<JsonNode> notifications;
+        volatile boolean cancelled;
+        volatile boolean timedOut;
+        ScheduledFuture<?> deadline;
+
+        InFlightCall(String toolName, Thread thread, Consumer<JsonNode> notifications) {
+            this.toolName = toolName;
+            this.thread = thread;
+            this.notifications = notifications;
+        }
+
+        void cancel() {
+            cancelled = true;
+            thread.interrupt();
+        }
+
+        void expire() {
+            timedOut = true;
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Registra la llamada en curso y programa su plazo
+     */
+    private InFlightCall beginCall(McpSession session, JsonNode id, ToolDefinition toolDef,
+                                   Consumer<JsonNode> notifications) {
+        InFlightCall call = new InFlightCall(toolDef.name, Thread.currentThread(), notifications);
+        if (id != null && !id.isNull()) {
+            inFlightCalls.put(new CallKey(session, id), call);
+        }
+        long timeoutSeconds = toolTimeoutSeconds(toolDef);
+        if (timeoutSeconds > 0) {
+            call.deadline = deadlineScheduler.schedule(call::expire, timeoutSeconds, TimeUnit.SECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Desregistra la llamada, cancela su plazo y limpia la interrupción del hilo
+     */
+    private void endCall(McpSession session, JsonNode id, InFlightCall call) {
+        if (call.deadline != null) {
+            call.deadline.cancel(false);
+        }
+        if (id != null && !id.isNull()) {
+            inFlightCalls.remove(new CallKey(session, id), call);
+        }
+        Thread.interrupted();
+    }
+
+    /**
+     * Si el cliente envió {@code _meta.progressToken}, enlaza al hilo de la llamada un canal que
+     * emite {@code notifications/progress}; con {@code _meta.streamPartialResults} además se envían
+     * los resultados parciales como {@code notifications/sentinel/partialResult} según se encuentran.
+     */
+    private ToolProgress.Scope bindProgress(JsonNode meta, InFlightCall call) {
+        JsonNode progressToken = meta != null ? meta.get("progressToken") : null;
+        if (progressToken == null || !(progressToken.isTextual() || progressToken.isIntegralNumber())) {
+            return () -> { };
+        }
+        boolean streaming = meta.path("streamPartialResults").asBoolean(false);
+
+        return ToolProgress.bind(new ToolProgress.Listener() {
+            @Override
+            public void progress(long done, Long total, String message) {
+                ObjectNode params = objectMapper.createObjectNode();
+                params.set("progressToken", progressToken);
+                params.put("progress", done);
+                if (total != null) {
+                    params.put("total", total);
+                }
+                if (message != null) {
+                    params.put("message", message);
+                }
+                sendNotification(call, "notifications/progress", params);
+            }
+
+            @Override
+            public void partialResult(String chunkJson) {
+                ObjectNode params = objectMapper.createObjectNode();
+                params.set("progressToken", progressToken);
+                ObjectNode content = params.putArray("content").addObject();
+                content.put("type", "text");
+                content.put("text", chunkJson);
+                sendNotification(call, "notifications/sentinel/partialResult", params);
+            }
+        }, streaming);
+    }
+
+    /**
+     * Envía una notificación asociada a una llamada en curso (nada, si ya fue cancelada)
+     */
+    private void sendNotification(InFlightCall call, String method, ObjectNode params) {
+        if (call.cancelled) {
+            return;
+        }
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        notification.set("params", params);
+        call.notifications.accept(notification);
+    }
+
+    /**
+     * Plazo configurado para una herramienta, en segundos (0 = sin plazo)
+     */
+    private long toolTimeoutSeconds(ToolDefinition toolDef) {
+        String value = System.getProperty(TOOL_TIMEOUT_PROPERTY + "." + toolDef.method.getName(),
+                System.getProperty(TOOL_TIMEOUT_PROPERTY));
+        if (value == null) {
+            return DEFAULT_TOOL_TIMEOUT_SECONDS;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Plazo de herramienta inválido '{}' para {}; se usa {}s", value, toolDef.method.getName(),
+                    DEFAULT_TOOL_TIMEOUT_SECONDS);
+            return DEFAULT_TOOL_TIMEOUT_SECONDS;
         }
     }
 
     /**
      * Maneja initialize: inicializa la sesión MCP
      */
-    private JsonNode handleInitialize(JsonNode id) {
+    private JsonNode handleInitialize(McpSession session, JsonNode id, JsonNode params) {
+        JsonNode clientName = params != null ? params.path("clientInfo").get("name") : null;
+        if (clientName != null && clientName.isTextual()) {
+            session.clientName(clientName.asText());
+        }
+
         ObjectNode result = objectMapper.createObjectNode();
         
         // Protocol version is required by MCP specification
@@ -254,13 +624,13 @@ public class SentinelMcpServer {
     /**
      * Maneja tools/call: invoca una herramienta con los parámetros dados
      */
-    private JsonNode handleToolCall(JsonNode id, JsonNode request) {
+    private JsonNode handleToolCall(McpSession session, JsonNode id, JsonNode params,
+                                    Consumer<JsonNode> notifications) {
         try {
-            if (!request.has("params")) {
+            if (params == null || !params.isObject()) {
                 return createErrorResponse(id, -32602, "Invalid params: missing params object");
             }
 
-            JsonNode params = request.get("params");
             if (!params.has("name")) {
                 return createErrorResponse(id, -32602, "Invalid params: missing tool name");
             }
@@ -275,8 +645,31 @@ public class SentinelMcpServer {
             // Validar seguridad antes de ejecutar
             validateToolCall(toolName, arguments);
 
-            // Ejecutar herramienta
-            Object result = invokeToolMethod(toolName, arguments);
+            // Ejecutar herramienta (interrumpible por cancelación o por plazo vencido)
+            ToolDefinition toolDef = toolRegistry.get(toolName);
+            InFlightCall call = beginCall(session, id, toolDef, notifications);
+            Object result;
+            try (ToolProgress.Scope ignored = bindProgress(params.get("_meta"), call)) {
+                result = invokeToolMethod(toolName, arguments);
+            } catch (Exception e) {
+                if (call.cancelled) {
+                    logger.info("Herramienta {} cancelada por el cliente", toolName);
+                    return null;
+                }
+                if (call.timedOut) {
+                    logger.warn("Herramienta {} superó su plazo", toolName);
+                    return createErrorResponse(id, -32001, "Tool timed out: " + toolName);
+                }
+                throw e;
+            } finally {
+                endCall(session, id, call);
+            }
+
+            // Una llamada cancelada no recibe respuesta
+            if (call.cancelled) {
+                logger.info("Herramienta {} cancelada por el cliente; resultado descartado", toolName);
+                return null;
+            }
 
             // Retornar resultado
             ObjectNode content = objectMapper.createObjectNode();
@@ -285,6 +678,11 @@ public class SentinelMcpServer {
 
             ObjectNode toolResult = objectMapper.createObjectNode();
             toolResult.putArray("content").add(content);
+            if (call.timedOut) {
+                // La herramienta se detuvo al vencer el plazo y devolvió lo obtenido hasta entonces
+                logger.warn("Herramienta {} superó su plazo; se devuelve un resultado parcial", toolName);
+                toolResult.put("truncated", true);
+            }
 
             return createSuccessResponse(id, toolResult);
 
@@ -307,7 +705,7 @@ public class SentinelMcpServer {
      * Implementa descubrimiento automático de herramientas siguiendo WF-01-PROJECT-DISCOVERY
      * para exponer capabilities del servidor MCP.
      */
-    private void registerToolsFromProjectMcpTools() {
+    void registerToolsFromProjectMcpTools() {
         logger.debug("Registrando herramientas desde ProjectMcpTools");
 
         Method[] methods = ProjectMcpTools.class.getDeclaredMethods();
@@ -376,9 +774,20 @@ public class SentinelMcpServer {
             }
         }
 
-        // Invocar método
+        // Invocar método. Las llamadas idénticas en curso (misma herramienta y argumentos, de cualquier
+        // sesión) comparten una ejecución; las que piden resultados parciales en streaming no, porque
+        // los fragmentos solo llegan a quien ejecuta
+        ProjectMcpTools tools = projectTools.get();
+        if (ToolProgress.current().isStreaming()) {
+            return invoke(toolName, toolDef, tools, args);
+        }
+        return tools.flights().run(new SingleFlight.Key(toolName, Arrays.asList(args)),
+                () -> invoke(toolName, toolDef, tools, args));
+    }
+
+    private static Object invoke(String toolName, ToolDefinition toolDef, ProjectMcpTools tools, Object[] args) throws Exception {
         try {
-            return toolDef.method.invoke(projectTools, args);
+            return toolDef.method.invoke(tools, args);
         } catch (Exception e) {
             throw new Exception("Error invoking tool " + toolName + ": " + e.getMessage(), e);
         }
@@ -458,7 +867,7 @@ public class SentinelMcpServer {
      * - -32603: Internal error
      * - -32000 a -32099: Server error
      */
-    private JsonNode createErrorResponse(JsonNode id, int code, String message) {
+    JsonNode createErrorResponse(JsonNode id, int code, String message) {
         ObjectNode response = objectMapper.createObjectNode();
         response.put("jsonrpc", "2.0");
 
@@ -478,28 +887,35 @@ public class SentinelMcpServer {
     public void stop() {
         logger.info("Deteniendo SentinelMcpServer");
         running = false;
+        inFlightCalls.values().forEach(InFlightCall::cancel);
+        if (workerExecutor != null) {
+            workerExecutor.shutdownNow();
+        }
+        deadlineScheduler.shutdownNow();
 
-        if (reader != null) {
+        if (httpTransport != null) {
+            httpTransport.close();
+        }
+        if (transport != null) {
             try {
-                reader.close();
+                transport.close();
             } catch (IOException e) {
-                logger.warn("Error cerrando reader", e);
+                logger.warn("Error cerrando transporte STDIO", e);
             }
         }
-
-        if (writer != null) {
-            writer.close();
-        }
     }
 
     /**
      * Punto de entrada del servidor MCP
      *
      * Uso: java -cp sentinel-backend-ai-1.0.0-SNAPSHOT.jar com.sentinel.arch.mcp.server.SentinelMcpServer
+     *      [--http [puerto]] [--bind host]
      *
-     * El servidor escucha en STDIO y expone herramientas a clientes MCP (Cursor, IntelliJ, etc.)
+     * El servidor escucha en STDIO y expone herramientas a clientes MCP (Cursor, IntelliJ, etc.);
+     * con {@code --http} escucha en HTTP ({@value #DEFAULT_HTTP_PORT} por defecto, solo interfaz local
+     * salvo {@code --bind}) y una misma instancia atiende a varios clientes.
      *
-     * @param args Argumentos de línea de comandos (no utilizados por ahora)
+     * @param args Argumentos de línea de comandos
      */
     public static void main(String[] args) {
         logger.info("╔════════════════════════════════════════════════╗");
@@ -507,6 +923,17 @@ public class SentinelMcpServer {
         logger.info("║        Análisis de Arquitectura Java            ║");
         logger.info("╚════════════════════════════════════════════════╝");
 
+        Integer httpPort = null;
+        String bindHost = "127.0.0.1";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--http" -> httpPort = i + 1 < args.length && args[i + 1].matches("\\d+")
+                        ? Integer.parseInt(args[++i]) : DEFAULT_HTTP_PORT;
+                case "--bind" -> bindHost = i + 1 < args.length ? args[++i] : bindHost;
+                default -> logger.warn("Argumento desconocido ignorado: {}", args[i]);
+            }
+        }
+
         SentinelMcpServer server = new SentinelMcpServer();
 
         // Registrar shutdown hook para cierre controlado
@@ -516,7 +943,11 @@ public class SentinelMcpServer {
         }));
 
         try {
-            server.start();
+            if (httpPort != null) {
+                server.startHttp(new InetSocketAddress(bindHost, httpPort));
+            } else {
+                server.start();
+            }
         } catch (Exception e) {
             logger.error("Error fatal en SentinelMcpServer", e);
             System.exit(1);
@@ -0,0 +1,987 @@
+package com.sentinel.arch.mcp.server;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sentinel.arch.ollama.OllamaConfig;
+import com.sentinel.arch.ollama.OllamaStub;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.slf4j.LoggerFactory;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Prueba de carga sostenida (soak) del servidor MCP de extremo a extremo.
+ *
+ * Arranca en el propio proceso un stub de Ollama ({@link OllamaStub}, con retardo fijo y por token)
+ * y un servidor con los dos transportes a la vez: STDIO sobre un par de pipes (una conexión
+ * compartida por todos sus clientes, con las respuestas emparejadas por id, como un IDE) y HTTP
+ * (una sesión por cliente). Genera proyectos sintéticos multi-módulo (controladores, clientes Feign,
+ * listeners, RestTemplate y configuración Spring) y los ataca durante el tiempo indicado; cada
+ * cliente elige la siguiente operación según una mezcla ponderada:
+ * - {@code list}: {@code tools/list}
+ * - {@code structure}: listado de un directorio del proyecto
+ * - {@code read}: lectura de un archivo Java
+ * - {@code discover}: descubrimiento de interconexiones de un proyecto
+ * - {@code search}: búsqueda semántica (embeddings contra el stub)
+ *
+ * Con {@code churn} modifica un archivo cada cierto tiempo, lo que invalida la caché de resultados
+ * y fuerza la reindexación incremental, como un desarrollador editando.
+ *
+ * Cada intervalo imprime throughput, percentiles, errores y rechazos, heap tras el último GC, heap
+ * en uso, descriptores de archivo abiertos, hilos de plataforma y RSS (opcionalmente también en CSV).
+ * Al final muestra los percentiles por transporte y operación y la deriva entre el primer y el
+ * último intervalo: un heap tras GC o unos descriptores que crecen sin parar delatan una fuga.
+ * Las cifras de proceso incluyen el arnés y el stub, cuyo consumo es constante durante la prueba.
+ *
+ * Uso: java -cp sentinel-backend-ai-all.jar com.sentinel.arch.mcp.server.SoakBenchmark [clave=valor...]
+ *      duration=10m interval=30s transport=both|stdio|http clients=4 projects=3 files=150
+ *      mix=list:2,structure:1,read:10,discover:3,search:1 churn=5s ollama-delay=20 token-us=2000 csv=soak.csv
+ */
+public class SoakBenchmark {
+
+    private static final String STRUCTURE_TOOL = "Lista los archivos y carpetas de un directorio para entender la estructura del microservicio";
+    private static final String READ_FILE_TOOL = "Lee el contenido de un archivo Java específico para analizar su arquitectura";
+    private static final String DISCOVER_TOOL = "Discovers service interconnections by analyzing source code for protocol fingerprints and mapping inbound/outbound connections";
+    private static final String SEARCH_TOOL = "Busca en el código del proyecto los fragmentos más relacionados con una pregunta o descripción (búsqueda semántica); devuelve archivo, líneas y texto de cada fragmento";
+    private static final String[] QUERIES = {
+            "dónde se publican los eventos de pedidos", "cliente HTTP del servicio de facturación",
+            "endpoint que crea un pedido", "listener de kafka de pagos", "configuración de la base de datos"
+    };
+    private static final Duration CALL_TIMEOUT = Duration.ofMinutes(10);
+    private static final long MB = 1024 * 1024;
+    // Capturado antes de cargar SentinelMcpServer, que redirige System.out a STDERR
+    private static final PrintStream out = System.out;
+
+    enum Transport {
+        STDIO, HTTP
+    }
+
+    enum Operation {
+        LIST, STRUCTURE, READ, DISCOVER, SEARCH
+    }
+
+    private final Options options;
+    private final List<SyntheticProject> projects;
+    private final ResourceSampler resources = new ResourceSampler();
+    private final CallStats[][] stats = new CallStats[Transport.values().length][Operation.values().length];
+    private volatile boolean stopped;
+
+    private SoakBenchmark(Options options, List<SyntheticProject> projects) {
+        this.options = options;
+        this.projects = projects;
+        for (CallStats[] row : stats) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new CallStats();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        // El stub crea el primer HttpServer del proceso y fija la configuración TCP de todos (véase HttpTransport)
+        System.getProperties().putIfAbsent(HttpTransport.NODELAY_PROPERTY, "true");
+
+        // El logging de cada llamada distorsionaría la medida (y llenaría el log en pruebas de horas)
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sentinel.arch")).setLevel(Level.WARN);
+
+        Path workspace = Files.createTempDirectory("sentinel-soak");
+        SentinelMcpServer server = null;
+        List<McpClient> clients = new ArrayList<>();
+        try (OllamaStub stub = new OllamaStub(0, options.ollamaDelayMillis, options.tokenMicros, OllamaStub.Mode.OK)) {
+            // Antes de la primera búsqueda, que es cuando se crea el modelo de embeddings
+            System.setProperty(OllamaConfig.ENDPOINTS_PROPERTY, stub.baseUrl());
+
+            List<SyntheticProject> projects = new ArrayList<>();
+            for (int p = 0; p < options.projects; p++) {
+                projects.add(SyntheticProject.generate(workspace.resolve("project-" + p), p, options.files));
+            }
+
+            server = new SentinelMcpServer();
+            server.registerToolsFromProjectMcpTools();
+            SoakBenchmark soak = new SoakBenchmark(options, projects);
+
+            Map<Transport, List<McpClient>> byTransport = new HashMap<>();
+            if (options.transports.contains(Transport.STDIO)) {
+                StdioClient stdio = StdioClient.start(server);
+                clients.add(stdio);
+                // Una única conexión STDIO por proceso, compartida por todos sus clientes
+                byTransport.put(Transport.STDIO, java.util.Collections.nCopies(options.clients, stdio));
+            }
+            if (options.transports.contains(Transport.HTTP)) {
+                HttpTransport transport = server.openHttp(new InetSocketAddress("127.0.0.1", 0));
+                URI endpoint = URI.create("http://127.0.0.1:" + transport.port() + HttpTransport.ENDPOINT);
+                List<McpClient> sessions = new ArrayList<>();
+                for (int c = 0; c < options.clients; c++) {
+                    HttpSessionClient session = HttpSessionClient.open(endpoint);
+                    sessions.add(session);
+                    clients.add(session);
+                }
+                byTransport.put(Transport.HTTP, sessions);
+            }
+
+            out.printf("proyectos=%d×%d archivos (%s) transportes=%s clientes/transporte=%d mezcla=%s churn=%s ollama=%d ms + %d µs/token%n",
+                    projects.size(), options.files, workspace, options.transports, options.clients, options.mixText,
+                    options.churn.isZero() ? "no" : options.churn.toSeconds() + "s", options.ollamaDelayMillis, options.tokenMicros);
+            soak.run(byTransport);
+            out.printf("stub de Ollama: %d peticiones de embeddings, %d de chat, máx. %d a la vez%n",
+                    stub.embedRequests(), stub.requests(), stub.maxInFlight());
+        } finally {
+            clients.forEach(McpClient::close);
+            if (server != null) {
+                server.stop();
+            }
+            deleteRecursively(workspace);
+        }
+    }
+
+    private void run(Map<Transport, List<McpClient>> clients) throws IOException, InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        long seed = 42;
+        for (Map.Entry<Transport, List<McpClient>> entry : clients.entrySet()) {
+            for (McpClient client : entry.getValue()) {
+                SplittableRandom random = new SplittableRandom(seed++);
+                workers.add(Thread.ofVirtual().name("soak-" + entry.getKey().name().toLowerCase(Locale.ROOT) + "-", workers.size())
+                        .start(() -> work(entry.getKey(), client, random)));
+            }
+        }
+        Thread churn = options.churn.isZero() ? null : Thread.ofVirtual().name("soak-churn").start(this::churn);
+
+        try (PrintWriter csv = options.csv != null ? new PrintWriter(Files.newBufferedWriter(options.csv)) : null) {
+            if (csv != null) {
+                csv.println(Interval.csvHeader());
+            }
+            long start = System.nanoTime();
+            long deadline = start + options.duration.toNanos();
+            List<Interval> intervals = new ArrayList<>();
+            out.println(Interval.header());
+            for (long tick = start + options.interval.toNanos(); ; tick += options.interval.toNanos()) {
+                long now = System.nanoTime();
+                long next = Math.min(tick, deadline);
+                if (next > now) {
+                    TimeUnit.NANOSECONDS.sleep(next - now);
+                }
+                Interval interval = snapshot((System.nanoTime() - start) / 1_000_000_000L, options.interval.toNanos());
+                intervals.add(interval);
+                out.println(interval.line());
+                if (csv != null) {
+                    csv.println(interval.csvLine());
+                    csv.flush();
+                }
+                if (next >= deadline) {
+                    break;
+                }
+            }
+
+            stopped = true;
+            if (churn != null) {
+                churn.interrupt();
+            }
+            for (Thread worker : workers) {
+                worker.join(CALL_TIMEOUT.toMillis());
+            }
+            report(intervals);
+        }
+    }
+
+    private void work(Transport transport, McpClient client, SplittableRandom random) {
+        while (!stopped) {
+            Operation operation = options.pick(random);
+            ObjectNode request = request(operation, random);
+            long start = System.nanoTime();
+            Outcome outcome;
+            try {
+                outcome = Outcome.of(client.call(request));
+            } catch (IOException | TimeoutException e) {
+                outcome = Outcome.ERROR;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            stats[transport.ordinal()][operation.ordinal()].record(System.nanoTime() - start, outcome);
+        }
+    }
+
+    private ObjectNode request(Operation operation, SplittableRandom random) {
+        ObjectNode request = JsonRpc.MAPPER.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        if (operation == Operation.LIST) {
+            request.put("method", "tools/list");
+            return request;
+        }
+        request.put("method", "tools/call");
+        ObjectNode params = request.putObject("params");
+        ObjectNode arguments = params.putObject("arguments");
+        SyntheticProject project = projects.get(random.nextInt(projects.size()));
+        switch (operation) {
+            case STRUCTURE -> {
+                params.put("name", STRUCTURE_TOOL);
+                arguments.put("path", project.directories().get(random.nextInt(project.directories().size())).toString());
+            }
+            case READ -> {
+                params.put("name", READ_FILE_TOOL);
+                arguments.put("path", project.javaFiles().get(random.nextInt(project.javaFiles().size())).toString());
+            }
+            case DISCOVER -> {
+                params.put("name", DISCOVER_TOOL);
+                arguments.put("projectPath", project.root().toString());
+            }
+            case SEARCH -> {
+                params.put("name", SEARCH_TOOL);
+                arguments.put("projectPath", project.root().toString());
+                arguments.put("query", QUERIES[random.nextInt(QUERIES.length)]);
+            }
+            default -> throw new IllegalStateException(operation.name());
+        }
+        return request;
+    }
+
+    /**
+     * Añade una línea a un archivo Java al azar en cada periodo: cambia la huella del proyecto
+     */
+    private void churn() {
+        SplittableRandom random = new SplittableRandom(7);
+        long edits = 0;
+        while (!stopped) {
+            try {
+                Thread.sleep(options.churn);
+                SyntheticProject project = projects.get(random.nextInt(projects.size()));
+                Path file = project.javaFiles().get(random.nextInt(project.javaFiles().size()));
+                Files.writeString(file, "// edit " + ++edits + "\n", StandardOpenOption.APPEND);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                out.println("⚠️  No se pudo modificar un archivo: " + e.getMessage());
+            }
+        }
+    }
+
+    private Interval snapshot(long elapsedSeconds, long intervalNanos) {
+        LatencyHistogram merged = new LatencyHistogram();
+        long[] operationP99 = new long[Operation.values().length];
+        long errors = 0;
+        long rejected = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram perOperation = new LatencyHistogram();
+            for (Transport transport : Transport.values()) {
+                CallStats callStats = stats[transport.ordinal()][operation.ordinal()];
+                callStats.interval.drainInto(perOperation);
+                errors += callStats.intervalErrors.getAndSet(0);
+                rejected += callStats.intervalRejected.getAndSet(0);
+            }
+            operationP99[operation.ordinal()] = perOperation.percentile(0.99);
+            merged.add(perOperation);
+        }
+        return new Interval(elapsedSeconds, merged.count(), merged.count() * 1e9 / intervalNanos, errors, rejected,
+                merged.percentile(0.50), merged.percentile(0.95), merged.percentile(0.99), merged.max(),
+                operationP99, resources.sample());
+    }
+
+    private void report(List<Interval> intervals) {
+        out.printf("%n%-6s %-10s %9s %7s %9s %10s %10s %10s %10s%n",
+                "", "operación", "llamadas", "errores", "rechazos", "p50 ms", "p95 ms", "p99 ms", "máx ms");
+        for (Transport transport : Transport.values()) {
+            for (Operation operation : Operation.values()) {
+                CallStats callStats = stats[transport.ordinal()][operation.ordinal()];
+                LatencyHistogram total = callStats.total;
+                if (total.count() == 0 && callStats.errors.get() == 0 && callStats.rejected.get() == 0) {
+                    continue;
+                }
+                out.printf("%-6s %-10s %9d %7d %9d %10.2f %10.2f %10.2f %10.2f%n",
+                        transport.name().toLowerCase(Locale.ROOT), operation.name().toLowerCase(Locale.ROOT),
+                        total.count(), callStats.errors.get(), callStats.rejected.get(), total.percentile(0.50) / 1e3,
+                        total.percentile(0.95) / 1e3, total.percentile(0.99) / 1e3, total.max() / 1e3);
+            }
+        }
+
+        if (intervals.size() < 2) {
+            return;
+        }
+        // El primer intervalo incluye el calentamiento (JIT, primera indexación): la deriva se mide desde el segundo
+        Interval first = intervals.get(1);
+        Interval last = intervals.get(intervals.size() - 1);
+        double hours = Math.max(1, last.elapsedSeconds() - first.elapsedSeconds()) / 3600.0;
+        ResourceSample a = first.resources();
+        ResourceSample b = last.resources();
+        out.printf("%nDeriva (intervalo %ds → %ds):%n", first.elapsedSeconds(), last.elapsedSeconds());
+        out.printf("  heap tras GC   %8.1f → %8.1f MB (%+.1f MB/h)%n", a.heapAfterGc() / (double) MB,
+                b.heapAfterGc() / (double) MB, (b.heapAfterGc() - a.heapAfterGc()) / (double) MB / hours);
+        out.printf("  descriptores   %8d → %8d (%+.1f/h)%n", a.openFiles(), b.openFiles(), (b.openFiles() - a.openFiles()) / hours);
+        out.printf("  hilos          %8d → %8d%n", a.threads(), b.threads());
+        out.printf("  RSS            %8.1f → %8.1f MB%n", a.rss() / (double) MB, b.rss() / (double) MB);
+        out.printf("  p99            %8.2f → %8.2f ms%n", first.p99() / 1e3, last.p99() / 1e3);
+        out.printf("  throughput     %8.1f → %8.1f llamadas/s%n", first.callsPerSecond(), last.callsPerSecond());
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ clientes
+
+    private static final class JsonRpc {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+
+    private enum Outcome {
+        OK, ERROR, REJECTED;
+
+        /**
+         * @param response Respuesta JSON-RPC, o {@code null} si el servidor rechazó la solicitud por carga
+         */
+        static Outcome of(JsonNode response) {
+            if (response == null) {
+                return REJECTED;
+            }
+            if (response.has("error") || response.path("result").path("isError").asBoolean(false)) {
+                return ERROR;
+            }
+            // Las herramientas informan de sus errores como texto
+            String text = response.path("result").path("content").path(0).path("text").asText("");
+            return text.startsWith("{\"error\"") || text.startsWith("Error:") ? ERROR : OK;
+        }
+    }
+
+    private interface McpClient {
+        /**
+         * @return La respuesta, o {@code null} si el servidor rechazó la solicitud por carga
+         */
+        JsonNode call(ObjectNode request) throws IOException, InterruptedException, TimeoutException;
+
+        void close();
+    }
+
+    /**
+     * Conexión STDIO con el servidor sobre un par de pipes: las solicitudes se escriben una por línea
+     * y un hilo lector entrega cada respuesta a quien espera su id
+     */
+    private static final class StdioClient implements McpClient {
+        private final OutputStream toServer;
+        private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        private StdioClient(OutputStream toServer) {
+            this.toServer = toServer;
+        }
+
+        static StdioClient start(SentinelMcpServer server) throws IOException {
+            Pipe requests = Pipe.open();
+            Pipe responses = Pipe.open();
+            StdioClient client = new StdioClient(Channels.newOutputStream(requests.sink()));
+            Thread.ofPlatform().name("soak-stdio-server").daemon().start(() ->
+                    server.serve(Channels.newInputStream(requests.source()), Channels.newOutputStream(responses.sink())));
+            Thread.ofPlatform().name("soak-stdio-reader").daemon().start(() -> client.readResponses(
+                    new BufferedReader(new InputStreamReader(Channels.newInputStream(responses.source()), StandardCharsets.UTF_8))));
+            return client;
+        }
+
+        private void readResponses(BufferedReader reader) {
+            try (reader) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JsonNode message = JsonRpc.MAPPER.readTree(line);
+                    // Las notificaciones (progreso, logs) no tienen id
+                    CompletableFuture<JsonNode> waiting = message.has("id") ? pending.remove(message.get("id").asLong()) : null;
+                    if (waiting != null) {
+                        waiting.complete(message);
+                    }
+                }
+            } catch (IOException e) {
+                // El servidor cerró su salida
+            } finally {
+                pending.values().forEach(waiting -> waiting.completeExceptionally(new IOException("STDIO cerrado")));
+            }
+        }
+
+        @Override
+        public JsonNode call(ObjectNode request) throws IOException, InterruptedException, TimeoutException {
+            long id = ids.incrementAndGet();
+            request.put("id", id);
+            CompletableFuture<JsonNode> response = new CompletableFuture<>();
+            pending.put(id, response);
+            byte[] bytes = JsonRpc.MAPPER.writeValueAsBytes(request);
+            synchronized (toServer) {
+                toServer.write(bytes);
+                toServer.write('\n');
+                toServer.flush();
+            }
+            try {
+                return response.get(CALL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                pending.remove(id);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                toServer.close();
+            } catch (IOException e) {
+                // Ya cerrado
+            }
+        }
+    }
+
+    /**
+     * Sesión HTTP con el servidor: {@code initialize} al abrirla, una solicitud por POST con
+     * respuesta JSON (sin SSE) y DELETE al cerrarla
+     */
+    private static final class HttpSessionClient implements McpClient {
+        private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+        private static final HttpClient CLIENT = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(EXECUTOR)
+                .build();
+
+        private final URI endpoint;
+        private final String sessionId;
+        private final AtomicLong ids = new AtomicLong();
+
+        private HttpSessionClient(URI endpoint, String sessionId) {
+            this.endpoint = endpoint;
+            this.sessionId = sessionId;
+        }
+
+        static HttpSessionClient open(URI endpoint) throws IOException, InterruptedException {
+            ObjectNode initialize = JsonRpc.MAPPER.createObjectNode();
+            initialize.put("jsonrpc", "2.0");
+            initialize.put("id", 0);
+            initialize.put("method", "initialize");
+            initialize.putObject("params").put("protocolVersion", "2024-11-05")
+                    .putObject("clientInfo").put("name", "soak-benchmark").put("version", "1.0");
+            HttpResponse<byte[]> response = CLIENT.send(post(endpoint, null, initialize), HttpResponse.BodyHandlers.ofByteArray());
+            String sessionId = response.headers().firstValue(HttpTransport.SESSION_HEADER)
+                    .orElseThrow(() -> new IOException("initialize sin " + HttpTransport.SESSION_HEADER + ": HTTP " + response.statusCode()));
+            ObjectNode initialized = JsonRpc.MAPPER.createObjectNode();
+            initialized.put("jsonrpc", "2.0");
+            initialized.put("method", "notifications/initialized");
+            CLIENT.send(post(endpoint, sessionId, initialized), HttpResponse.BodyHandlers.discarding());
+            return new HttpSessionClient(endpoint, sessionId);
+        }
+
+        @Override
+        public JsonNode call(ObjectNode request) throws IOException, InterruptedException {
+            request.put("id", ids.incrementAndGet());
+            HttpResponse<byte[]> response = CLIENT.send(post(endpoint, sessionId, request), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            return JsonRpc.MAPPER.readTree(response.body());
+        }
+
+        private static HttpRequest post(URI endpoint, String sessionId, ObjectNode message) throws IOException {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                    .timeout(CALL_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(JsonRpc.MAPPER.writeValueAsBytes(message)));
+            if (sessionId != null) {
+                builder.header(HttpTransport.SESSION_HEADER, sessionId);
+            }
+            return builder.build();
+        }
+
+        @Override
+        public void close() {
+            try {
+                CLIENT.send(HttpRequest.newBuilder(endpoint).header(HttpTransport.SESSION_HEADER, sessionId).DELETE().build(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                // El servidor ya no está: nada que cerrar
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ medidas
+
+    /**
+     * Histograma de latencias en microsegundos con cubetas log-lineales (32 por potencia de dos,
+     * error relativo < 3%): memoria fija sea cual sea la duración de la prueba, sin asignaciones al registrar
+     */
+    private static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 32;
+        private static final int SUB_BUCKET_BITS = 5;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            buckets.incrementAndGet(index(Math.max(0, micros)));
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        /**
+         * Pasa las cuentas a {@code target} y deja este histograma vacío
+         */
+        void drainInto(LatencyHistogram target) {
+            for (int i = 0; i < buckets.length(); i++) {
+                long count = buckets.getAndSet(i, 0);
+                if (count > 0) {
+                    target.buckets.addAndGet(i, count);
+                }
+            }
+            target.max.accumulateAndGet(max.getAndSet(0), Math::max);
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < buckets.length(); i++) {
+                long count = other.buckets.get(i);
+                if (count > 0) {
+                    buckets.addAndGet(i, count);
+                }
+            }
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * @return Límite inferior de la cubeta del percentil, en microsegundos (0 si no hay datos)
+         */
+        long percentile(double fraction) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(lowerBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int index(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+        }
+
+        private static long lowerBound(int index) {
+            if (index < 2 * SUB_BUCKETS) {
+                return index;
+            }
+            return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << (index / SUB_BUCKETS - 1);
+        }
+    }
+
+    /**
+     * Latencias y resultados de una operación por un transporte: del intervalo en curso y acumulados
+     */
+    private static final class CallStats {
+        final LatencyHistogram interval = new LatencyHistogram();
+        final LatencyHistogram total = new LatencyHistogram();
+        final AtomicLong intervalErrors = new AtomicLong();
+        final AtomicLong intervalRejected = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+
+        void record(long nanos, Outcome outcome) {
+            switch (outcome) {
+                case OK -> {
+                    long micros = nanos / 1000;
+                    interval.record(micros);
+                    total.record(micros);
+                }
+                case ERROR -> {
+                    intervalErrors.incrementAndGet();
+                    errors.incrementAndGet();
+                }
+                case REJECTED -> {
+                    intervalRejected.incrementAndGet();
+                    rejected.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param heapAfterGc Heap ocupado tras el último GC (lo que sigue vivo), en bytes
+     * @param openFiles Descriptores de archivo abiertos (-1 si el sistema no lo expone)
+     * @param threads Hilos de plataforma vivos
+     * @param rss Memoria residente del proceso en bytes (-1 fuera de Linux)
+     */
+    private record ResourceSample(long heapAfterGc, long heapUsed, long openFiles, int threads, long rss) {
+    }
+
+    /**
+     * Lee heap, descriptores, hilos y RSS del proceso. El heap tras GC se toma de las notificaciones
+     * de los colectores, sin forzar ningún GC que alteraría la prueba.
+     */
+    private static final class ResourceSampler {
+        private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+        private volatile long heapAfterGc;
+
+        ResourceSampler() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener((notification, handback) -> {
+                        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                            GarbageCollectionNotificationInfo info =
+                                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                            heapAfterGc = heapOf(info.getGcInfo().getMemoryUsageAfterGc());
+                        }
+                    }, null, null);
+                }
+            }
+        }
+
+        ResourceSample sample() {
+            long openFiles = ManagementFactory.getOperatingSystemMXBean() instanceof UnixOperatingSystemMXBean unix
+                    ? unix.getOpenFileDescriptorCount() : -1;
+            return new ResourceSample(heapAfterGc, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                    openFiles, ManagementFactory.getThreadMXBean().getThreadCount(), residentSetSize());
+        }
+
+        private long heapOf(Map<String, MemoryUsage> usageByPool) {
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : usageByPool.entrySet()) {
+                if (heapPools.contains(pool.getKey())) {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            return used;
+        }
+
+        private static long residentSetSize() {
+            Path status = Path.of("/proc/self/status");
+            if (!Files.isReadable(status)) {
+                return -1;
+            }
+            try (Stream<String> lines = Files.lines(status)) {
+                return lines.filter(line -> line.startsWith("VmRSS:"))
+                        .map(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                        .findFirst()
+                        .orElse(-1L);
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Una línea del informe periódico (latencias en microsegundos)
+     */
+    private record Interval(long elapsedSeconds, long calls, double callsPerSecond, long errors, long rejected,
+                            long p50, long p95, long p99, long max, long[] operationP99, ResourceSample resources) {
+
+        static String header() {
+            return String.format("%7s %9s %9s %7s %8s %9s %9s %9s %10s %10s %7s %6s %9s",
+                    "t", "llamadas", "/s", "errores", "rechazos", "p50 ms", "p95 ms", "p99 ms",
+                    "heapGC MB", "heap MB", "fds", "hilos", "RSS MB");
+        }
+
+        String line() {
+            return String.format("%6ds %9d %9.1f %7d %8d %9.2f %9.2f %9.2f %10.1f %10.1f %7d %6d %9.1f",
+                    elapsedSeconds, calls, callsPerSecond, errors, rejected, p50 / 1e3, p95 / 1e3, p99 / 1e3,
+                    resources.heapAfterGc() / (double) MB, resources.heapUsed() / (double) MB, resources.openFiles(),
+                    resources.threads(), resources.rss() / (double) MB);
+        }
+
+        static String csvHeader() {
+            StringBuilder header = new StringBuilder("elapsed_s,calls,calls_per_s,errors,rejected,p50_ms,p95_ms,p99_ms,max_ms,"
+                    + "heap_after_gc_mb,heap_used_mb,open_fds,threads,rss_mb");
+            for (Operation operation : Operation.values()) {
+                header.append(",p99_").append(operation.name().toLowerCase(Locale.ROOT)).append("_ms");
+            }
+            return header.toString();
+        }
+
+        String csvLine() {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%d,%d,%.2f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.1f,%d,%d,%.1f",
+                    elapsedSeconds, calls, callsPerSecond, errors, rejected, p50 / 1e3, p95 / 1e3, p99 / 1e3, max / 1e3,
+                    resources.heapAfterGc() / (double) MB, resources.heapUsed() / (double) MB, resources.openFiles(),
+                    resources.threads(), resources.rss() / (double) MB));
+            for (long operation : operationP99) {
+                line.append(String.format(Locale.ROOT, ",%.3f", operation / 1e3));
+            }
+            return line.toString();
+        }
+    }
+
+    // ------------------------------------------------------------------ configuración y proyectos
+
+    private static final class Options {
+        Duration duration = Duration.ofMinutes(10);
+        Duration interval = Duration.ofSeconds(30);
+        Set<Transport> transports = Set.of(Transport.STDIO, Transport.HTTP);
+        int clients = 4;
+        int projects = 3;
+        int files = 150;
+        String mixText = "list:2,structure:1,read:10,discover:3,search:1";
+        int[] cumulativeWeights;
+        Duration churn = Duration.ofSeconds(5);
+        long ollamaDelayMillis = 20;
+        long tokenMicros = 2000;
+        Path csv;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Se esperaba clave=valor: " + arg);
+                }
+                String value = arg.substring(equals + 1);
+                switch (arg.substring(0, equals)) {
+                    case "duration" -> options.duration = parseDuration(value);
+                    case "interval" -> options.interval = parseDuration(value);
+                    case "transport" -> options.transports = "both".equals(value)
+                            ? Set.of(Transport.STDIO, Transport.HTTP)
+                            : Set.of(Transport.valueOf(value.toUpperCase(Locale.ROOT)));
+                    case "clients" -> options.clients = Integer.parseInt(value);
+                    case "projects" -> options.projects = Integer.parseInt(value);
+                    case "files" -> options.files = Integer.parseInt(value);
+                    case "mix" -> options.mixText = value;
+                    case "churn" -> options.churn = parseDuration(value);
+                    case "ollama-delay" -> options.ollamaDelayMillis = Long.parseLong(value);
+                    case "token-us" -> options.tokenMicros = Long.parseLong(value);
+                    case "csv" -> options.csv = Path.of(value);
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + arg);
+                }
+            }
+            options.cumulativeWeights = parseMix(options.mixText);
+            return options;
+        }
+
+        Operation pick(SplittableRandom random) {
+            int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (draw < cumulativeWeights[i]) {
+                    return Operation.values()[i];
+                }
+            }
+            throw new IllegalStateException("Mezcla vacía");
+        }
+
+        private static int[] parseMix(String mix) {
+            int[] weights = new int[Operation.values().length];
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split(":");
+                weights[Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)).ordinal()] =
+                        parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            }
+            for (int i = 1; i < weights.length; i++) {
+                weights[i] += weights[i - 1];
+            }
+            if (weights[weights.length - 1] <= 0) {
+                throw new IllegalArgumentException("La mezcla no tiene ninguna operación: " + mix);
+            }
+            return weights;
+        }
+
+        /**
+         * {@code 90}, {@code 90s}, {@code 15m} o {@code 2h}
+         */
+        private static Duration parseDuration(String value) {
+            char unit = value.charAt(value.length() - 1);
+            if (Character.isDigit(unit)) {
+                return Duration.ofSeconds(Long.parseLong(value));
+            }
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            return switch (unit) {
+                case 's' -> Duration.ofSeconds(amount);
+                case 'm' -> Duration.ofMinutes(amount);
+                case 'h' -> Duration.ofHours(amount);
+                default -> throw new IllegalArgumentException("Duración no válida: " + value);
+            };
+        }
+    }
+
+    /**
+     * Proyecto Maven multi-módulo generado: cada módulo tiene su configuración Spring (URL del
+     * siguiente módulo, destino Kafka, JDBC) y clases de cinco tipos (controlador, cliente Feign,
+     * listener Kafka, cliente RestTemplate y servicio sin huellas)
+     */
+    private record SyntheticProject(Path root, List<Path> directories, List<Path> javaFiles) {
+
+        private static final int FILES_PER_MODULE = 50;
+
+        static SyntheticProject generate(Path root, int project, int files) throws IOException {
+            int modules = Math.max(1, (files + FILES_PER_MODULE - 1) / FILES_PER_MODULE);
+            List<Path> directories = new ArrayList<>(List.of(root));
+            List<Path> javaFiles = new ArrayList<>();
+            StringBuilder moduleList = new StringBuilder();
+            for (int m = 0; m < modules; m++) {
+                String module = "svc-" + project + "-" + m;
+                moduleList.append("    <module>").append(module).append("</module>\n");
+                Path moduleRoot = root.resolve(module);
+                Path resources = Files.createDirectories(moduleRoot.resolve("src/main/resources"));
+                String pkg = "com.acme.p" + project + ".m" + m;
+                Path sources = Files.createDirectories(moduleRoot.resolve("src/main/java").resolve(pkg.replace('.', '/')));
+                directories.add(moduleRoot);
+                directories.add(sources);
+                Files.writeString(moduleRoot.resolve("pom.xml"), pom(module, "jar", ""));
+                Files.writeString(resources.resolve("application.yml"), """
+                        server:
+                          port: %d
+                        svc-next:
+                          url: http://svc-%d-%d:8080
+                        spring:
+                          datasource:
+                            url: jdbc:postgresql://db-%d:5432/%s
+                          cloud:
+                            stream:
+                              bindings:
+                                orders-in-0:
+                                  destination: orders-%d-%d
+                        """.formatted(8080 + m, project, (m + 1) % modules, project, module.replace('-', '_'), project, m));
+                int moduleFiles = Math.min(FILES_PER_MODULE, files - m * FILES_PER_MODULE);
+                for (int f = 0; f < moduleFiles; f++) {
+                    String name = switch (f % 5) {
+                        case 0 -> "Orders" + f + "Controller";
+                        case 1 -> "Billing" + f + "Client";
+                        case 2 -> "Payments" + f + "Listener";
+                        case 3 -> "Inventory" + f + "Gateway";
+                        default -> "Pricing" + f + "Service";
+                    };
+                    Path file = sources.resolve(name + ".java");
+                    Files.writeString(file, javaSource(pkg, name, f, project, m));
+                    javaFiles.add(file);
+                }
+            }
+            Files.writeString(root.resolve("pom.xml"), pom("project-" + project, "pom", "  <modules>\n" + moduleList + "  </modules>\n"));
+            return new SyntheticProject(root, List.copyOf(directories), List.copyOf(javaFiles));
+        }
+
+        private static String pom(String artifactId, String packaging, String modules) {
+            return """
+                    <project xmlns="http://maven.apache.org/POM/4.0.0">
+                      <modelVersion>4.0.0</modelVersion>
+                      <groupId>com.acme</groupId>
+                      <artifactId>%s</artifactId>
+                      <version>1.0.0</version>
+                      <packaging>%s</packaging>
+                    %s</project>
+                    """.formatted(artifactId, packaging, modules);
+        }
+
+        private static String javaSource(String pkg, String name, int f, int project, int module) {
+            String header = switch (f % 5) {
+                case 0 -> """
+                        @RestController
+                        @RequestMapping("/api/%d/orders")
+                        public class %s {
+                            @GetMapping("/{id}")
+                            public String get(String id) { return id; }
+                            @PostMapping(value = "/batch-%d", produces = "application/json")
+                            public String create(String body) { return body; }
+                        """.formatted(module, name, f);
+                case 1 -> """
+                        @FeignClient(name = "billing-%d", url = "${svc-next.url}")
+                        public interface %s {
+                        """.formatted(f, name);
+                case 2 -> """
+                        public class %s {
+                            @KafkaListener(topics = "payments-%d-%d", groupId = "svc")
+                            public void onPayment(String event) { }
+                        """.formatted(name, project, f);
+                case 3 -> """
+                        public class %s {
+                            private RestTemplate restTemplate;
+                            public String stock(String sku) {
+                                return restTemplate.getForObject("http://inventory-%d/stock/" + sku, String.class);
+                            }
+                        """.formatted(name, f);
+                default -> "public class " + name + " {\n";
+            };
+            StringBuilder source = new StringBuilder("package ").append(pkg).append(";\n\n").append(header);
+            if (f % 5 != 1) {
+                // Cuerpo sin huellas: volumen de código realista para recorrer, leer e indexar
+                for (int method = 0; method < 12; method++) {
+                    source.append("""
+
+                                /**
+                                 * Calcula el importe %d aplicando descuentos, impuestos y redondeo.
+                                 */
+                                public long amount%d(long base, int quantity) {
+                                    long total = base * quantity;
+                                    if (quantity > %d) {
+                                        total -= total / 10;
+                                    }
+                                    return Math.round(total * 1.21);
+                                }
+                            """.formatted(method, method, method + 2));
+                }
+            }
+            return source.append("}\n").toString();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.sentinel.arch.mcp.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Transporte STDIO a nivel de bytes para mensajes JSON-RPC delimitados por salto de línea.
+ *
+ * - Entrada: lee bloques de bytes en un buffer reutilizable y localiza cada mensaje por su '\n';
+ *   el parser de streaming de Jackson trabaja directamente sobre ese rango de bytes (UTF-8),
+ *   sin pasar por {@code String} ni por el charset de la plataforma.
+ * - Salida: cada respuesta se serializa con un {@link JsonGenerator} directamente sobre un
+ *   buffer UTF-8; el vaciado es explícito para agrupar varias respuestas en una sola escritura.
+ *
+ * La lectura corresponde a un único hilo; la escritura y el vaciado están sincronizados porque
+ * las respuestas de herramientas se envían desde los hilos de trabajo.
+ */
+public class StdioTransport implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final byte NEWLINE = '\n';
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final ObjectMapper mapper;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int start;  // inicio del siguiente mensaje pendiente
+    private int end;    // fin de los datos válidos en buffer
+    private int scanned; // posición hasta la que ya se buscó '\n'
+    private boolean eof;
+
+    public StdioTransport(InputStream in, OutputStream out, ObjectMapper mapper) {
+        this.in = in;
+        this.out = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        this.mapper = mapper;
+    }
+
+    /**
+     * Lee el siguiente mensaje (solicitud individual o lote). Las líneas vacías se ignoran.
+     *
+     * @return el mensaje, o {@code null} al llegar a fin de entrada
+     * @throws RpcRequest.InvalidRequestException si el mensaje no es JSON-RPC válido
+     * @throws IOException si falla la lectura o el mensaje supera el tamaño máximo
+     */
+    public RpcMessage readMessage() throws IOException, RpcRequest.InvalidRequestException {
+        while (true) {
+            int newline = findNewline();
+            if (newline < 0) {
+                if (!fill()) {
+                    // Último mensaje sin '\n' final
+                    if (start < end) {
+                        int frameStart = start;
+                        int frameEnd = end;
+                        start = end;
+                        if (!isBlank(frameStart, frameEnd)) {
+                            return parse(frameStart, frameEnd - frameStart);
+                        }
+                    }
+                    return null;
+                }
+                continue;
+            }
+
+            int frameStart = start;
+            start = newline + 1;
+            scanned = start;
+            if (!isBlank(frameStart, newline)) {
+                return parse(frameStart, newline - frameStart);
+            }
+        }
+    }
+
+    /**
+     * Escribe una respuesta (o el array de respuestas de un lote) en el buffer de salida, sin vaciarlo.
+     */
+    public synchronized void send(JsonNode response) throws IOException {
+        try (JsonGenerator generator = mapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            mapper.writeTree(generator, response);
+        }
+        out.write(NEWLINE);
+    }
+
+    /**
+     * Vacía la salida solo si no hay más mensajes pendientes de procesar; así las respuestas
+     * a mensajes que llegaron juntos se envían en una única escritura.
+     */
+    public synchronized void flushIfIdle() throws IOException {
+        if (!hasPendingInput()) {
+            out.flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Indica si hay datos de entrada ya recibidos y aún no procesados
+     */
+    public boolean hasPendingInput() throws IOException {
+        return start < end || (!eof && in.available() > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+        } finally {
+            in.close();
+        }
+    }
+
+    private RpcMessage parse(int offset, int length) throws IOException, RpcRequest.InvalidRequestException {
+        try (JsonParser parser = mapper.createParser(buffer, offset, length)) {
+            return RpcMessage.parse(parser, mapper);
+        }
+    }
+
+    private int findNewline() {
+        for (int i = scanned; i < end; i++) {
+            if (buffer[i] == NEWLINE) {
+                return i;
+            }
+        }
+        scanned = end;
+        return -1;
+    }
+
+    /**
+     * Lee más bytes, compactando o ampliando el buffer si es necesario.
+     *
+     * @return {@code false} si se alcanzó el fin de la entrada
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (start == end && buffer.length > INITIAL_BUFFER_SIZE) {
+            // Libera el buffer ampliado por un mensaje grande ya procesado
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+            start = end = scanned = 0;
+        }
+        if (start > 0) {
+            int pending = end - start;
+            System.arraycopy(buffer, start, buffer, 0, pending);
+            scanned -= start;
+            end = pending;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            if (buffer.length >= MAX_MESSAGE_SIZE) {
+                throw new IOException("Mensaje JSON-RPC supera el tamaño máximo de " + MAX_MESSAGE_SIZE + " bytes");
+            }
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_MESSAGE_SIZE));
+        }
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        end += read;
+        return true;
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sentinel.arch.mcp.server;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Banco de pruebas en bucle cerrado (loopback) del transporte STDIO del servidor MCP.
+ *
+ * Genera N llamadas {@code tools/call} a la herramienta de lectura de archivos sobre un archivo
+ * temporal del tamaño indicado y las procesa en memoria con:
+ * - {@code legacy}: readLine + readTree + writeValueAsString + println con auto-flush (implementación anterior)
+ * - {@code stream}: {@link StdioTransport} (bytes, parser de streaming, salida UTF-8 con vaciado agrupado)
+ *
+ * Uso: java -cp sentinel-backend-ai-all.jar com.sentinel.arch.mcp.server.TransportBenchmark [mensajes] [payloadKB]
+ */
+public class TransportBenchmark {
+
+    private static final String READ_FILE_TOOL = "Lee el contenido de un archivo Java específico para analizar su arquitectura";
+    private static final int WARMUP_ROUNDS = 3;
+    // Capturado antes de cargar SentinelMcpServer, que redirige System.out a STDERR
+    private static final PrintStream out = System.out;
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int payloadKb = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        // El logging de cada mensaje distorsionaría la medida
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sentinel.arch")).setLevel(Level.WARN);
+
+        Path payload = Files.createTempFile("sentinel-bench", ".md");
+        try {
+            Files.writeString(payload, "x".repeat(payloadKb * 1024));
+            byte[] input = buildInput(messages, payload);
+
+            SentinelMcpServer server = new SentinelMcpServer();
+            server.registerToolsFromProjectMcpTools();
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runLegacy(server, input);
+                runStream(server, input);
+            }
+
+            out.printf("mensajes=%d payload=%dKB%n", messages, payloadKb);
+            report("legacy", messages, runLegacy(server, input));
+            report("stream", messages, runStream(server, input));
+        } finally {
+            Files.deleteIfExists(payload);
+        }
+    }
+
+    private static byte[] buildInput(int messages, Path payload) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        for (int i = 1; i <= messages; i++) {
+            ObjectNode request = mapper.createObjectNode();
+            request.put("jsonrpc", "2.0");
+            request.put("id", i);
+            request.put("method", "tools/call");
+            ObjectNode params = request.putObject("params");
+            params.put("name", READ_FILE_TOOL);
+            params.putObject("arguments").put("path", payload.toString());
+            input.write(mapper.writeValueAsBytes(request));
+            input.write('\n');
+        }
+        return input.toByteArray();
+    }
+
+    /**
+     * Reproduce el bucle anterior sobre el mismo manejador de solicitudes
+     */
+    private static Result runLegacy(SentinelMcpServer server, byte[] input) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        CountingOutputStream sink = new CountingOutputStream();
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input)));
+        PrintWriter writer = new PrintWriter(sink, true);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            JsonNode request = mapper.readTree(line);
+            JsonNode response = server.handleRpcRequest(RpcRequest.fromTree(request));
+            writer.println(mapper.writeValueAsString(response));
+        }
+        return new Result(System.nanoTime() - start, sink.count, sink.flushes);
+    }
+
+    private static Result runStream(SentinelMcpServer server, byte[] input) {
+        CountingOutputStream sink = new CountingOutputStream();
+        long start = System.nanoTime();
+        server.serve(new ByteArrayInputStream(input), sink);
+        return new Result(System.nanoTime() - start, sink.count, sink.flushes);
+    }
+
+    private static void report(String label, int messages, Result result) {
+        double seconds = result.nanos / 1e9;
+        out.printf("%-7s %10.0f msg/s %9.1f MB/s %8d flushes %8.1f ms%n",
+                label, messages / seconds, result.bytes / 1e6 / seconds, result.flushes, result.nanos / 1e6);
+    }
+
+    private record Result(long nanos, long bytes, long flushes) {
+    }
+
+    /**
+     * Descarta la salida contando bytes y vaciados
+     */
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+        long flushes;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
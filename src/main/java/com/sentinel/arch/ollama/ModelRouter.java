@@ -0,0 +1,220 @@
+package com.sentinel.arch.ollama;
+
+import dev.langchain4j.exception.ModelNotFoundException;
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RetriableException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Enrutado de peticiones de chat entre modelos y endpoints de Ollama.
+ *
+ * Cada petición va a un nivel de modelo: {@link Tier#FAST} para subtareas baratas (resúmenes de
+ * fragmentos) y {@link Tier#REPORT} para la síntesis final. El endpoint se elige por menor número
+ * de peticiones en curso (a igualdad, rotando), así un Ollama ocupado no serializa el resto.
+ * Si un endpoint agota el tiempo o no responde, queda apartado durante un enfriamiento y la
+ * petición se reintenta en el siguiente; si ninguno atiende el modelo de informe, se recurre al
+ * modelo rápido antes de fallar. Los errores de la propia petición (400, autenticación) no se
+ * reintentan.
+ */
+public class ModelRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelRouter.class);
+
+    public enum Tier {
+        FAST, REPORT
+    }
+
+    /**
+     * Estado de un endpoint para informes
+     */
+    public record EndpointStats(String baseUrl, int outstanding, long requests, long failures, boolean coolingDown) {
+    }
+
+    private final List<Endpoint> endpoints;
+    private final Map<Tier, String> models;
+    private final BiFunction<String, Tier, ChatModel> modelFactory;
+    private final long cooldownNanos;
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    /**
+     * @param baseUrls Endpoints de Ollama
+     * @param models Modelo de cada nivel
+     * @param modelFactory Crea el cliente de un nivel en un endpoint (URL base, nivel)
+     * @param cooldown Tiempo que un endpoint fallido queda al final de la cola
+     */
+    public ModelRouter(List<String> baseUrls, Map<Tier, String> models,
+                       BiFunction<String, Tier, ChatModel> modelFactory, Duration cooldown) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama endpoint is required");
+        }
+        this.endpoints = baseUrls.stream().map(Endpoint::new).toList();
+        this.models = new EnumMap<>(models);
+        this.modelFactory = modelFactory;
+        this.cooldownNanos = cooldown.toNanos();
+    }
+
+    /**
+     * @return Un modelo de chat que enruta cada petición del nivel indicado
+     */
+    public ChatModel model(Tier tier) {
+        return new RoutedModel(tier);
+    }
+
+    public String modelName(Tier tier) {
+        return models.get(tier);
+    }
+
+    /**
+     * Si el nivel rápido usa un modelo distinto (más barato) que el del informe
+     */
+    public boolean hasDistinctFastModel() {
+        return !Objects.equals(models.get(Tier.FAST), models.get(Tier.REPORT));
+    }
+
+    public List<EndpointStats> stats() {
+        long now = System.nanoTime();
+        return endpoints.stream()
+                .map(e -> new EndpointStats(e.baseUrl, e.outstanding.get(), e.requests.get(), e.failures.get(),
+                        e.coolingDown(now)))
+                .toList();
+    }
+
+    /**
+     * Niveles a probar: el informe recurre al modelo rápido si el suyo no responde
+     */
+    private List<Tier> tierChain(Tier tier) {
+        if (tier == Tier.REPORT && hasDistinctFastModel()) {
+            return List.of(Tier.REPORT, Tier.FAST);
+        }
+        return List.of(tier);
+    }
+
+    /**
+     * Reserva el endpoint con menos peticiones en curso entre los no probados, dejando los que
+     * están en enfriamiento para el final
+     */
+    private Endpoint acquire(Set<Endpoint> tried) {
+        long now = System.nanoTime();
+        int start = Math.floorMod(rotation.getAndIncrement(), endpoints.size());
+        Endpoint best = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint candidate = endpoints.get((start + i) % endpoints.size());
+            if (tried.contains(candidate)) {
+                continue;
+            }
+            if (best == null || compare(candidate, best, now) < 0) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            tried.add(best);
+            best.outstanding.incrementAndGet();
+            best.requests.incrementAndGet();
+        }
+        return best;
+    }
+
+    private static int compare(Endpoint a, Endpoint b, long now) {
+        int cooling = Boolean.compare(a.coolingDown(now), b.coolingDown(now));
+        return cooling != 0 ? cooling : Integer.compare(a.outstanding.get(), b.outstanding.get());
+    }
+
+    /**
+     * Timeouts, errores de conexión y 5xx se reintentan en otro endpoint; un modelo que no está
+     * descargado en un endpoint puede estarlo en otro
+     */
+    private static boolean isRetriable(RuntimeException e) {
+        if (e instanceof ModelNotFoundException) {
+            return true;
+        }
+        if (e instanceof NonRetriableException) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Endpoint {
+        final String baseUrl;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final Map<Tier, ChatModel> clients = new ConcurrentHashMap<>();
+        volatile long coolingUntil;
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+            this.coolingUntil = System.nanoTime();
+        }
+
+        ChatModel client(Tier tier) {
+            return clients.computeIfAbsent(tier, t -> modelFactory.apply(baseUrl, t));
+        }
+
+        boolean coolingDown(long now) {
+            return coolingUntil - now > 0;
+        }
+
+        void failed() {
+            failures.incrementAndGet();
+            coolingUntil = System.nanoTime() + cooldownNanos;
+        }
+    }
+
+    private final class RoutedModel implements ChatModel {
+        private final Tier tier;
+
+        RoutedModel(Tier tier) {
+            this.tier = tier;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest request) {
+            RuntimeException lastFailure = null;
+            List<Tier> chain = tierChain(tier);
+            for (int attempt = 0; attempt < chain.size(); attempt++) {
+                Tier current = chain.get(attempt);
+                String modelName = models.get(current);
+                if (attempt > 0) {
+                    log.warn("Ningún endpoint atendió el modelo {}; se recurre a {}", models.get(chain.get(attempt - 1)), modelName);
+                }
+                Set<Endpoint> tried = new HashSet<>();
+                Endpoint endpoint;
+                while ((endpoint = acquire(tried)) != null) {
+                    try {
+                        return endpoint.client(current).chat(request);
+                    } catch (RuntimeException e) {
+                        if (!isRetriable(e)) {
+                            throw e;
+                        }
+                        if (!(e instanceof ModelNotFoundException)) {
+                            endpoint.failed();
+                        }
+                        lastFailure = e;
+                        log.warn("Ollama {} (modelo {}) no respondió: {}. Probando el siguiente endpoint",
+                                endpoint.baseUrl, modelName, e.getMessage());
+                    } finally {
+                        endpoint.outstanding.decrementAndGet();
+                    }
+                }
+            }
+            throw lastFailure;
+        }
+    }
+}
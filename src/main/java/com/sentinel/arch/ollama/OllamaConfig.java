@@ -1,15 +1,30 @@
 package com.sentinel.arch.ollama;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Configuración y verificación de conexión con Ollama (modelo local).
  * "Hello World" de LangChain4j contra qwen2.5-coder:3b en localhost:11434.
+ *
+ * Para repartir la carga, {@link #fromSystemProperties} admite varios endpoints y un modelo
+ * rápido para subtareas ({@link #createRouter}):
+ * {@code -Dsentinel.ollama.endpoints=http://gpu1:11434,http://gpu2:11434
+ * -Dsentinel.ollama.model=qwen2.5-coder:14b -Dsentinel.ollama.fast-model=qwen2.5-coder:3b}
+ *
+ * El índice de búsqueda semántica usa {@code -Dsentinel.ollama.embedding-model} (por defecto
+ * nomic-embed-text) en el primer endpoint ({@link #createEmbeddingModel}).
  */
 public class OllamaConfig {
 
@@ -17,17 +32,94 @@ public class OllamaConfig {
 
     private static final String DEFAULT_BASE_URL = "http://localhost:11434";
     private static final String DEFAULT_MODEL = "qwen2.5-coder:3b";
+    private static final String DEFAULT_EMBEDDING_MODEL = "nomic-embed-text";
+    // Ventana de contexto pedida a Ollama (num_ctx); sin ella Ollama usa 2048 y recorta el prompt en silencio
+    public static final int DEFAULT_CONTEXT_WINDOW = 8192;
 
+    public static final String ENDPOINTS_PROPERTY = "sentinel.ollama.endpoints";
+    public static final String MODEL_PROPERTY = "sentinel.ollama.model";
+    public static final String FAST_MODEL_PROPERTY = "sentinel.ollama.fast-model";
+    public static final String TIMEOUT_PROPERTY = "sentinel.ollama.timeout";
+    public static final String FAST_TIMEOUT_PROPERTY = "sentinel.ollama.fast-timeout";
+    public static final String EMBEDDING_MODEL_PROPERTY = "sentinel.ollama.embedding-model";
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(10); // Timeout extendido para tareas complejas
+    private static final Duration DEFAULT_FAST_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration ENDPOINT_COOLDOWN = Duration.ofSeconds(30);
+    // Las subtareas del modelo rápido son resúmenes breves
+    public static final int FAST_RESPONSE_TOKENS = 256;
+
+    // Clientes por configuración: en el daemon se reutilizan entre invocaciones con sus conexiones HTTP
+    private static final Map<String, Object> CLIENTS = new ConcurrentHashMap<>();
+
+    private final List<String> endpoints;
     private final String baseUrl;
     private final String modelName;
+    private final String fastModelName;
+    private final String embeddingModelName;
+    private final int contextWindow;
+    private final Duration timeout;
+    private final Duration fastTimeout;
 
     public OllamaConfig() {
         this(DEFAULT_BASE_URL, DEFAULT_MODEL);
     }
 
+    public OllamaConfig(int contextWindow) {
+        this(DEFAULT_BASE_URL, DEFAULT_MODEL, contextWindow);
+    }
+
     public OllamaConfig(String baseUrl, String modelName) {
-        this.baseUrl = baseUrl;
+        this(baseUrl, modelName, DEFAULT_CONTEXT_WINDOW);
+    }
+
+    public OllamaConfig(String baseUrl, String modelName, int contextWindow) {
+        this(List.of(baseUrl), modelName, modelName, contextWindow, DEFAULT_TIMEOUT, DEFAULT_FAST_TIMEOUT);
+    }
+
+    public OllamaConfig(List<String> endpoints, String modelName, String fastModelName, int contextWindow,
+                        Duration timeout, Duration fastTimeout) {
+        this.endpoints = List.copyOf(endpoints);
+        this.baseUrl = endpoints.get(0);
         this.modelName = modelName;
+        this.fastModelName = fastModelName;
+        this.embeddingModelName = System.getProperty(EMBEDDING_MODEL_PROPERTY, DEFAULT_EMBEDDING_MODEL);
+        this.contextWindow = contextWindow;
+        this.timeout = timeout;
+        this.fastTimeout = fastTimeout;
+    }
+
+    /**
+     * Configuración a partir de las propiedades {@code sentinel.ollama.*}; lo no indicado toma el
+     * valor por defecto (un endpoint local, el mismo modelo para todo)
+     */
+    public static OllamaConfig fromSystemProperties(int contextWindow) {
+        List<String> endpoints = new ArrayList<>();
+        for (String endpoint : System.getProperty(ENDPOINTS_PROPERTY, DEFAULT_BASE_URL).split(",")) {
+            if (!endpoint.isBlank()) {
+                endpoints.add(endpoint.strip());
+            }
+        }
+        if (endpoints.isEmpty()) {
+            endpoints.add(DEFAULT_BASE_URL);
+        }
+        String model = System.getProperty(MODEL_PROPERTY, DEFAULT_MODEL);
+        return new OllamaConfig(endpoints, model, System.getProperty(FAST_MODEL_PROPERTY, model), contextWindow,
+                durationProperty(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT),
+                durationProperty(FAST_TIMEOUT_PROPERTY, DEFAULT_FAST_TIMEOUT));
+    }
+
+    private static Duration durationProperty(String name, Duration defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.strip()));
+        } catch (NumberFormatException e) {
+            log.warn("Valor inválido para {}: '{}' (se esperan segundos); se usa {}", name, value, defaultValue);
+            return defaultValue;
+        }
     }
 
     /**
@@ -48,12 +140,58 @@ public class OllamaConfig {
      * Crea el modelo de chat para uso en el agente.
      */
     public ChatModel createModel() {
-        return OllamaChatModel.builder()
+        return shared("chat", () -> OllamaChatModel.builder()
                 .baseUrl(baseUrl)
                 .modelName(modelName)
-                .timeout(Duration.ofMinutes(10)) // Timeout extendido para tareas complejas
+                .numCtx(contextWindow)
+                .timeout(timeout)
                 .temperature(0.0)
-                .build();
+                .build());
+    }
+
+    /**
+     * Crea el enrutador entre los endpoints configurados: el nivel rápido usa el modelo rápido con
+     * respuestas cortas y su propio timeout. Los reintentos los hace el enrutador en otro endpoint,
+     * no el cliente.
+     */
+    public ModelRouter createRouter() {
+        return shared("router", () -> new ModelRouter(endpoints,
+                Map.of(ModelRouter.Tier.FAST, fastModelName, ModelRouter.Tier.REPORT, modelName),
+                (endpoint, tier) -> {
+                    boolean fast = tier == ModelRouter.Tier.FAST;
+                    return OllamaChatModel.builder()
+                            .baseUrl(endpoint)
+                            .modelName(fast ? fastModelName : modelName)
+                            .numCtx(contextWindow)
+                            .numPredict(fast ? FAST_RESPONSE_TOKENS : null)
+                            .timeout(fast ? fastTimeout : timeout)
+                            .maxRetries(0)
+                            .temperature(0.0)
+                            .build();
+                },
+                ENDPOINT_COOLDOWN));
+    }
+
+    /**
+     * Crea el modelo de embeddings para el índice de código. {@code embedAll} envía cada lote de
+     * fragmentos en una sola petición a {@code /api/embed}.
+     */
+    public EmbeddingModel createEmbeddingModel() {
+        return shared("embedding", () -> OllamaEmbeddingModel.builder()
+                .baseUrl(baseUrl)
+                .modelName(embeddingModelName)
+                .timeout(fastTimeout)
+                .build());
+    }
+
+    /**
+     * Cliente ya creado para la misma configuración, o uno nuevo
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T shared(String kind, Supplier<T> factory) {
+        String key = String.join("|", kind, String.join(",", endpoints), modelName, fastModelName, embeddingModelName,
+                String.valueOf(contextWindow), timeout.toString(), fastTimeout.toString());
+        return (T) CLIENTS.computeIfAbsent(key, k -> factory.get());
     }
 
     public String getBaseUrl() {
@@ -63,4 +201,20 @@ public class OllamaConfig {
     public String getModelName() {
         return modelName;
     }
+
+    public String getFastModelName() {
+        return fastModelName;
+    }
+
+    public String getEmbeddingModelName() {
+        return embeddingModelName;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public int getContextWindow() {
+        return contextWindow;
+    }
 }
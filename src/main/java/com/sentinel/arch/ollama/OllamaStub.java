@@ -0,0 +1,262 @@
+package com.sentinel.arch.ollama;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP mínimo que imita la API de Ollama ({@code POST /api/chat} sin streaming,
+ * {@code POST /api/embed}, {@code GET /api/tags}) para probar el enrutado, los timeouts y la carga
+ * sin GPU ni modelos.
+ *
+ * El chat responde con un texto que indica el modelo y el tamaño del prompt, relleno hasta
+ * {@code options.num_predict} tokens (o {@link #DEFAULT_RESPONSE_TOKENS}), y cuenta los tokens con
+ * {@link TokenEstimator}. Tarda el retardo fijo más un tiempo por token generado, como un modelo
+ * real; los embeddings tardan el retardo fijo más el tiempo de evaluar la entrada, que es
+ * {@value #PREFILL_SPEEDUP} veces más rápida que la generación. Los vectores son deterministas
+ * (derivados del texto), de modo que los índices construidos contra el stub son reproducibles.
+ * Si la petición trae un esquema JSON en {@code format} (salida estructurada), responde con un
+ * documento mínimo que lo cumple ({@link #sample}) en lugar del texto de relleno.
+ * Con {@code fail} devuelve 500 y con {@code hang} no responde nunca (para provocar timeouts).
+ *
+ * Uso: {@code java -cp sentinel.jar com.sentinel.arch.ollama.OllamaStub [puerto=11500] [retardo ms=200] [ok|fail|hang] [µs por token=0]}
+ */
+public class OllamaStub implements AutoCloseable {
+
+    public enum Mode {
+        OK, FAIL, HANG
+    }
+
+    public static final int DEFAULT_RESPONSE_TOKENS = 64;
+
+    // Dimensión de nomic-embed-text, el modelo de embeddings por defecto
+    public static final int EMBEDDING_DIMENSIONS = 768;
+
+    private static final int PREFILL_SPEEDUP = 20;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong embedRequests = new AtomicLong();
+    private volatile long delayMillis;
+    private volatile long tokenMicros;
+    private volatile Mode mode;
+
+    public OllamaStub(int port, long delayMillis, Mode mode) throws IOException {
+        this(port, delayMillis, 0, mode);
+    }
+
+    /**
+     * @param tokenMicros Microsegundos por token generado (0 = respuesta tras el retardo fijo)
+     */
+    public OllamaStub(int port, long delayMillis, long tokenMicros, Mode mode) throws IOException {
+        this.delayMillis = delayMillis;
+        this.tokenMicros = tokenMicros;
+        this.mode = mode;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/chat", this::chat);
+        server.createContext("/api/embed", this::embed);
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, "{\"models\":[]}"));
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 11500;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        Mode mode = args.length > 2 ? Mode.valueOf(args[2].toUpperCase()) : Mode.OK;
+        long tokenMicros = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        OllamaStub stub = new OllamaStub(port, delay, tokenMicros, mode);
+        System.err.printf("🧪 Stub de Ollama en %s (retardo %d ms + %d µs/token, modo %s)%n",
+                stub.baseUrl(), delay, tokenMicros, mode);
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    public void setTokenMicros(long tokenMicros) {
+        this.tokenMicros = tokenMicros;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return Peticiones de chat recibidas
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    public long embedRequests() {
+        return embedRequests.get();
+    }
+
+    /**
+     * @return Máximo de peticiones atendidas a la vez desde el arranque
+     */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Mode current = mode;
+            if (current == Mode.HANG) {
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            if (current == Mode.FAIL) {
+                Thread.sleep(delayMillis);
+                respond(exchange, 500, "{\"error\":\"stub failure\"}");
+                return;
+            }
+
+            String model = request.path("model").asText();
+            StringBuilder prompt = new StringBuilder();
+            for (JsonNode message : request.path("messages")) {
+                prompt.append(message.path("content").asText()).append('\n');
+            }
+            int maxTokens = request.path("options").path("num_predict").asInt(0);
+            StringBuilder content = new StringBuilder();
+            if (request.path("format").isObject()) {
+                content.append(MAPPER.writeValueAsString(sample(request.path("format"), "stub " + model)));
+            } else {
+                content.append("# Respuesta del stub\n\nModelo `").append(model)
+                        .append("`, prompt de ").append(prompt.length()).append(" caracteres.\n");
+                int target = maxTokens > 0 ? maxTokens : DEFAULT_RESPONSE_TOKENS;
+                // Cada " tok" es un token para TokenEstimator
+                content.append(" tok".repeat(Math.max(0, target - TokenEstimator.estimate(content))));
+            }
+            int evalCount = TokenEstimator.estimate(content);
+            Thread.sleep(Duration.ofMillis(delayMillis).plusNanos(evalCount * tokenMicros * 1000));
+
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("model", model);
+            response.put("created_at", Instant.now().toString());
+            response.putObject("message").put("role", "assistant").put("content", content.toString());
+            response.put("done", true);
+            response.put("done_reason", "stop");
+            response.put("prompt_eval_count", TokenEstimator.estimate(prompt));
+            response.put("eval_count", evalCount);
+            respond(exchange, 200, MAPPER.writeValueAsString(response));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Valor que cumple el esquema: todas las propiedades, tres elementos por lista, el primer valor
+     * de cada enumeración y textos que indican su ruta
+     */
+    private static JsonNode sample(JsonNode schema, String path) {
+        if (schema.path("enum").isArray() && !schema.path("enum").isEmpty()) {
+            return schema.path("enum").get(0);
+        }
+        switch (schema.path("type").asText()) {
+            case "object" -> {
+                ObjectNode object = MAPPER.createObjectNode();
+                schema.path("properties").fields().forEachRemaining(
+                        property -> object.set(property.getKey(), sample(property.getValue(), path + "." + property.getKey())));
+                return object;
+            }
+            case "array" -> {
+                ArrayNode array = MAPPER.createArrayNode();
+                for (int i = 0; i < 3; i++) {
+                    array.add(sample(schema.path("items"), path + "[" + i + "]"));
+                }
+                return array;
+            }
+            case "integer", "number" -> {
+                return MAPPER.getNodeFactory().numberNode(0);
+            }
+            case "boolean" -> {
+                return MAPPER.getNodeFactory().booleanNode(false);
+            }
+            default -> {
+                return MAPPER.getNodeFactory().textNode(path);
+            }
+        }
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        embedRequests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Mode current = mode;
+            if (current == Mode.HANG) {
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            long inputTokens = 0;
+            for (JsonNode input : request.path("input")) {
+                inputTokens += TokenEstimator.estimate(input.asText());
+            }
+            Thread.sleep(Duration.ofMillis(delayMillis).plusNanos(inputTokens * tokenMicros * 1000 / PREFILL_SPEEDUP));
+            if (current == Mode.FAIL) {
+                respond(exchange, 500, "{\"error\":\"stub failure\"}");
+                return;
+            }
+
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("model", request.path("model").asText());
+            ArrayNode embeddings = response.putArray("embeddings");
+            for (JsonNode input : request.path("input")) {
+                ArrayNode vector = embeddings.addArray();
+                SplittableRandom random = new SplittableRandom(input.asText().hashCode());
+                for (int i = 0; i < EMBEDDING_DIMENSIONS; i++) {
+                    vector.add((float) (random.nextDouble() * 2 - 1));
+                }
+            }
+            response.put("prompt_eval_count", inputTokens);
+            respond(exchange, 200, MAPPER.writeValueAsString(response));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.sentinel.arch.ollama;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compactación del resultado de descubrimiento antes de enviarlo al modelo.
+ *
+ * El JSON de {@code discover_service_interconnections} repite cada conexión en
+ * {@code connection_mapping} y gasta la mayoría de los tokens en sangrías y claves. Aquí se
+ * convierte en una lista de aristas de una línea, agregando las conexiones iguales
+ * ({@code orders-svc -> Messaging-Kafka:payments x14 [KafkaTemplate; OrderService.java +3]}).
+ * Si el resultado no cabe en el presupuesto de tokens, se conservan las aristas más
+ * significativas (destinos concretos antes que genéricos, salientes antes que entrantes, más
+ * repeticiones antes que menos) y el resto se resume por protocolo en una línea final.
+ *
+ * Acepta tanto {@code discovery_summary} como {@code interconnection_delta} (modo PR, con las
+ * aristas marcadas {@code +} añadida / {@code -} eliminada). Cualquier otro contenido se devuelve
+ * tal cual.
+ */
+public class PromptCompactor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Archivos de origen listados por arista; el resto se indica como "+N" */
+    private static final int FILES_PER_EDGE = 2;
+
+    /** Tokens reservados para la línea que resume las aristas omitidas */
+    private static final int OMITTED_SUMMARY_TOKENS = 80;
+
+    /**
+     * @param text Texto compactado para el prompt
+     * @param originalTokens Tokens estimados del resultado original
+     * @param tokens Tokens estimados del texto compactado
+     * @param edges Aristas incluidas
+     * @param omittedEdges Aristas que no cupieron en el presupuesto
+     * @param connections Conexiones originales (antes de agregar)
+     * @param omitted Líneas de las aristas omitidas, por relevancia (para resumirlas aparte)
+     */
+    public record Result(String text, int originalTokens, int tokens, int edges, int omittedEdges, int connections,
+                         List<String> omitted) {
+    }
+
+    /**
+     * @param discoveryResult Resultado JSON del descubrimiento
+     * @param serviceName Nombre del servicio analizado (nodo origen de las aristas salientes)
+     * @param tokenBudget Tokens máximos del texto compactado
+     */
+    public Result compact(String discoveryResult, String serviceName, int tokenBudget) {
+        int originalTokens = TokenEstimator.estimate(discoveryResult);
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(discoveryResult);
+        } catch (IOException e) {
+            return new Result(discoveryResult, originalTokens, originalTokens, 0, 0, 0, List.of());
+        }
+
+        StringBuilder header = new StringBuilder();
+        Map<String, Edge> edges = new LinkedHashMap<>();
+        int connections;
+        JsonNode summary = root.path("discovery_summary");
+        JsonNode delta = root.path("interconnection_delta");
+        if (summary.isObject()) {
+            header.append("Interconexiones de ").append(serviceName);
+            connections = collect(summary.path("inbound_services"), true, null, edges)
+                    + collect(summary.path("outbound_services"), false, null, edges);
+            appendTruncated(header, summary);
+        } else if (delta.isObject()) {
+            header.append("Cambios de interconexiones de ").append(serviceName)
+                    .append(" desde ").append(delta.path("base_revision").asText())
+                    .append(" (").append(delta.path("changed_files").asInt()).append(" archivos cambiados)");
+            connections = collect(delta.path("inbound_added"), true, "+", edges)
+                    + collect(delta.path("inbound_removed"), true, "-", edges)
+                    + collect(delta.path("outbound_added"), false, "+", edges)
+                    + collect(delta.path("outbound_removed"), false, "-", edges);
+            appendTruncated(header, delta);
+        } else {
+            return new Result(discoveryResult, originalTokens, originalTokens, 0, 0, 0, List.of());
+        }
+        header.append(": ").append(connections).append(" conexiones en ").append(edges.size()).append(" aristas\n");
+        header.append("Formato: origen -> protocolo:destino xN [tipo; clave de configuración; archivos]");
+        if (delta.isObject()) {
+            header.append(", + añadida, - eliminada");
+        }
+        header.append('\n');
+
+        // Selección por relevancia; si no cabe todo se reserva sitio para resumir lo omitido
+        List<Edge> ranked = new ArrayList<>(edges.values());
+        ranked.sort(Comparator.comparingInt(Edge::rank).reversed());
+        int headerTokens = TokenEstimator.estimate(header);
+        int[] costs = new int[ranked.size()];
+        int total = headerTokens;
+        for (int i = 0; i < ranked.size(); i++) {
+            costs[i] = TokenEstimator.estimate(ranked.get(i).format(serviceName)) + 1;
+            total += costs[i];
+        }
+        int limit = total <= tokenBudget ? tokenBudget : tokenBudget - OMITTED_SUMMARY_TOKENS;
+        int used = headerTokens;
+        List<Edge> selected = new ArrayList<>();
+        List<Edge> omitted = new ArrayList<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            if (omitted.isEmpty() && used + costs[i] <= limit) {
+                selected.add(ranked.get(i));
+                used += costs[i];
+            } else {
+                omitted.add(ranked.get(i));
+            }
+        }
+
+        // Lectura estable: entrantes y luego salientes, agrupadas por protocolo
+        selected.sort(Comparator.comparing((Edge e) -> !e.inbound)
+                .thenComparing(e -> e.protocol)
+                .thenComparing(e -> e.target));
+        StringBuilder text = new StringBuilder(header);
+        for (Edge edge : selected) {
+            text.append(edge.format(serviceName)).append('\n');
+        }
+        if (!omitted.isEmpty()) {
+            text.append(omittedSummary(omitted)).append('\n');
+        }
+        return new Result(text.toString(), originalTokens, TokenEstimator.estimate(text), selected.size(),
+                omitted.size(), connections, omitted.stream().map(edge -> edge.format(serviceName)).toList());
+    }
+
+    private static void appendTruncated(StringBuilder header, JsonNode section) {
+        if (section.path("truncated").asBoolean(false)) {
+            header.append(" (análisis parcial: interrumpido antes de terminar)");
+        }
+    }
+
+    private static int collect(JsonNode services, boolean inbound, String change, Map<String, Edge> edges) {
+        int count = 0;
+        for (JsonNode service : services) {
+            String protocol = service.path("protocol").asText();
+            String target = inbound ? service.path("endpoint").asText() : service.path("target_service").asText();
+            String type = inbound ? null : service.path("type").asText(null);
+            String key = (change != null ? change : "") + (inbound ? "<" : ">") + protocol + '\n' + target + '\n' + type;
+            Edge edge = edges.computeIfAbsent(key, k -> new Edge(inbound, change, protocol, target, type));
+            edge.count++;
+            String configKey = service.path("config_key").asText(null);
+            if (configKey != null) {
+                edge.configKeys.add(configKey);
+            }
+            edge.files.add(service.path("source_file").asText());
+            count++;
+        }
+        return count;
+    }
+
+    private static String omittedSummary(List<Edge> omitted) {
+        Map<String, Integer> byProtocol = new TreeMap<>();
+        int connections = 0;
+        for (Edge edge : omitted) {
+            byProtocol.merge(edge.protocol, edge.count, Integer::sum);
+            connections += edge.count;
+        }
+        StringBuilder line = new StringBuilder("... ").append(omitted.size()).append(" aristas menos relevantes omitidas (")
+                .append(connections).append(" conexiones):");
+        byProtocol.forEach((protocol, count) -> line.append(' ').append(protocol).append(" x").append(count).append(','));
+        line.setLength(line.length() - 1);
+        return line.toString();
+    }
+
+    /**
+     * Conexiones iguales agregadas: misma dirección, protocolo, destino y tipo
+     */
+    private static final class Edge {
+        final boolean inbound;
+        final String change;
+        final String protocol;
+        final String target;
+        final String type;
+        final Set<String> configKeys = new LinkedHashSet<>();
+        final Set<String> files = new LinkedHashSet<>();
+        int count;
+
+        Edge(boolean inbound, String change, String protocol, String target, String type) {
+            this.inbound = inbound;
+            this.change = change;
+            this.protocol = protocol;
+            this.target = target;
+            this.type = type;
+        }
+
+        /**
+         * Relevancia: destinos concretos antes que los valores genéricos de las reglas
+         * ("External Services"), salientes de red antes que entrantes y que URLs sueltas de
+         * configuración, y a igualdad, más conexiones
+         */
+        int rank() {
+            boolean generic = target.contains(" ") || target.isEmpty();
+            int category = protocol.equals("Configuration") ? 1 : inbound ? 2 : 3;
+            return (generic ? 0 : 1_000_000) + category * 100_000 + Math.min(count, 99_999);
+        }
+
+        String format(String serviceName) {
+            StringBuilder line = new StringBuilder();
+            if (change != null) {
+                line.append(change).append(' ');
+            }
+            if (inbound) {
+                line.append(protocol).append(':').append(target).append(" -> ").append(serviceName);
+            } else {
+                line.append(serviceName).append(" -> ").append(protocol).append(':').append(target);
+            }
+            if (count > 1) {
+                line.append(" x").append(count);
+            }
+            line.append(" [");
+            if (type != null) {
+                line.append(type).append("; ");
+            }
+            if (!configKeys.isEmpty()) {
+                line.append(String.join(", ", configKeys)).append("; ");
+            }
+            int listed = 0;
+            for (String file : files) {
+                if (listed == FILES_PER_EDGE) {
+                    line.append(" +").append(files.size() - FILES_PER_EDGE);
+                    break;
+                }
+                line.append(listed > 0 ? ", " : "").append(file);
+                listed++;
+            }
+            return line.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.sentinel.arch.report;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hallazgos de una auditoría tal como los devuelve el modelo: JSON compacto restringido por
+ * {@link #responseFormat()} (Ollama decodifica contra el esquema), que {@link #parse} valida antes
+ * de que {@link SentinelReport} lo vuelque en la plantilla WF-03.
+ *
+ * El modelo solo redacta lo que requiere juicio (resumen, riesgos y recomendaciones); tablas,
+ * diagrama y cabecera se generan en local a partir del descubrimiento.
+ */
+public record AuditFindings(String overview, List<String> summary, List<Risk> risks,
+                            List<Recommendation> recommendations) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Viñetas del resumen ejecutivo (WF-03: de 3 a 7) */
+    public static final int MIN_SUMMARY = 3;
+    public static final int MAX_SUMMARY = 7;
+
+    public enum Level {
+        HIGH("Alta"), MEDIUM("Media"), LOW("Baja");
+
+        private final String label;
+
+        Level(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    public enum Kind {
+        COMPLEXITY("Complejidad / tamaño"), COUPLING("Acoplamiento / cohesión"), SMELL("Smells comunes"),
+        SECURITY("Seguridad");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * @param target Clase, paquete o servicio afectado
+     */
+    public record Risk(Level level, String target, String issue) {
+    }
+
+    /**
+     * @param target Clase, paquete o servicio afectado
+     * @param impact Impacto esperado (legibilidad, mantenibilidad, testabilidad, seguridad...)
+     */
+    public record Recommendation(Kind kind, String target, String action, String impact) {
+    }
+
+    /**
+     * Formato de respuesta JSON con el esquema de los hallazgos; Ollama lo recibe como {@code format}
+     * y solo genera documentos que lo cumplen
+     */
+    public static ResponseFormat responseFormat() {
+        JsonObjectSchema risk = JsonObjectSchema.builder()
+                .addEnumProperty("level", names(Level.values()))
+                .addStringProperty("target", "Clase, paquete o servicio")
+                .addStringProperty("issue", "Riesgo en una frase")
+                .required("level", "target", "issue")
+                .additionalProperties(false)
+                .build();
+        JsonObjectSchema recommendation = JsonObjectSchema.builder()
+                .addEnumProperty("kind", names(Kind.values()))
+                .addStringProperty("target", "Clase, paquete o servicio")
+                .addStringProperty("action", "Refactorización o cambio propuesto")
+                .addStringProperty("impact", "Impacto esperado")
+                .required("kind", "target", "action", "impact")
+                .additionalProperties(false)
+                .build();
+        JsonObjectSchema root = JsonObjectSchema.builder()
+                .addStringProperty("overview", "Tipo de arquitectura en una o dos frases")
+                .addProperty("summary", JsonArraySchema.builder()
+                        .description(MIN_SUMMARY + " a " + MAX_SUMMARY + " viñetas de resumen ejecutivo")
+                        .items(new JsonStringSchema())
+                        .build())
+                .addProperty("risks", JsonArraySchema.builder().items(risk).build())
+                .addProperty("recommendations", JsonArraySchema.builder().items(recommendation).build())
+                .required("overview", "summary", "risks", "recommendations")
+                .additionalProperties(false)
+                .build();
+        return ResponseFormat.builder()
+                .type(ResponseFormatType.JSON)
+                .jsonSchema(JsonSchema.builder().name("audit_findings").rootElement(root).build())
+                .build();
+    }
+
+    /**
+     * Lee y valida la respuesta del modelo. Las viñetas de resumen que sobran se descartan; los
+     * textos se recortan.
+     *
+     * @throws IllegalArgumentException Si no es JSON o no cumple el esquema, con todos los problemas encontrados
+     */
+    public static AuditFindings parse(String json) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(json == null ? "" : json.strip());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("La respuesta no es JSON válido: " + e.getOriginalMessage());
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("La respuesta no es un objeto JSON");
+        }
+
+        List<String> problems = new ArrayList<>();
+        String overview = text(root, "overview", "overview", problems);
+        List<String> summary = new ArrayList<>();
+        JsonNode bullets = array(root, "summary", problems);
+        for (int i = 0; i < bullets.size() && summary.size() < MAX_SUMMARY; i++) {
+            String bullet = bullets.get(i).isTextual() ? bullets.get(i).asText().strip() : "";
+            if (!bullet.isEmpty()) {
+                summary.add(bullet);
+            }
+        }
+        if (summary.size() < MIN_SUMMARY) {
+            problems.add("summary: " + summary.size() + " viñetas, se esperan de " + MIN_SUMMARY + " a " + MAX_SUMMARY);
+        }
+
+        List<Risk> risks = new ArrayList<>();
+        JsonNode riskNodes = array(root, "risks", problems);
+        for (int i = 0; i < riskNodes.size(); i++) {
+            JsonNode node = riskNodes.get(i);
+            String path = "risks[" + i + "]";
+            Level level = constant(Level.class, node, "level", path, problems);
+            String target = text(node, "target", path + ".target", problems);
+            String issue = text(node, "issue", path + ".issue", problems);
+            risks.add(new Risk(level, target, issue));
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        JsonNode recommendationNodes = array(root, "recommendations", problems);
+        for (int i = 0; i < recommendationNodes.size(); i++) {
+            JsonNode node = recommendationNodes.get(i);
+            String path = "recommendations[" + i + "]";
+            Kind kind = constant(Kind.class, node, "kind", path, problems);
+            String target = text(node, "target", path + ".target", problems);
+            String action = text(node, "action", path + ".action", problems);
+            String impact = text(node, "impact", path + ".impact", problems);
+            recommendations.add(new Recommendation(kind, target, action, impact));
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("Hallazgos inválidos: " + String.join("; ", problems));
+        }
+        return new AuditFindings(overview, List.copyOf(summary), List.copyOf(risks), List.copyOf(recommendations));
+    }
+
+    private static String text(JsonNode node, String field, String path, List<String> problems) {
+        JsonNode value = node.path(field);
+        String text = value.isTextual() ? value.asText().strip() : "";
+        if (text.isEmpty()) {
+            problems.add(path + " vacío");
+        }
+        return text;
+    }
+
+    private static JsonNode array(JsonNode root, String field, List<String> problems) {
+        JsonNode value = root.path(field);
+        if (!value.isArray()) {
+            problems.add(field + " no es una lista");
+            return MAPPER.createArrayNode();
+        }
+        return value;
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, JsonNode node, String field, String path,
+                                                  List<String> problems) {
+        String value = node.path(field).asText("").strip().toUpperCase(Locale.ROOT);
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            problems.add(path + "." + field + " '" + value + "' no es uno de " + names(type.getEnumConstants()));
+            return null;
+        }
+    }
+
+    private static List<String> names(Enum<?>[] constants) {
+        return Arrays.stream(constants).map(Enum::name).toList();
+    }
+}
@@ -0,0 +1,438 @@
+package com.sentinel.arch.report;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Informe de arquitectura con la estructura invariante de WF-03 (cabecera, resumen ejecutivo,
+ * tablas de dependencias, diagrama Mermaid, riesgos y sugerencias de refactorización).
+ *
+ * Todo lo que se deduce de los datos (cabecera, módulos Maven, tablas de servicios y diagrama) se
+ * genera aquí a partir del pom.xml y del JSON del descubrimiento; del modelo solo llegan los
+ * {@link AuditFindings}. Con la misma entrada el Markdown es siempre el mismo, salvo la fecha.
+ * Las credenciales en URLs ({@code usuario:clave@}) se enmascaran en todo el informe.
+ *
+ * Los archivos se nombran {@code SENTINEL_REPORT_YYYYMMDD_NN.md} con el primer índice libre del día
+ * ({@link #createReportFile}).
+ */
+public final class SentinelReport {
+
+    private static final Logger log = LoggerFactory.getLogger(SentinelReport.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static final String FILE_PREFIX = "SENTINEL_REPORT_";
+
+    // Filas por tabla y aristas del diagrama; el resto se indica con su número
+    static final int MAX_TABLE_ROWS = 200;
+    static final int MAX_DIAGRAM_EDGES = 60;
+    // Módulos Maven anidados que se recorren como máximo
+    private static final int MAX_MODULES = 200;
+
+    private static final Pattern REPORT_NAME = Pattern.compile("SENTINEL_REPORT_(\\d{8})(?:_(\\d+))?\\.md");
+    private static final Pattern URL_CREDENTIALS = Pattern.compile("(\\b[a-zA-Z][a-zA-Z0-9+.-]*://)[^/@\\s]+@");
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private SentinelReport() {
+    }
+
+    /**
+     * @param rootPath Raíz del proyecto analizado
+     * @param discoveryResult JSON de {@code discover_*_interconnections} (resumen o delta git)
+     * @param findings Hallazgos validados del modelo
+     * @param generatedAt Momento de generación (cabecera)
+     */
+    public static String render(Path rootPath, String discoveryResult, AuditFindings findings,
+                                OffsetDateTime generatedAt) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(discoveryResult);
+        } catch (IOException e) {
+            log.warn("El resultado del descubrimiento no es JSON; el informe sale sin tablas de servicios: {}", e.getMessage());
+            root = MAPPER.createObjectNode();
+        }
+        JsonNode summary = root.path("discovery_summary");
+        JsonNode delta = root.path("interconnection_delta");
+        String serviceName = rootPath.getFileName() != null ? rootPath.getFileName().toString() : "service";
+
+        StringBuilder md = new StringBuilder();
+        appendHeader(md, rootPath, generatedAt, delta);
+        if (summary.path("truncated").asBoolean() || delta.path("truncated").asBoolean()) {
+            md.append("\n> ⚠️ El descubrimiento no terminó (cancelado o fuera de plazo): las tablas y el diagrama están incompletos.\n");
+        }
+
+        md.append("\n## Resumen ejecutivo\n\n");
+        md.append(clean(findings.overview())).append("\n\n");
+        for (String bullet : findings.summary()) {
+            md.append("- ").append(clean(bullet)).append('\n');
+        }
+
+        md.append("\n## Dependencias (Maven)\n\n");
+        appendMavenModules(md, rootPath);
+
+        List<List<String>> inbound = new ArrayList<>();
+        List<List<String>> outbound = new ArrayList<>();
+        if (delta.isObject()) {
+            collectInbound(delta.path("inbound_added"), "+", inbound);
+            collectInbound(delta.path("inbound_removed"), "-", inbound);
+            collectOutbound(delta.path("outbound_added"), "+", outbound);
+            collectOutbound(delta.path("outbound_removed"), "-", outbound);
+        } else {
+            collectInbound(summary.path("inbound_services"), null, inbound);
+            collectOutbound(summary.path("outbound_services"), null, outbound);
+        }
+        boolean changes = delta.isObject();
+        md.append("\n## Dependencias (Servicios internos)\n\n");
+        md.append("### Entrantes\n\n");
+        appendTable(md, changes ? List.of("Cambio", "Componente", "Protocolo", "Endpoint")
+                : List.of("Componente", "Protocolo", "Endpoint"), distinct(inbound));
+        md.append("\n### Salientes\n\n");
+        appendTable(md, changes ? List.of("Cambio", "Origen", "Tipo", "Destino", "Tipo de llamada")
+                : List.of("Origen", "Tipo", "Destino", "Tipo de llamada"), distinct(outbound));
+
+        md.append("\n## Diagrama de arquitectura\n\n");
+        appendDiagram(md, serviceName, changes, inbound, outbound);
+
+        md.append("\n## Riesgos\n\n");
+        List<AuditFindings.Risk> risks = new ArrayList<>(findings.risks());
+        risks.sort(Comparator.comparing(AuditFindings.Risk::level));
+        List<List<String>> riskRows = new ArrayList<>();
+        for (AuditFindings.Risk risk : risks) {
+            riskRows.add(List.of(risk.level().label(), risk.target(), risk.issue()));
+        }
+        if (riskRows.isEmpty()) {
+            md.append("_Sin riesgos identificados._\n");
+        } else {
+            appendTable(md, List.of("Severidad", "Componente", "Hallazgo"), riskRows);
+        }
+
+        md.append("\n## Sugerencias de refactorización\n");
+        if (findings.recommendations().isEmpty()) {
+            md.append("\n_Sin sugerencias._\n");
+        }
+        for (AuditFindings.Kind kind : AuditFindings.Kind.values()) {
+            List<AuditFindings.Recommendation> ofKind = findings.recommendations().stream()
+                    .filter(r -> r.kind() == kind)
+                    .toList();
+            if (ofKind.isEmpty()) {
+                continue;
+            }
+            md.append("\n### ").append(kind.label()).append("\n\n");
+            for (AuditFindings.Recommendation recommendation : ofKind) {
+                md.append("- **").append(clean(recommendation.target())).append("**: ")
+                        .append(clean(recommendation.action()))
+                        .append(" _Impacto: ").append(clean(recommendation.impact()).replaceAll("\\.+$", "")).append("._\n");
+            }
+        }
+        return md.toString();
+    }
+
+    /**
+     * Crea el archivo del informe con el primer índice libre del día en el directorio. La creación
+     * es atómica: dos auditorías simultáneas no se quedan con el mismo nombre.
+     */
+    public static Path createReportFile(Path directory, LocalDate date) throws IOException {
+        Files.createDirectories(directory);
+        String day = date.format(FILE_DATE);
+        int last = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = REPORT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(day) && matcher.group(2) != null) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(2)));
+                }
+            }
+        }
+        for (int index = last + 1; ; index++) {
+            Path file = directory.resolve(String.format("%s%s_%02d.md", FILE_PREFIX, day, index));
+            try {
+                Files.createFile(file);
+                log.info("Informe creado: {}", file.toAbsolutePath());
+                return file;
+            } catch (FileAlreadyExistsException e) {
+                // Otra auditoría tomó este índice entre el listado y la creación
+            }
+        }
+    }
+
+    /**
+     * Versión del jar (manifiesto), o "dev" al ejecutar desde las clases
+     */
+    public static String version() {
+        String version = SentinelReport.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+
+    private static void appendHeader(StringBuilder md, Path rootPath, OffsetDateTime generatedAt, JsonNode delta) {
+        md.append("# Sentinel Architecture Report\n\n");
+        md.append("- Generated at: ").append(generatedAt.withNano(0).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)).append('\n');
+        md.append("- Root path: ").append(clean(rootPath.toString())).append('\n');
+        md.append("- Sentinel version: sentinel-backend-ai ").append(version()).append('\n');
+        String pomHash = sha1(rootPath.resolve("pom.xml"));
+        if (pomHash != null) {
+            md.append("- pom.xml SHA-1: ").append(pomHash).append('\n');
+        }
+        if (delta.isObject()) {
+            md.append("- Base revision: ").append(clean(delta.path("base_revision").asText()))
+                    .append(" (").append(delta.path("base_commit").asText()).append("), ")
+                    .append(delta.path("changed_files").asInt()).append(" archivos cambiados\n");
+        }
+    }
+
+    private static void collectInbound(JsonNode services, String change, List<List<String>> rows) {
+        for (JsonNode service : services) {
+            List<String> row = new ArrayList<>();
+            if (change != null) {
+                row.add(change);
+            }
+            row.add(component(service.path("source_file").asText()));
+            row.add(service.path("protocol").asText());
+            row.add(service.path("endpoint").asText());
+            rows.add(row);
+        }
+    }
+
+    private static void collectOutbound(JsonNode services, String change, List<List<String>> rows) {
+        for (JsonNode service : services) {
+            List<String> row = new ArrayList<>();
+            if (change != null) {
+                row.add(change);
+            }
+            row.add(component(service.path("source_file").asText()));
+            row.add(service.path("protocol").asText());
+            row.add(service.path("target_service").asText());
+            row.add(service.path("type").asText());
+            rows.add(row);
+        }
+    }
+
+    /**
+     * Filas sin repetir en orden estable (en un delta, las añadidas antes que las eliminadas)
+     */
+    private static List<List<String>> distinct(List<List<String>> rows) {
+        Comparator<List<String>> byColumns = (a, b) -> {
+            for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                int cmp = a.get(i).compareTo(b.get(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(a.size(), b.size());
+        };
+        TreeSet<List<String>> sorted = new TreeSet<>(byColumns);
+        sorted.addAll(rows);
+        return new ArrayList<>(sorted);
+    }
+
+    private static void appendTable(StringBuilder md, List<String> columns, List<List<String>> rows) {
+        if (rows.isEmpty()) {
+            md.append("_Ninguna._\n");
+            return;
+        }
+        md.append('|');
+        for (String column : columns) {
+            md.append(' ').append(column).append(" |");
+        }
+        md.append("\n|");
+        for (int i = 0; i < columns.size(); i++) {
+            md.append("---|");
+        }
+        md.append('\n');
+        for (List<String> row : rows.subList(0, Math.min(rows.size(), MAX_TABLE_ROWS))) {
+            md.append('|');
+            for (String cell : row) {
+                md.append(' ').append(cell(cell)).append(" |");
+            }
+            md.append('\n');
+        }
+        if (rows.size() > MAX_TABLE_ROWS) {
+            md.append("\n_… y ").append(rows.size() - MAX_TABLE_ROWS).append(" filas más._\n");
+        }
+    }
+
+    /**
+     * Grafo WF-02: la aplicación apunta a los componentes con endpoints entrantes ({@code CTRL_}),
+     * y cada componente con llamadas salientes ({@code SVC_}, o su nodo {@code CTRL_}) a sus
+     * destinos ({@code EXT_}), con el tipo de llamada como etiqueta
+     */
+    private static void appendDiagram(StringBuilder md, String serviceName, boolean changes,
+                                      List<List<String>> inbound, List<List<String>> outbound) {
+        Map<String, String> ids = new HashMap<>();
+        Set<String> used = new HashSet<>();
+        String app = nodeId("APP_", serviceName, ids, used);
+        Map<String, String> nodes = new TreeMap<>();
+        nodes.put(app, serviceName);
+        // El delta lleva la columna de cambio delante
+        int offset = changes ? 1 : 0;
+
+        TreeSet<String> edges = new TreeSet<>();
+        Set<String> controllers = new HashSet<>();
+        for (List<String> row : inbound) {
+            String component = row.get(offset);
+            controllers.add(component);
+            String id = nodeId("CTRL_", component, ids, used);
+            nodes.put(id, component);
+            edges.add(app + " --> " + id);
+        }
+        for (List<String> row : outbound) {
+            String component = row.get(offset);
+            String target = row.get(offset + 2);
+            String source = nodeId(controllers.contains(component) ? "CTRL_" : "SVC_", component, ids, used);
+            String destination = nodeId("EXT_", target, ids, used);
+            nodes.put(source, component);
+            nodes.put(destination, target);
+            edges.add(source + " -- " + mermaidLabel(row.get(offset + 3)) + " --> " + destination);
+        }
+
+        md.append("```mermaid\ngraph TD\n");
+        nodes.forEach((id, label) -> md.append("  ").append(id).append("[\"").append(mermaidLabel(label)).append("\"]\n"));
+        int written = 0;
+        for (String edge : edges) {
+            if (written++ == MAX_DIAGRAM_EDGES) {
+                md.append("  %% ").append(edges.size() - MAX_DIAGRAM_EDGES).append(" aristas más en las tablas\n");
+                break;
+            }
+            md.append("  ").append(edge).append('\n');
+        }
+        md.append("```\n");
+    }
+
+    /**
+     * ID de nodo Mermaid único con solo {@code [A-Za-z0-9_]}; el mismo nombre da el mismo ID
+     */
+    private static String nodeId(String prefix, String name, Map<String, String> ids, Set<String> used) {
+        return ids.computeIfAbsent(prefix + name, key -> {
+            String base = prefix + name.replaceAll("[^A-Za-z0-9_]", "_");
+            String id = base;
+            for (int i = 2; !used.add(id); i++) {
+                id = base + "_" + i;
+            }
+            return id;
+        });
+    }
+
+    private static String mermaidLabel(String text) {
+        return clean(text).replace("\"", "#quot;");
+    }
+
+    /**
+     * Filas de módulos: la raíz y sus {@code <modules>} recursivamente; groupId y versión se
+     * heredan del {@code <parent>} si el módulo no los declara
+     */
+    private static void appendMavenModules(StringBuilder md, Path rootPath) {
+        List<List<String>> rows = new ArrayList<>();
+        Deque<Path> pending = new ArrayDeque<>(List.of(rootPath));
+        Set<Path> seen = new HashSet<>();
+        try {
+            DocumentBuilder builder = pomParser();
+            while (!pending.isEmpty() && rows.size() < MAX_MODULES) {
+                Path module = pending.removeFirst().normalize();
+                Path pom = module.resolve("pom.xml");
+                if (!seen.add(module) || !Files.isRegularFile(pom)) {
+                    continue;
+                }
+                Element project;
+                try {
+                    project = builder.parse(pom.toFile()).getDocumentElement();
+                } catch (Exception e) {
+                    log.debug("pom.xml ilegible en {}: {}", pom, e.getMessage());
+                    continue;
+                }
+                Element parent = child(project, "parent");
+                String groupId = childText(project, "groupId", parent != null ? childText(parent, "groupId", "") : "");
+                String version = childText(project, "version", parent != null ? childText(parent, "version", "") : "");
+                String name = module.equals(rootPath.normalize()) ? "raíz" : rootPath.relativize(module).toString().replace('\\', '/');
+                rows.add(List.of(name, groupId, childText(project, "artifactId", ""), version));
+                Element modules = child(project, "modules");
+                if (modules != null) {
+                    for (Node node = modules.getFirstChild(); node != null; node = node.getNextSibling()) {
+                        if (node instanceof Element element && element.getTagName().equals("module")) {
+                            pending.addLast(module.resolve(element.getTextContent().strip()));
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("No se pudieron leer los módulos Maven de {}: {}", rootPath, e.getMessage());
+        }
+        if (rows.isEmpty()) {
+            md.append("_Sin pom.xml en la raíz._\n");
+            return;
+        }
+        appendTable(md, List.of("Módulo", "GroupId", "ArtifactId", "Version"), rows);
+    }
+
+    private static DocumentBuilder pomParser() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setExpandEntityReferences(false);
+        return factory.newDocumentBuilder();
+    }
+
+    private static Element child(Element parent, String tag) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && element.getTagName().equals(tag)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static String childText(Element parent, String tag, String defaultValue) {
+        Element element = child(parent, tag);
+        return element != null ? element.getTextContent().strip() : defaultValue;
+    }
+
+    private static String sha1(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file)));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Nombre de la clase a partir de su archivo (fuente, .class o entrada de jar)
+     */
+    private static String component(String sourceFile) {
+        String name = sourceFile.substring(Math.max(sourceFile.lastIndexOf('/'), sourceFile.lastIndexOf('\\')) + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String cell(String text) {
+        return clean(text).replace("|", "\\|");
+    }
+
+    /**
+     * Una línea, sin credenciales en URLs
+     */
+    private static String clean(String text) {
+        String line = text.replaceAll("\\s*[\\r\\n]+\\s*", " ").strip();
+        return URL_CREDENTIALS.matcher(line).replaceAll("$1***@");
+    }
+}
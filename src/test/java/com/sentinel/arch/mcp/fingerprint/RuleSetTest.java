@@ -0,0 +1,175 @@
+package com.sentinel.arch.mcp.fingerprint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.sentinel.arch.mcp.fingerprint.FingerprintRule.Scope;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rules merged because they share a prefilter literal must report exactly what each rule reports
+ * when compiled alone.
+ */
+class RuleSetTest {
+
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+
+    private static final String LISTENER = """
+            @Component
+            class Listeners {
+                @KafkaListener(topics = "orders", groupId = "billing")
+                void orders(String message) {}
+
+                @KafkaListener(topics = "internal-audit", groupId = "audit")
+                void audit(String message) {}
+            }
+            """;
+
+    @Test
+    void rulesMatchingAtTheSamePositionBothReport() throws IOException {
+        List<FingerprintRule> rules = List.of(
+                rule("""
+                        id: kafka-topic
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\([^)]*topics\\s*=\\s*"([^"]+)"'
+                        """),
+                rule("""
+                        id: kafka-group
+                        direction: inbound
+                        protocol: Messaging-Kafka-Group
+                        pattern: '@KafkaListener\\s*\\([^)]*groupId\\s*=\\s*"([^"]+)"'
+                        """));
+
+        RuleSet merged = RuleSet.compile(rules);
+        assertEquals(1, merged.matcherCount(Scope.SOURCE), "rules sharing @KafkaListener should be merged");
+        assertEquals(List.of("kafka-topic=orders", "kafka-topic=internal-audit", "kafka-group=billing", "kafka-group=audit"),
+                describe(merged.scan(LISTENER, Scope.SOURCE)));
+        assertSameAsStandalone(rules, LISTENER);
+    }
+
+    @Test
+    void failedPreconditionDoesNotHideOtherMember() throws IOException {
+        List<FingerprintRule> rules = List.of(
+                rule("""
+                        id: kafka-topic-rest
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\([^)]*topics\\s*=\\s*"([^"]+)"'
+                        requires: '@RestController'
+                        """),
+                rule("""
+                        id: kafka-topic
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\([^)]*topics\\s*=\\s*"([^"]+)"'
+                        """));
+
+        assertEquals(List.of("kafka-topic=orders", "kafka-topic=internal-audit"),
+                describe(RuleSet.compile(rules).scan(LISTENER, Scope.SOURCE)));
+        assertSameAsStandalone(rules, LISTENER);
+    }
+
+    @Test
+    void excludedValueDoesNotHideOtherMember() throws IOException {
+        List<FingerprintRule> rules = List.of(
+                rule("""
+                        id: kafka-topic-public
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\([^)]*topics\\s*=\\s*"([^"]+)"'
+                        exclude: ['^internal-']
+                        """),
+                rule("""
+                        id: kafka-topic-any
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\(\\s*topics\\s*=\\s*"([^"]+)"'
+                        """));
+
+        assertEquals(List.of("kafka-topic-public=orders", "kafka-topic-any=orders", "kafka-topic-any=internal-audit"),
+                describe(RuleSet.compile(rules).scan(LISTENER, Scope.SOURCE)));
+        assertSameAsStandalone(rules, LISTENER);
+    }
+
+    @Test
+    void projectRuleAndBuiltInRulesBothReport() throws IOException {
+        String client = """
+                @FeignClient(name = "payments", url = "${payments.url}")
+                interface PaymentsClient {}
+                """;
+        List<FingerprintRule> rules = new ArrayList<>(RuleSet.defaults().rules());
+        rules.add(rule("""
+                id: feign-client-owner
+                direction: outbound
+                protocol: REST
+                type: FeignClient
+                pattern: '@FeignClient\\s*\\(\\s*name\\s*=\\s*"([^"]+)"'
+                """));
+
+        List<String> withProjectRule = describe(RuleSet.compile(rules).scan(client, Scope.SOURCE));
+        List<String> builtInOnly = describe(RuleSet.defaults().scan(client, Scope.SOURCE));
+        assertTrue(withProjectRule.containsAll(builtInOnly), withProjectRule + " should contain " + builtInOnly);
+        assertTrue(withProjectRule.contains("feign-client-owner=payments"), withProjectRule.toString());
+        assertSameAsStandalone(rules, client);
+    }
+
+    @Test
+    void streamScanMatchesWholeScan() throws IOException {
+        List<FingerprintRule> rules = List.of(
+                rule("""
+                        id: kafka-topic
+                        direction: inbound
+                        protocol: Messaging-Kafka
+                        pattern: '@KafkaListener\\s*\\([^)]*topics\\s*=\\s*"([^"]+)"'
+                        """),
+                rule("""
+                        id: kafka-group
+                        direction: inbound
+                        protocol: Messaging-Kafka-Group
+                        pattern: '@KafkaListener\\s*\\([^)]*groupId\\s*=\\s*"([^"]+)"'
+                        """));
+        RuleSet ruleSet = RuleSet.compile(rules);
+        List<Fingerprint> streamed = new ArrayList<>();
+        ruleSet.scanStream(new StringReader(LISTENER), Scope.SOURCE, streamed::add);
+
+        List<String> expected = describe(ruleSet.scan(LISTENER, Scope.SOURCE));
+        List<String> actual = describe(streamed);
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected), actual + " should contain " + expected);
+    }
+
+    /**
+     * The merged set reports, rule by rule in declaration order, what each rule reports on its own
+     */
+    private static void assertSameAsStandalone(List<FingerprintRule> rules, String text) {
+        List<String> expected = new ArrayList<>();
+        for (FingerprintRule rule : rules) {
+            expected.addAll(describe(RuleSet.compile(List.of(rule)).scan(text, rule.scope())));
+        }
+        List<String> actual = new ArrayList<>();
+        RuleSet merged = RuleSet.compile(rules);
+        for (Scope scope : Scope.values()) {
+            actual.addAll(describe(merged.scan(text, scope)));
+        }
+        // El conjunto fusionado agrupa por regla; el orden entre ámbitos no importa
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    private static FingerprintRule rule(String yaml) throws IOException {
+        return FingerprintRule.fromNode(YAML.readTree(yaml), "test");
+    }
+
+    private static List<String> describe(List<Fingerprint> fingerprints) {
+        return fingerprints.stream().map(f -> f.rule().id() + "=" + f.value()).toList();
+    }
+}